@@ -0,0 +1,25 @@
+package com.akmal.comperio.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmarks uber jar. Accepts the usual JMH command line (e.g. a regexp of the benchmarks to run)
+ * and always attaches the GC profiler, so that the allocation rate is reported next to the throughput.
+ * Usage: java -jar benchmarks/target/benchmarks.jar [JMH options] [benchmark regexp]
+ */
+public class BenchmarkRunner {
+
+  public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+    final var options = new OptionsBuilder()
+                            .parent(new CommandLineOptions(args))
+                            .addProfiler(GCProfiler.class)
+                            .build();
+
+    new Runner(options).run();
+  }
+}
@@ -0,0 +1,91 @@
+package com.akmal.comperio.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Closed-loop load shared by the harnesses: every client thread opens a connection, sends the request, reads the response until
+ * the server closes the connection and starts over, for the given duration. The latency covers the whole exchange including
+ * the handshake, the clients are platform threads, so that the client side scheduling does not depend on the virtual threads
+ * the server may be using.
+ */
+final class ClosedLoopLoad {
+
+  private ClosedLoopLoad() {}
+
+  static Result run(int port, byte[] request, int clients, int seconds) throws InterruptedException {
+    final var exchanges = new LongAdder();
+    final var failures = new LongAdder();
+    final var latencies = new long[clients][];
+    final var done = new CountDownLatch(clients);
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+
+    for (int i = 0; i < clients; i++) {
+      final int client = i;
+
+      Thread.ofPlatform().name("client-" + i).daemon().start(() -> {
+        long[] samples = new long[1024];
+        int count = 0;
+
+        try {
+          while (System.nanoTime() - deadline < 0) {
+            final long start = System.nanoTime();
+
+            try (final var socket = new Socket()) {
+              socket.connect(new InetSocketAddress("127.0.0.1", port), 5_000);
+              socket.getOutputStream().write(request);
+              drain(socket.getInputStream());
+            } catch (IOException e) {
+              failures.increment();
+              continue;
+            }
+
+            if (count == samples.length) samples = Arrays.copyOf(samples, count * 2);
+            samples[count++] = System.nanoTime() - start;
+            exchanges.increment();
+          }
+        } finally {
+          latencies[client] = Arrays.copyOf(samples, count);
+          done.countDown();
+        }
+      });
+    }
+
+    done.await();
+
+    return new Result(exchanges.sum(), failures.sum(), seconds,
+        Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray());
+  }
+
+  private static void drain(InputStream in) throws IOException {
+    final byte[] buffer = new byte[512];
+    while (in.read(buffer) != -1) {
+      // the server closes the connection after the response
+    }
+  }
+
+  /**
+   * @param sortedLatencies latencies of the successful exchanges in nanoseconds, sorted.
+   */
+  record Result(long exchanges, long failures, int seconds, long[] sortedLatencies) {
+
+    double throughput() {
+      return this.exchanges / (double) this.seconds;
+    }
+
+    /**
+     * Returns the latency at the percentile in milliseconds.
+     */
+    double percentile(double percentile) {
+      if (this.sortedLatencies.length == 0) return Double.NaN;
+      final int index = (int) Math.min(this.sortedLatencies.length - 1, Math.ceil(percentile * this.sortedLatencies.length) - 1);
+      return this.sortedLatencies[Math.max(index, 0)] / 1e6;
+    }
+  }
+}
@@ -0,0 +1,56 @@
+package com.akmal.comperio.benchmarks;
+
+import com.akmal.comperio.http.HttpStatus;
+import com.akmal.comperio.http.MediaType;
+import com.akmal.comperio.http.router.HttpMethod;
+import com.akmal.comperio.http.router.Route;
+import com.akmal.comperio.http.server.HttpServer;
+import com.akmal.comperio.http.server.ServerEngine;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Measures how many new connections per second the {@link HttpServer} accepts and serves, i.e. the reconnect storm where every
+ * request comes on a fresh connection and the accepting side is the bottleneck, with the given number of acceptors.
+ * Every client thread connects, sends a single request, reads the response until the server closes the connection and starts over,
+ * for the given duration. Reports the connection rate, the failures and the latency of the whole exchange including the handshake.
+ * Usage: java -cp benchmarks/target/benchmarks.jar com.akmal.comperio.benchmarks.ConnectionRateHarness
+ * [BLOCKING|NIO] [acceptors] [clients] [seconds] [port]
+ * Compare the runs with 1 and with several acceptors. Every connection leaves a socket in TIME_WAIT, long runs can exhaust
+ * the ephemeral ports of the loopback interface.
+ */
+public class ConnectionRateHarness {
+
+  public static void main(String[] args) throws Exception {
+    final ServerEngine engine = args.length > 0 ? ServerEngine.valueOf(args[0]) : ServerEngine.NIO;
+    final int acceptors = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+    final int clients = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+    final int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+    final int port = args.length > 4 ? Integer.parseInt(args[4]) : 8089;
+
+    final HttpServer server = HttpServer.bindToPort(port)
+                                  .bindTo("127.0.0.1")
+                                  .withEngine(engine)
+                                  .withAcceptors(acceptors)
+                                  .addRoute(Route.of(HttpMethod.GET, "/ping", (request, response) -> {
+                                    response.setStatus(HttpStatus.OK);
+                                    response.setContentType(MediaType.TEXT_PLAIN);
+                                  }))
+                                  .build();
+    server.start();
+    Thread.sleep(500);
+
+    final byte[] request = "GET /ping HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    try {
+      final ClosedLoopLoad.Result result = ClosedLoopLoad.run(port, request, clients, seconds);
+
+      System.out.printf("engine=%s acceptors=%d clients=%d seconds=%d failures=%d%n", engine, acceptors, clients, seconds,
+          result.failures());
+      System.out.printf("connections: %d, rate: %.0f conn/s%n", result.exchanges(), result.throughput());
+      System.out.printf("latency ms p50=%.2f p99=%.2f max=%.2f%n", result.percentile(0.5), result.percentile(0.99),
+          result.percentile(1.0));
+    } finally {
+      server.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,119 @@
+package com.akmal.comperio.benchmarks;
+
+import com.akmal.comperio.http.HttpStatus;
+import com.akmal.comperio.http.MediaType;
+import com.akmal.comperio.http.router.HttpMethod;
+import com.akmal.comperio.http.router.Route;
+import com.akmal.comperio.http.server.HttpServer;
+import com.akmal.comperio.http.server.ServerEngine;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compares the engines of the {@link HttpServer} under a large number of concurrent connections, which JMH is not suited for.
+ * The harness starts the server, opens all the client connections first and keeps them idle, so that the server holds them
+ * all at once, then every connection sends a single request at the same moment and waits for the response.
+ * Reports the time to establish the connections, the time to serve all the requests and the latency percentiles.
+ * Usage: java -cp benchmarks/target/benchmarks.jar com.akmal.comperio.benchmarks.ConnectionScalingHarness [BLOCKING|NIO] [connections] [port]
+ * The open file limit (ulimit -n) has to accommodate both ends of every connection.
+ */
+public class ConnectionScalingHarness {
+
+  public static void main(String[] args) throws Exception {
+    final ServerEngine engine = args.length > 0 ? ServerEngine.valueOf(args[0]) : ServerEngine.NIO;
+    final int connections = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+    final int port = args.length > 2 ? Integer.parseInt(args[2]) : 8089;
+
+    final HttpServer server = HttpServer.bindToPort(port)
+                                  .bindTo("127.0.0.1")
+                                  .withEngine(engine)
+                                  .withMaxConnections(connections)
+                                  .addRoute(Route.of(HttpMethod.GET, "/ping/{id}", (request, response) -> {
+                                    response.setStatus(HttpStatus.OK);
+                                    response.setContentType(MediaType.TEXT_PLAIN);
+
+                                    try (final OutputStream out = response.getOutputStream()) {
+                                      out.write(request.variables().get("id").getBytes(StandardCharsets.US_ASCII));
+                                    } catch (IOException e) {
+                                      throw new IllegalStateException(e);
+                                    }
+                                  }))
+                                  .build();
+    server.start();
+    Thread.sleep(500);
+
+    final var connected = new CountDownLatch(connections);
+    final var go = new CountDownLatch(1);
+    final var done = new CountDownLatch(connections);
+    final var failures = new AtomicInteger();
+    final long[] latencies = new long[connections];
+
+    final long connectStart = System.nanoTime();
+
+    try (final var clients = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (int i = 0; i < connections; i++) {
+        final int id = i;
+
+        clients.execute(() -> {
+          try (final var socket = new Socket()) {
+            socket.connect(new InetSocketAddress("127.0.0.1", port), 30_000);
+            connected.countDown();
+            go.await();
+
+            final long start = System.nanoTime();
+            socket.getOutputStream().write(("GET /ping/" + id + " HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            drain(socket.getInputStream());
+            latencies[id] = System.nanoTime() - start;
+          } catch (IOException | InterruptedException e) {
+            failures.incrementAndGet();
+            latencies[id] = -1;
+            connected.countDown();
+          } finally {
+            done.countDown();
+          }
+        });
+      }
+
+      connected.await();
+      final long connectNanos = System.nanoTime() - connectStart;
+
+      final long requestStart = System.nanoTime();
+      go.countDown();
+      done.await(5, TimeUnit.MINUTES);
+      final long requestNanos = System.nanoTime() - requestStart;
+
+      final long[] served = Arrays.stream(latencies).filter(latency -> latency >= 0).sorted().toArray();
+
+      System.out.printf("engine=%s connections=%d failures=%d%n", engine, connections, failures.get());
+      System.out.printf("connect all: %d ms, serve all: %d ms, throughput: %.0f req/s%n",
+          TimeUnit.NANOSECONDS.toMillis(connectNanos), TimeUnit.NANOSECONDS.toMillis(requestNanos),
+          served.length / (requestNanos / 1e9));
+      System.out.printf("latency ms p50=%.2f p99=%.2f max=%.2f%n", percentile(served, 0.5), percentile(served, 0.99),
+          percentile(served, 1.0));
+    } finally {
+      server.shutdownNow();
+    }
+  }
+
+  private static void drain(InputStream in) throws IOException {
+    final byte[] buffer = new byte[512];
+    while (in.read(buffer) != -1) {
+      // the server closes the connection after the response
+    }
+  }
+
+  private static double percentile(long[] sorted, double percentile) {
+    if (sorted.length == 0) return Double.NaN;
+    final int index = (int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1);
+    return sorted[Math.max(index, 0)] / 1e6;
+  }
+}
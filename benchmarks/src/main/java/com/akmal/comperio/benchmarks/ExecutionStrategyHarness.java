@@ -0,0 +1,132 @@
+package com.akmal.comperio.benchmarks;
+
+import com.akmal.comperio.http.HttpStatus;
+import com.akmal.comperio.http.MediaType;
+import com.akmal.comperio.http.router.HttpMethod;
+import com.akmal.comperio.http.router.Route;
+import com.akmal.comperio.http.server.ExecutionStrategy;
+import com.akmal.comperio.http.server.HttpServer;
+import com.akmal.comperio.http.server.ServerEngine;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Matrix of the {@link ExecutionStrategy} and the {@link ServerEngine} for the tiny handlers, reports the throughput and the latency
+ * percentiles of every combination. Every cell runs in its own JVM, so that the cells do not share the JIT profile, the heap
+ * or the carrier threads of the virtual threads, whose number the JDK reads only once.
+ * The strategies are named: virtual, virtual-carriers-N, platform-THREADS-QUEUE and inline (NIO only). The virtual-carriers-N cell
+ * runs the virtual threads with its JVM started with N carrier threads, see {@link ExecutionStrategy#CARRIER_PARALLELISM_PROPERTY}.
+ * Usage: java -cp benchmarks/target/benchmarks.jar com.akmal.comperio.benchmarks.ExecutionStrategyHarness
+ * [clients] [seconds] [port] [strategy...]
+ */
+public class ExecutionStrategyHarness {
+  private static final String CELL = "--cell";
+  private static final String RESULT = "RESULT";
+  private static final String VIRTUAL_CARRIERS = "virtual-carriers-";
+
+  public static void main(String[] args) throws Exception {
+    if (args.length > 0 && args[0].equals(CELL)) {
+      runCell(ServerEngine.valueOf(args[1]), args[2], Integer.parseInt(args[3]), Integer.parseInt(args[4]), Integer.parseInt(args[5]));
+      return;
+    }
+
+    final int clients = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+    final int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+    final int port = args.length > 2 ? Integer.parseInt(args[2]) : 8089;
+    final int cores = Runtime.getRuntime().availableProcessors();
+    final List<String> strategies = args.length > 3
+                                        ? List.of(args).subList(3, args.length)
+                                        : List.of("virtual", VIRTUAL_CARRIERS + Math.max(1, cores / 2),
+                                            "platform-" + cores * 4 + "-1024", "inline");
+
+    System.out.printf("clients=%d seconds=%d cores=%d%n", clients, seconds, cores);
+    System.out.printf("%-9s %-24s %12s %10s %10s %10s%n", "engine", "strategy", "req/s", "p50 ms", "p99 ms", "failures");
+
+    for (ServerEngine engine: ServerEngine.values()) {
+      for (String strategy: strategies) {
+        if (strategy.equals("inline") && engine != ServerEngine.NIO) continue;
+
+        final String[] result = runInFreshJvm(engine, strategy, clients, seconds, port);
+        System.out.printf("%-9s %-24s %12s %10s %10s %10s%n", engine, strategy, result[0], result[1], result[2], result[3]);
+      }
+    }
+  }
+
+  private static void runCell(ServerEngine engine, String strategy, int clients, int seconds, int port) throws Exception {
+    final HttpServer server = HttpServer.bindToPort(port)
+                                  .bindTo("127.0.0.1")
+                                  .withEngine(engine)
+                                  .withExecution(parseStrategy(strategy))
+                                  .addRoute(Route.of(HttpMethod.GET, "/ping", (request, response) -> {
+                                    response.setStatus(HttpStatus.OK);
+                                    response.setContentType(MediaType.TEXT_PLAIN);
+
+                                    try {
+                                      response.getOutputStream().write('1');
+                                    } catch (IOException e) {
+                                      throw new UncheckedIOException(e);
+                                    }
+                                  }))
+                                  .build();
+    server.start();
+    Thread.sleep(500);
+
+    final byte[] request = "GET /ping HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    try {
+      ClosedLoopLoad.run(port, request, clients, 1); // warm-up
+      final ClosedLoopLoad.Result result = ClosedLoopLoad.run(port, request, clients, seconds);
+
+      System.out.printf("%s %.0f %.2f %.2f %d%n", RESULT, result.throughput(), result.percentile(0.5), result.percentile(0.99),
+          result.failures());
+    } finally {
+      server.shutdownNow();
+    }
+  }
+
+  private static ExecutionStrategy parseStrategy(String name) {
+    if (name.equals("virtual") || name.startsWith(VIRTUAL_CARRIERS)) return ExecutionStrategy.virtualThreads();
+    if (name.equals("inline")) return ExecutionStrategy.inline();
+    if (name.startsWith("platform-")) {
+      final String[] parts = name.split("-");
+      return ExecutionStrategy.platformThreadPool(Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+    }
+
+    throw new IllegalArgumentException("Unknown strategy " + name);
+  }
+
+  /**
+   * Runs the cell with the same JVM and class path and returns the throughput, p50, p99 and the failures.
+   */
+  private static String[] runInFreshJvm(ServerEngine engine, String strategy, int clients, int seconds, int port)
+      throws IOException, InterruptedException {
+    final List<String> command = new ArrayList<>();
+    command.add(ProcessHandle.current().info().command().orElse("java"));
+    command.add("--enable-preview");
+    if (strategy.startsWith(VIRTUAL_CARRIERS)) {
+      command.add("-D" + ExecutionStrategy.CARRIER_PARALLELISM_PROPERTY + "=" + strategy.substring(VIRTUAL_CARRIERS.length()));
+    }
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add(ExecutionStrategyHarness.class.getName());
+    command.addAll(List.of(CELL, engine.name(), strategy, String.valueOf(clients), String.valueOf(seconds), String.valueOf(port)));
+
+    final Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+    String[] result = {"-", "-", "-", "failed"};
+
+    try (final var reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.startsWith(RESULT + " ")) result = line.substring(RESULT.length() + 1).split(" ");
+      }
+    }
+
+    process.waitFor();
+    return result;
+  }
+}
@@ -0,0 +1,211 @@
+package com.akmal.comperio.benchmarks;
+
+import com.akmal.comperio.http.HttpStatus;
+import com.akmal.comperio.http.MediaType;
+import com.akmal.comperio.http.router.HttpMethod;
+import com.akmal.comperio.http.router.Route;
+import com.akmal.comperio.http.server.HttpServer;
+import com.akmal.comperio.http.server.ServerEngine;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compares HTTP/1.1 and h2c for the clients of the service discovery, which poll and heartbeat with a few requests in flight.
+ * Every client is its own JDK {@link HttpClient}, over HTTP/1.1 it opens a connection per request in flight, over h2c it multiplexes
+ * them onto a single one. The server runs in its own JVM, so that its heap is not mixed with the clients, and once the load is over,
+ * with all the connections still open, reports the established connections and the heap used after the GC.
+ * Reports the throughput, the requests per connection and the server heap per client.
+ * The connections are counted from /proc/net/tcp, i.e. on Linux only.
+ * Usage: java -cp benchmarks/target/benchmarks.jar com.akmal.comperio.benchmarks.Http2Harness
+ * [clients] [requests per client] [requests in flight per client] [port]
+ */
+public class Http2Harness {
+  private static final String SERVER = "--server";
+  private static final String READY = "READY";
+
+  public static void main(String[] args) throws Exception {
+    if (args.length > 0 && args[0].equals(SERVER)) {
+      runServer(Integer.parseInt(args[1]));
+      return;
+    }
+
+    final int clients = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+    final int requests = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+    final int inFlight = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+    final int port = args.length > 3 ? Integer.parseInt(args[3]) : 8089;
+
+    System.out.printf("clients=%d requests=%d in-flight=%d%n", clients, requests, inFlight);
+    System.out.printf("%-9s %12s %12s %10s %14s %10s%n", "protocol", "req/s", "connections", "req/conn", "heap/client KB", "failures");
+
+    for (HttpClient.Version version: HttpClient.Version.values()) {
+      final Process server = startServer(port);
+      try {
+        run(version, clients, requests, inFlight, port);
+      } finally {
+        server.destroy();
+        server.waitFor();
+      }
+    }
+  }
+
+  private static void run(HttpClient.Version version, int clients, int requests, int inFlight, int port) throws Exception {
+    final String base = "http://127.0.0.1:" + port;
+    final String[] idle = stats(port); // the connection of the stats is not counted, see stats
+
+    try (final var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      final List<HttpClient> httpClients = new ArrayList<>();
+      for (int i = 0; i < clients; i++) {
+        httpClients.add(HttpClient.newBuilder().version(version).executor(executor).build());
+      }
+
+      for (HttpClient client: httpClients) { // the upgrade to h2c happens on the first request
+        client.send(HttpRequest.newBuilder(URI.create(base + "/heartbeat/0")).build(), BodyHandlers.discarding());
+      }
+
+      final var failures = new AtomicInteger();
+      final List<CompletableFuture<Void>> loops = new ArrayList<>();
+      final long start = System.nanoTime();
+
+      for (HttpClient client: httpClients) {
+        for (int lane = 0; lane < inFlight; lane++) {
+          loops.add(CompletableFuture.runAsync(() -> {
+            for (int i = 0; i < requests / inFlight; i++) {
+              try {
+                client.send(HttpRequest.newBuilder(URI.create(base + "/heartbeat/" + i)).build(), BodyHandlers.discarding());
+              } catch (IOException e) {
+                failures.incrementAndGet();
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+              }
+            }
+          }, executor));
+        }
+      }
+
+      CompletableFuture.allOf(loops.toArray(CompletableFuture[]::new)).join();
+      final long nanos = System.nanoTime() - start;
+      final String[] loaded = stats(port);
+
+      final long total = (long) clients * (requests / inFlight) * inFlight + clients;
+      final long connections = Long.parseLong(loaded[0]);
+      final long heapPerClient = (Long.parseLong(loaded[1]) - Long.parseLong(idle[1])) / clients;
+
+      System.out.printf("%-9s %12.0f %12d %10.1f %14.1f %10d%n", version, (total - clients) / (nanos / 1e9), connections,
+          connections == 0 ? Double.NaN : (double) total / connections, heapPerClient / 1024.0, failures.get());
+
+      httpClients.clear(); // the connections close with the server
+    }
+  }
+
+  /**
+   * Returns the established connections, without the one asking, and the heap used by the server after the GC.
+   */
+  private static String[] stats(int port) throws IOException {
+    try (final var socket = new Socket("127.0.0.1", port)) {
+      socket.getOutputStream().write("GET /stats HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+      final String response = new String(socket.getInputStream().readAllBytes(), StandardCharsets.US_ASCII);
+
+      return response.substring(response.indexOf("\r\n\r\n") + 4).split(" ");
+    }
+  }
+
+  private static void runServer(int port) throws Exception {
+    final HttpServer server = HttpServer.bindToPort(port)
+                                  .bindTo("127.0.0.1")
+                                  .withEngine(ServerEngine.BLOCKING)
+                                  .withMaxConnections(100_000)
+                                  .addRoute(Route.of(HttpMethod.GET, "/heartbeat/{id}", (request, response) -> {
+                                    write(response, "ok");
+                                  }))
+                                  .addRoute(Route.of(HttpMethod.GET, "/stats", (request, response) -> {
+                                    System.gc();
+                                    final long heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+                                    write(response, (establishedConnections(port) - 1) + " " + heap);
+                                  }))
+                                  .build();
+    server.start();
+    Thread.sleep(500);
+
+    System.out.println(READY);
+    Thread.currentThread().join(); // until destroyed
+  }
+
+  private static void write(com.akmal.comperio.http.server.HttpResponse response, String body) {
+    response.setStatus(HttpStatus.OK);
+    response.setContentType(MediaType.TEXT_PLAIN);
+
+    try {
+      response.getOutputStream().write(body.getBytes(StandardCharsets.US_ASCII));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Counts the sockets of the server in the ESTABLISHED state, the local port is the 2nd column and the state the 4th.
+   * The dual-stack sockets of the JDK are listed in tcp6 with the IPv4-mapped addresses.
+   */
+  private static long establishedConnections(int port) {
+    final String localPort = String.format(":%04X", port);
+    long established = 0;
+
+    for (String table: List.of("/proc/net/tcp", "/proc/net/tcp6")) {
+      try {
+        established += Files.readAllLines(Path.of(table)).stream()
+                           .map(line -> line.trim().split("\\s+"))
+                           .filter(columns -> columns[1].endsWith(localPort) && columns[3].equals("01"))
+                           .count();
+      } catch (IOException e) {
+        // not Linux or IPv6 is disabled
+      }
+    }
+
+    return established;
+  }
+
+  private static Process startServer(int port) throws IOException {
+    final List<String> command = new ArrayList<>();
+    command.add(ProcessHandle.current().info().command().orElse("java"));
+    command.add("--enable-preview");
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add(Http2Harness.class.getName());
+    command.addAll(List.of(SERVER, String.valueOf(port)));
+
+    final Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+    final var reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+
+    String line;
+    while ((line = reader.readLine()) != null && !line.equals(READY)) {
+      // the logs of the start
+    }
+
+    Thread.ofVirtual().start(() -> {
+      try {
+        while (reader.readLine() != null) {
+          // keeps the pipe drained
+        }
+      } catch (IOException ignored) {
+        // the server is gone
+      }
+    });
+    return process;
+  }
+}
@@ -0,0 +1,96 @@
+package com.akmal.comperio.http.parser.request;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the String based {@link HttpV1RequestParser} with the byte level {@link HttpRequestHeadParser}.
+ * The incremental parser is measured both on its own (offsets only, as the event loop sees it until the head is complete)
+ * and together with the materialisation of the request details.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "--enable-preview")
+public class RequestParserBenchmark {
+  private static final String SMALL = """
+      GET /v1/applications/registry/instances/instance01 HTTP/1.1\r
+      Host: localhost:8080\r
+      Accept: */*\r
+      \r
+      """;
+
+  private static final String LARGE = """
+      POST /v1/applications/registry/instances/instance01?zone=eu-west-1&force=true HTTP/1.1\r
+      Host: localhost:8080\r
+      User-Agent: Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/118.0.0.0 Safari/537.36\r
+      Accept: text/html,application/xhtml+xml,application/xml;q=0.9,image/avif,image/webp,*/*;q=0.8\r
+      Accept-Language: en-GB,en;q=0.9\r
+      Accept-Encoding: gzip, deflate, br\r
+      Content-Type: application/json\r
+      Content-Length: 64\r
+      Cookie: session=4f1d2c9a7b3e4d5f8a9b0c1d2e3f4a5b; theme=dark; locale=en_GB\r
+      Cache-Control: no-cache\r
+      Connection: keep-alive\r
+      X-Request-Id: 6c1b8f2e-3d4a-4b5c-9e6f-7a8b9c0d1e2f\r
+      \r
+      """;
+
+  @Param({"small", "large"})
+  private String head;
+
+  private byte[] bytes;
+  private ByteBuffer buffer;
+  private HttpV1RequestParser legacyParser;
+  private ByteBufferRequestParser byteBufferParser;
+  private HttpRequestHeadParser headParser;
+
+  @Setup
+  public void setup() {
+    this.bytes = ("small".equals(this.head) ? SMALL : LARGE).getBytes(StandardCharsets.US_ASCII);
+    this.buffer = ByteBuffer.allocate(HttpRequestHeadParser.DEFAULT_MAX_HEAD_BYTES).put(this.bytes);
+    this.legacyParser = new HttpV1RequestParser();
+    this.byteBufferParser = new ByteBufferRequestParser();
+    this.headParser = new HttpRequestHeadParser();
+  }
+
+  @Benchmark
+  public ParsedHttpRequestDetails legacy() throws IOException {
+    return this.legacyParser.parse(new ByteArrayInputStream(this.bytes));
+  }
+
+  @Benchmark
+  public ParsedHttpRequestDetails byteBuffer() {
+    return this.byteBufferParser.parse(this.bytes, 0, this.bytes.length);
+  }
+
+  @Benchmark
+  public int incrementalOffsets() {
+    this.headParser.reset();
+    this.headParser.parse(this.buffer);
+    return this.headParser.headEnd();
+  }
+
+  @Benchmark
+  public ParsedHttpRequestDetails incrementalDetails() {
+    this.headParser.reset();
+    this.headParser.parse(this.buffer);
+    return this.headParser.toRequestDetails();
+  }
+}
@@ -0,0 +1,92 @@
+package com.akmal.comperio.http.router;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Route table used by the router benchmarks together with the sample paths of each lookup scenario.
+ * The tables are generated deterministically, so that the results of the runs are comparable.
+ *
+ * @param routes to be registered in the order of registration.
+ * @param staticHit path that matches a route without variables.
+ * @param parameterisedHit path that matches a route with variables.
+ * @param miss path that shares the prefix with the routes, but does not match any.
+ * @param deepPath path that matches the longest route of the table.
+ */
+record RouteTable(List<Route<Object>> routes, String staticHit, String parameterisedHit, String miss, String deepPath) {
+  private static final Object HANDLER = new Object();
+  private static final String[] VERBS = {"GET", "POST", "PUT", "DELETE", "PATCH"};
+
+  /**
+   * Routes served by the registry HTTP API.
+   */
+  static RouteTable registry() {
+    final String instances = "/v1/applications/{appId}/instances";
+    final String instance = instances + "/{instanceId}";
+
+    return new RouteTable(List.of(
+        Route.of(HttpMethod.POST, instance, HANDLER),
+        Route.of(HttpMethod.POST, instance + "/heartbeat", HANDLER),
+        Route.of(HttpMethod.DELETE, instance, HANDLER),
+        Route.of(HttpMethod.GET, instances, HANDLER),
+        Route.of(HttpMethod.GET, instance, HANDLER)),
+        "/v1/applications/payment-service/instances", // registry has no routes without variables, the closest is the listing
+        "/v1/applications/payment-service/instances/instance-01",
+        "/v1/applications/payment-service/clusters",
+        "/v1/applications/payment-service/instances/instance-01/heartbeat");
+  }
+
+  /**
+   * Typical REST API of 40 resources with 5 routes each: collection, item, item field, nested collection and static action.
+   */
+  static RouteTable rest() {
+    final var routes = new ArrayList<Route<Object>>();
+
+    for (int i = 0; i < 40; i++) {
+      final String resource = "/api/v2/resource" + i;
+
+      routes.add(Route.of(HttpMethod.GET, resource, HANDLER));
+      routes.add(Route.of(HttpMethod.GET, resource + "/{id}", HANDLER));
+      routes.add(Route.of(HttpMethod.PUT, resource + "/{id}/status", HANDLER));
+      routes.add(Route.of(HttpMethod.GET, resource + "/{id}/items/{itemId}", HANDLER));
+      routes.add(Route.of(HttpMethod.POST, resource + "/actions/refresh", HANDLER));
+    }
+
+    return new RouteTable(routes,
+        "/api/v2/resource37/actions/refresh",
+        "/api/v2/resource21/8842",
+        "/api/v2/resource21/8842/unknown",
+        "/api/v2/resource39/8842/items/11");
+  }
+
+  /**
+   * 2000 routes where every level mixes a variable with static segments that share prefixes, so that the lookups have to
+   * backtrack from the static edges to the variables. The deep path descends the static edges of the tenant first and
+   * matches only after backtracking to the variables at the root of the tenants.
+   */
+  static RouteTable overlapping() {
+    final var routes = new ArrayList<Route<Object>>();
+
+    for (int i = 0; i < 20; i++) {
+      final String tenant = "/tenants/tenant" + i;
+
+      for (int j = 0; j < 20; j++) {
+        routes.add(Route.of(HttpMethod.GET, tenant + "/{groupId}/leaf" + j, HANDLER));
+        routes.add(Route.of(HttpMethod.GET, tenant + "/group" + j + "/{memberId}", HANDLER));
+        routes.add(Route.of(HttpMethod.valueOf(VERBS[j % VERBS.length]), tenant + "/group" + j + "/members/{memberId}/roles", HANDLER));
+        routes.add(Route.of(HttpMethod.GET, "/tenants/{tenantId}/group" + j + "/leaf" + i, HANDLER));
+        if (j == 0) {
+          routes.add(Route.of(HttpMethod.GET, tenant + "/settings", HANDLER));
+        } else {
+          routes.add(Route.of(HttpMethod.GET, "/tenants/{tenantId}/{groupId}/members/{memberId}/roles/role" + i + "_" + j, HANDLER));
+        }
+      }
+    }
+
+    return new RouteTable(routes,
+        "/tenants/tenant7/settings",
+        "/tenants/tenant7/group1/leaf19",
+        "/tenants/tenant7/group1/members/42/permissions",
+        "/tenants/tenant7/group3/members/42/roles/role7_3");
+  }
+}
@@ -0,0 +1,89 @@
+package com.akmal.comperio.http.router;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the {@link Router} implementations on the route tables of {@link RouteTable}.
+ * Lookups are measured through both the Optional based API and the reusable holder, registration measures building the
+ * whole table from scratch (including the compilation for the frozen router).
+ * Run with the GC profiler (see BenchmarkRunner) to get the allocation rate next to the throughput.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "--enable-preview")
+public class RouterBenchmark {
+
+  @Param({"TRIE", "RADIX", "FROZEN", "METHOD_HANDLE"})
+  private String router; // name of the RouterImplementation, generated JMH classes can set only the public types
+
+  @Param({"registry", "rest", "overlapping"})
+  private String table;
+
+  private RouterImplementation implementation;
+  private RouteTable routeTable;
+  private Router<Object> instance;
+  private MutableRouteMatch<Object> holder;
+
+  @Setup
+  public void setup() {
+    this.implementation = RouterImplementation.valueOf(this.router);
+    this.routeTable = switch (this.table) {
+      case "registry" -> RouteTable.registry();
+      case "rest" -> RouteTable.rest();
+      case "overlapping" -> RouteTable.overlapping();
+      default -> throw new IllegalArgumentException("Unknown route table " + this.table);
+    };
+
+    this.instance = this.implementation.build(this.routeTable.routes());
+    this.holder = new MutableRouteMatch<>();
+  }
+
+  @Benchmark
+  public Router<Object> register() {
+    return this.implementation.build(this.routeTable.routes());
+  }
+
+  @Benchmark
+  public Object matchStaticHit() {
+    return this.instance.match(HttpMethod.GET, this.routeTable.staticHit());
+  }
+
+  @Benchmark
+  public Object matchParameterisedHit() {
+    return this.instance.match(HttpMethod.GET, this.routeTable.parameterisedHit());
+  }
+
+  @Benchmark
+  public Object matchMiss() {
+    return this.instance.match(HttpMethod.GET, this.routeTable.miss());
+  }
+
+  @Benchmark
+  public Object matchDeepPath() {
+    return this.instance.match(HttpMethod.GET, this.routeTable.deepPath());
+  }
+
+  @Benchmark
+  public boolean matchParameterisedHitIntoHolder() {
+    return this.instance.match(HttpMethod.GET, this.routeTable.parameterisedHit(), this.holder);
+  }
+
+  @Benchmark
+  public boolean matchDeepPathIntoHolder() {
+    return this.instance.match(HttpMethod.GET, this.routeTable.deepPath(), this.holder);
+  }
+}
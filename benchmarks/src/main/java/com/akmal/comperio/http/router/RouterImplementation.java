@@ -0,0 +1,48 @@
+package com.akmal.comperio.http.router;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Router implementations compared by the benchmarks, each one is created empty and filled the same way as at the startup.
+ */
+enum RouterImplementation {
+  TRIE(TrieRouter::new),
+  RADIX(RadixTreeRouter::new),
+  FROZEN(RadixTreeRouter::new) {
+    @Override
+    Router<Object> build(List<Route<Object>> routes) {
+      return super.build(routes).freeze();
+    }
+  },
+  COPY_ON_WRITE(CopyOnWriteRouter::new),
+  METHOD_HANDLE(MethodHandleRouter::new) {
+    @Override
+    Router<Object> build(List<Route<Object>> routes) {
+      final Router<Object> router = super.build(routes);
+      router.match(HttpMethod.GET, "/"); // compiles the matcher, so that it is not measured by the lookups
+      return router;
+    }
+  };
+
+  private final Supplier<Router<Object>> factory;
+
+  RouterImplementation(Supplier<Router<Object>> factory) {
+    this.factory = factory;
+  }
+
+  Router<Object> create() {
+    return this.factory.get();
+  }
+
+  /**
+   * Creates the router with all the routes registered and ready to serve the lookups.
+   */
+  Router<Object> build(List<Route<Object>> routes) {
+    final Router<Object> router = this.create();
+
+    for (Route<Object> route: routes) router.register(route);
+
+    return router;
+  }
+}
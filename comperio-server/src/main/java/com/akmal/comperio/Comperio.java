@@ -7,12 +7,13 @@ import com.akmal.comperio.shared.clock.SystemClock;
 
 public class Comperio {
 
-  public static void main(String[] args) {
+  public static void main(String[] args) throws InterruptedException {
     ClientRegistry clientRegistry = ClientRegistry.withExpiry(30000, new SystemClock());
     ClientRegistrationService clientRegistrationService = new ClientRegistrationService(clientRegistry, new SystemClock());
 
-    RegistryHttpServer registryHttpServer = RegistryHttpServer.bindTo("localhost", 8080, clientRegistrationService);
+    RegistryHttpServer registryHttpServer = RegistryHttpServer.configure(System.getProperties(), clientRegistrationService);
 
     registryHttpServer.start();
+    Thread.currentThread().join(); // the threads of the http-server backends are daemons, the process runs until it is stopped
   }
 }
@@ -0,0 +1,58 @@
+package com.akmal.comperio.cluster.transport.shaping;
+
+import java.util.Properties;
+
+/**
+ * Byte-rate limits applied to the replication traffic of the cluster transport.
+ * Non-positive rate means that the respective limit is disabled.
+ *
+ * @param globalBytesPerSecond sustained rate of all the outgoing replication traffic of the node.
+ * @param globalBurstBytes number of bytes the node can send at once across all the peers.
+ * @param peerBytesPerSecond sustained rate of the replication traffic towards a single peer.
+ * @param peerBurstBytes number of bytes the node can send at once towards a single peer.
+ */
+public record BandwidthLimits(
+    long globalBytesPerSecond,
+    long globalBurstBytes,
+    long peerBytesPerSecond,
+    long peerBurstBytes
+) {
+  public static final String GLOBAL_BYTES_PER_SECOND = "cluster.transport.bandwidth.global.bytes-per-second";
+  public static final String GLOBAL_BURST_BYTES = "cluster.transport.bandwidth.global.burst-bytes";
+  public static final String PEER_BYTES_PER_SECOND = "cluster.transport.bandwidth.peer.bytes-per-second";
+  public static final String PEER_BURST_BYTES = "cluster.transport.bandwidth.peer.burst-bytes";
+
+  public BandwidthLimits {
+    if (globalBytesPerSecond > 0 && globalBurstBytes <= 0) throw new IllegalArgumentException("Global burst must be positive when global rate is set");
+    if (peerBytesPerSecond > 0 && peerBurstBytes <= 0) throw new IllegalArgumentException("Peer burst must be positive when peer rate is set");
+  }
+
+  public boolean isGlobalLimited() {
+    return globalBytesPerSecond > 0;
+  }
+
+  public boolean isPeerLimited() {
+    return peerBytesPerSecond > 0;
+  }
+
+  /**
+   * Returns limits that do not shape the traffic at all.
+   */
+  public static BandwidthLimits unlimited() {
+    return new BandwidthLimits(0, 0, 0, 0);
+  }
+
+  /**
+   * Reads the limits from the configuration properties. When the burst is not specified, it defaults to one second worth of traffic.
+   *
+   * @param properties configuration.
+   * @return limits, unlimited if none of the properties are present.
+   */
+  public static BandwidthLimits fromProperties(Properties properties) {
+    final long globalRate = Long.parseLong(properties.getProperty(GLOBAL_BYTES_PER_SECOND, "0"));
+    final long peerRate = Long.parseLong(properties.getProperty(PEER_BYTES_PER_SECOND, "0"));
+
+    return new BandwidthLimits(globalRate, Long.parseLong(properties.getProperty(GLOBAL_BURST_BYTES, String.valueOf(globalRate))),
+        peerRate, Long.parseLong(properties.getProperty(PEER_BURST_BYTES, String.valueOf(peerRate))));
+  }
+}
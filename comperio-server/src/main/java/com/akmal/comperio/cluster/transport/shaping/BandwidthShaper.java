@@ -0,0 +1,110 @@
+package com.akmal.comperio.cluster.transport.shaping;
+
+import com.akmal.comperio.shared.clock.Clock;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Shapes the outgoing replication traffic of the cluster transport with a global and per-peer {@link TokenBucket}.
+ * Transport asks for a permit before writing a message to the peer, if the permit is not granted, the message has to be deferred
+ * (or dropped in case of idempotent gossip) and the amount of bytes is accounted in the throttled counters of the peer.
+ * Prioritisation between the {@link TrafficClass}es is achieved by the headroom that lower priority classes leave in both buckets,
+ * therefore, bulk transfers cannot starve the membership and failure-detection messages.
+ */
+@ThreadSafe
+public class BandwidthShaper {
+  private static final TrafficClass[] TRAFFIC_CLASSES = TrafficClass.values();
+
+  private final BandwidthLimits limits;
+  private final Clock clock;
+  private final TokenBucket globalBucket;
+  private final ConcurrentMap<UUID, PeerState> peers;
+
+  private static final class PeerState {
+    private final TokenBucket bucket;
+    private final LongAdder[] throttledBytes;
+
+    private PeerState(TokenBucket bucket) {
+      this.bucket = bucket;
+      this.throttledBytes = new LongAdder[TRAFFIC_CLASSES.length];
+
+      for (int i = 0; i < this.throttledBytes.length; i++) this.throttledBytes[i] = new LongAdder();
+    }
+  }
+
+  public BandwidthShaper(BandwidthLimits limits, Clock clock) {
+    this.limits = limits;
+    this.clock = clock;
+    this.globalBucket = limits.isGlobalLimited() ? new TokenBucket(limits.globalBytesPerSecond(), limits.globalBurstBytes(), clock) : null;
+    this.peers = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Tries to acquire a permit to send the number of bytes of a given class to the peer.
+   * Peer bucket is consulted first, and if the global bucket rejects the bytes they are refunded back to the peer bucket.
+   * Messages larger than the burst capacity are never admitted, bulk transfers are expected to be split into chunks.
+   *
+   * @param peerId id of the destination peer.
+   * @param trafficClass class of the message.
+   * @param bytes size of the message on the wire.
+   * @return whether the message can be sent right away.
+   */
+  public boolean tryAcquire(UUID peerId, TrafficClass trafficClass, int bytes) {
+    final PeerState peer = this.peers.computeIfAbsent(peerId, this::newPeerState);
+
+    if (peer.bucket != null && !peer.bucket.tryAcquire(bytes, headroom(peer.bucket, trafficClass))) {
+      peer.throttledBytes[trafficClass.ordinal()].add(bytes);
+      return false;
+    }
+
+    if (this.globalBucket != null && !this.globalBucket.tryAcquire(bytes, headroom(this.globalBucket, trafficClass))) {
+      if (peer.bucket != null) peer.bucket.refund(bytes);
+      peer.throttledBytes[trafficClass.ordinal()].add(bytes);
+      return false;
+    }
+
+    return true;
+  }
+
+  /**
+   * Returns the total number of bytes that were throttled for the peer across all traffic classes.
+   */
+  public long throttledBytes(UUID peerId) {
+    final PeerState peer = this.peers.get(peerId);
+    if (peer == null) return 0;
+
+    long sum = 0;
+    for (LongAdder adder: peer.throttledBytes) sum += adder.sum();
+    return sum;
+  }
+
+  /**
+   * Returns the number of bytes of a given class that were throttled for the peer.
+   */
+  public long throttledBytes(UUID peerId, TrafficClass trafficClass) {
+    final PeerState peer = this.peers.get(peerId);
+    return peer == null ? 0 : peer.throttledBytes[trafficClass.ordinal()].sum();
+  }
+
+  /**
+   * Removes the state associated with the peer, should be invoked once the peer is evicted from the peer registry.
+   */
+  public void removePeer(UUID peerId) {
+    this.peers.remove(peerId);
+  }
+
+  public BandwidthLimits limits() {
+    return limits;
+  }
+
+  private PeerState newPeerState(UUID peerId) {
+    return new PeerState(this.limits.isPeerLimited() ? new TokenBucket(this.limits.peerBytesPerSecond(), this.limits.peerBurstBytes(), this.clock) : null);
+  }
+
+  private static long headroom(TokenBucket bucket, TrafficClass trafficClass) {
+    return (long) (bucket.burstBytes() * trafficClass.headroomFraction());
+  }
+}
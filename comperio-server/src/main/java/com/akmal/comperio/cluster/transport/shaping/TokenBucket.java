@@ -0,0 +1,111 @@
+package com.akmal.comperio.cluster.transport.shaping;
+
+import com.akmal.comperio.shared.clock.Clock;
+import java.util.concurrent.atomic.AtomicLong;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Lock-free byte-rate token bucket driven by the {@link Clock}.
+ * Instead of storing the number of tokens together with the last refill timestamp (two values that cannot be swapped with a single CAS)
+ * the bucket keeps only the theoretical arrival time (TAT) of the next byte, which is the generic cell rate algorithm (GCRA) formulation
+ * of the token bucket. Every acquisition moves the TAT forward by the time it takes to transmit the bytes at the configured rate,
+ * while the bucket is considered full when TAT is not in the future. The request is admitted if and only if the TAT does not get further than
+ * the burst tolerance (time it takes to refill the whole bucket) ahead of the current time.
+ */
+@ThreadSafe
+public class TokenBucket {
+  private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+  private final long bytesPerSecond;
+  private final long burstBytes;
+  private final long burstToleranceNanos;
+  private final Clock clock;
+  private final AtomicLong theoreticalArrivalTime;
+
+  /**
+   * @param bytesPerSecond sustained rate at which the bucket refills.
+   * @param burstBytes capacity of the bucket, i.e. number of bytes that can be sent at once after a period of inactivity.
+   * @param clock source of time, the bucket relies on {@link Clock#currentTimeNanos()} only.
+   */
+  public TokenBucket(long bytesPerSecond, long burstBytes, Clock clock) {
+    if (bytesPerSecond <= 0) throw new IllegalArgumentException("Rate must be positive. Given: " + bytesPerSecond);
+    if (burstBytes <= 0) throw new IllegalArgumentException("Burst capacity must be positive. Given: " + burstBytes);
+
+    this.bytesPerSecond = bytesPerSecond;
+    this.burstBytes = burstBytes;
+    this.burstToleranceNanos = this.costNanos(burstBytes);
+    this.clock = clock;
+    this.theoreticalArrivalTime = new AtomicLong(clock.currentTimeNanos()); // starts full
+  }
+
+  /**
+   * Tries to take the bytes from the bucket leaving the specified headroom intact.
+   * The operation either takes all the bytes or none of them.
+   *
+   * @param bytes number of bytes to be sent.
+   * @param headroomBytes number of bytes that must remain in the bucket after the acquisition.
+   * @return whether the bytes were acquired.
+   */
+  public boolean tryAcquire(long bytes, long headroomBytes) {
+    if (bytes <= 0) return true;
+    final long cost = this.costNanos(bytes);
+    final long tolerance = this.burstToleranceNanos - this.costNanos(Math.max(0, headroomBytes));
+
+    while (true) {
+      final long now = this.clock.currentTimeNanos();
+      final long tat = this.theoreticalArrivalTime.get();
+      final long newTat = Math.max(tat, now) + cost;
+
+      if (newTat - now > tolerance) return false;
+      if (this.theoreticalArrivalTime.compareAndSet(tat, newTat)) return true;
+    }
+  }
+
+  public boolean tryAcquire(long bytes) {
+    return this.tryAcquire(bytes, 0);
+  }
+
+  /**
+   * Returns previously acquired bytes to the bucket, used when the acquisition of the dependent bucket has failed.
+   * Bucket never holds more than its burst capacity.
+   *
+   * @param bytes number of bytes to return.
+   */
+  public void refund(long bytes) {
+    if (bytes <= 0) return;
+    final long cost = this.costNanos(bytes);
+
+    while (true) {
+      final long now = this.clock.currentTimeNanos();
+      final long tat = this.theoreticalArrivalTime.get();
+      final long newTat = Math.max(tat - cost, now);
+
+      if (this.theoreticalArrivalTime.compareAndSet(tat, newTat)) return;
+    }
+  }
+
+  /**
+   * Returns the number of bytes that can be acquired at the moment of invocation.
+   */
+  public long availableBytes() {
+    final long backlogNanos = Math.max(0, this.theoreticalArrivalTime.get() - this.clock.currentTimeNanos());
+    final long backlogBytes = (long) Math.ceil((double) backlogNanos * this.bytesPerSecond / NANOS_PER_SECOND);
+    return Math.max(0, this.burstBytes - backlogBytes);
+  }
+
+  public long bytesPerSecond() {
+    return bytesPerSecond;
+  }
+
+  public long burstBytes() {
+    return burstBytes;
+  }
+
+  /**
+   * Time in nanoseconds it takes to transmit the number of bytes at the configured rate (rounded up).
+   */
+  private long costNanos(long bytes) {
+    if (bytes > Long.MAX_VALUE / NANOS_PER_SECOND) return Long.MAX_VALUE / 4; // practically infinite, guards against the overflow
+    return Math.ceilDiv(bytes * NANOS_PER_SECOND, this.bytesPerSecond);
+  }
+}
@@ -0,0 +1,25 @@
+package com.akmal.comperio.cluster.transport.shaping;
+
+/**
+ * Classes of the replication traffic exchanged between the peers ordered by their priority.
+ * Each class reserves a fraction of the bucket capacity (headroom) that it is not allowed to consume,
+ * so that under saturation the bandwidth is left to the classes with the higher priority.
+ * Membership and failure-detection messages never leave any headroom, therefore, they can always use the
+ * whole burst capacity, deltas leave some space for membership and full-state sync leaves the most.
+ */
+public enum TrafficClass {
+  MEMBERSHIP(0.0d), REGISTRY_DELTA(0.1d), FULL_SYNC(0.3d);
+
+  private final double headroomFraction;
+
+  TrafficClass(double headroomFraction) {
+    this.headroomFraction = headroomFraction;
+  }
+
+  /**
+   * Returns fraction of the bucket burst capacity that must remain available after this class acquired its bytes.
+   */
+  public double headroomFraction() {
+    return headroomFraction;
+  }
+}
@@ -0,0 +1,17 @@
+package com.akmal.comperio.http;
+
+/**
+ * Thread a route handler runs on. The non-blocking engines call the handlers on their I/O threads, each of which serves many
+ * connections, so a handler that runs there must be short and must never block. The rest is dispatched to the worker pool
+ * of the server. Engines that already call the handlers off the I/O threads run both kinds in place.
+ */
+public enum Dispatch {
+  /**
+   * Runs on the thread that read the request, fits the constant-time handlers that neither block nor do substantial work.
+   */
+  IO_THREAD,
+  /**
+   * Runs on the worker pool, fits the handlers that parse or serialize bodies, walk collections or may block.
+   */
+  WORKER
+}
@@ -0,0 +1,69 @@
+package com.akmal.comperio.http;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Entity tags of the registry responses and the evaluation of the If-None-Match precondition (RFC 9110 13.1.2).
+ * The opaque part of the tags issued by the registry is made of letters, digits and dashes only, hence the field is split
+ * on every comma and its members are compared without being copied.
+ */
+public final class EntityTags {
+
+  private EntityTags() {
+  }
+
+  /**
+   * @param opaqueTag characters of the tag without the quotes.
+   */
+  public static String strong(String opaqueTag) {
+    return '"' + opaqueTag + '"';
+  }
+
+  /**
+   * Returns the tag shared by the semantically equivalent representations, such as the identity and the gzip coding of the same body.
+   *
+   * @param opaqueTag characters of the tag without the quotes.
+   */
+  public static String weak(String opaqueTag) {
+    return "W/\"" + opaqueTag + '"';
+  }
+
+  /**
+   * Returns whether one of the tags of the If-None-Match field matches the tag by the weak comparison, i.e. whether the client
+   * already has the current representation and the request can be answered with 304. The wildcard matches any representation.
+   *
+   * @param ifNoneMatch value of the field or null when the request does not carry it.
+   * @param entityTag tag of the current representation, see {@link #strong(String)} and {@link #weak(String)}.
+   */
+  public static boolean noneMatchFails(@Nullable String ifNoneMatch, String entityTag) {
+    if (ifNoneMatch == null) return false;
+
+    final int tagStart = entityTag.startsWith("W/") ? 2 : 0;
+    final int tagLength = entityTag.length() - tagStart;
+    final int length = ifNoneMatch.length();
+    int start = 0;
+
+    while (start < length) {
+      int end = ifNoneMatch.indexOf(',', start);
+      if (end == -1) end = length;
+
+      int from = start;
+      int to = end;
+      while (from < to && isWhitespace(ifNoneMatch.charAt(from))) from++;
+      while (to > from && isWhitespace(ifNoneMatch.charAt(to - 1))) to--;
+
+      if (to - from == 1 && ifNoneMatch.charAt(from) == '*') return true;
+      if (ifNoneMatch.startsWith("W/", from)) from += 2; // the weak comparison ignores the weakness
+
+      if (to - from == tagLength && ifNoneMatch.regionMatches(from, entityTag, tagStart, tagLength)) return true;
+
+      start = end + 1;
+    }
+
+    return false;
+  }
+
+  private static boolean isWhitespace(char c) {
+    return c == ' ' || c == '\t';
+  }
+}
@@ -0,0 +1,74 @@
+package com.akmal.comperio.http;
+
+import com.akmal.comperio.http.router.HttpMethod;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * Request and response of a single exchange as seen by the registry handlers, independent of the server engine underneath,
+ * so that the same handlers run on Undertow and on the http-server module. The view is valid during the handler invocation
+ * and, when the body is received, during the body callback.
+ */
+public interface HttpExchange {
+
+  /**
+   * @return method of the request or null when the router does not support it.
+   */
+  HttpMethod method();
+
+  /**
+   * @return path of the request without the query string.
+   */
+  String path();
+
+  /**
+   * @return first value of the request header or null when the request does not carry it.
+   */
+  String requestHeader(String name);
+
+  /**
+   * Receives the whole request body and passes it to the callback, which completes the response. On the I/O thread the body is read
+   * without blocking, in which case the callback runs after the handler returned, possibly on another thread, off the I/O thread
+   * the body is read in place.
+   */
+  void receiveBody(Consumer<byte[]> callback);
+
+  /**
+   * @return whether the exchange is being handled by the I/O thread of a non-blocking engine.
+   */
+  boolean isInIoThread();
+
+  /**
+   * Continues the exchange with the task on the executor once the current handler returns, the response is completed
+   * by the task. The failure of the task is answered with 500 by the engine.
+   */
+  void dispatch(Executor executor, DispatchedTask task);
+
+  @FunctionalInterface
+  interface DispatchedTask {
+    void run() throws Exception;
+  }
+
+  void setStatus(HttpStatus status);
+
+  void setContentType(String contentType);
+
+  void setResponseHeader(String name, String value);
+
+  /**
+   * Sends the body encoded as UTF-8 and completes the response.
+   */
+  void send(String body);
+
+  /**
+   * Sends the body and completes the response, the array must not be modified afterwards.
+   */
+  void send(byte[] body);
+
+  /**
+   * Sends the remaining bytes of the buffer and completes the response. Neither the content nor the position of the buffer
+   * is modified, so that a read-only buffer can be shared by the concurrent responses.
+   */
+  void send(ByteBuffer body);
+}
@@ -1,7 +1,36 @@
 package com.akmal.comperio.http;
 
-import io.undertow.server.HttpServerExchange;
-
 public interface HttpRouteHandler {
-  void handleRequest(HttpServerExchange exchange, RequestVariables requestVariables) throws Exception;
+  void handleRequest(HttpExchange exchange, RequestVariables requestVariables) throws Exception;
+
+  /**
+   * Returns the thread the handler runs on, see {@link #onWorker(HttpRouteHandler)}.
+   */
+  default Dispatch dispatch() {
+    return Dispatch.IO_THREAD;
+  }
+
+  /**
+   * Declares the handler to run on the I/O thread.
+   */
+  static HttpRouteHandler onIoThread(HttpRouteHandler handler) {
+    return handler::handleRequest;
+  }
+
+  /**
+   * Declares the handler to run on the worker pool.
+   */
+  static HttpRouteHandler onWorker(HttpRouteHandler handler) {
+    return new HttpRouteHandler() {
+      @Override
+      public void handleRequest(HttpExchange exchange, RequestVariables requestVariables) throws Exception {
+        handler.handleRequest(exchange, requestVariables);
+      }
+
+      @Override
+      public Dispatch dispatch() {
+        return Dispatch.WORKER;
+      }
+    };
+  }
 }
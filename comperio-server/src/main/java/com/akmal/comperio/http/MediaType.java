@@ -1,9 +0,0 @@
-package com.akmal.comperio.http;
-
-public final class MediaType {
-  public static final String APPLICATION_JSON = "application/json";
-  public static final String TEXT_PLAIN = "text/plain";
-  public static final String TEXT_HTML = "text/html";
-  public static final String APPLICATION_OCTET_STREAM = "application/octet-stream";
-  public static final String APPLICATION_XML = "application/xml";
-}
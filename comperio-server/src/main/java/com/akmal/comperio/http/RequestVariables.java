@@ -1,37 +1,57 @@
 package com.akmal.comperio.http;
 
-import java.util.Map;
+import com.akmal.comperio.http.router.MutableRouteMatch;
+import com.akmal.comperio.http.router.VariableSlot;
 
 /**
- * Wrapper around a vanilla Map and serves the purpose of casting
- * the values to the respective types.
+ * View over the variables of the matched route that serves the purpose of casting
+ * the values to the respective types. Variable Strings are materialised only on access.
+ * The view is backed by the thread-confined {@link MutableRouteMatch}, therefore, it is valid only
+ * during the synchronous handler invocation. Use {@link #detach()} to keep the variables for later.
+ * Hot handlers should read the variables by {@link VariableSlot} resolved at the route registration, which is an array access,
+ * while the lookup by name scans the declared variables of the route.
  */
 public class RequestVariables {
 
-  private final Map<String, String> variables;
+  private final MutableRouteMatch<?> match;
 
 
-  public RequestVariables(Map<String, String> variables) {
-    this.variables = variables;
+  public RequestVariables(MutableRouteMatch<?> match) {
+    this.match = match;
+  }
+
+  /**
+   * Returns a copy that is not affected by the subsequent lookups on the thread.
+   */
+  public RequestVariables detach() {
+    return new RequestVariables(this.match.copy());
+  }
+
+  public String asString(VariableSlot slot) {
+    return this.match.variable(slot);
+  }
+
+  public Integer asInteger(VariableSlot slot) {
+    return Integer.valueOf(this.match.variable(slot));
   }
 
   public String asString(String key) {
-    return this.variables.get(key);
+    return this.match.variable(key);
   }
 
   public Integer asInteger(String key) {
-    return Integer.valueOf(this.variables.get(key));
+    return Integer.valueOf(this.match.variable(key));
   }
 
   public Double asDouble(String key) {
-    return Double.valueOf(this.variables.get(key));
+    return Double.valueOf(this.match.variable(key));
   }
 
   public Boolean asBoolean(String key) {
-    return Boolean.valueOf(this.variables.get(key));
+    return Boolean.valueOf(this.match.variable(key));
   }
 
   public Float asFloat(String key) {
-    return Float.valueOf(this.variables.get(key));
+    return Float.valueOf(this.match.variable(key));
   }
 }
@@ -0,0 +1,11 @@
+package com.akmal.comperio.http.registry;
+
+/**
+ * Configured server of the {@link ServerBackend} that passes every exchange to the {@link RootHttpHandler}.
+ */
+interface BackendServer {
+
+  void start();
+
+  void stop();
+}
@@ -9,5 +9,14 @@ final class ConfigurationPropertyKeys {
 
   public static final String HTTP_HOST = "http.host";
   public static final String HTTP_PORT = "http.port";
+  /**
+   * Label of the {@link ServerBackend} serving the API: undertow, http-server or http-server-nio.
+   */
+  public static final String HTTP_BACKEND = "http.backend";
+  /**
+   * Size of the pool of the platform threads that run the handlers moved off the I/O threads, 0 (default) runs each of them
+   * on its own virtual thread.
+   */
+  public static final String HTTP_WORKER_THREADS = "http.worker.threads";
 
 }
@@ -0,0 +1,38 @@
+package com.akmal.comperio.http.registry;
+
+import com.akmal.comperio.http.server.HttpServer;
+import com.akmal.comperio.http.server.ServerEngine;
+
+/**
+ * Serves the registry with the http-server module. The server has no routes of its own, every request falls through to
+ * the default handler, which leaves the routing to the {@link RootHttpHandler} as with any other backend. The handlers run
+ * on a virtual thread per request, the dispatch context is allocated with the exchange.
+ */
+final class HttpServerBackend implements BackendServer {
+  private final HttpServer server;
+
+  HttpServerBackend(String host, int port, ServerEngine engine, RootHttpHandler rootHandler) {
+    this.server = HttpServer.bindToPort(port)
+                      .bindTo(host)
+                      .withEngine(engine)
+                      .withDefaultHandler((request, response) -> {
+                        final var exchange = new HttpServerBackendExchange(request, response);
+                        exchange.runInPlace(() -> rootHandler.handleRequest(exchange));
+                      })
+                      .build();
+  }
+
+  @Override
+  public void start() {
+    this.server.start();
+  }
+
+  /**
+   * Closes the open connections right away as Undertow does, the graceful shutdown would wait for the idle keep-alive
+   * connections to time out.
+   */
+  @Override
+  public void stop() {
+    this.server.shutdownNow();
+  }
+}
@@ -0,0 +1,122 @@
+package com.akmal.comperio.http.registry;
+
+import com.akmal.comperio.http.HttpExchange;
+import com.akmal.comperio.http.HttpHeaders;
+import com.akmal.comperio.http.HttpStatus;
+import com.akmal.comperio.http.router.HttpMethod;
+import com.akmal.comperio.http.server.HttpRequest;
+import com.akmal.comperio.http.server.HttpResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * {@link HttpExchange} over the request and the response of the http-server module. The handler runs on the executor of
+ * the server, never on an I/O thread, hence the body is read with the blocking stream, the callback and the dispatched tasks run
+ * before the handler returns. The response is sent by the server once the handler returns.
+ */
+final class HttpServerBackendExchange implements HttpExchange {
+  private final HttpRequest request;
+  private final HttpResponse response;
+
+  HttpServerBackendExchange(HttpRequest request, HttpResponse response) {
+    this.request = request;
+    this.response = response;
+  }
+
+  @Override
+  public HttpMethod method() {
+    return this.request.method();
+  }
+
+  @Override
+  public String path() {
+    return this.request.path();
+  }
+
+  @Override
+  public String requestHeader(String name) {
+    return this.request.headers().get(name);
+  }
+
+  @Override
+  public void receiveBody(Consumer<byte[]> callback) {
+    final byte[] body;
+
+    try {
+      body = this.request.inputStream().readAllBytes();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to read the request body", e);
+    }
+
+    callback.accept(body);
+  }
+
+  @Override
+  public boolean isInIoThread() {
+    return false;
+  }
+
+  @Override
+  public void dispatch(Executor executor, DispatchedTask task) {
+    this.runInPlace(task);
+  }
+
+  /**
+   * Runs the task on the current thread, the checked exceptions are rethrown unchecked to be answered with 500 by the server.
+   */
+  void runInPlace(DispatchedTask task) {
+    try {
+      task.run();
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new IllegalStateException("Handler of " + this.request.method() + " " + this.request.path() + " failed", e);
+    }
+  }
+
+  @Override
+  public void setStatus(HttpStatus status) {
+    this.response.setStatus(status);
+  }
+
+  @Override
+  public void setContentType(String contentType) {
+    this.response.setContentType(contentType);
+  }
+
+  @Override
+  public void setResponseHeader(String name, String value) {
+    if (HttpHeaders.CONTENT_TYPE.equalsIgnoreCase(name)) this.response.setContentType(value);
+    else this.response.getHeaders().set(name, value);
+  }
+
+  @Override
+  public void send(String body) {
+    this.send(body.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Override
+  public void send(byte[] body) {
+    try {
+      this.response.getOutputStream().write(body);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Copies the buffer into the body of the response, which the server buffers on its own.
+   */
+  @Override
+  public void send(ByteBuffer body) {
+    try {
+      this.response.write(body);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
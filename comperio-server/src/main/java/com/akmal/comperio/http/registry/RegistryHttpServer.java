@@ -5,69 +5,115 @@ import com.akmal.comperio.http.exception.HttpServerLaunchException;
 import com.akmal.comperio.http.exception.HttpServerShutdownException;
 import com.akmal.comperio.http.registry.dto.service.ClientRegistrationService;
 import com.akmal.comperio.http.registry.handlers.ApplicationInstanceHandlers;
-import com.akmal.comperio.http.router.HttpMethod;
 import com.akmal.comperio.http.router.Route;
 import com.akmal.comperio.http.router.Router;
-import io.undertow.Undertow;
-import io.undertow.server.HttpHandler;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicReference;
 
 public class RegistryHttpServer {
+  private static final String DEFAULT_HOST = "localhost";
+  private static final int DEFAULT_PORT = 8080;
+  /**
+   * Runs every request dispatched to the worker on its own virtual thread.
+   */
+  public static final int VIRTUAL_WORKERS = 0;
 
   private final String host;
   private final int port;
-  private final HttpHandler rootHandler;
+  private final ServerBackend backend;
+  private final RootHttpHandler rootHandler;
+  private final ExecutorService workerExecutor;
 
-  private final AtomicReference<Undertow> server;
+  private final BackendServer server;
   private final AtomicBoolean started;
   private final AtomicBoolean stopped;
 
   private final ClientRegistrationService clientRegistrationService;
 
-  RegistryHttpServer(String host, int port, Router<HttpRouteHandler> router,
+  RegistryHttpServer(String host, int port, ServerBackend backend, int workerThreads, Router<HttpRouteHandler> router,
       ClientRegistrationService clientRegistrationService) {
     this.host = host;
     this.port = port;
+    this.backend = backend;
     this.clientRegistrationService = clientRegistrationService;
+    this.workerExecutor = newWorkerExecutor(workerThreads);
     this.registerRoutes(router);
-    this.rootHandler = new RootHttpHandler(router);
-    this.server = new AtomicReference<>(configureUndertow());
+    this.rootHandler = new RootHttpHandler(router.freeze(), this.workerExecutor); // the table does not change after the startup
+    this.server = backend.bind(this.host, this.port, this.rootHandler);
     this.started = new AtomicBoolean(false);
     this.stopped = new AtomicBoolean(false);
   }
 
   private void registerRoutes(Router<HttpRouteHandler> router) {
-    final var appInstanceHandler = new ApplicationInstanceHandlers(clientRegistrationService);
-    router.register(Route.of(HttpMethod.POST, "/v1/applications/{appId}/instances/{instanceId}", appInstanceHandler::handleRegistration));
-    router.register(Route.of(HttpMethod.POST, "/v1/applications/{appId}/instances/{instanceId}/heartbeat", appInstanceHandler::handleHeartBeat));
-    router.register(Route.of(HttpMethod.DELETE, "/v1/applications/{appId}/instances/{instanceId}", appInstanceHandler::handleDeregistration));
-    router.register(Route.of(HttpMethod.GET, "/v1/applications/{appId}/instances", appInstanceHandler::handleQueryApplication));
-    router.register(Route.of(HttpMethod.GET, "/v1/applications/{appId}/instances/{instanceId}", appInstanceHandler::handleQueryInstance));
+    final var appInstanceHandler = new ApplicationInstanceHandlers(clientRegistrationService, this.workerExecutor);
+
+    for (Route<HttpRouteHandler> route: appInstanceHandler.routes()) {
+      router.register(route);
+    }
   }
 
   public void start() {
     if (!this.started.compareAndSet(false, true)) throw new HttpServerLaunchException("Server is already running");
-    this.server.get().start();
+    this.server.start();
   }
 
   public void stop() {
     if (!this.stopped.compareAndSet(false, true)) throw new HttpServerShutdownException("Server shutdown has already been requested");
-    this.server.get().stop();
+    this.server.stop();
+    this.workerExecutor.shutdownNow();
+  }
+
+  public ServerBackend backend() {
+    return this.backend;
+  }
+
+  public static RegistryHttpServer bindTo(String host, int port, ClientRegistrationService clientRegistrationService) {
+    return bindTo(host, port, ServerBackend.UNDERTOW, clientRegistrationService);
+  }
+
+  public static RegistryHttpServer bindTo(String host, int port, ServerBackend backend,
+      ClientRegistrationService clientRegistrationService) {
+    return bindTo(host, port, backend, VIRTUAL_WORKERS, clientRegistrationService);
+  }
+
+  /**
+   * @param workerThreads size of the pool of the platform threads the handlers declared with
+   *                      {@link com.akmal.comperio.http.Dispatch#WORKER} run on, {@link #VIRTUAL_WORKERS} runs each of them
+   *                      on its own virtual thread. Used by the backends with the I/O threads only.
+   */
+  public static RegistryHttpServer bindTo(String host, int port, ServerBackend backend, int workerThreads,
+      ClientRegistrationService clientRegistrationService) {
+    if (workerThreads < 0) throw new IllegalArgumentException("Worker threads must not be negative, got " + workerThreads);
+    return new RegistryHttpServer(host, port, backend, workerThreads, Router.defaultRouter(), clientRegistrationService);
   }
 
   /**
-   * Returns configured but not started instance of Undertow based on the values of the calss
+   * Configures the server from the properties, see {@link ConfigurationPropertyKeys}. The server listens on localhost:8080
+   * with the Undertow backend and the virtual worker threads unless configured otherwise.
    *
-   * @return {@link Undertow}
+   * @throws IllegalArgumentException when the port or the worker threads are not numbers or the backend is unknown.
    */
-  private Undertow configureUndertow() {
-    return Undertow.builder()
-               .addHttpListener(this.port, this.host, this.rootHandler)
-               .build();
+  public static RegistryHttpServer configure(Properties properties, ClientRegistrationService clientRegistrationService) {
+    final String host = properties.getProperty(ConfigurationPropertyKeys.HTTP_HOST, DEFAULT_HOST);
+    final int port = Integer.parseInt(properties.getProperty(ConfigurationPropertyKeys.HTTP_PORT, String.valueOf(DEFAULT_PORT)));
+    final ServerBackend backend = ServerBackend.fromLabel(
+        properties.getProperty(ConfigurationPropertyKeys.HTTP_BACKEND, ServerBackend.UNDERTOW.label()));
+
+    final int workerThreads = Integer.parseInt(
+        properties.getProperty(ConfigurationPropertyKeys.HTTP_WORKER_THREADS, String.valueOf(VIRTUAL_WORKERS)));
+
+    return bindTo(host, port, backend, workerThreads, clientRegistrationService);
   }
 
-  public static RegistryHttpServer bindTo(String host, int port, ClientRegistrationService clientRegistrationService) {
-    return new RegistryHttpServer(host, port, Router.defaultRouter(), clientRegistrationService);
+  private static ExecutorService newWorkerExecutor(int workerThreads) {
+    if (workerThreads == VIRTUAL_WORKERS) {
+      return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("registry-worker-", 0).factory());
+    }
+
+    final ThreadFactory factory = Thread.ofPlatform().name("registry-worker-", 0).daemon().factory();
+    return Executors.newFixedThreadPool(workerThreads, factory);
   }
 }
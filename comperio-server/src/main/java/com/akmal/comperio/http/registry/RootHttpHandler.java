@@ -1,43 +1,70 @@
 package com.akmal.comperio.http.registry;
 
+import com.akmal.comperio.http.Dispatch;
+import com.akmal.comperio.http.HttpExchange;
 import com.akmal.comperio.http.HttpRouteHandler;
 import com.akmal.comperio.http.HttpStatus;
 import com.akmal.comperio.http.RequestVariables;
 import com.akmal.comperio.http.router.HttpMethod;
-import com.akmal.comperio.http.router.RouteMatch;
+import com.akmal.comperio.http.router.MutableRouteMatch;
 import com.akmal.comperio.http.router.Router;
-import io.undertow.server.HttpHandler;
-import io.undertow.server.HttpServerExchange;
-import java.util.Optional;
+import java.util.concurrent.Executor;
 
 /**
- * Global HttpHandler that redirects to more specific routes by using {@link com.akmal.comperio.http.router.Router}
+ * Global handler that redirects to more specific routes by using {@link com.akmal.comperio.http.router.Router}, whichever
+ * {@link ServerBackend} serves the exchange. The lookup result and the view over the variables are held by the {@link DispatchContext}
+ * the backend supplies, a backend that runs the handlers on a fixed set of I/O threads keeps one per thread and reuses it
+ * across the requests, the backends resolve the method without converting it to a String and the router walks
+ * the request path in place, so that dispatching to a route without variables does not allocate there. A backend that runs
+ * every exchange on a new virtual thread allocates the context with the exchange instead, a thread local would be
+ * initialized per request there as well.
+ * <p>
+ * The handlers declared with {@link Dispatch#WORKER} are moved off the I/O thread to the worker executor, with the variables
+ * detached from the thread, the rest run in place.
  */
-public class RootHttpHandler implements HttpHandler {
+public class RootHttpHandler {
   private final Router<HttpRouteHandler> router;
+  private final Executor workerExecutor;
 
-  public RootHttpHandler(Router<HttpRouteHandler> router) {
+  /**
+   * Lookup result and the view over the variables of the request, may be reused by the requests handled one after another
+   * but must not be shared by the requests handled at the same time.
+   */
+  static final class DispatchContext {
+    private final MutableRouteMatch<HttpRouteHandler> match = new MutableRouteMatch<>();
+    private final RequestVariables variables = new RequestVariables(match);
+  }
+
+  public RootHttpHandler(Router<HttpRouteHandler> router, Executor workerExecutor) {
     this.router = router;
+    this.workerExecutor = workerExecutor;
   }
 
-  @Override
-  public void handleRequest(HttpServerExchange httpServerExchange) throws Exception {
-    final HttpMethod method = HttpMethod.fromString(httpServerExchange.getRequestMethod().toString());
+  public void handleRequest(HttpExchange exchange) throws Exception {
+    this.handleRequest(exchange, new DispatchContext());
+  }
 
-    Optional<RouteMatch<HttpRouteHandler>> matchOptional = this.router.match(method, httpServerExchange.getRequestPath());
+  void handleRequest(HttpExchange exchange, DispatchContext context) throws Exception {
+    final HttpMethod method = exchange.method();
 
-    if (matchOptional.isEmpty()) {
-      sendStringResponse(httpServerExchange, HttpStatus.NOT_FOUND, "Requested resource not found");
+    if (method == null || !this.router.match(method, exchange.path(), context.match)) {
+      sendStringResponse(exchange, HttpStatus.NOT_FOUND, "Requested resource not found");
       return;
     }
 
-    final HttpRouteHandler handler = matchOptional.get().route().getHandler();
+    final HttpRouteHandler handler = context.match.route().getHandler();
+
+    if (handler.dispatch() == Dispatch.WORKER && exchange.isInIoThread()) {
+      final RequestVariables variables = context.variables.detach();
+      exchange.dispatch(this.workerExecutor, () -> handler.handleRequest(exchange, variables));
+      return;
+    }
 
-    handler.handleRequest(httpServerExchange, new RequestVariables(matchOptional.get().variables()));
+    handler.handleRequest(exchange, context.variables);
   }
 
-  private void sendStringResponse(HttpServerExchange exchange, HttpStatus status, String message) {
-    exchange.setStatusCode(status.value());
-    exchange.getResponseSender().send(message);
+  private void sendStringResponse(HttpExchange exchange, HttpStatus status, String message) {
+    exchange.setStatus(status);
+    exchange.send(message);
   }
 }
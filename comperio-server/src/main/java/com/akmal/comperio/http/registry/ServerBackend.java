@@ -0,0 +1,54 @@
+package com.akmal.comperio.http.registry;
+
+import com.akmal.comperio.http.server.ServerEngine;
+
+/**
+ * Server engines the registry API can be served by. The handlers are written against {@link com.akmal.comperio.http.HttpExchange},
+ * hence the choice is a matter of the deployment: the latency and the memory footprint of the engines differ with
+ * the number of connections and the request mix, see the load-generator module for the comparison on the registry workload.
+ */
+public enum ServerBackend {
+  /**
+   * Undertow with its default XNIO worker.
+   */
+  UNDERTOW("undertow"),
+  /**
+   * http-server module with the blocking engine, every connection is served by its own virtual thread.
+   */
+  HTTP_SERVER("http-server"),
+  /**
+   * http-server module with the selector event loops, the handlers run on the virtual threads.
+   */
+  HTTP_SERVER_NIO("http-server-nio");
+
+  private final String label;
+
+  ServerBackend(String label) {
+    this.label = label;
+  }
+
+  public String label() {
+    return this.label;
+  }
+
+  /**
+   * Resolves the backend by its label, as given by the {@code http.backend} property.
+   *
+   * @throws IllegalArgumentException when no backend has the label.
+   */
+  public static ServerBackend fromLabel(String label) {
+    for (ServerBackend backend: values()) {
+      if (backend.label.equalsIgnoreCase(label)) return backend;
+    }
+
+    throw new IllegalArgumentException("Unknown server backend " + label + ", expected undertow, http-server or http-server-nio");
+  }
+
+  BackendServer bind(String host, int port, RootHttpHandler rootHandler) {
+    return switch (this) {
+      case UNDERTOW -> new UndertowBackend(host, port, rootHandler);
+      case HTTP_SERVER -> new HttpServerBackend(host, port, ServerEngine.BLOCKING, rootHandler);
+      case HTTP_SERVER_NIO -> new HttpServerBackend(host, port, ServerEngine.NIO, rootHandler);
+    };
+  }
+}
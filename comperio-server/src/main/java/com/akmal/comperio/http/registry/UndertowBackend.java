@@ -0,0 +1,29 @@
+package com.akmal.comperio.http.registry;
+
+import io.undertow.Undertow;
+
+/**
+ * Serves the registry with Undertow, the handlers run on the I/O threads of the XNIO worker. The I/O threads are a fixed set
+ * of platform threads, each keeps its own {@link RootHttpHandler.DispatchContext} for the lifetime of the server.
+ */
+final class UndertowBackend implements BackendServer {
+  private final Undertow undertow;
+  private final ThreadLocal<RootHttpHandler.DispatchContext> dispatchContext = ThreadLocal.withInitial(RootHttpHandler.DispatchContext::new);
+
+  UndertowBackend(String host, int port, RootHttpHandler rootHandler) {
+    this.undertow = Undertow.builder()
+                        .addHttpListener(port, host, exchange -> rootHandler.handleRequest(new UndertowHttpExchange(exchange),
+                            this.dispatchContext.get()))
+                        .build();
+  }
+
+  @Override
+  public void start() {
+    this.undertow.start();
+  }
+
+  @Override
+  public void stop() {
+    this.undertow.stop();
+  }
+}
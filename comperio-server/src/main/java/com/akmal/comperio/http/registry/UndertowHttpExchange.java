@@ -0,0 +1,98 @@
+package com.akmal.comperio.http.registry;
+
+import com.akmal.comperio.http.HttpExchange;
+import com.akmal.comperio.http.HttpStatus;
+import com.akmal.comperio.http.router.HttpMethod;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.Headers;
+import io.undertow.util.HttpString;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * {@link HttpExchange} over the Undertow exchange. The method is resolved through {@link UndertowHttpMethods}. The body is
+ * received without blocking on the I/O thread and with the blocking stream on the worker, where the callback runs in place.
+ */
+final class UndertowHttpExchange implements HttpExchange {
+  private final HttpServerExchange exchange;
+
+  UndertowHttpExchange(HttpServerExchange exchange) {
+    this.exchange = exchange;
+  }
+
+  @Override
+  public HttpMethod method() {
+    return UndertowHttpMethods.resolve(this.exchange.getRequestMethod());
+  }
+
+  @Override
+  public String path() {
+    return this.exchange.getRequestPath();
+  }
+
+  @Override
+  public String requestHeader(String name) {
+    return this.exchange.getRequestHeaders().getFirst(name);
+  }
+
+  @Override
+  public void receiveBody(Consumer<byte[]> callback) {
+    if (this.exchange.isInIoThread()) {
+      this.exchange.getRequestReceiver().receiveFullBytes((exchange, bytes) -> callback.accept(bytes));
+      return;
+    }
+
+    final byte[] body;
+    try {
+      this.exchange.startBlocking();
+      body = this.exchange.getInputStream().readAllBytes();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to read the request body", e);
+    }
+
+    callback.accept(body);
+  }
+
+  @Override
+  public boolean isInIoThread() {
+    return this.exchange.isInIoThread();
+  }
+
+  @Override
+  public void dispatch(Executor executor, DispatchedTask task) {
+    this.exchange.dispatch(executor, exchange -> task.run());
+  }
+
+  @Override
+  public void setStatus(HttpStatus status) {
+    this.exchange.setStatusCode(status.value());
+  }
+
+  @Override
+  public void setContentType(String contentType) {
+    this.exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, contentType);
+  }
+
+  @Override
+  public void setResponseHeader(String name, String value) {
+    this.exchange.getResponseHeaders().put(HttpString.tryFromString(name), value);
+  }
+
+  @Override
+  public void send(String body) {
+    this.exchange.getResponseSender().send(body);
+  }
+
+  @Override
+  public void send(byte[] body) {
+    this.exchange.getResponseSender().send(ByteBuffer.wrap(body));
+  }
+
+  @Override
+  public void send(ByteBuffer body) {
+    this.exchange.getResponseSender().send(body.duplicate()); // the sender moves the position of the buffer it writes
+  }
+}
@@ -0,0 +1,42 @@
+package com.akmal.comperio.http.registry;
+
+import com.akmal.comperio.http.router.HttpMethod;
+import io.undertow.util.HttpString;
+import io.undertow.util.Methods;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maps the method of the Undertow exchange to the {@link HttpMethod} of the router without converting it to a String.
+ * Undertow parser returns the interned constants of {@link Methods} for the well known methods, therefore, the lookup is
+ * a scan over a handful of reference comparisons. Any other instance is resolved through the hash table, {@link HttpString}
+ * hashes and compares ignoring the case, which keeps the behaviour of {@link HttpMethod#fromString(String)}.
+ */
+final class UndertowHttpMethods {
+  private static final HttpString[] KNOWN = {Methods.GET, Methods.POST, Methods.PUT, Methods.DELETE, Methods.HEAD, Methods.OPTIONS, Methods.PATCH};
+  private static final HttpMethod[] RESOLVED = new HttpMethod[KNOWN.length];
+  private static final Map<HttpString, HttpMethod> BY_NAME = new HashMap<>();
+
+  static {
+    for (int i = 0; i < KNOWN.length; i++) {
+      RESOLVED[i] = HttpMethod.valueOf(KNOWN[i].toString());
+      BY_NAME.put(KNOWN[i], RESOLVED[i]);
+    }
+  }
+
+  private UndertowHttpMethods() {}
+
+  /**
+   * Resolves the router method of the request.
+   *
+   * @param method of the exchange.
+   * @return method or null when the router does not support it.
+   */
+  static HttpMethod resolve(HttpString method) {
+    for (int i = 0; i < KNOWN.length; i++) {
+      if (KNOWN[i] == method) return RESOLVED[i];
+    }
+
+    return method == null ? null : BY_NAME.get(method);
+  }
+}
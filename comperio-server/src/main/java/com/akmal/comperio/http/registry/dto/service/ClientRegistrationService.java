@@ -1,16 +1,19 @@
 package com.akmal.comperio.http.registry.dto.service;
 
+import com.akmal.comperio.http.EntityTags;
 import com.akmal.comperio.http.registry.dto.v1.ClientRegistrationDto;
 import com.akmal.comperio.http.registry.dto.v1.ClientRegistrationRequestDto;
+import com.akmal.comperio.http.registry.dto.v2.ApplicationInstanceDto;
 import com.akmal.comperio.http.registry.exception.ClientRegistrationFailureException;
 import com.akmal.comperio.registry.ClientRegistration;
 import com.akmal.comperio.registry.ClientRegistry;
 import com.akmal.comperio.registry.ClientStatus;
 import com.akmal.comperio.shared.clock.Clock;
+import com.akmal.comperio.shared.net.InetAddressLiterals;
 import java.net.InetAddress;
-import java.net.UnknownHostException;
 import java.util.Collection;
 import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
 import org.apache.commons.lang3.StringUtils;
 
 /**
@@ -21,27 +24,32 @@ public class ClientRegistrationService {
 
   private final ClientRegistry clientRegistry;
   private final Clock clock;
+  private final String tagEpoch; // the versions restart with the registry, the tags issued before a restart must not match
 
   public ClientRegistrationService(ClientRegistry clientRegistry, Clock clock) {
     this.clientRegistry = clientRegistry;
     this.clock = clock;
+    this.tagEpoch = Long.toHexString(ThreadLocalRandom.current().nextLong());
   }
 
   public ClientRegistrationDto registerInstance(String appId, String instanceId, ClientRegistrationRequestDto registrationDto) {
     if (StringUtils.isEmpty(appId) || StringUtils.isEmpty(instanceId)) throw new ClientRegistrationFailureException("Failed to register client. Application id and instance id are required");
     if (StringUtils.isEmpty(registrationDto.ipAddress())) throw new ClientRegistrationFailureException("Failed to register client. Ip address is required");
 
+    final InetAddress ipAddress;
     try {
-      final var registration = new ClientRegistration(appId, instanceId,
-          registrationDto.host(), registrationDto.port(), InetAddress.getByName(registrationDto.ipAddress()), clock.currentTimeMillis(), clock.currentTimeMillis(),
-          1, ClientStatus.COLD);
+      ipAddress = InetAddressLiterals.parse(registrationDto.ipAddress()); // never resolved, a host name would block the thread
+    } catch (IllegalArgumentException ex) {
+      throw new ClientRegistrationFailureException("Failed to register client. Ip address must be an IPv4 or IPv6 literal");
+    }
 
-      this.clientRegistry.register(appId, registration);
+    final var registration = new ClientRegistration(appId, instanceId,
+        registrationDto.host(), registrationDto.port(), ipAddress, clock.currentTimeMillis(), clock.currentTimeMillis(),
+        1, ClientStatus.COLD);
 
-      return ClientRegistrationDto.fromClientRegistration(registration);
-    } catch (UnknownHostException ex) {
-      throw new ClientRegistrationFailureException("Failed to register client. Unknown ip address");
-    }
+    this.clientRegistry.register(appId, registration);
+
+    return ClientRegistrationDto.fromClientRegistration(registration);
   }
 
   public void deregisterInstance(String appId, String instanceId) {
@@ -55,6 +63,42 @@ public class ClientRegistrationService {
                .toList();
   }
 
+  /**
+   * Returns the instances of an application without their leases, so that the body only changes with the version
+   * of the application.
+   */
+  public Collection<ApplicationInstanceDto> findApplicationInstancesByApplicationId(String appId) {
+    return this.clientRegistry.findAllByApplication(appId)
+               .stream()
+               .map(ApplicationInstanceDto::fromClientRegistration)
+               .toList();
+  }
+
+  /**
+   * Returns the version of the instances of the application without reading the instances. Must be taken before
+   * {@link #findApplicationInstancesByApplicationId(String)}, see {@link ClientRegistry#applicationVersion(String)}.
+   */
+  public long applicationVersion(String appId) {
+    return this.clientRegistry.applicationVersion(appId);
+  }
+
+  /**
+   * Returns the version of the instances of the application without evicting the expired ones, safe to call on the I/O thread.
+   *
+   * @return the version or {@link ClientRegistry#UNKNOWN_VERSION} when {@link #applicationVersion(String)} has to be called.
+   */
+  public long applicationVersionWithoutEviction(String appId) {
+    return this.clientRegistry.applicationVersionWithoutEviction(appId);
+  }
+
+  /**
+   * Returns the entity tag of the instances of an application at the version. The tag is weak, since the identity and the gzip
+   * coding of the same instances share it.
+   */
+  public String entityTag(long applicationVersion) {
+    return EntityTags.weak(this.tagEpoch + "-" + Long.toHexString(applicationVersion));
+  }
+
   public Optional<ClientRegistrationDto> findByApplicationIdAndInstanceId(String appId, String instanceId) {
     return this.clientRegistry.findOneByApplicationAndInstanceId(appId, instanceId)
                .map(ClientRegistrationDto::fromClientRegistration);
@@ -0,0 +1,28 @@
+package com.akmal.comperio.http.registry.dto.v2;
+
+import com.akmal.comperio.http.registry.dto.v1.ClientRegistrationDto;
+import com.akmal.comperio.registry.ClientRegistration;
+
+/**
+ * Instance as listed by the query of an application. Unlike {@link ClientRegistrationDto} it leaves out the lease,
+ * the renewal timestamp and count change with every heartbeat, while the list is versioned by the membership and the status.
+ */
+public record ApplicationInstanceDto(
+  String application,
+  String instanceId,
+  String host,
+  int port,
+  String ipAddress,
+  long registrationTimestamp,
+  String status
+) {
+
+  public static ApplicationInstanceDto fromClientRegistration(ClientRegistration clientRegistration) {
+    return new ApplicationInstanceDto(clientRegistration.application(),
+        clientRegistration.instanceId(), clientRegistration.host(),
+        clientRegistration.port(),
+        clientRegistration.ipAddress() != null ? clientRegistration.ipAddress().toString() : null,
+        clientRegistration.registrationTimestamp(),
+        clientRegistration.status().name());
+  }
+}
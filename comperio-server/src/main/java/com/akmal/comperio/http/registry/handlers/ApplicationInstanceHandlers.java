@@ -1,5 +1,12 @@
 package com.akmal.comperio.http.registry.handlers;
 
+import static com.akmal.comperio.http.HttpRouteHandler.onIoThread;
+import static com.akmal.comperio.http.HttpRouteHandler.onWorker;
+
+import com.akmal.comperio.http.EntityTags;
+import com.akmal.comperio.http.HttpExchange;
+import com.akmal.comperio.http.HttpHeaders;
+import com.akmal.comperio.http.HttpRouteHandler;
 import com.akmal.comperio.http.HttpStatus;
 import com.akmal.comperio.http.MediaType;
 import com.akmal.comperio.http.ObjectMapperHolder;
@@ -9,97 +16,242 @@ import com.akmal.comperio.http.registry.dto.v1.ApiError;
 import com.akmal.comperio.http.registry.dto.v1.ClientRegistrationDto;
 import com.akmal.comperio.http.registry.dto.v1.ClientRegistrationRequestDto;
 import com.akmal.comperio.http.registry.exception.ClientRegistrationFailureException;
+import com.akmal.comperio.http.registry.handlers.ApplicationResponseCache.Encoded;
+import com.akmal.comperio.http.router.HttpMethod;
+import com.akmal.comperio.http.router.Route;
+import com.akmal.comperio.http.router.VariableSlot;
+import com.akmal.comperio.registry.ClientRegistry;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import io.undertow.server.HttpServerExchange;
-import io.undertow.util.HttpString;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.Instant;
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Executor;
 
 /**
  * Class wraps set of handlers for routes to interact with the client registry.
+ * It also defines the routes, so that the variable slots are resolved once at the registration and
+ * the handlers read the variables by index. Every route declares the thread it runs on: the registration, the heartbeat,
+ * the deregistration and the lookup of a single instance may evict the expired instances or copy the instances of the application,
+ * which takes time linear in their number, and they parse or serialize JSON, hence they are dispatched to the worker.
+ * The query of an application in version 1 lists the instances with their leases and runs on the worker as well.
+ * Version 2 of the query lists them without the leases and carries the entity tag
+ * of the version of the application, the poll that already has the current version is answered with 304 on the I/O thread
+ * before any instance is read. The body of the query is built once per version of the application and kept encoded, see
+ * {@link ApplicationResponseCache}, the query served from the cache stays on the I/O thread as well, only the one that
+ * has to build the body or to evict the expired instances first is dispatched to the worker by the handler itself.
  */
 public class ApplicationInstanceHandlers {
 
   private static final String APP_ID_VARIABLE = "appId";
   private static final String INSTANCE_ID_VARIABLE = "instanceId";
+  private static final String INSTANCES_PATH = "/v1/applications/{" + APP_ID_VARIABLE + "}/instances";
+  private static final String INSTANCE_PATH = INSTANCES_PATH + "/{" + INSTANCE_ID_VARIABLE + "}";
+  private static final String V2_INSTANCES_PATH = "/v2/applications/{" + APP_ID_VARIABLE + "}/instances";
+  private static final long RESPONSE_CACHE_BYTES = 32L * 1024 * 1024;
+  private static final String GZIP = "gzip";
+  private static final String HEARTBEAT_ERROR_CODE = "CR-00001";
+  private static final String REGISTRATION_ERROR_CODE = "CR-00002";
   private final ClientRegistrationService clientRegistrationService;
+  private final Executor workerExecutor;
+  private final ApplicationResponseCache responseCache;
+  private final List<Route<HttpRouteHandler>> routes;
+  private final VariableSlot appIdSlot;
+  private final VariableSlot instanceIdSlot;
 
-  public ApplicationInstanceHandlers(ClientRegistrationService clientRegistrationService) {
+  /**
+   * @param workerExecutor executor the query of an application continues on when its body has to be built on the I/O thread.
+   */
+  public ApplicationInstanceHandlers(ClientRegistrationService clientRegistrationService, Executor workerExecutor) {
     this.clientRegistrationService = clientRegistrationService;
+    this.workerExecutor = workerExecutor;
+    this.responseCache = new ApplicationResponseCache(RESPONSE_CACHE_BYTES,
+        appId -> ObjectMapperHolder.getInstance().writeValueAsBytes(clientRegistrationService.findApplicationInstancesByApplicationId(appId)));
+    this.routes = List.of(
+        Route.of(HttpMethod.POST, INSTANCE_PATH, onWorker(this::handleRegistration)),
+        Route.of(HttpMethod.POST, INSTANCE_PATH + "/heartbeat", onWorker(this::handleHeartBeat)),
+        Route.of(HttpMethod.DELETE, INSTANCE_PATH, onWorker(this::handleDeregistration)),
+        Route.of(HttpMethod.GET, INSTANCES_PATH, onWorker(this::handleQueryApplication)),
+        Route.of(HttpMethod.GET, INSTANCE_PATH, onWorker(this::handleQueryInstance)),
+        Route.of(HttpMethod.GET, V2_INSTANCES_PATH, onIoThread(this::handleQueryApplicationInstances))
+    );
+    this.appIdSlot = this.resolveSlot(APP_ID_VARIABLE);
+    this.instanceIdSlot = this.resolveSlot(INSTANCE_ID_VARIABLE);
+  }
+
+  /**
+   * Returns the routes served by the handlers that have to be registered in the router.
+   */
+  public List<Route<HttpRouteHandler>> routes() {
+    return routes;
   }
 
-  public void handleRegistration(HttpServerExchange exchange, RequestVariables variables) {
-    String appId = variables.asString(APP_ID_VARIABLE);
-    String instanceId = variables.asString(INSTANCE_ID_VARIABLE);
+  public void handleRegistration(HttpExchange exchange, RequestVariables variables) {
+    String appId = variables.asString(appIdSlot);
+    String instanceId = variables.asString(instanceIdSlot);
+
+    exchange.receiveBody(bytes -> {
+      final ClientRegistrationDto registration;
 
-    exchange.getRequestReceiver().receiveFullBytes((exchange1, bytes) -> {
       try {
         final var registrationRequest = ObjectMapperHolder.getInstance().readValue(bytes,
             ClientRegistrationRequestDto.class);
 
-        final var registration = this.clientRegistrationService.registerInstance(appId, instanceId, registrationRequest);
+        registration = this.clientRegistrationService.registerInstance(appId, instanceId, registrationRequest);
+      } catch (IOException e) {
+        this.sendBadRequest(exchange, "Failed to process client registration data", REGISTRATION_ERROR_CODE);
+        return;
+      } catch (ClientRegistrationFailureException | IllegalArgumentException e) {
+        this.sendBadRequest(exchange, e.getMessage(), REGISTRATION_ERROR_CODE);
+        return;
+      }
 
-        exchange.setStatusCode(HttpStatus.OK.value());
-        exchange.getResponseHeaders().add(new HttpString("Content-Type"), MediaType.APPLICATION_JSON);
-        exchange.getResponseSender().send(ObjectMapperHolder.getInstance().writeValueAsString(registration));
+      try {
+        exchange.setStatus(HttpStatus.OK);
+        exchange.setContentType(MediaType.APPLICATION_JSON);
+        exchange.send(ObjectMapperHolder.getInstance().writeValueAsString(registration));
       } catch (IOException e) {
-        throw new ClientRegistrationFailureException("Failed to process client registration data", e);
+        throw new ClientRegistrationFailureException("Failed to serialize client registration", e);
       }
     });
   }
 
-  public void handleHeartBeat(HttpServerExchange exchange, RequestVariables variables)
+  public void handleHeartBeat(HttpExchange exchange, RequestVariables variables)
       throws JsonProcessingException {
-    String appId = variables.asString(APP_ID_VARIABLE);
-    String instanceId = variables.asString(INSTANCE_ID_VARIABLE);
+    String appId = variables.asString(appIdSlot);
+    String instanceId = variables.asString(instanceIdSlot);
 
     if (this.clientRegistrationService.renewByApplicationIdAndInstanceId(appId, instanceId)) {
-      exchange.setStatusCode(HttpStatus.NO_CONTENT.value());
+      exchange.setStatus(HttpStatus.NO_CONTENT);
+    } else {
+      this.sendBadRequest(exchange, "Failed to process heartbeat, client might not have been registered", HEARTBEAT_ERROR_CODE);
+    }
+  }
+
+  public void handleQueryApplication(HttpExchange exchange, RequestVariables variables)
+      throws JsonProcessingException {
+    Collection<ClientRegistrationDto> registrations = this.clientRegistrationService.findInstancesByApplicationId(variables.asString(appIdSlot));
+
+    exchange.setStatus(HttpStatus.OK);
+    exchange.setContentType(MediaType.APPLICATION_JSON);
+    exchange.send(ObjectMapperHolder.getInstance().writeValueAsString(registrations));
+  }
+
+  public void handleQueryApplicationInstances(HttpExchange exchange, RequestVariables variables) throws Exception {
+    final String appId = variables.asString(appIdSlot);
+
+    if (!exchange.isInIoThread()) {
+      this.queryApplication(exchange, appId, this.clientRegistrationService.applicationVersion(appId));
+      return;
+    }
+
+    final long version = this.clientRegistrationService.applicationVersionWithoutEviction(appId);
+
+    if (version == ClientRegistry.UNKNOWN_VERSION) { // the expired instances are evicted by a scan, not on the I/O thread
+      exchange.dispatch(this.workerExecutor,
+          () -> this.queryApplication(exchange, appId, this.clientRegistrationService.applicationVersion(appId)));
+    } else {
+      this.queryApplication(exchange, appId, version);
+    }
+  }
+
+  /**
+   * @param version taken before the instances are read.
+   */
+  private void queryApplication(HttpExchange exchange, String appId, long version) throws Exception {
+    final String entityTag = this.clientRegistrationService.entityTag(version);
+
+    exchange.setResponseHeader(HttpHeaders.ETAG, entityTag);
+    exchange.setResponseHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+    if (EntityTags.noneMatchFails(exchange.requestHeader(HttpHeaders.IF_NONE_MATCH), entityTag)) {
+      exchange.setStatus(HttpStatus.NOT_MODIFIED);
+      return;
+    }
+
+    final Encoded cached = this.responseCache.getIfPresent(appId, version);
+
+    if (cached != null) {
+      this.sendApplicationInstances(exchange, version, cached);
+    } else if (exchange.isInIoThread()) {
+      exchange.dispatch(this.workerExecutor, () -> this.sendApplicationInstances(exchange, version, this.responseCache.get(appId, version)));
     } else {
-      exchange.setStatusCode(HttpStatus.BAD_REQUEST.value());
-      exchange.getResponseHeaders().add(new HttpString("Content-Type"), MediaType.APPLICATION_JSON);
-      final var apiException = new ApiError("Failed to process heartbeat, client might not have been registered",
-          Instant.now(), "CR-00001");
-      exchange.getResponseSender().send(ObjectMapperHolder.getInstance().writeValueAsString(apiException));
+      this.sendApplicationInstances(exchange, version, this.responseCache.get(appId, version));
     }
   }
 
-  public void handleQueryApplication(HttpServerExchange exchange, RequestVariables variables) throws Exception {
+  private void sendApplicationInstances(HttpExchange exchange, long version, Encoded instances) {
+    final boolean gzip = instances.gzip() != null
+                             && ApplicationResponseCache.acceptsGzip(exchange.requestHeader(HttpHeaders.ACCEPT_ENCODING));
 
-    Collection<ClientRegistrationDto> registrations =  this.clientRegistrationService
-                                                           .findInstancesByApplicationId(variables.asString(
-                                                               APP_ID_VARIABLE));
+    if (instances.version() != version) { // built for a later version meanwhile, the tag follows the body
+      exchange.setResponseHeader(HttpHeaders.ETAG, this.clientRegistrationService.entityTag(instances.version()));
+    }
 
-    exchange.setStatusCode(HttpStatus.OK.value());
-    exchange.getResponseHeaders().add(new HttpString("Content-Type"), MediaType.APPLICATION_JSON);
-    exchange.getResponseSender().send(ObjectMapperHolder.getInstance().writeValueAsString(registrations));
+    exchange.setStatus(HttpStatus.OK);
+    exchange.setContentType(MediaType.APPLICATION_JSON);
+    if (gzip) exchange.setResponseHeader(HttpHeaders.CONTENT_ENCODING, GZIP);
+    exchange.send(gzip ? instances.gzip() : instances.json());
   }
 
-  public void handleDeregistration(HttpServerExchange exchange, RequestVariables requestVariables) {
-    String appId = requestVariables.asString(APP_ID_VARIABLE);
-    String instanceId = requestVariables.asString(INSTANCE_ID_VARIABLE);
+  public void handleDeregistration(HttpExchange exchange, RequestVariables requestVariables) {
+    String appId = requestVariables.asString(appIdSlot);
+    String instanceId = requestVariables.asString(instanceIdSlot);
 
     this.clientRegistrationService.deregisterInstance(appId, instanceId);
 
-    exchange.setStatusCode(HttpStatus.NO_CONTENT.value());
+    exchange.setStatus(HttpStatus.NO_CONTENT);
   }
 
-  public void handleQueryInstance(HttpServerExchange exchange, RequestVariables requestVariables)
+  public void handleQueryInstance(HttpExchange exchange, RequestVariables requestVariables)
       throws JsonProcessingException {
     Optional<ClientRegistrationDto> clientOptional = this.clientRegistrationService
-                                                         .findByApplicationIdAndInstanceId(requestVariables.asString(
-                                                             APP_ID_VARIABLE), requestVariables.asString(
-                                                             INSTANCE_ID_VARIABLE));
+                                                         .findByApplicationIdAndInstanceId(requestVariables.asString(appIdSlot),
+                                                             requestVariables.asString(instanceIdSlot));
 
-    exchange.getResponseHeaders().add(new HttpString("Content-Type"), MediaType.APPLICATION_JSON);
+    exchange.setContentType(MediaType.APPLICATION_JSON);
 
     if (clientOptional.isEmpty()) {
-      exchange.setStatusCode(HttpStatus.NOT_FOUND.value());
+      exchange.setStatus(HttpStatus.NOT_FOUND);
     } else {
-      exchange.setStatusCode(HttpStatus.OK.value());
-      exchange.getResponseSender().send(ObjectMapperHolder.getInstance().writeValueAsString(clientOptional.get()));
+      exchange.setStatus(HttpStatus.OK);
+      exchange.send(ObjectMapperHolder.getInstance().writeValueAsString(clientOptional.get()));
+    }
+  }
+
+  /**
+   * Answers the request the client has to correct with 400 and the {@link ApiError} describing what is wrong.
+   */
+  private void sendBadRequest(HttpExchange exchange, String message, String errorCode) {
+    exchange.setStatus(HttpStatus.BAD_REQUEST);
+    exchange.setContentType(MediaType.APPLICATION_JSON);
+
+    try {
+      exchange.send(ObjectMapperHolder.getInstance().writeValueAsString(new ApiError(message, Instant.now(), errorCode)));
+    } catch (JsonProcessingException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Resolves the slot of the variable shared by the routes, since the handlers are shared between the routes,
+   * the variable must be declared at the same position in every route that declares it.
+   */
+  private VariableSlot resolveSlot(String variable) {
+    VariableSlot slot = null;
+
+    for (Route<HttpRouteHandler> route: this.routes) {
+      if (!route.hasVariable(variable)) continue;
+
+      if (slot == null) slot = route.slot(variable);
+      else if (!slot.equals(route.slot(variable))) {
+        throw new IllegalStateException("Variable " + variable + " is declared at different positions. Route: " + route.getPath());
+      }
     }
+
+    if (slot == null) throw new IllegalStateException("None of the routes declare variable " + variable);
+    return slot;
   }
 }
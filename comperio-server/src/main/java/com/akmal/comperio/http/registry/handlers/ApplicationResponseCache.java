@@ -0,0 +1,225 @@
+package com.akmal.comperio.http.registry.handlers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future.State;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+import net.jcip.annotations.ThreadSafe;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Encoded bodies of the query of an application, the JSON and its gzip coding, kept per application together with the version
+ * of the application they were built for (see {@link com.akmal.comperio.registry.ClientRegistry#applicationVersion(String)}).
+ * The body is built on the first query after the version changed, the concurrent queries of the same version wait for
+ * that build instead of repeating it, and until the next change every query is answered with the same read-only buffers.
+ * <p>
+ * The bodies are kept within the capacity, once exceeded the applications that were not queried for the longest time are dropped.
+ * A body larger than the capacity is returned to the queries waiting for it but not kept.
+ */
+@ThreadSafe
+final class ApplicationResponseCache {
+  static final int GZIP_MIN_BYTES = 1024; // smaller bodies fit into a single packet anyway
+  private static final int ENTRY_OVERHEAD_BYTES = 128; // slot, future and buffer headers, roughly
+  private static final Encoded EMPTY = new Encoded(0, readOnly("[]".getBytes(StandardCharsets.UTF_8)), null);
+
+  private final ConcurrentMap<String, Slot> slots;
+  private final AtomicLong sizeBytes;
+  private final long capacityBytes;
+  private final Loader loader;
+
+  /**
+   * Serializes the current instances of the application.
+   */
+  @FunctionalInterface
+  interface Loader {
+    byte[] load(String application) throws Exception;
+  }
+
+  /**
+   * @param gzip gzip coding of the JSON or null when the JSON is too small to be worth compressing.
+   */
+  record Encoded(long version, ByteBuffer json, @Nullable ByteBuffer gzip) {
+
+    private long sizeBytes() {
+      return ENTRY_OVERHEAD_BYTES + this.json.capacity() + (this.gzip == null ? 0 : this.gzip.capacity());
+    }
+  }
+
+  private static final class Slot {
+    private static final int BUILDING = 0;
+    private static final int COUNTED = 1;
+    private static final int REMOVED = 2;
+
+    private final long version;
+    private final CompletableFuture<Encoded> encoded = new CompletableFuture<>();
+    private final AtomicInteger state = new AtomicInteger(BUILDING); // the size is counted once it is built, until it is removed
+    private volatile long lastAccess = System.nanoTime();
+    private long sizeBytes;
+
+    private Slot(long version) {
+      this.version = version;
+    }
+  }
+
+  ApplicationResponseCache(long capacityBytes, Loader loader) {
+    if (capacityBytes < 0) throw new IllegalArgumentException("Capacity must not be negative, got " + capacityBytes);
+    this.slots = new ConcurrentHashMap<>();
+    this.sizeBytes = new AtomicLong();
+    this.capacityBytes = capacityBytes;
+    this.loader = loader;
+  }
+
+  /**
+   * Returns the body built for the version or a later one, without waiting, so that the hit is served on the I/O thread.
+   *
+   * @return the body or null when it has not been built yet.
+   */
+  @Nullable Encoded getIfPresent(String application, long version) {
+    if (version == 0) return EMPTY; // the application has no instances
+
+    final Slot slot = this.slots.get(application);
+    if (slot == null || slot.version < version || slot.encoded.state() != State.SUCCESS) return null;
+
+    slot.lastAccess = System.nanoTime();
+    return slot.encoded.resultNow();
+  }
+
+  /**
+   * Returns the body built for the version or a later one, builds it when none has been built yet or waits for the build
+   * in flight. The failed build is not kept, its waiters fail with it.
+   */
+  Encoded get(String application, long version) throws Exception {
+    if (version == 0) return EMPTY;
+
+    while (true) {
+      final Slot current = this.slots.get(application);
+
+      if (current != null && current.version >= version) {
+        current.lastAccess = System.nanoTime();
+        return await(current);
+      }
+
+      final var slot = new Slot(version);
+      final boolean installed = current == null ? this.slots.putIfAbsent(application, slot) == null
+                                    : this.slots.replace(application, current, slot);
+
+      if (installed) {
+        if (current != null) this.uncount(current);
+        return this.build(application, slot);
+      }
+    }
+  }
+
+  long sizeBytes() {
+    return this.sizeBytes.get();
+  }
+
+  private Encoded build(String application, Slot slot) throws Exception {
+    final Encoded encoded;
+
+    try {
+      encoded = encode(slot.version, this.loader.load(application));
+    } catch (Exception | Error e) {
+      slot.encoded.completeExceptionally(e);
+      if (this.slots.remove(application, slot)) this.uncount(slot);
+      throw e;
+    }
+
+    slot.sizeBytes = encoded.sizeBytes();
+    slot.encoded.complete(encoded);
+
+    if (slot.sizeBytes > this.capacityBytes) {
+      if (this.slots.remove(application, slot)) this.uncount(slot);
+    } else if (slot.state.compareAndSet(Slot.BUILDING, Slot.COUNTED)) {
+      if (this.sizeBytes.addAndGet(slot.sizeBytes) > this.capacityBytes) this.evict();
+    }
+
+    return encoded;
+  }
+
+  /**
+   * Drops the least recently queried applications until the bodies fit into the capacity again.
+   */
+  private void evict() {
+    record Candidate(String application, Slot slot, long lastAccess) {}
+
+    final var candidates = new ArrayList<Candidate>(this.slots.size());
+    for (Map.Entry<String, Slot> entry: this.slots.entrySet()) {
+      if (entry.getValue().state.get() == Slot.COUNTED) {
+        candidates.add(new Candidate(entry.getKey(), entry.getValue(), entry.getValue().lastAccess));
+      }
+    }
+
+    candidates.sort(Comparator.comparingLong(Candidate::lastAccess)); // the access times are copied, they keep changing meanwhile
+
+    for (Candidate candidate: candidates) {
+      if (this.sizeBytes.get() <= this.capacityBytes) return;
+      if (this.slots.remove(candidate.application(), candidate.slot())) this.uncount(candidate.slot());
+    }
+  }
+
+  private void uncount(Slot slot) {
+    if (slot.state.getAndSet(Slot.REMOVED) == Slot.COUNTED) this.sizeBytes.addAndGet(-slot.sizeBytes);
+  }
+
+  private static Encoded await(Slot slot) throws Exception {
+    try {
+      return slot.encoded.get();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof Exception cause) throw cause;
+      throw e;
+    }
+  }
+
+  static Encoded encode(long version, byte[] json) throws IOException {
+    ByteBuffer gzip = null;
+
+    if (json.length >= GZIP_MIN_BYTES) {
+      final var compressed = new ByteArrayOutputStream(json.length / 4);
+      try (final var out = new GZIPOutputStream(compressed)) {
+        out.write(json);
+      }
+
+      if (compressed.size() < json.length) gzip = readOnly(compressed.toByteArray());
+    }
+
+    return new Encoded(version, readOnly(json), gzip);
+  }
+
+  /**
+   * Returns whether the Accept-Encoding field accepts the gzip coding, i.e. lists it or the wildcard without the zero weight.
+   */
+  static boolean acceptsGzip(@Nullable String acceptEncoding) {
+    if (acceptEncoding == null) return false;
+
+    for (String coding: acceptEncoding.split(",")) {
+      final int parameters = coding.indexOf(';');
+      final String name = (parameters == -1 ? coding : coding.substring(0, parameters)).trim();
+
+      if (!name.equalsIgnoreCase("gzip") && !name.equals("*")) continue;
+      if (parameters == -1 || !isZeroWeight(coding.substring(parameters + 1))) return true;
+    }
+
+    return false;
+  }
+
+  private static boolean isZeroWeight(String parameters) {
+    final String weight = parameters.replace(" ", "").toLowerCase();
+    return weight.startsWith("q=0") && weight.substring(3).replace(".", "").chars().allMatch(c -> c == '0');
+  }
+
+  private static ByteBuffer readOnly(byte[] bytes) {
+    return ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+  }
+}
@@ -49,6 +49,34 @@ public interface ClientRegistry {
    */
   Optional<ClientRegistration> findOneByApplicationAndInstanceId(String application, String instanceId);
 
+  /**
+   * Version returned by {@link #applicationVersionWithoutEviction(String)} when some instances might have expired.
+   */
+  long UNKNOWN_VERSION = -1;
+
+  /**
+   * Returns the version of the instances of an application, which changes whenever the membership or the status of the instances
+   * returned by {@link #findAllByApplication(String)} change: on the registration, the deregistration, the renewal that brings
+   * the instance up and the expiry. The renewal timestamps are not versioned, the heartbeat that leaves the status as is
+   * keeps the version. The versions are unique within the registry, an application that is left without instances and registered
+   * again does not reuse its old versions. Read the version before the instances, a version never describes older instances
+   * than the ones read after it. The expired instances are evicted first, which takes a scan of the instances of the application.
+   *
+   * @param application name (service group)
+   * @return version of the instances, 0 when the application has none.
+   */
+  long applicationVersion(String application);
+
+  /**
+   * Returns the same version as {@link #applicationVersion(String)} as long as none of the instances could have expired
+   * since the version was taken, without touching the instances, so that it can be called on the I/O thread.
+   *
+   * @param application name (service group)
+   * @return version of the instances, 0 when the application has none, {@link #UNKNOWN_VERSION} when
+   *     {@link #applicationVersion(String)} has to evict the expired instances first.
+   */
+  long applicationVersionWithoutEviction(String application);
+
   /**
    * Constructs fresh instance of the registry.
    *
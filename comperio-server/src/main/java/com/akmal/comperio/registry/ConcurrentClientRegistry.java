@@ -7,8 +7,10 @@ import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 import net.jcip.annotations.ThreadSafe;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.VisibleForTesting;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -19,6 +21,15 @@ import org.slf4j.LoggerFactory;
  * The only custom lock-free synchronization that has been implemented is the CAS removal of the entry.
  * Additionally, if the timeout is set to something lower than Long.MAX_VALUE the registry will
  * perform eviction of expired entries lazily on demand during read and removal.
+ * <p>
+ * Every change of the membership or the status of the instances of an application is followed by a new version of the application
+ * taken from a registry-wide sequence. The renewal that only moves the lease forward keeps the version, so that the heartbeats
+ * do not invalidate the instances the clients already have. Next to the version the registry keeps a moment no instance of the
+ * application expires before. The registration lowers it, the renewal and the removal leave it, as it only gets more conservative,
+ * so it is kept without scanning the instances. Until then the version describes what the read returns and the reads skip
+ * the eviction, afterwards the eviction scans the instances anyway and tightens the moment to the earliest expiry of the survivors.
+ * The version is updated after the change, so that whoever reads the version before the instances never pairs a version
+ * with older instances.
  */
 @ThreadSafe
 @VisibleForTesting
@@ -29,11 +40,20 @@ class ConcurrentClientRegistry implements ClientRegistry {
   @VisibleForTesting protected final ConcurrentMap<String, ConcurrentMap<String, ClientRegistration>> registry;
   private final long timeoutMs;
   private final Clock clock; // solely for testing time dependent methods without waiting
+  private final ConcurrentMap<String, ApplicationVersion> versions;
+  private final AtomicLong versionSequence;
+
+  /**
+   * @param expiresAt no instance expires before, Long.MAX_VALUE when they never do.
+   */
+  private record ApplicationVersion(long version, long expiresAt) {}
 
   public ConcurrentClientRegistry(long timeoutMs, Clock clock) {
     this.timeoutMs = timeoutMs;
     this.registry = new ConcurrentHashMap<>();
     this.clock = clock;
+    this.versions = new ConcurrentHashMap<>();
+    this.versionSequence = new AtomicLong();
   }
 
   @Override
@@ -42,6 +62,7 @@ class ConcurrentClientRegistry implements ClientRegistry {
         .put(registration.instanceId(), registration.withStatus(ClientStatus.COLD));
 
     this.evictExpiredEntries(application);
+    this.updateVersion(application, this.expiresAt(registration));
 
     log.debug("message=Registered client;" + APP_INSTANCE_LOG_METADATA, application,
         registration.instanceId(), registration.ipAddress() != null ? registration.ipAddress().getHostAddress() : null, registration.host(),
@@ -61,6 +82,7 @@ class ConcurrentClientRegistry implements ClientRegistry {
     var curMap = this.registry.get(application);
 
     boolean renewed = false;
+    boolean statusChanged = false;
 
     while (!renewed) {
       if (curMap == null || !curMap.containsKey(instanceId)) break;
@@ -72,6 +94,9 @@ class ConcurrentClientRegistry implements ClientRegistry {
       if (renewedRegistration.renewalsSinceRegistration() >= MIN_RENEWALS_TO_CONSIDER_INSTANCE_UP &&
               ClientStatus.COLD.equals(renewedRegistration.status())) {
         renewedRegistration = renewedRegistration.withStatus(ClientStatus.UP);
+        statusChanged = true;
+      } else {
+        statusChanged = false;
       }
 
       newMap.put(instanceId, renewedRegistration); // renew timestamp and possibly status
@@ -81,6 +106,7 @@ class ConcurrentClientRegistry implements ClientRegistry {
         curMap = this.registry.get(application);
       } else {
         renewed = true;
+        if (statusChanged) this.updateVersion(application, Long.MAX_VALUE); // the later expiry keeps the earliest one as is
         log.debug("message=Renewed lease of an instance;" + APP_INSTANCE_LOG_METADATA,
             application, instanceId, renewedRegistration.ipAddress() != null ? renewedRegistration.ipAddress().toString() : null, renewedRegistration.host(),
             renewedRegistration.status(), renewedRegistration.registrationTimestamp());
@@ -104,6 +130,7 @@ class ConcurrentClientRegistry implements ClientRegistry {
   public boolean deregister(@NotNull String application, @NotNull String instanceId) {
     ConcurrentMap<String, ClientRegistration> curMap = registry.get(application);
     boolean removed = false;
+    boolean changed = false;
     ClientRegistration oldRegistration = null;
 
     while (true) {
@@ -131,9 +158,12 @@ class ConcurrentClientRegistry implements ClientRegistry {
         }
       }
 
+      changed = newMap.size() != curMap.size(); // removed or evicted the expired ones
       break;
     }
 
+    if (changed) this.updateVersion(application, Long.MAX_VALUE);
+
     if (oldRegistration != null) {
       log.debug("message=De-registered client;" + APP_INSTANCE_LOG_METADATA, application,
           oldRegistration.instanceId(), oldRegistration.ipAddress() != null ? oldRegistration.ipAddress().getHostAddress() : null, oldRegistration.host(),
@@ -166,14 +196,34 @@ class ConcurrentClientRegistry implements ClientRegistry {
     return Optional.ofNullable(instanceMap.get(instanceId));
   }
 
+  @Override
+  public long applicationVersion(@NotNull String application) {
+    this.evictExpiredEntries(application);
+
+    final var version = this.versions.get(application);
+    return version == null ? 0 : version.version();
+  }
+
+  @Override
+  public long applicationVersionWithoutEviction(@NotNull String application) {
+    final var version = this.versions.get(application);
+
+    if (version == null) return 0;
+    return this.clock.currentTimeMillis() < version.expiresAt() ? version.version() : UNKNOWN_VERSION;
+  }
+
   /**
    * Lazily evicts old entries for a specified key by using CAS algorithm.
    * Checks if currentTime - entryTime < timeoutMs in that case we leave the entry.
+   * The instances are scanned only once the moment no instance expires before has passed.
    * @param application
    */
   private void evictExpiredEntries(String application) {
     if (timeoutMs == Long.MAX_VALUE) return;
 
+    final var version = this.versions.get(application);
+    if (version != null && this.clock.currentTimeMillis() < version.expiresAt()) return;
+
     var curMap = registry.get(application);
 
     while (true) {
@@ -181,7 +231,12 @@ class ConcurrentClientRegistry implements ClientRegistry {
 
       final var newMap = cloneClientMapFilterExpired(curMap);
 
-      if (newMap.size() == curMap.size()) break;
+      if (newMap.size() == curMap.size()) {
+        final long earliestExpiry = this.earliestExpiry(newMap);
+        this.versions.computeIfPresent(application, (key, current) -> new ApplicationVersion(current.version(),
+            tightened(current, version, earliestExpiry)));
+        break;
+      }
 
       if (newMap.isEmpty()) {
         if (!registry.remove(application, curMap)) {
@@ -195,10 +250,53 @@ class ConcurrentClientRegistry implements ClientRegistry {
         }
       }
 
+      final long earliestExpiry = this.earliestExpiry(newMap);
+      this.versions.compute(application, (key, current) -> this.registry.get(application) == null ? null
+          : new ApplicationVersion(this.versionSequence.incrementAndGet(), tightened(current, version, earliestExpiry)));
       break;
     }
   }
 
+  /**
+   * Assigns the next version to the current instances of the application, or drops the version once the application has none.
+   * The presence of the instances is checked inside the atomic update of the version, so that the update that comes last
+   * sees the last change.
+   *
+   * @param expiresAt expiry of the registered instance, Long.MAX_VALUE when the change cannot make any instance expire earlier.
+   */
+  private void updateVersion(String application, long expiresAt) {
+    this.versions.compute(application, (key, previous) -> {
+      if (this.registry.get(application) == null) return null;
+
+      return new ApplicationVersion(this.versionSequence.incrementAndGet(),
+          previous == null ? expiresAt : Math.min(previous.expiresAt(), expiresAt));
+    });
+  }
+
+  /**
+   * Returns the moment no instance expires before once the scan that started at the observed version found the earliest expiry.
+   * The changes made since then may have registered an instance the scan did not see, after them the moment is only lowered.
+   */
+  private static long tightened(@Nullable ApplicationVersion current, @Nullable ApplicationVersion observed, long earliestExpiry) {
+    return current == null || current == observed ? earliestExpiry : Math.min(current.expiresAt(), earliestExpiry);
+  }
+
+  private long expiresAt(ClientRegistration registration) {
+    if (timeoutMs == Long.MAX_VALUE) return Long.MAX_VALUE;
+
+    final long lastRenewal = registration.lastRenewalTimestamp();
+    return lastRenewal > Long.MAX_VALUE - timeoutMs ? Long.MAX_VALUE : lastRenewal + timeoutMs;
+  }
+
+  private long earliestExpiry(ConcurrentMap<String, ClientRegistration> map) {
+    long earliestExpiry = Long.MAX_VALUE;
+    for (ClientRegistration registration: map.values()) {
+      earliestExpiry = Math.min(earliestExpiry, this.expiresAt(registration));
+    }
+
+    return earliestExpiry;
+  }
+
   private ConcurrentMap<String, ClientRegistration> cloneClientMapFilterExpired(ConcurrentMap<String, ClientRegistration> map) {
     final var newMap = new ConcurrentHashMap<String, ClientRegistration>(map.size());
     long currentTime = clock.currentTimeMillis();
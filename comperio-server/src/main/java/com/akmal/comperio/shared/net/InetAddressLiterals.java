@@ -0,0 +1,169 @@
+package com.akmal.comperio.shared.net;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * Parser of the IP address literals that never consults the resolver, unlike {@link InetAddress#getByName(String)}, which
+ * performs a blocking DNS lookup whenever the value is not a literal. The characters are walked in place into the address bytes,
+ * so that the only allocations are the bytes and the resulting {@link InetAddress}.
+ * <p>
+ * IPv4 is accepted in the dotted-decimal form of four octets without the leading zeros, which the other parsers would read
+ * as octal. IPv6 is accepted in the text forms of RFC 4291: up to eight groups of up to four hex digits, at most one "::"
+ * and optionally the dotted-decimal IPv4 in place of the last two groups, with or without the brackets. The zone identifiers
+ * are rejected, since resolving them means looking up the network interfaces.
+ */
+public final class InetAddressLiterals {
+  private static final int IPV4_LENGTH = 4;
+  private static final int IPV6_LENGTH = 16;
+
+  private InetAddressLiterals() {}
+
+  /**
+   * Returns the address of the literal.
+   *
+   * @throws IllegalArgumentException when the value is not an IPv4 or IPv6 literal, such as a host name.
+   */
+  public static InetAddress parse(CharSequence literal) {
+    final byte[] address = toBytes(literal);
+    if (address == null) throw new IllegalArgumentException("Not an IP address literal: " + literal);
+
+    try {
+      return InetAddress.getByAddress(address);
+    } catch (UnknownHostException e) {
+      throw new IllegalStateException("Address of an unexpected length " + address.length, e); // unreachable, 4 or 16 bytes
+    }
+  }
+
+  /**
+   * Returns whether the value is an IPv4 or IPv6 literal accepted by {@link #parse(CharSequence)}.
+   */
+  public static boolean isLiteral(CharSequence literal) {
+    return toBytes(literal) != null;
+  }
+
+  /**
+   * @return 4 bytes of IPv4, 16 bytes of IPv6 or null when the value is not a literal.
+   */
+  static byte[] toBytes(CharSequence literal) {
+    int start = 0;
+    int end = literal.length();
+
+    if (end > 1 && literal.charAt(0) == '[' && literal.charAt(end - 1) == ']') {
+      start++;
+      end--;
+    }
+
+    for (int i = start; i < end; i++) {
+      if (literal.charAt(i) == ':') return parseIpv6(literal, start, end);
+    }
+
+    if (start != 0) return null; // the brackets enclose IPv6 only
+
+    final byte[] address = new byte[IPV4_LENGTH];
+    return parseIpv4(literal, start, end, address, 0) ? address : null;
+  }
+
+  private static boolean parseIpv4(CharSequence literal, int start, int end, byte[] address, int offset) {
+    int i = start;
+
+    for (int octet = 0; octet < IPV4_LENGTH; octet++) {
+      if (octet > 0) {
+        if (i == end || literal.charAt(i) != '.') return false;
+        i++;
+      }
+
+      final int octetStart = i;
+      int value = 0;
+
+      while (i < end && i - octetStart < 3) {
+        final char c = literal.charAt(i);
+        if (c < '0' || c > '9') break;
+
+        value = value * 10 + (c - '0');
+        i++;
+      }
+
+      final int digits = i - octetStart;
+      if (digits == 0 || value > 255 || (digits > 1 && literal.charAt(octetStart) == '0')) return false;
+
+      address[offset + octet] = (byte) value;
+    }
+
+    return i == end;
+  }
+
+  private static byte[] parseIpv6(CharSequence literal, int start, int end) {
+    final byte[] address = new byte[IPV6_LENGTH];
+    int groups = 0;
+    int compressedAt = -1;
+    int i = start;
+
+    if (end - start >= 2 && literal.charAt(i) == ':' && literal.charAt(i + 1) == ':') {
+      compressedAt = 0;
+      i += 2;
+    }
+
+    while (i < end) {
+      if (groups == IPV6_LENGTH / 2) return null;
+
+      final int groupStart = i;
+      int value = 0;
+
+      while (i < end && i - groupStart < 4) {
+        final int digit = hexDigit(literal.charAt(i));
+        if (digit == -1) break;
+
+        value = value << 4 | digit;
+        i++;
+      }
+
+      if (i < end && literal.charAt(i) == '.') { // the embedded IPv4 takes the last two groups
+        if (groups > IPV6_LENGTH / 2 - 2 || !parseIpv4(literal, groupStart, end, address, groups * 2)) return null;
+
+        groups += 2;
+        i = end;
+        break;
+      }
+
+      if (i == groupStart) return null;
+
+      address[groups * 2] = (byte) (value >>> 8);
+      address[groups * 2 + 1] = (byte) value;
+      groups++;
+
+      if (i == end) break;
+      if (literal.charAt(i) != ':') return null;
+      i++;
+
+      if (i < end && literal.charAt(i) == ':') {
+        if (compressedAt != -1) return null;
+
+        compressedAt = groups;
+        i++;
+      } else if (i == end) {
+        return null; // the single trailing colon
+      }
+    }
+
+    if (compressedAt == -1) return groups == IPV6_LENGTH / 2 ? address : null;
+    if (groups == IPV6_LENGTH / 2) return null; // "::" stands for at least one group
+
+    final int tailBytes = (groups - compressedAt) * 2;
+    System.arraycopy(address, compressedAt * 2, address, IPV6_LENGTH - tailBytes, tailBytes);
+    for (int b = compressedAt * 2; b < IPV6_LENGTH - tailBytes; b++) address[b] = 0;
+
+    return address;
+  }
+
+  /**
+   * Returns the value of the ASCII hex digit or -1, unlike {@link Character#digit(char, int)} the digits of the other scripts
+   * are not accepted.
+   */
+  private static int hexDigit(char c) {
+    if (c >= '0' && c <= '9') return c - '0';
+    if (c >= 'a' && c <= 'f') return c - 'a' + 10;
+    if (c >= 'A' && c <= 'F') return c - 'A' + 10;
+    return -1;
+  }
+}
@@ -0,0 +1,109 @@
+package com.akmal.comperio.cluster.transport.shaping;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+import com.akmal.comperio.shared.clock.Clock;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class BandwidthShaperTest {
+
+  long startTime = 1000000L;
+  TestClock clock;
+  UUID peerId = UUID.randomUUID();
+
+  @BeforeEach
+  void setup() {
+    this.clock = new TestClock(startTime);
+  }
+
+  @Test
+  @DisplayName("Token bucket should admit the burst at once and refill with the configured rate")
+  void shouldAdmitBurstAndRefillAtRate() {
+    final var bucket = new TokenBucket(1000, 500, clock);
+
+    assertThat(bucket.tryAcquire(500)).isTrue();
+    assertThat(bucket.tryAcquire(1)).isFalse();
+
+    clock.currentTimeMs += 100; // 100 bytes refilled
+
+    assertThat(bucket.availableBytes()).isEqualTo(100);
+    assertThat(bucket.tryAcquire(100)).isTrue();
+    assertThat(bucket.tryAcquire(1)).isFalse();
+
+    clock.currentTimeMs += 10_000; // bucket never exceeds burst capacity
+
+    assertThat(bucket.availableBytes()).isEqualTo(500);
+  }
+
+  @Test
+  @DisplayName("Token bucket should return the refunded bytes")
+  void shouldReturnRefundedBytes() {
+    final var bucket = new TokenBucket(1000, 500, clock);
+
+    assertThat(bucket.tryAcquire(400)).isTrue();
+    bucket.refund(300);
+
+    assertThat(bucket.availableBytes()).isEqualTo(400);
+  }
+
+  @Test
+  @DisplayName("Lower priority traffic should leave headroom for membership messages")
+  void shouldReserveHeadroomForHigherPriorityTraffic() {
+    final var shaper = new BandwidthShaper(new BandwidthLimits(0, 0, 1000, 1000), clock);
+
+    assertThat(shaper.tryAcquire(peerId, TrafficClass.FULL_SYNC, 700)).isTrue();
+    assertThat(shaper.tryAcquire(peerId, TrafficClass.FULL_SYNC, 1)).isFalse();
+    assertThat(shaper.tryAcquire(peerId, TrafficClass.REGISTRY_DELTA, 200)).isTrue();
+    assertThat(shaper.tryAcquire(peerId, TrafficClass.REGISTRY_DELTA, 1)).isFalse();
+    assertThat(shaper.tryAcquire(peerId, TrafficClass.MEMBERSHIP, 100)).isTrue();
+    assertThat(shaper.tryAcquire(peerId, TrafficClass.MEMBERSHIP, 1)).isFalse();
+  }
+
+  @Test
+  @DisplayName("Should count throttled bytes per peer and traffic class and refund peer bucket when global limit is hit")
+  void shouldCountThrottledBytesPerPeer() {
+    final var otherPeerId = UUID.randomUUID();
+    final var shaper = new BandwidthShaper(new BandwidthLimits(1000, 1000, 1000, 800), clock);
+
+    assertThat(shaper.tryAcquire(peerId, TrafficClass.MEMBERSHIP, 800)).isTrue();
+    assertThat(shaper.tryAcquire(otherPeerId, TrafficClass.MEMBERSHIP, 300)).isFalse(); // global bucket has only 200 left
+    assertThat(shaper.tryAcquire(otherPeerId, TrafficClass.MEMBERSHIP, 200)).isTrue(); // refunded peer bucket is intact
+    assertThat(shaper.tryAcquire(peerId, TrafficClass.REGISTRY_DELTA, 50)).isFalse();
+
+    assertThat(shaper.throttledBytes(peerId)).isEqualTo(50);
+    assertThat(shaper.throttledBytes(peerId, TrafficClass.REGISTRY_DELTA)).isEqualTo(50);
+    assertThat(shaper.throttledBytes(otherPeerId)).isEqualTo(300);
+    assertThat(shaper.throttledBytes(otherPeerId, TrafficClass.FULL_SYNC)).isEqualTo(0);
+  }
+
+  @Test
+  @DisplayName("Should never throttle when limits are disabled")
+  void shouldNotThrottleWhenUnlimited() {
+    final var shaper = new BandwidthShaper(BandwidthLimits.unlimited(), clock);
+
+    assertThat(shaper.tryAcquire(peerId, TrafficClass.FULL_SYNC, Integer.MAX_VALUE)).isTrue();
+    assertThat(shaper.throttledBytes(peerId)).isEqualTo(0);
+  }
+
+  private static class TestClock implements Clock {
+    private long currentTimeMs;
+
+    private TestClock(long currentTimeMs) {
+      this.currentTimeMs = currentTimeMs;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+      return this.currentTimeMs;
+    }
+
+    @Override
+    public long currentTimeNanos() {
+      return MILLISECONDS.toNanos(this.currentTimeMs);
+    }
+  }
+}
@@ -0,0 +1,39 @@
+package com.akmal.comperio.http;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class EntityTagsTest {
+
+  @Test
+  @DisplayName("Should match any tag of the If-None-Match list by the weak comparison")
+  void shouldMatchIfNoneMatch() {
+    final String entityTag = EntityTags.strong("a1-7");
+
+    assertThat(entityTag).isEqualTo("\"a1-7\"");
+    assertThat(EntityTags.noneMatchFails("\"a1-7\"", entityTag)).isTrue();
+    assertThat(EntityTags.noneMatchFails("W/\"a1-7\"", entityTag)).isTrue();
+    assertThat(EntityTags.noneMatchFails("\"a1-6\" ,\t\"a1-7\" ", entityTag)).isTrue();
+    assertThat(EntityTags.noneMatchFails("*", entityTag)).isTrue();
+
+    final String weakTag = EntityTags.weak("a1-7");
+    assertThat(weakTag).isEqualTo("W/\"a1-7\"");
+    assertThat(EntityTags.noneMatchFails("\"a1-7\"", weakTag)).isTrue();
+    assertThat(EntityTags.noneMatchFails("\"b\", W/\"a1-7\"", weakTag)).isTrue();
+    assertThat(EntityTags.noneMatchFails("W/\"a1-8\"", weakTag)).isFalse();
+  }
+
+  @Test
+  @DisplayName("Should not match the other tags or the absent field")
+  void shouldNotMatchOtherTags() {
+    final String entityTag = EntityTags.strong("a1-7");
+
+    assertThat(EntityTags.noneMatchFails(null, entityTag)).isFalse();
+    assertThat(EntityTags.noneMatchFails("", entityTag)).isFalse();
+    assertThat(EntityTags.noneMatchFails("a1-7", entityTag)).isFalse();
+    assertThat(EntityTags.noneMatchFails("\"a1-70\", W/\"a1-\"", entityTag)).isFalse();
+    assertThat(EntityTags.noneMatchFails("\"*\"", entityTag)).isFalse();
+  }
+}
@@ -0,0 +1,194 @@
+package com.akmal.comperio.http.registry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.akmal.comperio.http.registry.dto.service.ClientRegistrationService;
+import com.akmal.comperio.registry.ClientRegistry;
+import com.akmal.comperio.shared.clock.SystemClock;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+class RegistryHttpServerTest {
+  private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+  private RegistryHttpServer server;
+  private int port;
+
+  @AfterEach
+  void tearDown() {
+    if (this.server != null) this.server.stop();
+  }
+
+  @ParameterizedTest
+  @EnumSource(ServerBackend.class)
+  @DisplayName("Should serve the registry API the same way on every backend")
+  void shouldServeRegistryApi(ServerBackend backend) throws Exception {
+    this.start(backend);
+
+    final HttpResponse<String> registration = this.send("POST", "/v1/applications/orders/instances/i-1",
+        "{\"host\":\"orders-1.local\",\"port\":8080,\"ipAddress\":\"10.0.0.1\"}");
+    assertThat(registration.statusCode()).isEqualTo(200);
+    assertThat(registration.headers().firstValue("Content-Type")).hasValue("application/json");
+    assertThat(registration.body()).contains("\"instanceId\":\"i-1\"");
+
+    assertThat(this.send("POST", "/v1/applications/orders/instances/i-1/heartbeat", "").statusCode()).isEqualTo(204);
+    assertThat(this.send("POST", "/v1/applications/orders/instances/i-2/heartbeat", "").statusCode()).isEqualTo(400);
+
+    final HttpResponse<String> instances = this.send("GET", "/v1/applications/orders/instances", null);
+    assertThat(instances.statusCode()).isEqualTo(200);
+    assertThat(instances.body()).startsWith("[").contains("orders-1.local").contains("lastRenewalTimestamp")
+        .contains("renewalsSinceRegistration");
+    assertThat(instances.headers().firstValue("ETag")).isEmpty();
+
+    assertThat(this.send("GET", "/v1/applications/orders/instances/i-1", null).statusCode()).isEqualTo(200);
+    assertThat(this.send("DELETE", "/v1/applications/orders/instances/i-1", null).statusCode()).isEqualTo(204);
+    assertThat(this.send("GET", "/v1/applications/orders/instances/i-1", null).statusCode()).isEqualTo(404);
+
+    final HttpResponse<String> hostName = this.send("POST", "/v1/applications/orders/instances/i-3",
+        "{\"host\":\"orders-3.local\",\"port\":8080,\"ipAddress\":\"orders-3.local\"}");
+    assertThat(hostName.statusCode()).isEqualTo(400); // rejected without being resolved
+    assertThat(hostName.headers().firstValue("Content-Type")).hasValue("application/json");
+    assertThat(hostName.body()).contains("\"errorCode\":\"CR-00002\"").contains("literal");
+
+    final HttpResponse<String> malformed = this.send("POST", "/v1/applications/orders/instances/i-5", "{\"host\":");
+    assertThat(malformed.statusCode()).isEqualTo(400);
+    assertThat(malformed.body()).contains("\"errorCode\":\"CR-00002\"");
+    assertThat(this.send("GET", "/v1/applications/orders/instances/i-3", null).statusCode()).isEqualTo(404);
+
+    final HttpResponse<String> ipv6 = this.send("POST", "/v1/applications/orders/instances/i-4",
+        "{\"host\":\"orders-4.local\",\"port\":8080,\"ipAddress\":\"2001:db8::4\"}");
+    assertThat(ipv6.statusCode()).isEqualTo(200);
+
+    final HttpResponse<String> missing = this.send("GET", "/v2/applications", null);
+    assertThat(missing.statusCode()).isEqualTo(404);
+    assertThat(missing.body()).isEqualTo("Requested resource not found");
+    assertThat(this.send("PATCH", "/v1/applications/orders/instances", "").statusCode()).isEqualTo(404);
+  }
+
+  @ParameterizedTest
+  @EnumSource(ServerBackend.class)
+  @DisplayName("Should answer the query of an unchanged application with 304")
+  void shouldRevalidateApplicationInstances(ServerBackend backend) throws Exception {
+    this.start(backend);
+    this.send("POST", "/v1/applications/orders/instances/i-1", "{\"host\":\"orders-1.local\",\"port\":8080,\"ipAddress\":\"10.0.0.1\"}");
+
+    final HttpResponse<String> instances = this.send("GET", "/v2/applications/orders/instances", null);
+    final String entityTag = instances.headers().firstValue("ETag").orElseThrow();
+    assertThat(instances.statusCode()).isEqualTo(200);
+
+    final HttpResponse<String> unchanged = this.sendIfNoneMatch("W/\"other\", " + entityTag);
+    assertThat(unchanged.statusCode()).isEqualTo(304);
+    assertThat(unchanged.body()).isEmpty();
+    assertThat(unchanged.headers().firstValue("ETag")).hasValue(entityTag);
+
+    this.send("POST", "/v1/applications/orders/instances/i-1/heartbeat", "");
+    assertThat(this.sendIfNoneMatch(entityTag).statusCode()).isEqualTo(304); // the heartbeat is not versioned
+
+    this.send("POST", "/v1/applications/orders/instances/i-2", "{\"host\":\"orders-2.local\",\"port\":8080,\"ipAddress\":\"10.0.0.2\"}");
+
+    final HttpResponse<String> changed = this.sendIfNoneMatch(entityTag);
+    assertThat(changed.statusCode()).isEqualTo(200);
+    assertThat(changed.body()).contains("orders-1.local").contains("orders-2.local").doesNotContain("lastRenewalTimestamp");
+    assertThat(changed.headers().firstValue("ETag")).isPresent().get().isNotEqualTo(entityTag);
+  }
+
+  @ParameterizedTest
+  @EnumSource(ServerBackend.class)
+  @DisplayName("Should serve the large instances of an application gzip-coded when accepted")
+  void shouldServeGzipCodedInstances(ServerBackend backend) throws Exception {
+    this.start(backend);
+    for (int i = 0; i < 20; i++) {
+      this.send("POST", "/v1/applications/orders/instances/i-" + i, "{\"host\":\"orders-" + i + ".local\",\"port\":8080,\"ipAddress\":\"10.0.0.1\"}");
+    }
+
+    final HttpResponse<String> identity = this.send("GET", "/v2/applications/orders/instances", null);
+    final HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + this.port + "/v2/applications/orders/instances"))
+                                    .header("Accept-Encoding", "gzip")
+                                    .GET()
+                                    .build();
+    final HttpResponse<byte[]> gzip = this.client.send(request, BodyHandlers.ofByteArray());
+
+    assertThat(identity.headers().firstValue("Content-Encoding")).isEmpty();
+    assertThat(gzip.statusCode()).isEqualTo(200);
+    assertThat(gzip.headers().firstValue("Content-Encoding")).hasValue("gzip");
+    assertThat(gzip.headers().firstValue("Vary")).hasValue("Accept-Encoding");
+    assertThat(gzip.headers().firstValue("ETag")).isEqualTo(identity.headers().firstValue("ETag"));
+    try (final var in = new GZIPInputStream(new ByteArrayInputStream(gzip.body()))) {
+      assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(identity.body());
+    }
+  }
+
+  @Test
+  @DisplayName("Should select the backend by the configuration")
+  void shouldConfigureBackend() {
+    final var properties = new Properties();
+    properties.setProperty(ConfigurationPropertyKeys.HTTP_BACKEND, "HTTP-SERVER-NIO");
+
+    assertThat(RegistryHttpServer.configure(properties, service()).backend()).isEqualTo(ServerBackend.HTTP_SERVER_NIO);
+    assertThat(RegistryHttpServer.configure(new Properties(), service()).backend()).isEqualTo(ServerBackend.UNDERTOW);
+
+    properties.setProperty(ConfigurationPropertyKeys.HTTP_WORKER_THREADS, "-1");
+    assertThatThrownBy(() -> RegistryHttpServer.configure(properties, service())).isInstanceOf(IllegalArgumentException.class);
+
+    properties.setProperty(ConfigurationPropertyKeys.HTTP_WORKER_THREADS, "4");
+    properties.setProperty(ConfigurationPropertyKeys.HTTP_BACKEND, "jetty");
+    assertThatThrownBy(() -> RegistryHttpServer.configure(properties, service()))
+        .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("jetty");
+  }
+
+  private void start(ServerBackend backend) throws Exception {
+    try (final var socket = new ServerSocket(0)) {
+      this.port = socket.getLocalPort();
+    }
+
+    this.server = RegistryHttpServer.bindTo("127.0.0.1", this.port, backend, service());
+    this.server.start();
+
+    for (int attempt = 0; ; attempt++) { // the http-server backends bind the socket on their own thread
+      try (final var socket = new Socket("127.0.0.1", this.port)) {
+        return;
+      } catch (IOException e) {
+        if (attempt == 100) throw e;
+        Thread.sleep(20);
+      }
+    }
+  }
+
+  private HttpResponse<String> send(String method, String path, String body) throws Exception {
+    final HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + this.port + path))
+                                    .method(method, body == null ? BodyPublishers.noBody() : BodyPublishers.ofString(body))
+                                    .build();
+
+    return this.client.send(request, BodyHandlers.ofString());
+  }
+
+  private HttpResponse<String> sendIfNoneMatch(String entityTags) throws Exception {
+    final HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + this.port + "/v2/applications/orders/instances"))
+                                    .header("If-None-Match", entityTags)
+                                    .GET()
+                                    .build();
+
+    return this.client.send(request, BodyHandlers.ofString());
+  }
+
+  private static ClientRegistrationService service() {
+    final var clock = new SystemClock();
+    return new ClientRegistrationService(ClientRegistry.withExpiry(30_000, clock), clock);
+  }
+}
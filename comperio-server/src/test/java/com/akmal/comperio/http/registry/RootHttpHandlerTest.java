@@ -0,0 +1,124 @@
+package com.akmal.comperio.http.registry;
+
+import static com.akmal.comperio.http.HttpRouteHandler.onIoThread;
+import static com.akmal.comperio.http.HttpRouteHandler.onWorker;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.akmal.comperio.http.HttpExchange;
+import com.akmal.comperio.http.HttpRouteHandler;
+import com.akmal.comperio.http.HttpStatus;
+import com.akmal.comperio.http.router.HttpMethod;
+import com.akmal.comperio.http.router.Route;
+import com.akmal.comperio.http.router.Router;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class RootHttpHandlerTest {
+  private final List<Runnable> workerTasks = new ArrayList<>();
+  private final Executor worker = this.workerTasks::add;
+  private final List<String> handled = new ArrayList<>();
+
+  private final RootHttpHandler rootHandler = new RootHttpHandler(Router.<HttpRouteHandler>defaultRouter()
+      .register(Route.of(HttpMethod.GET, "/io/{id}", onIoThread((exchange, variables) -> this.handled.add("io " + variables.asString("id")))))
+      .register(Route.of(HttpMethod.GET, "/worker/{id}", onWorker((exchange, variables) -> this.handled.add("worker " + variables.asString("id")))))
+      .freeze(), this.worker);
+
+  @Test
+  @DisplayName("Should move the worker routes off the I/O thread with the variables detached")
+  void shouldDispatchWorkerRoutes() throws Exception {
+    final var context = new RootHttpHandler.DispatchContext();
+
+    this.rootHandler.handleRequest(new StubExchange("/worker/42", true), context);
+    assertThat(this.handled).isEmpty();
+    assertThat(this.workerTasks).hasSize(1);
+
+    this.rootHandler.handleRequest(new StubExchange("/io/7", true), context); // reuses the match of the I/O thread
+    this.workerTasks.get(0).run();
+
+    assertThat(this.handled).containsExactly("io 7", "worker 42");
+  }
+
+  @Test
+  @DisplayName("Should run the worker routes in place when the engine is off the I/O thread already")
+  void shouldRunInPlaceOffIoThread() throws Exception {
+    this.rootHandler.handleRequest(new StubExchange("/worker/1", false));
+    final var missing = new StubExchange("/missing", true);
+    this.rootHandler.handleRequest(missing);
+
+    assertThat(this.handled).containsExactly("worker 1");
+    assertThat(this.workerTasks).isEmpty();
+    assertThat(missing.status).isEqualTo(HttpStatus.NOT_FOUND);
+  }
+
+  private static final class StubExchange implements HttpExchange {
+    private final String path;
+    private final boolean ioThread;
+    private HttpStatus status = HttpStatus.OK;
+
+    private StubExchange(String path, boolean ioThread) {
+      this.path = path;
+      this.ioThread = ioThread;
+    }
+
+    @Override
+    public HttpMethod method() {
+      return HttpMethod.GET;
+    }
+
+    @Override
+    public String path() {
+      return this.path;
+    }
+
+    @Override
+    public String requestHeader(String name) {
+      return null;
+    }
+
+    @Override
+    public void receiveBody(Consumer<byte[]> callback) {
+      callback.accept(new byte[0]);
+    }
+
+    @Override
+    public boolean isInIoThread() {
+      return this.ioThread;
+    }
+
+    @Override
+    public void dispatch(Executor executor, DispatchedTask task) {
+      executor.execute(() -> {
+        try {
+          task.run();
+        } catch (Exception e) {
+          throw new IllegalStateException(e);
+        }
+      });
+    }
+
+    @Override
+    public void setStatus(HttpStatus status) {
+      this.status = status;
+    }
+
+    @Override
+    public void setContentType(String contentType) {}
+
+    @Override
+    public void setResponseHeader(String name, String value) {}
+
+    @Override
+    public void send(String body) {}
+
+    @Override
+    public void send(byte[] body) {}
+
+    @Override
+    public void send(ByteBuffer body) {}
+  }
+}
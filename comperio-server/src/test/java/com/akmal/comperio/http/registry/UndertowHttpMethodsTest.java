@@ -0,0 +1,31 @@
+package com.akmal.comperio.http.registry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.akmal.comperio.http.router.HttpMethod;
+import io.undertow.util.HttpString;
+import io.undertow.util.Methods;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+class UndertowHttpMethodsTest {
+
+  @ParameterizedTest
+  @EnumSource(HttpMethod.class)
+  @DisplayName("Should resolve every router method from the interned constant and from any other instance")
+  void shouldResolveEveryMethod(HttpMethod method) {
+    assertThat(UndertowHttpMethods.resolve(Methods.fromString(method.name()))).isSameAs(method);
+    assertThat(UndertowHttpMethods.resolve(new HttpString(method.name()))).isSameAs(method);
+    assertThat(UndertowHttpMethods.resolve(new HttpString(method.name().toLowerCase()))).isSameAs(method);
+  }
+
+  @Test
+  @DisplayName("Should not resolve the methods the router does not support")
+  void shouldNotResolveUnknownMethod() {
+    assertThat(UndertowHttpMethods.resolve(Methods.TRACE)).isNull();
+    assertThat(UndertowHttpMethods.resolve(new HttpString("PROPFIND"))).isNull();
+    assertThat(UndertowHttpMethods.resolve(null)).isNull();
+  }
+}
@@ -0,0 +1,162 @@
+package com.akmal.comperio.http.registry.handlers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.akmal.comperio.http.registry.handlers.ApplicationResponseCache.Encoded;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class ApplicationResponseCacheTest {
+  private final Map<String, AtomicInteger> loads = new ConcurrentHashMap<>();
+
+  @Test
+  @DisplayName("Should build the body once per version and serve the later version to the older queries")
+  void shouldBuildOncePerVersion() throws Exception {
+    final var cache = new ApplicationResponseCache(1024 * 1024, this.loader(1));
+
+    assertThat(cache.getIfPresent("orders", 3)).isNull();
+    final Encoded built = cache.get("orders", 3);
+    assertThat(text(built.json())).startsWith("[\"orders\"");
+    assertThat(built.json().isReadOnly()).isTrue();
+
+    assertThat(cache.getIfPresent("orders", 3)).isSameAs(built);
+    assertThat(cache.get("orders", 2)).isSameAs(built);
+    assertThat(cache.getIfPresent("orders", 4)).isNull();
+    assertThat(this.loads("orders")).isEqualTo(1);
+
+    final Encoded rebuilt = cache.get("orders", 4);
+    assertThat(rebuilt.version()).isEqualTo(4);
+    assertThat(cache.getIfPresent("orders", 3)).isSameAs(rebuilt);
+    assertThat(this.loads("orders")).isEqualTo(2);
+
+    assertThat(text(cache.get("payments", 0).json())).isEqualTo("[]"); // no instances, nothing to load
+    assertThat(this.loads("payments")).isZero();
+  }
+
+  @Test
+  @DisplayName("Should let the concurrent misses of the same version wait for a single build")
+  void shouldBuildConcurrentMissesOnce() throws Exception {
+    final var release = new CountDownLatch(1);
+    final var cache = new ApplicationResponseCache(1024 * 1024, application -> {
+      this.loads.computeIfAbsent(application, key -> new AtomicInteger()).incrementAndGet();
+      release.await();
+      return "[]".getBytes(StandardCharsets.UTF_8);
+    });
+
+    final var executor = Executors.newFixedThreadPool(8);
+    try {
+      final var results = new ArrayList<Future<Encoded>>();
+      for (int i = 0; i < 8; i++) results.add(executor.submit(() -> cache.get("orders", 1)));
+
+      Thread.sleep(100); // lets the queries pile up behind the build
+      release.countDown();
+
+      final Encoded first = results.get(0).get(5, TimeUnit.SECONDS);
+      for (Future<Encoded> result: results) assertThat(result.get(5, TimeUnit.SECONDS)).isSameAs(first);
+      assertThat(this.loads("orders")).isEqualTo(1);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  @DisplayName("Should not keep the failed build")
+  void shouldRetryFailedBuild() throws Exception {
+    final var failures = new AtomicInteger(1);
+    final var cache = new ApplicationResponseCache(1024 * 1024, application -> {
+      if (failures.getAndDecrement() > 0) throw new IOException("Registry unavailable");
+      return "[]".getBytes(StandardCharsets.UTF_8);
+    });
+
+    assertThatThrownBy(() -> cache.get("orders", 1)).isInstanceOf(IOException.class);
+    assertThat(cache.getIfPresent("orders", 1)).isNull();
+    assertThat(text(cache.get("orders", 1).json())).isEqualTo("[]");
+  }
+
+  @Test
+  @DisplayName("Should drop the least recently queried applications once over the capacity")
+  void shouldEvictLeastRecentlyUsed() throws Exception {
+    final var cache = new ApplicationResponseCache(3 * 600, this.loader(40)); // three bodies of roughly 500 bytes
+
+    cache.get("orders", 1);
+    cache.get("payments", 1);
+    cache.get("billing", 1);
+    assertThat(cache.getIfPresent("orders", 1)).isNotNull(); // payments is the least recently queried now
+
+    cache.get("shipping", 1);
+
+    assertThat(cache.getIfPresent("payments", 1)).isNull();
+    assertThat(cache.getIfPresent("orders", 1)).isNotNull();
+    assertThat(cache.getIfPresent("billing", 1)).isNotNull();
+    assertThat(cache.getIfPresent("shipping", 1)).isNotNull();
+    assertThat(cache.sizeBytes()).isLessThanOrEqualTo(3 * 600);
+
+    final var tiny = new ApplicationResponseCache(100, this.loader(40));
+    assertThat(tiny.get("orders", 1)).isNotNull(); // served, but larger than the whole capacity
+    assertThat(tiny.getIfPresent("orders", 1)).isNull();
+    assertThat(tiny.sizeBytes()).isZero();
+  }
+
+  @Test
+  @DisplayName("Should keep the gzip coding of the large bodies only")
+  void shouldCompressLargeBodies() throws Exception {
+    final byte[] json = ("[" + "{\"host\":\"orders.local\",\"port\":8080},".repeat(100) + "{}]").getBytes(StandardCharsets.UTF_8);
+    final Encoded large = ApplicationResponseCache.encode(1, json);
+
+    assertThat(large.gzip()).isNotNull();
+    assertThat(large.gzip().isReadOnly()).isTrue();
+    final byte[] compressed = new byte[large.gzip().remaining()];
+    large.gzip().duplicate().get(compressed);
+    try (final var in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+      assertThat(in.readAllBytes()).isEqualTo(json);
+    }
+
+    assertThat(ApplicationResponseCache.encode(1, "[]".getBytes(StandardCharsets.UTF_8)).gzip()).isNull();
+  }
+
+  @Test
+  @DisplayName("Should accept gzip unless it is weighted zero")
+  void shouldNegotiateGzip() {
+    assertThat(ApplicationResponseCache.acceptsGzip("gzip, deflate, br")).isTrue();
+    assertThat(ApplicationResponseCache.acceptsGzip("br;q=1.0, GZIP;q=0.5")).isTrue();
+    assertThat(ApplicationResponseCache.acceptsGzip("*")).isTrue();
+
+    assertThat(ApplicationResponseCache.acceptsGzip(null)).isFalse();
+    assertThat(ApplicationResponseCache.acceptsGzip("identity")).isFalse();
+    assertThat(ApplicationResponseCache.acceptsGzip("gzip;q=0, deflate")).isFalse();
+    assertThat(ApplicationResponseCache.acceptsGzip("gzip; q=0.000")).isFalse();
+  }
+
+  /**
+   * Loads the body of roughly 11 bytes per instance, which starts with the name of the application.
+   */
+  private ApplicationResponseCache.Loader loader(int instances) {
+    return application -> {
+      this.loads.computeIfAbsent(application, key -> new AtomicInteger()).incrementAndGet();
+      return ("[\"" + application + "\"" + ",\"instance\"".repeat(instances) + "]").getBytes(StandardCharsets.UTF_8);
+    };
+  }
+
+  private int loads(String application) {
+    final AtomicInteger count = this.loads.get(application);
+    return count == null ? 0 : count.get();
+  }
+
+  private static String text(ByteBuffer buffer) {
+    return StandardCharsets.UTF_8.decode(buffer.duplicate()).toString();
+  }
+}
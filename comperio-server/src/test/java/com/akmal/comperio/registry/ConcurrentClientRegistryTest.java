@@ -305,4 +305,45 @@ class ConcurrentClientRegistryTest {
 
     assertThat(renewed).isFalse();
   }
+
+  @Test
+  @DisplayName("Should change the application version on every change of its instances, except for the lease renewal")
+  void shouldChangeApplicationVersion() throws UnknownHostException {
+    clock.time = 1000L;
+    ClientRegistration registration = new ClientRegistration("test", "test1", "http://localhost",
+        8080, InetAddress.getLocalHost(), clock.time, clock.time, 1, ClientStatus.COLD);
+
+    assertThat(expiringRegistry.applicationVersion("test")).isZero();
+
+    expiringRegistry.register(registration.application(), registration);
+    long registered = expiringRegistry.applicationVersion("test");
+    assertThat(registered).isPositive();
+    assertThat(expiringRegistry.applicationVersionWithoutEviction("test")).isEqualTo(registered);
+
+    clock.time += timeout - 1;
+    expiringRegistry.renewInstance("test", "test1"); // still cold
+    assertThat(expiringRegistry.applicationVersion("test")).isEqualTo(registered);
+
+    expiringRegistry.deregister("test", "test2"); // nothing to remove
+    assertThat(expiringRegistry.applicationVersion("test")).isEqualTo(registered);
+
+    clock.time += timeout - 1;
+    assertThat(expiringRegistry.applicationVersionWithoutEviction("test")).isEqualTo(ClientRegistry.UNKNOWN_VERSION);
+    assertThat(expiringRegistry.applicationVersion("test")).isEqualTo(registered); // the renewal postponed the expiry
+    assertThat(expiringRegistry.applicationVersionWithoutEviction("test")).isEqualTo(registered);
+
+    expiringRegistry.renewInstance("test", "test1"); // brings the instance up
+    long up = expiringRegistry.applicationVersion("test");
+    assertThat(up).isGreaterThan(registered);
+
+    clock.time += timeout;
+    assertThat(expiringRegistry.applicationVersionWithoutEviction("test")).isEqualTo(ClientRegistry.UNKNOWN_VERSION);
+    assertThat(expiringRegistry.applicationVersion("test")).isZero(); // expired without a read of the instances
+    assertThat(expiringRegistry.registry.get("test")).isNull();
+
+    expiringRegistry.register(registration.application(), registration.withLastRenewalTimestamp(clock.time));
+    assertThat(expiringRegistry.applicationVersion("test")).isGreaterThan(up);
+    expiringRegistry.deregister("test", "test1");
+    assertThat(expiringRegistry.applicationVersion("test")).isZero();
+  }
 }
@@ -0,0 +1,43 @@
+package com.akmal.comperio.shared.net;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.net.Inet4Address;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class InetAddressLiteralsTest {
+
+  @Test
+  @DisplayName("Should parse the literals to the same addresses as the JDK")
+  void shouldParseLiterals() throws Exception {
+    final String[] literals = {"0.0.0.0", "127.0.0.1", "255.255.255.255", "10.20.30.40", "::", "::1", "1::", "fe80::1",
+        "2001:db8:0:0:0:0:2:1", "2001:DB8::2:1", "1:2:3:4:5:6:7::", "::1:2:3:4:5:6:7", "1:2:3:4:5:6:7:8", "::ffff:192.0.2.128",
+        "64:ff9b::192.0.2.33", "1:2:3:4:5:6:1.2.3.4", "[2001:db8::1]", "0:0:0:0:0:0:0:0"};
+
+    for (String literal: literals) {
+      assertThat(InetAddressLiterals.parse(literal)).as(literal).isEqualTo(InetAddress.getByName(literal));
+    }
+
+    assertThat(InetAddressLiterals.parse("::ffff:10.0.0.1")).isInstanceOf(Inet4Address.class);
+    assertThat(InetAddressLiterals.parse("::10.0.0.1")).isInstanceOf(Inet6Address.class);
+  }
+
+  @Test
+  @DisplayName("Should reject the host names and the malformed literals without resolving them")
+  void shouldRejectNonLiterals() {
+    final String[] invalid = {"", "localhost", "example.com", "1.2.3", "1.2.3.4.5", "256.0.0.1", "01.2.3.4", "1.2.3.4.", "1..2.3",
+        "-1.2.3.4", "1.2.3.a", "[1.2.3.4]", ":", ":::", "1:2", "1::2::3", ":1::2", "1:2:3:4:5:6:7:8:9", "1:2:3:4:5:6:7:8::",
+        "12345::", "g::1", "::\u0661", "\uff11::1", "1::2:", "fe80::1%eth0", "1:2:3:4:5:6:7:1.2.3.4", "::1.2.3", "[::1", "::1]"};
+
+    for (String literal: invalid) {
+      assertThat(InetAddressLiterals.isLiteral(literal)).as(literal).isFalse();
+    }
+
+    assertThatThrownBy(() -> InetAddressLiterals.parse("registry.local"))
+        .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("registry.local");
+  }
+}
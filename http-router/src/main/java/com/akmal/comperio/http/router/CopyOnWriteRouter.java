@@ -0,0 +1,69 @@
+package com.akmal.comperio.http.router;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Optional;
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * {@link Router} that serves the lookups from an immutable {@link FrozenRouter} snapshot and applies the registrations by
+ * compiling a new snapshot off to the side and publishing it through a volatile write.
+ * The lookups never block and always observe a complete table, either the one before or the one after the registration.
+ * Registrations are serialised and each one recompiles the whole table, therefore, the router suits the route tables that rarely change.
+ */
+@ThreadSafe
+class CopyOnWriteRouter<H> implements Router<H> {
+
+  private final Object lock = new Object();
+
+  @GuardedBy("lock")
+  private final ArrayList<Route<H>> registeredRoutes = new ArrayList<>();
+  private volatile FrozenRouter<H> snapshot;
+
+  CopyOnWriteRouter() {
+    this.snapshot = FrozenRouter.compile(Collections.emptyList());
+  }
+
+  /**
+   * Compiles the new snapshot with the route added and swaps it in.
+   *
+   * @throws IllegalArgumentException when the route cannot be represented by the {@link FrozenRouter}, the current snapshot stays intact.
+   */
+  @Override
+  public Router<H> register(Route<H> route) {
+    synchronized (this.lock) {
+      final var routes = new ArrayList<>(this.registeredRoutes);
+      routes.add(route);
+
+      this.snapshot = FrozenRouter.compile(routes);
+      this.registeredRoutes.add(route);
+    }
+
+    return this;
+  }
+
+  @Override
+  public Optional<RouteMatch<H>> match(HttpMethod method, String path) {
+    return this.snapshot.match(method, path);
+  }
+
+  @Override
+  public boolean match(HttpMethod method, CharSequence path, MutableRouteMatch<H> result) {
+    return this.snapshot.match(method, path, result);
+  }
+
+  @Override
+  public Collection<Route<H>> routes() {
+    return this.snapshot.routes();
+  }
+
+  /**
+   * Returns the current snapshot, no compilation is needed.
+   */
+  @Override
+  public Router<H> freeze() {
+    return this.snapshot;
+  }
+}
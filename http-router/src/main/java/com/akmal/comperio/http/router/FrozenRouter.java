@@ -0,0 +1,248 @@
+package com.akmal.comperio.http.router;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import net.jcip.annotations.Immutable;
+
+/**
+ * Immutable {@link Router} compiled from a fixed set of routes into flat primitive transition tables.
+ * The routes are matched segment by segment (text between two slashes). Every node of the segment tree is an index into the
+ * parallel arrays that hold the range of its static edges, the target of its variable edge, the bitmask of the methods it
+ * terminates and the base of its row in the route index. Static edges of a node are stored contiguously, sorted by label length
+ * and then by the label bytes, so that the lookup is a binary search over primitive arrays without any pointer chasing.
+ * Static edges take priority over the variable edge and the lookup backtracks to the variable edge when the static branch fails.
+ * All the state is held in final fields, therefore, the instance is safely published and can be shared by any number of threads.
+ * Only whole-segment variables (e.g. /users/{userId}/) are supported.
+ */
+@Immutable
+public final class FrozenRouter<H> implements Router<H> {
+  private static final int METHODS = SegmentNode.METHODS;
+  private static final int NONE = -1;
+
+  private final List<Route<H>> registeredRoutes;
+  private final Route<H>[] routes;
+  private final int maxVariables;
+
+  // per node tables
+  private final int[] edgeFrom;
+  private final int[] edgeTo;
+  private final int[] variableTarget;
+  private final int[] methodMask;
+  private final int[] routeBase;
+
+  // per static edge tables
+  private final int[] labelOffset;
+  private final int[] labelLength;
+  private final int[] edgeTarget;
+  private final byte[] labels;
+
+  // route index, row of METHODS entries per terminal node
+  private final int[] routeIndex;
+
+  @SuppressWarnings("unchecked")
+  private FrozenRouter(List<Route<H>> registeredRoutes) {
+    this.registeredRoutes = List.copyOf(registeredRoutes);
+    final SegmentNode<H> root = SegmentNode.build(registeredRoutes);
+    this.maxVariables = registeredRoutes.stream().mapToInt(route -> route.getVariables().length).max().orElse(0);
+
+    // number the nodes in BFS order, so that the nodes of the same level are laid out next to each other
+    final var order = new ArrayList<SegmentNode<H>>();
+    final var ids = new IdentityHashMap<SegmentNode<H>, Integer>();
+    final var queue = new ArrayDeque<SegmentNode<H>>();
+    queue.add(root);
+
+    int edges = 0;
+    int labelBytes = 0;
+    int terminals = 0;
+
+    while (!queue.isEmpty()) {
+      final SegmentNode<H> node = queue.poll();
+      ids.put(node, order.size());
+      order.add(node);
+
+      for (Map.Entry<String, SegmentNode<H>> edge: node.statics.entrySet()) {
+        edges++;
+        labelBytes += edge.getKey().length();
+        queue.add(edge.getValue());
+      }
+
+      if (node.variable != null) queue.add(node.variable);
+      if (node.routes != null) terminals++;
+    }
+
+    this.edgeFrom = new int[order.size()];
+    this.edgeTo = new int[order.size()];
+    this.variableTarget = new int[order.size()];
+    this.methodMask = new int[order.size()];
+    this.routeBase = new int[order.size()];
+    this.labelOffset = new int[edges];
+    this.labelLength = new int[edges];
+    this.edgeTarget = new int[edges];
+    this.labels = new byte[labelBytes];
+    this.routeIndex = new int[terminals * METHODS];
+
+    final var distinctRoutes = new ArrayList<Route<H>>();
+    int edge = 0;
+    int labelCursor = 0;
+    int terminal = 0;
+
+    for (int id = 0; id < order.size(); id++) {
+      final SegmentNode<H> node = order.get(id);
+
+      this.edgeFrom[id] = edge;
+      for (Map.Entry<String, SegmentNode<H>> entry: node.statics.entrySet()) {
+        final String label = entry.getKey();
+
+        this.labelOffset[edge] = labelCursor;
+        this.labelLength[edge] = label.length();
+        this.edgeTarget[edge] = ids.get(entry.getValue());
+        for (int i = 0; i < label.length(); i++) this.labels[labelCursor++] = (byte) label.charAt(i);
+        edge++;
+      }
+      this.edgeTo[id] = edge;
+      this.variableTarget[id] = node.variable == null ? NONE : ids.get(node.variable);
+
+      if (node.routes == null) {
+        this.routeBase[id] = NONE;
+        continue;
+      }
+
+      this.routeBase[id] = terminal * METHODS;
+      for (int method = 0; method < METHODS; method++) {
+        final Route<H> route = node.routes[method];
+
+        if (route == null) {
+          this.routeIndex[terminal * METHODS + method] = NONE;
+        } else {
+          this.methodMask[id] |= 1 << method;
+          this.routeIndex[terminal * METHODS + method] = distinctRoutes.size();
+          distinctRoutes.add(route);
+        }
+      }
+      terminal++;
+    }
+
+    this.routes = distinctRoutes.toArray((Route<H>[]) new Route[0]);
+  }
+
+  /**
+   * Compiles the routes into the immutable router, if several routes share the path and the method the last one wins.
+   *
+   * @param routes to be compiled.
+   * @return frozen router.
+   * @throws IllegalArgumentException when a route declares a variable that does not take the whole segment.
+   */
+  public static <H> FrozenRouter<H> compile(Collection<Route<H>> routes) {
+    return new FrozenRouter<>(new ArrayList<>(routes));
+  }
+
+  /**
+   * Frozen router cannot be modified, use {@link CopyOnWriteRouter} when the routes have to be updated at runtime.
+   *
+   * @throws UnsupportedOperationException always.
+   */
+  @Override
+  public Router<H> register(Route<H> route) {
+    throw new UnsupportedOperationException("Frozen router cannot be modified");
+  }
+
+  @Override
+  public Optional<RouteMatch<H>> match(HttpMethod method, String path) {
+    final var result = new MutableRouteMatch<H>(this.maxVariables);
+    return this.match(method, path, result) ? Optional.of(result.toRouteMatch()) : Optional.empty();
+  }
+
+  @Override
+  public boolean match(HttpMethod method, CharSequence path, MutableRouteMatch<H> result) {
+    result.reset(path, this.maxVariables);
+    if (path.length() == 0 || path.charAt(0) != '/') return false;
+
+    final int end = path.charAt(path.length() - 1) == '/' ? path.length() : path.length() + 1; // implicit trailing slash
+    final int routeIndex = this.lookup(0, method.ordinal(), path, 1, end, result, 0);
+
+    if (routeIndex == NONE) return false;
+
+    result.setRoute(this.routes[routeIndex]);
+    return true;
+  }
+
+  @Override
+  public Collection<Route<H>> routes() {
+    return this.registeredRoutes;
+  }
+
+  @Override
+  public Router<H> freeze() {
+    return this;
+  }
+
+  /**
+   * Walks the tables starting from the node at the beginning of a segment.
+   *
+   * @param node current node.
+   * @param method ordinal of the http method.
+   * @param pos position of the first character of the segment.
+   * @param end length of the path including the implicit trailing slash.
+   * @param variable index of the next variable to be matched.
+   * @return index of the matched route or {@link #NONE}.
+   */
+  private int lookup(int node, int method, CharSequence path, int pos, int end, MutableRouteMatch<H> result, int variable) {
+    if (pos >= end) {
+      return (this.methodMask[node] & (1 << method)) == 0 ? NONE : this.routeIndex[this.routeBase[node] + method];
+    }
+
+    int segmentEnd = pos;
+    while (segmentEnd < path.length() && path.charAt(segmentEnd) != '/') segmentEnd++;
+
+    final int edge = this.findStaticEdge(node, path, pos, segmentEnd);
+
+    if (edge != NONE) {
+      final int routeIndex = this.lookup(this.edgeTarget[edge], method, path, segmentEnd + 1, end, result, variable);
+      if (routeIndex != NONE) return routeIndex;
+    }
+
+    if (this.variableTarget[node] != NONE && segmentEnd > pos) {
+      result.setVariableBounds(variable, pos, segmentEnd);
+      return this.lookup(this.variableTarget[node], method, path, segmentEnd + 1, end, result, variable + 1);
+    }
+
+    return NONE;
+  }
+
+  /**
+   * Binary search over the static edges of the node ordered by label length and then by label bytes.
+   */
+  private int findStaticEdge(int node, CharSequence path, int start, int end) {
+    final int length = end - start;
+    int lo = this.edgeFrom[node];
+    int hi = this.edgeTo[node] - 1;
+
+    while (lo <= hi) {
+      final int mid = (lo + hi) >>> 1;
+      final int cmp = this.compareLabel(mid, path, start, length);
+
+      if (cmp < 0) lo = mid + 1;
+      else if (cmp > 0) hi = mid - 1;
+      else return mid;
+    }
+
+    return NONE;
+  }
+
+  private int compareLabel(int edge, CharSequence path, int start, int length) {
+    if (this.labelLength[edge] != length) return Integer.compare(this.labelLength[edge], length);
+    final int offset = this.labelOffset[edge];
+
+    for (int i = 0; i < length; i++) {
+      final int diff = this.labels[offset + i] - path.charAt(start + i);
+      if (diff != 0) return diff;
+    }
+
+    return 0;
+  }
+}
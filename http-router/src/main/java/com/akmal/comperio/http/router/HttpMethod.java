@@ -1,13 +1,28 @@
 package com.akmal.comperio.http.router;
 
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
 public enum HttpMethod {
   GET, POST, PUT, OPTIONS, HEAD, PATCH, DELETE;
 
+  private static final Map<String, HttpMethod> BY_NAME = Stream.of(values())
+                                                             .collect(Collectors.toUnmodifiableMap(HttpMethod::name, Function.identity()));
 
+  /**
+   * Resolves the method by its name ignoring the case. The canonical upper case names are resolved by a single hash lookup,
+   * other spellings are upper cased first.
+   *
+   * @param name of the method.
+   * @return method or null when the name is not recognised.
+   */
   public static HttpMethod fromString(String name) {
-    for (HttpMethod method: values()) {
-      if (method.toString().equalsIgnoreCase(name)) return method;
-    }
-    return null;
+    if (name == null) return null;
+    final HttpMethod method = BY_NAME.get(name);
+
+    return method != null ? method : BY_NAME.get(name.toUpperCase(Locale.ROOT));
   }
 }
@@ -0,0 +1,232 @@
+package com.akmal.comperio.http.router;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Implementation of the {@link Router} that compiles the route table into a tree of {@link MethodHandle} combinators,
+ * so that the lookup becomes a decision tree specialised for the registered routes instead of a generic walk over the data structure.
+ * Every node of the segment tree is turned into a handle that finds the end of the current segment, switches on the segment length
+ * ({@link MethodHandles#tableSwitch}), compares the segment with the literals of that length that are bound into the handle as constants
+ * and descends into the handle of the child. When the static branch fails, the handle falls back to the variable edge that records
+ * the offsets of the variable directly in the {@link MutableRouteMatch} slot.
+ * The routes are compiled on the first lookup after the registration. The router is not thread safe during the registration,
+ * routes have to be registered before the router is shared between threads. Only whole-segment variables (e.g. /users/{userId}/) are supported.
+ */
+class MethodHandleRouter<H> implements Router<H> {
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+  /*
+   * Node: (CharSequence path, int pos, int end, MutableRouteMatch result, int method, int variable) -> Route
+   * pos points at the first character of the segment, end is the length of the path including the implicit trailing slash.
+   */
+  private static final MethodType NODE_TYPE = MethodType.methodType(Route.class, CharSequence.class, int.class, int.class,
+      MutableRouteMatch.class, int.class, int.class);
+
+  /*
+   * Segment: (int length, int segmentEnd, CharSequence path, int pos, int end, MutableRouteMatch result, int method, int variable) -> Route
+   */
+  private static final MethodType SEGMENT_TYPE = NODE_TYPE.insertParameterTypes(0, int.class, int.class);
+
+  private static final MethodHandle AT_END;
+  private static final MethodHandle SEGMENT_END;
+  private static final MethodHandle SEGMENT_LENGTH;
+  private static final MethodHandle REGION_EQUALS;
+  private static final MethodHandle IS_NOT_EMPTY;
+  private static final MethodHandle IS_NULL;
+  private static final MethodHandle RECORD_VARIABLE;
+  private static final MethodHandle INCREMENT;
+  private static final MethodHandle NO_ROUTE = MethodHandles.dropArguments(MethodHandles.constant(Route.class, null), 0, SEGMENT_TYPE.parameterList());
+
+  static {
+    try {
+      AT_END = LOOKUP.findStatic(MethodHandleRouter.class, "atEnd", MethodType.methodType(boolean.class, CharSequence.class, int.class, int.class));
+      SEGMENT_END = LOOKUP.findStatic(MethodHandleRouter.class, "segmentEnd", MethodType.methodType(int.class, CharSequence.class, int.class));
+      SEGMENT_LENGTH = LOOKUP.findStatic(MethodHandleRouter.class, "segmentLength", MethodType.methodType(int.class, int.class, CharSequence.class, int.class));
+      REGION_EQUALS = LOOKUP.findStatic(MethodHandleRouter.class, "regionEquals",
+          MethodType.methodType(boolean.class, String.class, int.class, int.class, CharSequence.class, int.class));
+      IS_NOT_EMPTY = LOOKUP.findStatic(MethodHandleRouter.class, "isNotEmpty", MethodType.methodType(boolean.class, int.class));
+      IS_NULL = LOOKUP.findStatic(MethodHandleRouter.class, "isNull", MethodType.methodType(boolean.class, Route.class));
+      RECORD_VARIABLE = LOOKUP.findStatic(MethodHandleRouter.class, "recordVariable", SEGMENT_TYPE.changeReturnType(void.class));
+      INCREMENT = LOOKUP.findStatic(MethodHandleRouter.class, "increment", MethodType.methodType(int.class, int.class));
+    } catch (NoSuchMethodException | IllegalAccessException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  private final List<Route<H>> registeredRoutes = new ArrayList<>();
+  private int maxVariables;
+  private volatile MethodHandle matcher;
+
+  @Override
+  public Router<H> register(Route<H> route) {
+    SegmentNode.checkSupported(route); // fail fast on the routes that cannot be compiled, the tree is built on the first lookup
+
+    this.registeredRoutes.add(route);
+    this.maxVariables = Math.max(this.maxVariables, route.getVariables().length);
+    this.matcher = null;
+    return this;
+  }
+
+  @Override
+  public Optional<RouteMatch<H>> match(HttpMethod method, String path) {
+    final var result = new MutableRouteMatch<H>(this.maxVariables);
+    return this.match(method, path, result) ? Optional.of(result.toRouteMatch()) : Optional.empty();
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public boolean match(HttpMethod method, CharSequence path, MutableRouteMatch<H> result) {
+    result.reset(path, this.maxVariables);
+    if (path.length() == 0 || path.charAt(0) != '/') return false;
+
+    MethodHandle handle = this.matcher;
+    if (handle == null) {
+      handle = compileNode(SegmentNode.build(this.registeredRoutes));
+      this.matcher = handle;
+    }
+
+    final int end = path.charAt(path.length() - 1) == '/' ? path.length() : path.length() + 1; // implicit trailing slash
+    final Route<H> route;
+
+    try {
+      route = (Route<H>) handle.invokeExact(path, 1, end, (MutableRouteMatch) result, method.ordinal(), 0);
+    } catch (Throwable e) {
+      throw new IllegalStateException("Compiled matcher failed", e);
+    }
+
+    if (route == null) return false;
+
+    result.setRoute(route);
+    return true;
+  }
+
+  @Override
+  public Collection<Route<H>> routes() {
+    return Collections.unmodifiableList(this.registeredRoutes);
+  }
+
+  /**
+   * Compiles the node into the handle of {@link #NODE_TYPE}: when the path is consumed, the route is read from the array of
+   * the node by the method ordinal, otherwise the segment is dispatched to the children.
+   */
+  private static MethodHandle compileNode(SegmentNode<?> node) {
+    final MethodHandle terminal;
+
+    if (node.routes == null) {
+      terminal = MethodHandles.dropArguments(MethodHandles.constant(Route.class, null), 0, NODE_TYPE.parameterList());
+    } else {
+      final MethodHandle getter = MethodHandles.arrayElementGetter(Route[].class).bindTo(node.routes.clone());
+      terminal = MethodHandles.dropArguments(MethodHandles.dropArguments(getter, 0, CharSequence.class, int.class, int.class, MutableRouteMatch.class),
+          5, int.class);
+    }
+
+    // (path, pos, ...) -> (length, segmentEnd, path, pos, ...)
+    final MethodHandle withSegmentEnd = MethodHandles.foldArguments(compileSegment(node), SEGMENT_LENGTH);
+    final MethodHandle dispatch = MethodHandles.foldArguments(withSegmentEnd, SEGMENT_END);
+
+    return MethodHandles.guardWithTest(AT_END, terminal, dispatch);
+  }
+
+  /**
+   * Compiles the handle of {@link #SEGMENT_TYPE} that switches on the segment length, compares the segment with the static
+   * labels of that length and falls back to the variable edge.
+   */
+  private static MethodHandle compileSegment(SegmentNode<?> node) {
+    final MethodHandle variable = compileVariable(node);
+    if (node.statics.isEmpty()) return variable;
+
+    final int maxLength = node.statics.lastKey().length();
+    final var cases = new MethodHandle[maxLength + 1];
+
+    for (int length = 0; length <= maxLength; length++) cases[length] = variable;
+
+    // labels are ordered by the length, building the chains from the end keeps the order of comparisons the same as the order of labels
+    for (Map.Entry<String, ? extends SegmentNode<?>> edge: node.statics.descendingMap().entrySet()) {
+      final String label = edge.getKey();
+      final MethodHandle test = MethodHandles.insertArguments(REGION_EQUALS, 0, label);
+      final MethodHandle child = firstNonNull(descend(compileNode(edge.getValue()), false), variable);
+
+      cases[label.length()] = MethodHandles.guardWithTest(test, child, cases[label.length()]);
+    }
+
+    return MethodHandles.tableSwitch(variable, cases);
+  }
+
+  /**
+   * Compiles the handle of {@link #SEGMENT_TYPE} that consumes the non-empty segment as a variable or returns null when the node has no variable edge.
+   */
+  private static MethodHandle compileVariable(SegmentNode<?> node) {
+    if (node.variable == null) return NO_ROUTE;
+
+    final MethodHandle descend = MethodHandles.foldArguments(descend(compileNode(node.variable), true), RECORD_VARIABLE);
+    return MethodHandles.guardWithTest(IS_NOT_EMPTY, descend, NO_ROUTE);
+  }
+
+  /**
+   * Adapts the handle of the child node to {@link #SEGMENT_TYPE}, the child starts right after the slash that ends the segment.
+   */
+  private static MethodHandle descend(MethodHandle child, boolean nextVariable) {
+    MethodHandle adapted = MethodHandles.filterArguments(child, 1, INCREMENT);
+    if (nextVariable) adapted = MethodHandles.filterArguments(adapted, 5, INCREMENT);
+
+    // child(path <- 2, pos <- segmentEnd 1, end <- 4, result <- 5, method <- 6, variable <- 7)
+    return MethodHandles.permuteArguments(adapted, SEGMENT_TYPE, 2, 1, 4, 5, 6, 7);
+  }
+
+  /**
+   * Returns the handle that invokes the first handle and falls back to the second one when the first returned null.
+   */
+  private static MethodHandle firstNonNull(MethodHandle first, MethodHandle second) {
+    final MethodHandle fallback = MethodHandles.dropArguments(second, 0, Route.class);
+    final MethodHandle identity = MethodHandles.dropArguments(MethodHandles.identity(Route.class), 1, SEGMENT_TYPE.parameterList());
+
+    return MethodHandles.foldArguments(MethodHandles.guardWithTest(IS_NULL, fallback, identity), first);
+  }
+
+  private static boolean atEnd(CharSequence path, int pos, int end) {
+    return pos >= end;
+  }
+
+  private static int segmentEnd(CharSequence path, int pos) {
+    int segmentEnd = pos;
+    while (segmentEnd < path.length() && path.charAt(segmentEnd) != '/') segmentEnd++;
+    return segmentEnd;
+  }
+
+  private static int segmentLength(int segmentEnd, CharSequence path, int pos) {
+    return segmentEnd - pos;
+  }
+
+  private static boolean regionEquals(String label, int length, int segmentEnd, CharSequence path, int pos) {
+    for (int i = 0; i < length; i++) {
+      if (label.charAt(i) != path.charAt(pos + i)) return false;
+    }
+
+    return true;
+  }
+
+  private static boolean isNotEmpty(int length) {
+    return length > 0;
+  }
+
+  private static boolean isNull(Route<?> route) {
+    return route == null;
+  }
+
+  private static void recordVariable(int length, int segmentEnd, CharSequence path, int pos, int end, MutableRouteMatch<?> result,
+      int method, int variable) {
+    result.setVariableBounds(variable, pos, segmentEnd);
+  }
+
+  private static int increment(int value) {
+    return value + 1;
+  }
+}
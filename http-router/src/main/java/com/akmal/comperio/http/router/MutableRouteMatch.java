@@ -0,0 +1,175 @@
+package com.akmal.comperio.http.router;
+
+import java.util.Arrays;
+import net.jcip.annotations.NotThreadSafe;
+
+/**
+ * Reusable holder of the route lookup result that is filled by {@link Router#match(HttpMethod, CharSequence, MutableRouteMatch)}.
+ * Instead of copying the variables out of the path, the router records their boundaries as offsets into the matched path, the
+ * variable Strings are materialised (and cached) only when they are requested. Therefore, matching a route without variables
+ * does not allocate at all and the holder is meant to be confined to a thread and reused across the requests.
+ * The state is valid until the next lookup, use {@link #toRouteMatch()} to obtain a detached copy.
+ */
+@NotThreadSafe
+public final class MutableRouteMatch<H> {
+  private static final int DEFAULT_CAPACITY = 4;
+
+  private Route<H> route;
+  private CharSequence path;
+  private int[] bounds;
+  private String[] values;
+  private int variableCount;
+
+  public MutableRouteMatch() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  public MutableRouteMatch(int variableCapacity) {
+    this.bounds = new int[variableCapacity * 2];
+    this.values = new String[variableCapacity];
+  }
+
+  /**
+   * Returns matched route or null if the last lookup did not match anything.
+   */
+  public Route<H> route() {
+    return route;
+  }
+
+  public boolean isMatched() {
+    return route != null;
+  }
+
+  /**
+   * Returns the path that the last lookup was performed on.
+   */
+  public CharSequence path() {
+    return path;
+  }
+
+  public int variableCount() {
+    return variableCount;
+  }
+
+  /**
+   * Returns the value of the variable at the position of its declaration in the route template.
+   * The String is created on the first access and cached until the next lookup.
+   *
+   * @param index position of the variable.
+   * @return value of the variable.
+   */
+  public String variable(int index) {
+    if (index < 0 || index >= this.variableCount) throw new IndexOutOfBoundsException("No variable at index " + index);
+
+    String value = this.values[index];
+
+    if (value == null) {
+      value = this.path.subSequence(this.bounds[index * 2], this.bounds[index * 2 + 1]).toString();
+      this.values[index] = value;
+    }
+
+    return value;
+  }
+
+  /**
+   * Returns the value of the variable by its pre-resolved slot, see {@link Route#slot(String)}.
+   */
+  public String variable(VariableSlot slot) {
+    return this.variable(slot.index());
+  }
+
+  /**
+   * Returns the value of the variable by its name declared in the route template or null if there is no such variable.
+   */
+  public String variable(String name) {
+    final int index = this.indexOf(name);
+    return index == -1 ? null : this.variable(index);
+  }
+
+  /**
+   * Returns the offset of the first character of the variable in the path.
+   */
+  public int variableStart(int index) {
+    return this.bounds[index * 2];
+  }
+
+  /**
+   * Returns the offset right after the last character of the variable in the path.
+   */
+  public int variableEnd(int index) {
+    return this.bounds[index * 2 + 1];
+  }
+
+  /**
+   * Creates a detached immutable copy of the match with all the variables materialised.
+   *
+   * @return copy or null when nothing was matched.
+   */
+  public RouteMatch<H> toRouteMatch() {
+    if (this.route == null) return null;
+    final var variables = new String[this.variableCount];
+
+    for (int i = 0; i < this.variableCount; i++) variables[i] = this.variable(i);
+
+    return new RouteMatch<>(this.route, variables);
+  }
+
+  /**
+   * Creates a detached copy of the holder with all the variables materialised, so that it is not affected by the subsequent lookups.
+   */
+  public MutableRouteMatch<H> copy() {
+    final var copy = new MutableRouteMatch<H>(this.variableCount);
+    copy.reset(this.path, this.variableCount);
+    if (this.route == null) return copy;
+
+    copy.setRoute(this.route);
+    for (int i = 0; i < this.variableCount; i++) copy.setVariableValue(i, this.variable(i));
+    System.arraycopy(this.bounds, 0, copy.bounds, 0, this.variableCount * 2);
+
+    return copy;
+  }
+
+  /**
+   * Clears the state of the previous lookup and makes sure the holder can fit the specified number of variables.
+   */
+  void reset(CharSequence path, int variableCapacity) {
+    if (this.values.length < variableCapacity) {
+      this.bounds = new int[variableCapacity * 2];
+      this.values = new String[variableCapacity];
+    } else {
+      Arrays.fill(this.values, 0, this.variableCount, null);
+    }
+
+    this.path = path;
+    this.route = null;
+    this.variableCount = 0;
+  }
+
+  void setVariableBounds(int index, int start, int end) {
+    this.bounds[index * 2] = start;
+    this.bounds[index * 2 + 1] = end;
+  }
+
+  /**
+   * Sets already materialised value of the variable, used by the routers that do not track the offsets.
+   */
+  void setVariableValue(int index, String value) {
+    this.values[index] = value;
+  }
+
+  void setRoute(Route<H> route) {
+    this.route = route;
+    this.variableCount = route.getVariables().length;
+  }
+
+  private int indexOf(String name) {
+    if (this.route == null) return -1;
+    final String[] names = this.route.getVariables();
+
+    for (int i = 0; i < this.variableCount; i++) {
+      if (names[i].equals(name)) return i;
+    }
+
+    return -1;
+  }
+}
@@ -0,0 +1,227 @@
+package com.akmal.comperio.http.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Implementation of the {@link Router} backed by a compressed radix tree.
+ * Static runs of characters are compressed into a single edge label, children of a node are kept in a compact array sorted by
+ * the first character of their label, therefore, a lookup costs one binary search per branching point instead of a pointer per character.
+ * Template variables are first-class edges that consume a non-empty run of characters until the next '/'.
+ * Static edges always take priority over the variable edge, however, when the static branch does not lead to a route, the lookup
+ * backtracks and tries the variable edge instead. Therefore, given path1 = /users/{userId}/cars/hello and path2 = /users/specific/cars,
+ * the path /users/specific/cars/hello resolves to path1 with userId = 'specific'.
+ * The router is not thread safe during the registration, routes have to be registered before the router is shared between threads.
+ */
+class RadixTreeRouter<H> implements Router<H> {
+  private static final char[] NO_INDICES = new char[0];
+  private static final int METHODS = HttpMethod.values().length;
+
+  private static final class Node<H> {
+    private String label;
+    private char[] indices;
+    private Node<H>[] children;
+    private Node<H> variableChild;
+    private Route<H>[] routes;
+
+    @SuppressWarnings("unchecked")
+    private Node(String label) {
+      this.label = label;
+      this.indices = NO_INDICES;
+      this.children = (Node<H>[]) new Node[0];
+    }
+
+    private Node<H> staticChild(char c) {
+      final int index = Arrays.binarySearch(this.indices, c);
+      return index < 0 ? null : this.children[index];
+    }
+
+    private void addStaticChild(Node<H> child) {
+      final char c = child.label.charAt(0);
+      final int insertionPoint = -(Arrays.binarySearch(this.indices, c) + 1);
+
+      final var newIndices = new char[this.indices.length + 1];
+      final var newChildren = Arrays.copyOf(this.children, this.children.length + 1);
+      System.arraycopy(this.indices, 0, newIndices, 0, insertionPoint);
+      System.arraycopy(this.indices, insertionPoint, newIndices, insertionPoint + 1, this.indices.length - insertionPoint);
+      System.arraycopy(this.children, insertionPoint, newChildren, insertionPoint + 1, this.children.length - insertionPoint);
+      newIndices[insertionPoint] = c;
+      newChildren[insertionPoint] = child;
+
+      this.indices = newIndices;
+      this.children = newChildren;
+    }
+
+    private void replaceStaticChild(Node<H> oldChild, Node<H> newChild) {
+      this.children[Arrays.binarySearch(this.indices, oldChild.label.charAt(0))] = newChild;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void addRoute(Route<H> route) {
+      if (this.routes == null) this.routes = (Route<H>[]) new Route[METHODS];
+      this.routes[route.getMethod().ordinal()] = route;
+    }
+  }
+
+  private final Node<H> root;
+  private final List<Route<H>> registeredRoutes = new ArrayList<>();
+  private int maxVariables;
+
+  RadixTreeRouter() {
+    this.root = new Node<>("");
+  }
+
+  @Override
+  public Router<H> register(Route<H> route) {
+    Node<H> cursor = this.root;
+
+    for (String part: splitTemplate(route.getPath())) {
+      if (part == null) {
+        if (cursor.variableChild == null) cursor.variableChild = new Node<>(null);
+        cursor = cursor.variableChild;
+      } else {
+        cursor = this.insertStatic(cursor, part);
+      }
+    }
+
+    cursor.addRoute(route);
+    this.maxVariables = Math.max(this.maxVariables, route.getVariables().length);
+    this.registeredRoutes.add(route);
+    return this;
+  }
+
+  @Override
+  public Collection<Route<H>> routes() {
+    return Collections.unmodifiableList(this.registeredRoutes);
+  }
+
+  @Override
+  public Optional<RouteMatch<H>> match(HttpMethod method, String path) {
+    final var result = new MutableRouteMatch<H>(this.maxVariables);
+    return this.match(method, path, result) ? Optional.of(result.toRouteMatch()) : Optional.empty();
+  }
+
+  @Override
+  public boolean match(HttpMethod method, CharSequence path, MutableRouteMatch<H> result) {
+    result.reset(path, this.maxVariables);
+    if (path.length() == 0) return false;
+
+    final int end = path.charAt(path.length() - 1) == '/' ? path.length() : path.length() + 1; // implicit trailing slash
+    final Route<H> route = this.lookup(this.root, method, path, 0, end, result, 0);
+
+    if (route == null) return false;
+
+    result.setRoute(route);
+    return true;
+  }
+
+  /**
+   * Recursively walks the tree starting from the node whose label has been already consumed.
+   * Tries the static edge first and falls back to the variable edge if the static branch did not yield a route.
+   *
+   * @param node current node.
+   * @param pos position in the path right after the label of the node.
+   * @param end length of the path including the implicit trailing slash.
+   * @param result holder that receives the offsets of the matched variables.
+   * @param variable index of the next variable to be matched.
+   * @return matched route or null.
+   */
+  private Route<H> lookup(Node<H> node, HttpMethod method, CharSequence path, int pos, int end, MutableRouteMatch<H> result, int variable) {
+    if (pos == end) {
+      return node.routes == null ? null : node.routes[method.ordinal()];
+    }
+
+    final Node<H> child = node.staticChild(charAt(path, pos));
+
+    if (child != null && regionMatches(path, pos, end, child.label)) {
+      final Route<H> route = this.lookup(child, method, path, pos + child.label.length(), end, result, variable);
+      if (route != null) return route;
+    }
+
+    if (node.variableChild != null) {
+      int variableEnd = pos;
+      while (variableEnd < end && charAt(path, variableEnd) != '/') variableEnd++;
+
+      if (variableEnd > pos) {
+        result.setVariableBounds(variable, pos, variableEnd);
+        return this.lookup(node.variableChild, method, path, variableEnd, end, result, variable + 1);
+      }
+    }
+
+    return null;
+  }
+
+  private Node<H> insertStatic(Node<H> node, String label) {
+    final Node<H> child = node.staticChild(label.charAt(0));
+
+    if (child == null) {
+      final var newChild = new Node<H>(label);
+      node.addStaticChild(newChild);
+      return newChild;
+    }
+
+    final int common = commonPrefixLength(child.label, label);
+
+    if (common < child.label.length()) {
+      // split the edge, the intermediate node takes over the common prefix
+      final var intermediate = new Node<H>(child.label.substring(0, common));
+      node.replaceStaticChild(child, intermediate);
+      child.label = child.label.substring(common);
+      intermediate.addStaticChild(child);
+
+      if (common == label.length()) return intermediate;
+      return this.insertStatic(intermediate, label.substring(common));
+    }
+
+    if (common == label.length()) return child;
+    return this.insertStatic(child, label.substring(common));
+  }
+
+  /**
+   * Splits the route template into static parts and variables, variables are represented by null elements.
+   * Precondition: template is validated by the {@link Route}.
+   */
+  static List<String> splitTemplate(String template) {
+    final var parts = new ArrayList<String>();
+    int start = 0;
+
+    for (int i = 0; i < template.length(); i++) {
+      if (template.charAt(i) == '{') {
+        if (i > start) parts.add(template.substring(start, i));
+        parts.add(null);
+        i = template.indexOf('}', i);
+        start = i + 1;
+      }
+    }
+
+    if (start < template.length()) parts.add(template.substring(start));
+    return parts;
+  }
+
+  private static int commonPrefixLength(String a, String b) {
+    final int max = Math.min(a.length(), b.length());
+    int i = 0;
+    while (i < max && a.charAt(i) == b.charAt(i)) i++;
+    return i;
+  }
+
+  private static boolean regionMatches(CharSequence path, int pos, int end, String label) {
+    if (end - pos < label.length()) return false;
+
+    for (int i = 0; i < label.length(); i++) {
+      if (charAt(path, pos + i) != label.charAt(i)) return false;
+    }
+    return true;
+  }
+
+  /**
+   * Returns the character of the path treating the position right after the end as the trailing slash.
+   */
+  private static char charAt(CharSequence path, int pos) {
+    return pos == path.length() ? '/' : path.charAt(pos);
+  }
+}
@@ -2,6 +2,8 @@ package com.akmal.comperio.http.router;
 
 import com.akmal.comperio.http.util.Tuple;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
 import org.jetbrains.annotations.VisibleForTesting;
 
 
@@ -11,6 +13,7 @@ public class Route<H> {
   private final String path;
   private final H handler;
   private final String[] variables;
+  private final Map<String, VariableSlot> variableSlots;
   private final String pathWithWildcards;
 
 
@@ -24,6 +27,7 @@ public class Route<H> {
     this.handler = handler;
     final var replacedPathAndVars = this.parseVariables(this.path);
     this.variables = replacedPathAndVars.second();
+    this.variableSlots = compileSlots(this.variables);
     this.pathWithWildcards = replacedPathAndVars.first();
   }
 
@@ -74,6 +78,23 @@ public class Route<H> {
     return path;
   }
 
+  /**
+   * Returns the pre-resolved handle of the variable that can be used to read it from the match by index.
+   *
+   * @param name of the variable declared in the template.
+   * @return slot of the variable.
+   * @throws IllegalArgumentException when the route does not declare such variable.
+   */
+  public VariableSlot slot(String name) {
+    final VariableSlot slot = this.variableSlots.get(name);
+    if (slot == null) throw new IllegalArgumentException("Route " + this.path + " does not declare variable " + name);
+    return slot;
+  }
+
+  public boolean hasVariable(String name) {
+    return this.variableSlots.containsKey(name);
+  }
+
   public H getHandler() {
     return handler;
   }
@@ -87,6 +108,21 @@ public class Route<H> {
   }
 
 
+  /**
+   * Compiles variable name to slot table, names must be unique within the route.
+   */
+  private Map<String, VariableSlot> compileSlots(String[] variables) {
+    final var slots = new HashMap<String, VariableSlot>(variables.length * 2);
+
+    for (int i = 0; i < variables.length; i++) {
+      if (slots.put(variables[i], new VariableSlot(variables[i], i)) != null) {
+        throw new IllegalArgumentException("Duplicate path variable " + variables[i] + ". Path given: " + this.path);
+      }
+    }
+
+    return Map.copyOf(slots);
+  }
+
   String getPathWithWildcards() {
     return pathWithWildcards;
   }
@@ -1,19 +1,24 @@
 package com.akmal.comperio.http.router;
 
-import com.akmal.comperio.http.util.Tuple;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
+/**
+ * Immutable result of the route lookup. Variables are kept positionally in the order of their declaration in the route template,
+ * the matches are equal when they have the same route and equal values.
+ *
+ * @param route matched route.
+ * @param values values of the variables, index corresponds to the {@link VariableSlot#index()}.
+ */
 public record RouteMatch<H>(
     Route<H> route,
-    Map<String, String> variables
+    String[] values
 ) {
 
   /**
-   * Creates an instance of RouteMatch and zips the variables together with
-   * arguments in a map.
+   * Creates an instance of RouteMatch from the ordered list of variable values.
    * Precondition is that variables must be an ordered list with order matching
    * the variable declaration.
    *
@@ -21,10 +26,51 @@ public record RouteMatch<H>(
    * @param variables ordered values of variables.
    */
   public static <H> RouteMatch<H> withVariables(Route<H> route, List<String> variables) {
-    final var variableMap = IntStream.range(0, Math.min(route.getVariables().length, variables.size()))
-                                .mapToObj(i -> new Tuple<>(route.getVariables()[i], variables.get(i)))
-                                .collect(Collectors.toMap(Tuple::first, Tuple::second));
+    final var values = new String[route.getVariables().length];
 
-    return new RouteMatch<>(route, variableMap);
+    for (int i = 0; i < Math.min(values.length, variables.size()); i++) values[i] = variables.get(i);
+
+    return new RouteMatch<>(route, values);
+  }
+
+  /**
+   * Returns the value of the variable by its pre-resolved slot.
+   */
+  public String variable(VariableSlot slot) {
+    return this.values[slot.index()];
+  }
+
+  /**
+   * Returns the value of the variable by its name or null if there is no such variable.
+   */
+  public String variable(String name) {
+    return this.route.hasVariable(name) ? this.values[this.route.slot(name).index()] : null;
+  }
+
+  /**
+   * Builds name to value map of the variables, meant for the callers that need all the variables at once.
+   */
+  public Map<String, String> variables() {
+    final var variables = new HashMap<String, String>(this.values.length * 2);
+
+    for (int i = 0; i < this.values.length; i++) variables.put(this.route.getVariables()[i], this.values[i]);
+
+    return variables;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    return o instanceof RouteMatch<?> other && this.route.equals(other.route) && Arrays.equals(this.values, other.values);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * this.route.hashCode() + Arrays.hashCode(this.values);
+  }
+
+  @Override
+  public String toString() {
+    return "RouteMatch[route=" + this.route.getPath() + ", values=" + Arrays.toString(this.values) + "]";
   }
 }
@@ -1,5 +1,6 @@
 package com.akmal.comperio.http.router;
 
+import java.util.Collection;
 import java.util.Optional;
 
 public interface Router<H> {
@@ -20,8 +21,61 @@ public interface Router<H> {
    */
   Optional<RouteMatch<H>> match(HttpMethod method, String path);
 
+  /**
+   * Resolves the route definition from the given URL into the reusable holder.
+   * The path is walked in place, the missing trailing slash is implied, and the variables are recorded as offsets into the path.
+   * Implementations backed by the offsets do not allocate when the route has no variables.
+   * Default implementation delegates to {@link #match(HttpMethod, String)} and copies the result over.
+   *
+   * @param method http method of the request.
+   * @param path excluding domain.
+   * @param result holder that is reset and filled with the result of the lookup.
+   * @return whether any route matched.
+   */
+  default boolean match(HttpMethod method, CharSequence path, MutableRouteMatch<H> result) {
+    final Optional<RouteMatch<H>> matchOptional = this.match(method, path.toString());
+    result.reset(path, matchOptional.map(match -> match.route().getVariables().length).orElse(0));
+
+    if (matchOptional.isEmpty()) return false;
+
+    final Route<H> route = matchOptional.get().route();
+    result.setRoute(route);
+
+    for (int i = 0; i < route.getVariables().length; i++) {
+      result.setVariableValue(i, matchOptional.get().values()[i]);
+    }
+
+    return true;
+  }
+
+  /**
+   * Returns the routes registered so far in the order of registration.
+   */
+  Collection<Route<H>> routes();
+
+  /**
+   * Compiles the registered routes into the immutable {@link FrozenRouter} backed by flat primitive tables.
+   * The result is safe to be shared between threads without any synchronisation and is not affected by subsequent registrations.
+   *
+   * @return frozen snapshot of the router.
+   * @throws IllegalArgumentException when a route cannot be represented by the frozen router.
+   */
+  default Router<H> freeze() {
+    return FrozenRouter.compile(this.routes());
+  }
+
+  /**
+   * Returns the router that can be updated at runtime while serving lookups, see {@link CopyOnWriteRouter}.
+   */
+  static <H> Router<H> copyOnWrite() {
+    return new CopyOnWriteRouter<>();
+  }
+
+  /**
+   * Returns the router backed by the compressed radix tree, see {@link RadixTreeRouter}.
+   */
   static <H> Router<H> defaultRouter() {
-    return new TrieRouter<>();
+    return new RadixTreeRouter<>();
   }
 
 }
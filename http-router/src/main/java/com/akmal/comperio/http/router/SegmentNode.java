@@ -0,0 +1,91 @@
+package com.akmal.comperio.http.router;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Node of the intermediate segment tree that the compiled routers ({@link FrozenRouter}, {@link MethodHandleRouter}) are built from.
+ * Every edge consumes a whole segment of the path (text between two slashes), static edges are ordered by the label length
+ * and then by the label itself. Only whole-segment variables (e.g. /users/{userId}/) can be represented.
+ */
+final class SegmentNode<H> {
+  static final int METHODS = HttpMethod.values().length;
+  static final Comparator<String> SEGMENT_ORDER = Comparator.comparingInt(String::length).thenComparing(Comparator.naturalOrder());
+
+  final TreeMap<String, SegmentNode<H>> statics = new TreeMap<>(SEGMENT_ORDER);
+  SegmentNode<H> variable;
+  Route<H>[] routes;
+
+  /**
+   * Builds the tree out of the routes, if several routes share the path and the method the last one wins.
+   *
+   * @throws IllegalArgumentException when a route declares a variable that does not take the whole segment.
+   */
+  static <H> SegmentNode<H> build(Collection<Route<H>> routes) {
+    final var root = new SegmentNode<H>();
+
+    for (Route<H> route: routes) root.insert(route);
+
+    return root;
+  }
+
+  /**
+   * Checks that the route can be inserted into the tree without building it.
+   *
+   * @throws IllegalArgumentException when the route declares a variable that does not take the whole segment.
+   */
+  static void checkSupported(Route<?> route) {
+    for (String segment: splitSegments(route.getPath())) {
+      if (!isVariable(segment) && segment.indexOf('{') != -1) throw unsupported(route);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private void insert(Route<H> route) {
+    SegmentNode<H> cursor = this;
+
+    for (String segment: splitSegments(route.getPath())) {
+      if (isVariable(segment)) {
+        if (cursor.variable == null) cursor.variable = new SegmentNode<>();
+        cursor = cursor.variable;
+      } else if (segment.indexOf('{') != -1) {
+        throw unsupported(route);
+      } else {
+        cursor = cursor.statics.computeIfAbsent(segment, key -> new SegmentNode<>());
+      }
+    }
+
+    if (cursor.routes == null) cursor.routes = (Route<H>[]) new Route[METHODS];
+    cursor.routes[route.getMethod().ordinal()] = route;
+  }
+
+  private static boolean isVariable(String segment) {
+    return segment.startsWith("{") && segment.indexOf('}') == segment.length() - 1;
+  }
+
+  private static IllegalArgumentException unsupported(Route<?> route) {
+    return new IllegalArgumentException("Only whole segment variables are supported. Path given: " + route.getPath());
+  }
+
+  /**
+   * Splits the path that starts and ends with a slash into the segments in between.
+   */
+  private static List<String> splitSegments(String path) {
+    if (path.length() <= 1) return Collections.emptyList();
+    final var segments = new ArrayList<String>();
+    int start = 1;
+
+    for (int i = 1; i < path.length(); i++) {
+      if (path.charAt(i) == '/') {
+        segments.add(path.substring(start, i));
+        start = i + 1;
+      }
+    }
+
+    return segments;
+  }
+}
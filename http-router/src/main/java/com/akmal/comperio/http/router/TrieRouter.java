@@ -1,6 +1,9 @@
 package com.akmal.comperio.http.router;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -48,6 +51,7 @@ class TrieRouter<H> implements Router<H> {
   }
 
   private final TrieNode root;
+  private final List<Route<H>> registeredRoutes = new ArrayList<>();
 
   TrieRouter() {
     this.root = new TrieNode();
@@ -75,9 +79,15 @@ class TrieRouter<H> implements Router<H> {
     }
 
     ((TerminalTrieNode<H>) cursor.children[characters[characters.length - 1]]).addRouteForMethod(route.getMethod(), route);
+    this.registeredRoutes.add(route);
     return this;
   }
 
+  @Override
+  public Collection<Route<H>> routes() {
+    return Collections.unmodifiableList(this.registeredRoutes);
+  }
+
   @SuppressWarnings("unchecked")
   @Override
   public Optional<RouteMatch<H>> match(HttpMethod method, String path) {
@@ -0,0 +1,16 @@
+package com.akmal.comperio.http.router;
+
+/**
+ * Pre-resolved handle of a template variable obtained from the {@link Route} at registration time.
+ * Index is the position of the variable in the route template, therefore, reading the variable of the match
+ * becomes an array access instead of a lookup by name.
+ *
+ * @param name of the variable as declared in the template.
+ * @param index position of the variable in the template.
+ */
+public record VariableSlot(
+    String name,
+    int index
+) {
+
+}
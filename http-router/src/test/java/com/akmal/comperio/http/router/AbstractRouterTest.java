@@ -0,0 +1,236 @@
+package com.akmal.comperio.http.router;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+import java.util.Map;
+import org.assertj.core.api.AssertionsForClassTypes;
+import org.assertj.core.api.Condition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Contract every {@link Router} implementation has to satisfy, the scenarios of {@link TrieRouterTest} plus the overlapping
+ * routes that the {@link TrieRouter} is documented not to support.
+ */
+abstract class AbstractRouterTest {
+
+  Router<NoopRequestHandler> router;
+  NoopRequestHandler handler = new NoopRequestHandler();
+
+  abstract Router<NoopRequestHandler> createRouter();
+
+  @BeforeEach
+  void setup() {
+    this.router = createRouter();
+  }
+
+  RouteMatch<NoopRequestHandler> match(HttpMethod method, String path) {
+    return this.router.match(method, path).orElse(null);
+  }
+
+  @Test
+  @DisplayName("Should register a route given path")
+  void shouldRegisterRouteGivenPath() {
+    Route<NoopRequestHandler> expectedRoute = Route.of(HttpMethod.GET, "/users", handler);
+
+    this.router.register(expectedRoute);
+
+    RouteMatch<NoopRequestHandler> actualMatch = match(HttpMethod.GET, expectedRoute.getPath());
+
+    assertThat(actualMatch)
+        .isNotNull()
+        .extracting(RouteMatch::route)
+        .isSameAs(expectedRoute);
+
+    assertThat(actualMatch)
+        .isNotNull()
+        .extracting(RouteMatch::variables)
+        .has(new Condition<>(map -> map.size() == 0, "Variables must be empty"));
+  }
+
+  @Test
+  @DisplayName("Should match path without the trailing slash")
+  void shouldMatchPathWithoutTrailingSlash() {
+    Route<NoopRequestHandler> expectedRoute = Route.of(HttpMethod.GET, "/users/{userId}", handler);
+
+    this.router.register(expectedRoute);
+
+    RouteMatch<NoopRequestHandler> actualMatch = match(HttpMethod.GET, "/users/42");
+
+    assertThat(actualMatch).isNotNull().extracting(RouteMatch::route).isSameAs(expectedRoute);
+    assertThat(actualMatch).extracting(RouteMatch::variables).usingRecursiveComparison().isEqualTo(Map.of("userId", "42"));
+  }
+
+  @Test
+  @DisplayName("Should return matched variable params")
+  void shouldParseVariables() {
+    Route<NoopRequestHandler> expectedRoute = Route.of(HttpMethod.GET, "/users/{userId}/cars/{carId}", handler);
+    final var path = "/users/12323/cars/543d";
+    final var expectedVariables = Map.of("userId", "12323", "carId", "543d");
+
+    this.router.register(expectedRoute);
+
+    assertThat(match(HttpMethod.GET, path))
+        .isNotNull()
+        .extracting(RouteMatch::variables)
+        .usingRecursiveComparison()
+        .isEqualTo(expectedVariables);
+  }
+
+  @Test
+  @DisplayName("Should not parse non-ascii characters in a path")
+  void shouldNotParseAndThrowExceptionNonAsciiInAPath() {
+    Route<NoopRequestHandler> expectedRoute = Route.of(HttpMethod.GET, "/users/{userId}/cars/{carId}", handler);
+    final var path = "/use" + (char)(128)  + "rs/12323/cars/543d";
+
+    this.router.register(expectedRoute);
+
+    AssertionsForClassTypes.assertThatNoException().isThrownBy(() -> match(HttpMethod.GET, path));
+    assertThat(match(HttpMethod.GET, path)).isNull();
+  }
+
+  @Test
+  @DisplayName("Should parse non-ascii characters in a template variable")
+  void shouldParseNonAsciiInAVariable() {
+    final var nonAsciiVariable = "日本人中國的";
+    Route<NoopRequestHandler> expectedRoute = Route.of(HttpMethod.GET, "/users/{userId}", handler);
+
+    this.router.register(expectedRoute);
+
+    assertThat(match(HttpMethod.GET, "/users/" + nonAsciiVariable))
+        .isNotNull()
+        .extracting(RouteMatch::variables)
+        .usingRecursiveComparison()
+        .isEqualTo(Map.of("userId", nonAsciiVariable));
+  }
+
+  @Test
+  @DisplayName("Should select more specific route and avoid ambiguity")
+  void shouldSelectMoreSpecificRoute() {
+    Route<NoopRequestHandler> expectedLessSpecificRoute = Route.of(HttpMethod.GET, "/users/{userId}/test", handler);
+    Route<NoopRequestHandler> expectedSpecificRoute = Route.of(HttpMethod.GET, "/users/specific/test", handler);
+
+    this.router.register(expectedSpecificRoute);
+    this.router.register(expectedLessSpecificRoute);
+
+    assertThat(match(HttpMethod.GET, "/users/specific/test"))
+        .isNotNull()
+        .extracting(RouteMatch::route)
+        .isSameAs(expectedSpecificRoute);
+  }
+
+  @Test
+  @DisplayName("Should select less specific route when only partial match obtained on a specific route (backtrack)")
+  void shouldSelectLessSpecificRouteWhenPartialMatchWithSpecificEncountered() {
+    Route<NoopRequestHandler> expectedLessSpecificRoute = Route.of(HttpMethod.GET, "/users/{userId}/test", handler);
+    Route<NoopRequestHandler> expectedSpecificRoute = Route.of(HttpMethod.GET, "/users/specific/test", handler);
+
+    this.router.register(expectedSpecificRoute);
+    this.router.register(expectedLessSpecificRoute);
+
+    assertThat(match(HttpMethod.GET, "/users/specifi/test"))
+        .isNotNull()
+        .extracting(RouteMatch::route)
+        .isSameAs(expectedLessSpecificRoute);
+  }
+
+  @Test
+  @DisplayName("Should backtrack to the variable when the whole static segment matches but the rest of the path does not")
+  void shouldBacktrackWhenStaticSegmentFullyMatched() {
+    Route<NoopRequestHandler> expectedVariableRoute = Route.of(HttpMethod.GET, "/users/{userId}/cars/hello", handler);
+    Route<NoopRequestHandler> staticRoute = Route.of(HttpMethod.GET, "/users/specific/cars", handler);
+
+    this.router.register(staticRoute);
+    this.router.register(expectedVariableRoute);
+
+    RouteMatch<NoopRequestHandler> actualMatch = match(HttpMethod.GET, "/users/specific/cars/hello");
+
+    assertThat(actualMatch).isNotNull().extracting(RouteMatch::route).isSameAs(expectedVariableRoute);
+    assertThat(actualMatch).extracting(RouteMatch::variables).usingRecursiveComparison().isEqualTo(Map.of("userId", "specific"));
+    assertThat(match(HttpMethod.GET, "/users/specific/cars")).isNotNull().extracting(RouteMatch::route).isSameAs(staticRoute);
+  }
+
+  @Test
+  @DisplayName("Should backtrack to the variable when static route does not support the method")
+  void shouldBacktrackWhenMethodIsNotSupportedByStaticRoute() {
+    Route<NoopRequestHandler> expectedVariableRoute = Route.of(HttpMethod.POST, "/users/{userId}", handler);
+    Route<NoopRequestHandler> staticRoute = Route.of(HttpMethod.GET, "/users/me", handler);
+
+    this.router.register(staticRoute);
+    this.router.register(expectedVariableRoute);
+
+    assertThat(match(HttpMethod.POST, "/users/me")).isNotNull().extracting(RouteMatch::route).isSameAs(expectedVariableRoute);
+    assertThat(match(HttpMethod.DELETE, "/users/me")).isNull();
+  }
+
+  @Test
+  @DisplayName("Should match registry routes sharing the prefix")
+  void shouldMatchRoutesSharingPrefix() {
+    Route<NoopRequestHandler> instances = Route.of(HttpMethod.GET, "/v1/applications/{appId}/instances", handler);
+    Route<NoopRequestHandler> instance = Route.of(HttpMethod.GET, "/v1/applications/{appId}/instances/{instanceId}", handler);
+    Route<NoopRequestHandler> heartbeat = Route.of(HttpMethod.POST, "/v1/applications/{appId}/instances/{instanceId}/heartbeat", handler);
+    Route<NoopRequestHandler> applications = Route.of(HttpMethod.GET, "/v1/apps", handler);
+
+    this.router.register(instances);
+    this.router.register(instance);
+    this.router.register(heartbeat);
+    this.router.register(applications);
+
+    assertThat(match(HttpMethod.GET, "/v1/applications/app/instances")).extracting(RouteMatch::route).isSameAs(instances);
+    assertThat(match(HttpMethod.GET, "/v1/applications/app/instances/i-1/")).extracting(RouteMatch::route).isSameAs(instance);
+    assertThat(match(HttpMethod.POST, "/v1/applications/app/instances/i-1/heartbeat")).extracting(RouteMatch::route).isSameAs(heartbeat);
+    assertThat(match(HttpMethod.GET, "/v1/apps")).extracting(RouteMatch::route).isSameAs(applications);
+    assertThat(match(HttpMethod.GET, "/v1/app")).isNull();
+    assertThat(match(HttpMethod.GET, "/v1/applications//instances")).isNull();
+    assertThat(match(HttpMethod.GET, "/v1/applications/app/instances/i-1/heartbeat/extra")).isNull();
+  }
+
+  @Test
+  @DisplayName("Should register all different handlers for different verbs on the same route")
+  void shouldRegisterAllDiffHandlerForVerbsOnSamePath() {
+    String path = "/users";
+
+    for (HttpMethod method: HttpMethod.values()) {
+      this.router.register(Route.of(method, path, handler));
+    }
+
+    for (HttpMethod method: HttpMethod.values()) {
+      assertThat(match(method, path))
+          .isNotNull()
+          .extracting(match -> match.route().getMethod())
+          .isEqualTo(method);
+    }
+  }
+
+  @Test
+  @DisplayName("Should fill reusable holder with variable offsets and reset it between lookups")
+  void shouldFillReusableHolder() {
+    Route<NoopRequestHandler> expectedRoute = Route.of(HttpMethod.GET, "/users/{userId}/cars/{carId}", handler);
+    Route<NoopRequestHandler> staticRoute = Route.of(HttpMethod.GET, "/users", handler);
+    final var holder = new MutableRouteMatch<NoopRequestHandler>(1);
+    final CharSequence path = new StringBuilder("/users/12323/cars/543d");
+
+    this.router.register(expectedRoute);
+    this.router.register(staticRoute);
+
+    assertThat(this.router.match(HttpMethod.GET, path, holder)).isTrue();
+    assertThat(holder.route()).isSameAs(expectedRoute);
+    assertThat(holder.variableCount()).isEqualTo(2);
+    assertThat(holder.variable("carId")).isEqualTo("543d");
+    assertThat(holder.variable(0)).isEqualTo("12323");
+
+    assertThat(this.router.match(HttpMethod.GET, "/users", holder)).isTrue();
+    assertThat(holder.route()).isSameAs(staticRoute);
+    assertThat(holder.variableCount()).isZero();
+
+    assertThat(this.router.match(HttpMethod.GET, "/cars", holder)).isFalse();
+    assertThat(holder.isMatched()).isFalse();
+  }
+
+  static class NoopRequestHandler {
+    void handle() {
+      // empty
+    }
+  }
+}
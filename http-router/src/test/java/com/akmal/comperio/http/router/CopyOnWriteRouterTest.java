@@ -0,0 +1,71 @@
+package com.akmal.comperio.http.router;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class CopyOnWriteRouterTest extends AbstractRouterTest {
+
+  @Override
+  Router<NoopRequestHandler> createRouter() {
+    return new CopyOnWriteRouter<>();
+  }
+
+  @Test
+  @DisplayName("Should not affect the frozen snapshot by subsequent registrations")
+  void shouldKeepSnapshotIntactAfterRegistration() {
+    Route<NoopRequestHandler> users = Route.of(HttpMethod.GET, "/users", handler);
+    Route<NoopRequestHandler> cars = Route.of(HttpMethod.GET, "/cars", handler);
+
+    this.router.register(users);
+    final Router<NoopRequestHandler> snapshot = this.router.freeze();
+    this.router.register(cars);
+
+    assertThat(snapshot.match(HttpMethod.GET, "/users").orElse(null)).extracting(RouteMatch::route).isSameAs(users);
+    assertThat(snapshot.match(HttpMethod.GET, "/cars")).isEmpty();
+    assertThat(match(HttpMethod.GET, "/cars")).extracting(RouteMatch::route).isSameAs(cars);
+    assertThat(this.router.routes().size()).isEqualTo(2);
+  }
+
+  @Test
+  @DisplayName("Should reject modification of the frozen router")
+  void shouldRejectRegistrationOnFrozenRouter() {
+    final Router<NoopRequestHandler> frozen = FrozenRouter.compile(List.of(Route.of(HttpMethod.GET, "/users", handler)));
+
+    assertThatThrownBy(() -> frozen.register(Route.of(HttpMethod.GET, "/cars", handler)))
+        .isInstanceOf(UnsupportedOperationException.class);
+    assertThat(frozen.freeze()).isSameAs(frozen);
+  }
+
+  @Test
+  @DisplayName("Should reject variable that does not take the whole segment and keep the previous snapshot")
+  void shouldRejectPartialSegmentVariable() {
+    Route<NoopRequestHandler> users = Route.of(HttpMethod.GET, "/users", handler);
+    this.router.register(users);
+
+    assertThatThrownBy(() -> this.router.register(Route.of(HttpMethod.GET, "/files/report.{ext}", handler)))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThat(match(HttpMethod.GET, "/users")).extracting(RouteMatch::route).isSameAs(users);
+    assertThat(this.router.routes().size()).isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("Should freeze the radix tree router into the equivalent table")
+  void shouldFreezeRadixTreeRouter() {
+    final Router<NoopRequestHandler> radix = new RadixTreeRouter<>();
+    Route<NoopRequestHandler> instance = Route.of(HttpMethod.GET, "/v1/applications/{appId}/instances/{instanceId}", handler);
+    Route<NoopRequestHandler> root = Route.of(HttpMethod.GET, "/", handler);
+
+    radix.register(instance).register(root);
+    final Router<NoopRequestHandler> frozen = radix.freeze();
+    final RouteMatch<NoopRequestHandler> actualMatch = frozen.match(HttpMethod.GET, "/v1/applications/app/instances/i-1").orElse(null);
+
+    assertThat(actualMatch).extracting(RouteMatch::route).isSameAs(instance);
+    assertThat(actualMatch.variable("instanceId")).isEqualTo("i-1");
+    assertThat(frozen.match(HttpMethod.GET, "/").orElse(null)).extracting(RouteMatch::route).isSameAs(root);
+    assertThat(frozen.match(HttpMethod.GET, "v1")).isEmpty();
+  }
+}
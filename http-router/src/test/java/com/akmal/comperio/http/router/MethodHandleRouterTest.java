@@ -0,0 +1,52 @@
+package com.akmal.comperio.http.router;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class MethodHandleRouterTest extends AbstractRouterTest {
+
+  @Override
+  Router<NoopRequestHandler> createRouter() {
+    return new MethodHandleRouter<>();
+  }
+
+  @Test
+  @DisplayName("Should recompile the matcher when a route is registered after the lookup")
+  void shouldRecompileAfterRegistration() {
+    Route<NoopRequestHandler> users = Route.of(HttpMethod.GET, "/users", handler);
+    Route<NoopRequestHandler> user = Route.of(HttpMethod.GET, "/users/{userId}", handler);
+
+    this.router.register(users);
+    assertThat(match(HttpMethod.GET, "/users/42")).isNull();
+
+    this.router.register(user);
+    assertThat(match(HttpMethod.GET, "/users/42")).extracting(RouteMatch::route).isSameAs(user);
+    assertThat(match(HttpMethod.GET, "/users")).extracting(RouteMatch::route).isSameAs(users);
+  }
+
+  @Test
+  @DisplayName("Should distinguish labels of the same length and fall back to the variable")
+  void shouldCompareLabelsOfSameLength() {
+    Route<NoopRequestHandler> cars = Route.of(HttpMethod.GET, "/cars", handler);
+    Route<NoopRequestHandler> bars = Route.of(HttpMethod.GET, "/bars", handler);
+    Route<NoopRequestHandler> variable = Route.of(HttpMethod.GET, "/{name}", handler);
+
+    this.router.register(cars).register(bars).register(variable);
+
+    assertThat(match(HttpMethod.GET, "/bars")).extracting(RouteMatch::route).isSameAs(bars);
+    assertThat(match(HttpMethod.GET, "/cars")).extracting(RouteMatch::route).isSameAs(cars);
+    assertThat(match(HttpMethod.GET, "/jars").variable("name")).isEqualTo("jars");
+    assertThat(match(HttpMethod.GET, "/a-very-long-segment").variable("name")).isEqualTo("a-very-long-segment");
+  }
+
+  @Test
+  @DisplayName("Should reject variable that does not take the whole segment")
+  void shouldRejectPartialSegmentVariable() {
+    assertThatThrownBy(() -> this.router.register(Route.of(HttpMethod.GET, "/files/report.{ext}", handler)))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThat(this.router.routes().isEmpty()).isTrue();
+  }
+}
@@ -0,0 +1,37 @@
+package com.akmal.comperio.http.router;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+import java.lang.management.ManagementFactory;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class RadixTreeRouterTest extends AbstractRouterTest {
+
+  @Override
+  Router<NoopRequestHandler> createRouter() {
+    return new RadixTreeRouter<>();
+  }
+
+  @Test
+  @DisplayName("Should not allocate when matching a route without variables into the reusable holder")
+  void shouldNotAllocateWhenMatchingStaticRoute() {
+    final var threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    final var holder = new MutableRouteMatch<NoopRequestHandler>();
+    final var path = "/v1/applications/instances";
+    final int iterations = 100_000;
+
+    this.router.register(Route.of(HttpMethod.GET, "/v1/applications/{appId}", handler));
+    this.router.register(Route.of(HttpMethod.GET, "/v1/applications/instances", handler));
+
+    for (int i = 0; i < iterations; i++) this.router.match(HttpMethod.GET, path, holder); // warm up
+
+    final long threadId = Thread.currentThread().threadId();
+    final long before = threadBean.getThreadAllocatedBytes(threadId);
+    for (int i = 0; i < iterations; i++) this.router.match(HttpMethod.GET, path, holder);
+    final long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+    assertThat(holder.isMatched()).isTrue();
+    assertThat(allocated).isLessThan(iterations / 10); // anything that scales with the number of lookups would be far above
+  }
+}
@@ -2,6 +2,7 @@ package com.akmal.comperio.http.router;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 
+import java.util.List;
 import org.assertj.core.api.AssertionsForClassTypes;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -62,4 +63,35 @@ class RouteTest {
       Route.of(HttpMethod.GET, path, new NoopRequestHandler());
     }).isInstanceOf(IllegalArgumentException.class);
   }
+
+  @Test
+  @DisplayName("Should compile variable slots in the order of declaration")
+  void shouldCompileVariableSlots() {
+    final var route = Route.of(HttpMethod.GET, "/users/{userId}/follows/{followeeId}", new NoopRequestHandler());
+
+    assertThat(route.slot("userId")).isEqualTo(new VariableSlot("userId", 0));
+    assertThat(route.slot("followeeId")).isEqualTo(new VariableSlot("followeeId", 1));
+    assertThat(route.hasVariable("unknown")).isFalse();
+    AssertionsForClassTypes.assertThatThrownBy(() -> route.slot("unknown")).isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void shouldThrowExceptionWhenVariableIsDeclaredTwice() {
+    final var path = "/users/{userId}/follows/{userId}";
+    AssertionsForClassTypes.assertThatThrownBy(() -> {
+      Route.of(HttpMethod.GET, path, new NoopRequestHandler());
+    }).isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  @DisplayName("Should compare the matches by the route and the values of the variables")
+  void shouldCompareMatchesByValues() {
+    final var route = Route.of(HttpMethod.GET, "/users/{userId}", new NoopRequestHandler());
+    final var match = RouteMatch.withVariables(route, List.of("42"));
+    final var same = RouteMatch.withVariables(route, List.of("42"));
+
+    assertThat(match).isEqualTo(same).hasSameHashCodeAs(same);
+    assertThat(match).isNotEqualTo(RouteMatch.withVariables(route, List.of("7")));
+    assertThat(match.toString()).contains("[42]");
+  }
 }
@@ -1,12 +1,290 @@
 package com.akmal.comperio.http;
 
-import java.util.Map;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiConsumer;
+import net.jcip.annotations.NotThreadSafe;
 
-public record HttpHeaders(
-    Map<String, String> headers
-) {
+/**
+ * Header fields of the message in the order they were received or added. The names and the values are kept in the flat parallel
+ * arrays, a message rarely carries more than a couple dozen fields, so that the linear scan beats the hashing of the name.
+ * The names are compared ASCII case-insensitively (RFC 9110 5.1), the names of the common fields are the constants of this class
+ * and the received names are replaced by the same instances, so that the lookups by the constants match on the identity
+ * without comparing the characters. The repeated fields are kept, see {@link #getAll(String)}.
+ * The received fields are kept as the offsets into the bytes of the header section, the lookups compare the name with the bytes
+ * and the names and the values are decoded only when they are asked for.
+ */
+@NotThreadSafe
+public final class HttpHeaders {
+  public static final String ACCEPT = "Accept";
+  public static final String ACCEPT_ENCODING = "Accept-Encoding";
+  public static final String AUTHORIZATION = "Authorization";
+  public static final String CACHE_CONTROL = "Cache-Control";
+  public static final String CONNECTION = "Connection";
+  public static final String CONTENT_ENCODING = "Content-Encoding";
+  public static final String CONTENT_LENGTH = "Content-Length";
+  public static final String CONTENT_TYPE = "Content-Type";
+  public static final String COOKIE = "Cookie";
+  public static final String DATE = "Date";
+  public static final String ETAG = "ETag";
+  public static final String EXPECT = "Expect";
+  public static final String HOST = "Host";
+  public static final String HTTP2_SETTINGS = "HTTP2-Settings";
+  public static final String IF_NONE_MATCH = "If-None-Match";
+  public static final String KEEP_ALIVE = "Keep-Alive";
+  public static final String TE = "TE";
+  public static final String TRANSFER_ENCODING = "Transfer-Encoding";
+  public static final String UPGRADE = "Upgrade";
+  public static final String USER_AGENT = "User-Agent";
+  public static final String VARY = "Vary";
 
-  public String get(String header) {
-    return this.headers.get(header);
+  private static final String[] KNOWN_NAMES = {
+      ACCEPT, ACCEPT_ENCODING, AUTHORIZATION, CACHE_CONTROL, CONNECTION, CONTENT_ENCODING, CONTENT_LENGTH, CONTENT_TYPE, COOKIE, DATE,
+      ETAG, EXPECT, HOST, HTTP2_SETTINGS, IF_NONE_MATCH, KEEP_ALIVE, TE, TRANSFER_ENCODING, UPGRADE, USER_AGENT, VARY
+  };
+  private static final int INITIAL_CAPACITY = 8;
+
+  private String[] names;
+  private String[] values;
+  /**
+   * Start and end of the name and of the value of the received fields in the source, four per field, the name or the value is
+   * decoded while its slot in names or values is null.
+   */
+  private int[] ranges;
+  private byte[] source;
+  private int size;
+
+  public HttpHeaders() {
+    this(INITIAL_CAPACITY);
+  }
+
+  private HttpHeaders(int capacity) {
+    this.names = new String[capacity];
+    this.values = new String[capacity];
+  }
+
+  /**
+   * Returns the fields of the received head, nothing is decoded until the fields are looked up.
+   *
+   * @param block bytes of the header section, owned by the headers from now on.
+   * @param offsets start and end of the name and start and end of the value of every field in the block, four per field,
+   *                owned by the headers from now on.
+   * @param count number of the fields.
+   */
+  public static HttpHeaders wrap(byte[] block, int[] offsets, int count) {
+    final var headers = new HttpHeaders(Math.max(count, INITIAL_CAPACITY));
+    headers.source = block;
+    headers.ranges = offsets.length >= headers.names.length * 4 ? offsets : Arrays.copyOf(offsets, headers.names.length * 4);
+    headers.size = count;
+
+    return headers;
+  }
+
+  /**
+   * Returns the value of the first field with the name or null.
+   */
+  public String get(String name) {
+    final int index = this.indexOf(name, 0);
+    return index == -1 ? null : this.value(index);
+  }
+
+  /**
+   * Returns the values of all the fields with the name in the order they were received.
+   */
+  public List<String> getAll(String name) {
+    int index = this.indexOf(name, 0);
+    if (index == -1) return Collections.emptyList();
+
+    final var all = new ArrayList<String>(2);
+    while (index != -1) {
+      all.add(this.value(index));
+      index = this.indexOf(name, index + 1);
+    }
+
+    return all;
+  }
+
+  public boolean contains(String name) {
+    return this.indexOf(name, 0) != -1;
+  }
+
+  /**
+   * Appends the field, the fields with the same name are kept.
+   */
+  public void add(String name, String value) {
+    this.ensureCapacity();
+    this.names[this.size] = canonical(name);
+    this.values[this.size] = value;
+    this.size++;
+  }
+
+  /**
+   * Replaces all the fields with the name by the single one.
+   */
+  public void set(String name, String value) {
+    final int index = this.indexOf(name, 0);
+    if (index == -1) {
+      this.add(name, value);
+      return;
+    }
+
+    this.values[index] = value;
+    this.removeFrom(name, index + 1);
+  }
+
+  /**
+   * Removes all the fields with the name.
+   *
+   * @return whether there was any.
+   */
+  public boolean remove(String name) {
+    final int before = this.size;
+    this.removeFrom(name, 0);
+    return this.size != before;
+  }
+
+  public int size() {
+    return this.size;
+  }
+
+  public String name(int index) {
+    this.checkIndex(index);
+
+    String name = this.names[index];
+    if (name == null) {
+      name = name(this.source, this.ranges[index * 4], this.ranges[index * 4 + 1]);
+      this.names[index] = name;
+    }
+
+    return name;
+  }
+
+  public String value(int index) {
+    this.checkIndex(index);
+
+    String value = this.values[index];
+    if (value == null) {
+      final int start = this.ranges[index * 4 + 2];
+      value = new String(this.source, start, this.ranges[index * 4 + 3] - start, StandardCharsets.ISO_8859_1);
+      this.values[index] = value;
+    }
+
+    return value;
+  }
+
+  public void forEach(BiConsumer<String, String> consumer) {
+    for (int i = 0; i < this.size; i++) consumer.accept(this.name(i), this.value(i));
+  }
+
+  @Override
+  public String toString() {
+    final var builder = new StringBuilder("HttpHeaders[");
+    for (int i = 0; i < this.size; i++) {
+      if (i > 0) builder.append(", ");
+      builder.append(this.name(i)).append('=').append(this.value(i));
+    }
+
+    return builder.append(']').toString();
+  }
+
+  private int indexOf(String name, int from) {
+    for (int i = from; i < this.size; i++) {
+      if (this.matches(i, name)) return i;
+    }
+
+    return -1;
+  }
+
+  private boolean matches(int index, String name) {
+    final String candidate = this.names[index];
+    if (candidate == null) return equalsIgnoreCase(name, this.source, this.ranges[index * 4], this.ranges[index * 4 + 1]);
+
+    return candidate == name || (candidate.length() == name.length() && equalsIgnoreCase(candidate, name));
+  }
+
+  private void removeFrom(String name, int from) {
+    int kept = from;
+
+    for (int i = from; i < this.size; i++) {
+      if (this.matches(i, name)) continue;
+
+      // the ranges do not move with the field, the field is decoded first
+      this.names[kept] = this.name(i);
+      this.value(i);
+      this.values[kept] = this.values[i];
+      kept++;
+    }
+
+    Arrays.fill(this.names, kept, this.size, null);
+    Arrays.fill(this.values, kept, this.size, null);
+    this.size = kept;
+  }
+
+  private void ensureCapacity() {
+    if (this.size < this.names.length) return;
+
+    final int capacity = this.names.length * 2;
+    this.names = Arrays.copyOf(this.names, capacity);
+    this.values = Arrays.copyOf(this.values, capacity);
+    if (this.ranges != null) this.ranges = Arrays.copyOf(this.ranges, capacity * 4);
+  }
+
+  private int checkIndex(int index) {
+    if (index < 0 || index >= this.size) throw new IndexOutOfBoundsException("No header at index " + index);
+    return index;
+  }
+
+  /**
+   * Returns the constant of the common name or the name itself.
+   */
+  private static String canonical(String name) {
+    for (String known: KNOWN_NAMES) {
+      if (known == name) return known;
+    }
+
+    for (String known: KNOWN_NAMES) {
+      if (known.length() == name.length() && equalsIgnoreCase(known, name)) return known;
+    }
+
+    return name;
+  }
+
+  /**
+   * Returns the constant of the common name or decodes the name from the bytes.
+   */
+  private static String name(byte[] block, int start, int end) {
+    for (String known: KNOWN_NAMES) {
+      if (equalsIgnoreCase(known, block, start, end)) return known;
+    }
+
+    return new String(block, start, end - start, StandardCharsets.ISO_8859_1);
+  }
+
+  private static boolean equalsIgnoreCase(String name, byte[] block, int start, int end) {
+    if (name.length() != end - start) return false;
+
+    for (int i = 0; i < name.length(); i++) {
+      if (!equalsIgnoreCase(name.charAt(i), (char) (block[start + i] & 0xff))) return false;
+    }
+
+    return true;
+  }
+
+  private static boolean equalsIgnoreCase(String a, String b) {
+    for (int i = 0; i < a.length(); i++) {
+      if (!equalsIgnoreCase(a.charAt(i), b.charAt(i))) return false;
+    }
+
+    return true;
+  }
+
+  private static boolean equalsIgnoreCase(char a, char b) {
+    if (a == b) return true;
+
+    final char lower = (char) (a | 0x20);
+    return lower == (b | 0x20) && lower >= 'a' && lower <= 'z';
   }
 }
@@ -1,7 +1,7 @@
 package com.akmal.comperio.http;
 
 public enum HttpProtocol {
-  HTTP_V1("HTTP/1"), HTTP_V1_1("HTTP/1.1"), HTTP_V2("HTTP/2");
+  HTTP_V1("HTTP/1.0"), HTTP_V1_1("HTTP/1.1"), HTTP_V2("HTTP/2");
 
   private String name;
 
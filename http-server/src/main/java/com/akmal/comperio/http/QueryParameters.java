@@ -1,12 +1,123 @@
 package com.akmal.comperio.http;
 
+import com.akmal.comperio.http.exception.http.MalformedRequestException;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
+import net.jcip.annotations.NotThreadSafe;
 
-public record QueryParameters(
-    Map<String, String> params
-) {
+/**
+ * Parameters of the query string of the request target. The raw query is kept as received and parsed only on the first access,
+ * so that the handlers that do not look at the parameters do not pay for them. The parameters are separated by '&amp;', the name
+ * is separated from the value by the first '=' and both are percent-decoded as UTF-8 with '+' standing for the space
+ * (application/x-www-form-urlencoded). The repeated parameter keeps its last value.
+ */
+@NotThreadSafe
+public final class QueryParameters {
+  private static final QueryParameters EMPTY = new QueryParameters(Collections.emptyMap());
 
+  private final byte[] raw;
+  private Map<String, String> params;
+
+  public QueryParameters(Map<String, String> params) {
+    this.raw = null;
+    this.params = params;
+  }
+
+  private QueryParameters(byte[] raw) {
+    this.raw = raw;
+  }
+
+  public static QueryParameters empty() {
+    return EMPTY;
+  }
+
+  /**
+   * Returns the parameters of the raw query, the bytes between '?' and the end of the target, owned by the parameters from now on.
+   */
+  public static QueryParameters lazy(byte[] raw) {
+    return raw.length == 0 ? EMPTY : new QueryParameters(raw);
+  }
+
+  public static QueryParameters lazy(String raw) {
+    return lazy(raw.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * @throws MalformedRequestException when the query is malformed, on the first access.
+   */
   public String get(String key) {
-    return params.get(key);
+    return this.params().get(key);
+  }
+
+  /**
+   * @throws MalformedRequestException when the query is malformed, on the first access.
+   */
+  public Map<String, String> params() {
+    if (this.params == null) this.params = parse(this.raw);
+    return this.params;
+  }
+
+  @Override
+  public String toString() {
+    return "QueryParameters" + this.params();
+  }
+
+  private static Map<String, String> parse(byte[] raw) {
+    final var params = new HashMap<String, String>();
+    int start = 0;
+
+    for (int i = 0; i <= raw.length; i++) {
+      if (i < raw.length && raw[i] != '&') continue;
+
+      if (i > start) {
+        int separator = start;
+        while (separator < i && raw[separator] != '=') separator++;
+
+        final String key = decode(raw, start, separator);
+        if (key.isBlank()) throw malformed(raw, start, i);
+
+        params.put(key, separator < i ? decode(raw, separator + 1, i) : "");
+      }
+
+      start = i + 1;
+    }
+
+    return params;
+  }
+
+  private static String decode(byte[] raw, int start, int end) {
+    int i = start;
+    while (i < end && raw[i] != '%' && raw[i] != '+') i++;
+    if (i == end) return new String(raw, start, end - start, StandardCharsets.UTF_8); // nothing is encoded
+
+    final var decoded = new ByteArrayOutputStream(end - start);
+    decoded.write(raw, start, i - start);
+
+    for (; i < end; i++) {
+      final byte b = raw[i];
+
+      if (b == '+') {
+        decoded.write(' ');
+      } else if (b == '%') {
+        final int high = i + 2 < end ? Character.digit(raw[i + 1], 16) : -1;
+        final int low = high != -1 ? Character.digit(raw[i + 2], 16) : -1;
+        if (low == -1) throw malformed(raw, start, end);
+
+        decoded.write(high << 4 | low);
+        i += 2;
+      } else {
+        decoded.write(b);
+      }
+    }
+
+    return decoded.toString(StandardCharsets.UTF_8);
+  }
+
+  private static MalformedRequestException malformed(byte[] raw, int start, int end) {
+    return new MalformedRequestException(HttpStatus.BAD_REQUEST,
+        "Malformed HTTP request. Corrupted query param " + new String(raw, start, end - start, StandardCharsets.UTF_8));
   }
 }
@@ -0,0 +1,58 @@
+package com.akmal.comperio.http.buffer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Source of the byte buffers used by the server for the request heads, bodies and the rendered responses.
+ * A buffer is leased for the lifetime of a connection or a single exchange and is returned once it is no longer referenced,
+ * so that the steady-state request handling reuses the same memory instead of allocating it per request.
+ * The implementations are thread safe, a buffer may be released by a different thread than the one that acquired it.
+ */
+public interface BufferPool {
+
+  /**
+   * System property that makes {@link #heap()} and {@link #direct()} track the leased buffers, see {@link LeakDetectingBufferPool}.
+   */
+  String LEAK_DETECTION_PROPERTY = "comperio.http.buffers.leak-detection";
+
+  /**
+   * Leases the buffer that can hold at least the given number of bytes. The buffer is cleared and its limit is set to the
+   * requested size, the capacity may be larger.
+   *
+   * @param size number of bytes the buffer has to hold.
+   * @return buffer in the write mode.
+   */
+  ByteBuffer acquire(int size);
+
+  /**
+   * Returns the buffer to the pool, the caller must not touch the buffer afterwards.
+   *
+   * @param buffer previously acquired from this pool.
+   */
+  void release(ByteBuffer buffer);
+
+  /**
+   * Returns the pool of heap buffers, suitable for the stream based I/O that needs the backing arrays.
+   */
+  static BufferPool heap() {
+    return withLeakDetectionIfEnabled(new StripedBufferPool(false));
+  }
+
+  /**
+   * Returns the pool of direct buffers, suitable for the channel based I/O that avoids the copy into a temporary native buffer.
+   */
+  static BufferPool direct() {
+    return withLeakDetectionIfEnabled(new StripedBufferPool(true));
+  }
+
+  /**
+   * Wraps the pool into the one that records where the outstanding buffers were acquired, meant for the tests.
+   */
+  static LeakDetectingBufferPool leakDetecting(BufferPool delegate) {
+    return new LeakDetectingBufferPool(delegate);
+  }
+
+  private static BufferPool withLeakDetectionIfEnabled(BufferPool pool) {
+    return Boolean.getBoolean(LEAK_DETECTION_PROPERTY) ? leakDetecting(pool) : pool;
+  }
+}
@@ -0,0 +1,45 @@
+package com.akmal.comperio.http.buffer;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import net.jcip.annotations.NotThreadSafe;
+
+/**
+ * Input stream over the remaining bytes of a buffer, works with the direct buffers as well. The stream reads through its own view,
+ * so the position of the source is not affected.
+ */
+@NotThreadSafe
+public final class ByteBufferInputStream extends InputStream {
+  private final ByteBuffer buffer;
+
+  public ByteBufferInputStream(ByteBuffer buffer) {
+    this.buffer = buffer.duplicate();
+  }
+
+  @Override
+  public int read() {
+    return this.buffer.hasRemaining() ? this.buffer.get() & 0xff : -1;
+  }
+
+  @Override
+  public int read(byte[] bytes, int offset, int length) {
+    if (length == 0) return 0;
+    if (!this.buffer.hasRemaining()) return -1;
+
+    final int read = Math.min(length, this.buffer.remaining());
+    this.buffer.get(bytes, offset, read);
+    return read;
+  }
+
+  @Override
+  public long skip(long n) {
+    final int skipped = (int) Math.max(0, Math.min(n, this.buffer.remaining()));
+    this.buffer.position(this.buffer.position() + skipped);
+    return skipped;
+  }
+
+  @Override
+  public int available() {
+    return this.buffer.remaining();
+  }
+}
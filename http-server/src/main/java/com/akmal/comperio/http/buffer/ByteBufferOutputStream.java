@@ -0,0 +1,147 @@
+package com.akmal.comperio.http.buffer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import net.jcip.annotations.NotThreadSafe;
+
+/**
+ * Output stream that accumulates the bytes in a buffer leased from the {@link BufferPool}. When the buffer is full, the stream leases
+ * the buffer twice as large, copies the content over and returns the old one, so that the pool serves the growing content as well.
+ * The buffer is held until {@link #release()}, closing the stream has no effect, since the content is usually sent after
+ * the writer is done with the stream.
+ */
+@NotThreadSafe
+public final class ByteBufferOutputStream extends OutputStream {
+  private final BufferPool pool;
+  private ByteBuffer buffer;
+
+  public ByteBufferOutputStream(BufferPool pool, int initialSize) {
+    this.pool = pool;
+    this.buffer = pool.acquire(initialSize);
+    this.buffer.limit(this.buffer.capacity());
+  }
+
+  @Override
+  public void write(int b) {
+    this.ensureRemaining(1);
+    this.buffer.put((byte) b);
+  }
+
+  @Override
+  public void write(byte[] bytes) {
+    this.write(bytes, 0, bytes.length);
+  }
+
+  @Override
+  public void write(byte[] bytes, int offset, int length) {
+    this.ensureRemaining(length);
+    this.buffer.put(bytes, offset, length);
+  }
+
+  /**
+   * Writes the remaining bytes of the source, the position of the source is not changed.
+   */
+  public void write(ByteBuffer source) {
+    this.ensureRemaining(source.remaining());
+    this.buffer.put(source.duplicate());
+  }
+
+  /**
+   * Writes the characters truncated to the low byte, meant for the protocol elements that are ASCII by definition.
+   */
+  public void writeAscii(CharSequence chars) {
+    final int length = chars.length();
+    this.ensureRemaining(length);
+
+    for (int i = 0; i < length; i++) this.buffer.put((byte) chars.charAt(i));
+  }
+
+  /**
+   * Writes the decimal representation of the non-negative number without converting it into a String.
+   */
+  public void writeDecimal(long value) {
+    if (value < 0) throw new IllegalArgumentException("Negative number " + value);
+
+    int digits = 1;
+    for (long rest = value / 10; rest > 0; rest /= 10) digits++;
+
+    this.ensureRemaining(digits);
+    final int start = this.buffer.position();
+
+    for (int i = digits - 1; i >= 0; i--) {
+      this.buffer.put(start + i, (byte) ('0' + value % 10));
+      value /= 10;
+    }
+
+    this.buffer.position(start + digits);
+  }
+
+  public int size() {
+    return this.buffer.position();
+  }
+
+  /**
+   * Discards the content, the buffer is kept.
+   */
+  public void reset() {
+    this.buffer.clear();
+  }
+
+  /**
+   * Returns the read only view of the content, valid until the next write or the release.
+   */
+  public ByteBuffer content() {
+    return this.buffer.asReadOnlyBuffer().flip();
+  }
+
+  /**
+   * Copies the content to the stream, directly from the backing array when there is one.
+   */
+  public void writeTo(OutputStream out) throws IOException {
+    if (out instanceof ByteBufferOutputStream target) {
+      target.write(this.content());
+    } else if (this.buffer.hasArray()) {
+      out.write(this.buffer.array(), this.buffer.arrayOffset(), this.buffer.position());
+    } else {
+      final var chunk = new byte[Math.min(this.buffer.position(), 8192)];
+      final ByteBuffer content = this.content();
+
+      while (content.hasRemaining()) {
+        final int length = Math.min(chunk.length, content.remaining());
+        content.get(chunk, 0, length);
+        out.write(chunk, 0, length);
+      }
+    }
+  }
+
+  /**
+   * Returns the buffer to the pool, the stream must not be used afterwards. Subsequent invocations have no effect.
+   */
+  public void release() {
+    if (this.buffer == null) return;
+
+    this.pool.release(this.buffer);
+    this.buffer = null;
+  }
+
+  @Override
+  public void close() {
+    // the content is read after the writer closes the stream, see release()
+  }
+
+  private void ensureRemaining(int length) {
+    if (this.buffer == null) throw new IllegalStateException("Stream is already released");
+    if (this.buffer.remaining() >= length) return;
+
+    final int required = this.buffer.position() + length;
+    if (required < 0) throw new OutOfMemoryError("Required buffer size exceeds the integer range");
+
+    final ByteBuffer grown = this.pool.acquire(Math.max(required, this.buffer.capacity() * 2));
+    grown.limit(grown.capacity());
+    grown.put(this.buffer.flip());
+
+    this.pool.release(this.buffer);
+    this.buffer = grown;
+  }
+}
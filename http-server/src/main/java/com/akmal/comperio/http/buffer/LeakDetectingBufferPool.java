@@ -0,0 +1,65 @@
+package com.akmal.comperio.http.buffer;
+
+import java.nio.ByteBuffer;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * {@link BufferPool} decorator that remembers the stack trace of every outstanding lease, so that the tests can verify that
+ * each acquired buffer was released exactly once and find the code that leaked it. Releasing a buffer that is not leased
+ * (released twice or never acquired from this pool) fails immediately. Capturing the stack traces is expensive,
+ * the decorator is not meant for production.
+ */
+@ThreadSafe
+public final class LeakDetectingBufferPool implements BufferPool {
+  private final BufferPool delegate;
+
+  @GuardedBy("this")
+  private final Map<ByteBuffer, Throwable> leases = new IdentityHashMap<>();
+
+  LeakDetectingBufferPool(BufferPool delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public ByteBuffer acquire(int size) {
+    final ByteBuffer buffer = this.delegate.acquire(size);
+
+    synchronized (this) {
+      this.leases.put(buffer, new Throwable("Buffer of " + buffer.capacity() + " bytes acquired by " + Thread.currentThread()));
+    }
+
+    return buffer;
+  }
+
+  @Override
+  public void release(ByteBuffer buffer) {
+    synchronized (this) {
+      if (this.leases.remove(buffer) == null) {
+        throw new IllegalStateException("Buffer of " + buffer.capacity() + " bytes is not leased from this pool");
+      }
+    }
+
+    this.delegate.release(buffer);
+  }
+
+  /**
+   * Returns the number of buffers that were acquired but not released yet.
+   */
+  public synchronized int outstanding() {
+    return this.leases.size();
+  }
+
+  /**
+   * Verifies that every acquired buffer was released.
+   *
+   * @throws IllegalStateException with the acquisition stack trace of one of the leaked buffers as the cause.
+   */
+  public synchronized void assertNoLeaks() {
+    if (this.leases.isEmpty()) return;
+
+    throw new IllegalStateException(this.leases.size() + " buffer(s) leaked", this.leases.values().iterator().next());
+  }
+}
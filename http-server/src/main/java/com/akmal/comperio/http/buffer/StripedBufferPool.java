@@ -0,0 +1,109 @@
+package com.akmal.comperio.http.buffer;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * {@link BufferPool} that rounds the requested sizes up to the power of two size classes (from {@link #MIN_CLASS_SIZE}
+ * to {@link #MAX_CLASS_SIZE}) and keeps a bounded free list per size class.
+ * Every free list is split into the stripes of {@link #SLOTS_PER_STRIPE} slots, a thread starts looking for a buffer (or a free slot)
+ * in the stripe picked by its id and moves on to the other stripes only when its own one is exhausted, so that the threads rarely
+ * compete for the same slots. The slots are taken and filled by CAS, neither the lookup nor the release allocate or block.
+ * Requests above the largest size class are served by the plain allocation and such buffers are dropped on release,
+ * as are the buffers that do not fit into a full free list.
+ */
+@ThreadSafe
+final class StripedBufferPool implements BufferPool {
+  static final int MIN_CLASS_SIZE = 512;
+  static final int MAX_CLASS_SIZE = 64 * 1024;
+  static final int SLOTS_PER_STRIPE = 8;
+
+  private static final int MIN_CLASS_SHIFT = Integer.numberOfTrailingZeros(MIN_CLASS_SIZE);
+  private static final int CLASSES = Integer.numberOfTrailingZeros(MAX_CLASS_SIZE) - MIN_CLASS_SHIFT + 1;
+
+  private final boolean direct;
+  private final int stripeMask;
+  private final AtomicReferenceArray<ByteBuffer>[] freeLists;
+
+  StripedBufferPool(boolean direct) {
+    this(direct, Runtime.getRuntime().availableProcessors());
+  }
+
+  @SuppressWarnings("unchecked")
+  StripedBufferPool(boolean direct, int concurrency) {
+    final int stripes = Integer.highestOneBit(Math.max(1, Math.min(concurrency, 64)) * 2 - 1); // next power of two
+    this.direct = direct;
+    this.stripeMask = stripes - 1;
+    this.freeLists = new AtomicReferenceArray[CLASSES];
+
+    for (int i = 0; i < CLASSES; i++) this.freeLists[i] = new AtomicReferenceArray<>(stripes * SLOTS_PER_STRIPE);
+  }
+
+  @Override
+  public ByteBuffer acquire(int size) {
+    if (size < 0) throw new IllegalArgumentException("Buffer size cannot be negative");
+    if (size > MAX_CLASS_SIZE) return this.allocate(size);
+
+    final int sizeClass = sizeClass(size);
+    final AtomicReferenceArray<ByteBuffer> freeList = this.freeLists[sizeClass];
+    final int slots = freeList.length();
+    final int start = this.stripeStart();
+
+    for (int i = 0; i < slots; i++) {
+      final int slot = (start + i) & (slots - 1);
+      final ByteBuffer buffer = freeList.get(slot);
+
+      if (buffer != null && freeList.compareAndSet(slot, buffer, null)) return buffer.limit(size);
+    }
+
+    return this.allocate(MIN_CLASS_SIZE << sizeClass).limit(size);
+  }
+
+  @Override
+  public void release(ByteBuffer buffer) {
+    final int capacity = buffer.capacity();
+    if (buffer.isDirect() != this.direct || capacity < MIN_CLASS_SIZE || capacity > MAX_CLASS_SIZE
+            || Integer.bitCount(capacity) != 1) {
+      return; // not pooled
+    }
+
+    buffer.clear();
+    final AtomicReferenceArray<ByteBuffer> freeList = this.freeLists[sizeClass(capacity)];
+    final int slots = freeList.length();
+    final int start = this.stripeStart();
+
+    for (int i = 0; i < slots; i++) {
+      final int slot = (start + i) & (slots - 1);
+      if (freeList.get(slot) == null && freeList.compareAndSet(slot, null, buffer)) return;
+    }
+  }
+
+  /**
+   * Returns the number of buffers held by the free lists.
+   */
+  int pooled() {
+    int pooled = 0;
+
+    for (AtomicReferenceArray<ByteBuffer> freeList: this.freeLists) {
+      for (int i = 0; i < freeList.length(); i++) {
+        if (freeList.get(i) != null) pooled++;
+      }
+    }
+
+    return pooled;
+  }
+
+  static int sizeClass(int size) {
+    if (size <= MIN_CLASS_SIZE) return 0;
+    return 32 - Integer.numberOfLeadingZeros(size - 1) - MIN_CLASS_SHIFT;
+  }
+
+  private int stripeStart() {
+    return (int) (Thread.currentThread().threadId() & this.stripeMask) * SLOTS_PER_STRIPE;
+  }
+
+  private ByteBuffer allocate(int capacity) {
+    return this.direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+  }
+}
@@ -0,0 +1,176 @@
+package com.akmal.comperio.http.hpack;
+
+import java.util.HashMap;
+import java.util.Map;
+import net.jcip.annotations.NotThreadSafe;
+
+/**
+ * Index address space of HPACK (RFC 7541 2.3): the static table at the indices 1-61 followed by the dynamic table,
+ * whose newest entry has the lowest index. The dynamic table is a ring of the entries evicted from the oldest end,
+ * its size is the sum of the lengths of the names and the values plus 32 bytes of the overhead per entry.
+ * The names and the values are ISO-8859-1, i.e. one byte per character.
+ */
+@NotThreadSafe
+final class HeaderTable {
+  static final int ENTRY_OVERHEAD = 32;
+
+  private static final String[][] STATIC = {
+      {":authority", ""}, {":method", "GET"}, {":method", "POST"}, {":path", "/"}, {":path", "/index.html"},
+      {":scheme", "http"}, {":scheme", "https"}, {":status", "200"}, {":status", "204"}, {":status", "206"},
+      {":status", "304"}, {":status", "400"}, {":status", "404"}, {":status", "500"}, {"accept-charset", ""},
+      {"accept-encoding", "gzip, deflate"}, {"accept-language", ""}, {"accept-ranges", ""}, {"accept", ""},
+      {"access-control-allow-origin", ""}, {"age", ""}, {"allow", ""}, {"authorization", ""}, {"cache-control", ""},
+      {"content-disposition", ""}, {"content-encoding", ""}, {"content-language", ""}, {"content-length", ""},
+      {"content-location", ""}, {"content-range", ""}, {"content-type", ""}, {"cookie", ""}, {"date", ""}, {"etag", ""},
+      {"expect", ""}, {"expires", ""}, {"from", ""}, {"host", ""}, {"if-match", ""}, {"if-modified-since", ""},
+      {"if-none-match", ""}, {"if-range", ""}, {"if-unmodified-since", ""}, {"last-modified", ""}, {"link", ""},
+      {"location", ""}, {"max-forwards", ""}, {"proxy-authenticate", ""}, {"proxy-authorization", ""}, {"range", ""},
+      {"referer", ""}, {"refresh", ""}, {"retry-after", ""}, {"server", ""}, {"set-cookie", ""},
+      {"strict-transport-security", ""}, {"transfer-encoding", ""}, {"user-agent", ""}, {"vary", ""}, {"via", ""},
+      {"www-authenticate", ""}
+  };
+
+  static final int STATIC_LENGTH = STATIC.length;
+
+  /**
+   * Lowest static index of every name and of every name with the value, used by the encoder.
+   */
+  private static final Map<String, Integer> STATIC_NAMES = new HashMap<>();
+  private static final Map<String, Integer> STATIC_FIELDS = new HashMap<>();
+
+  static {
+    for (int i = STATIC.length - 1; i >= 0; i--) {
+      STATIC_NAMES.put(STATIC[i][0], i + 1);
+      STATIC_FIELDS.put(STATIC[i][0] + '\0' + STATIC[i][1], i + 1);
+    }
+  }
+
+  private String[] names = new String[16];
+  private String[] values = new String[16];
+  private int head; // slot of the newest entry
+  private int count;
+  private int size;
+  private int maxSize;
+
+  HeaderTable(int maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  int length() {
+    return STATIC_LENGTH + this.count;
+  }
+
+  int size() {
+    return this.size;
+  }
+
+  int maxSize() {
+    return this.maxSize;
+  }
+
+  /**
+   * @throws HpackException when the index is out of the address space.
+   */
+  String name(int index) {
+    if (index >= 1 && index <= STATIC_LENGTH) return STATIC[index - 1][0];
+    return this.names[this.slot(index)];
+  }
+
+  /**
+   * @throws HpackException when the index is out of the address space.
+   */
+  String value(int index) {
+    if (index >= 1 && index <= STATIC_LENGTH) return STATIC[index - 1][1];
+    return this.values[this.slot(index)];
+  }
+
+  /**
+   * Returns the index of the entry with the name and the value, 0 if there is none.
+   */
+  int indexOf(String name, String value) {
+    final Integer staticIndex = STATIC_FIELDS.get(name + '\0' + value);
+    if (staticIndex != null) return staticIndex;
+
+    for (int i = 0; i < this.count; i++) {
+      final int slot = this.slotOf(i);
+      if (this.names[slot].equals(name) && this.values[slot].equals(value)) return STATIC_LENGTH + 1 + i;
+    }
+
+    return 0;
+  }
+
+  /**
+   * Returns the index of an entry with the name, 0 if there is none.
+   */
+  int indexOfName(String name) {
+    final Integer staticIndex = STATIC_NAMES.get(name);
+    if (staticIndex != null) return staticIndex;
+
+    for (int i = 0; i < this.count; i++) {
+      if (this.names[this.slotOf(i)].equals(name)) return STATIC_LENGTH + 1 + i;
+    }
+
+    return 0;
+  }
+
+  /**
+   * Inserts the entry as the newest one, evicting the oldest entries to make room. The entry larger than the table
+   * empties the table and is not inserted (RFC 7541 4.4).
+   */
+  void add(String name, String value) {
+    final int entrySize = entrySize(name, value);
+    this.evict(this.maxSize - entrySize);
+    if (entrySize > this.maxSize) return;
+
+    if (this.count == this.names.length) this.grow();
+
+    this.head = (this.head - 1 + this.names.length) % this.names.length;
+    this.names[this.head] = name;
+    this.values[this.head] = value;
+    this.count++;
+    this.size += entrySize;
+  }
+
+  void setMaxSize(int maxSize) {
+    this.maxSize = maxSize;
+    this.evict(maxSize);
+  }
+
+  static int entrySize(String name, String value) {
+    return name.length() + value.length() + ENTRY_OVERHEAD;
+  }
+
+  private void evict(int targetSize) {
+    while (this.count > 0 && this.size > Math.max(targetSize, 0)) {
+      final int oldest = this.slotOf(this.count - 1);
+      this.size -= entrySize(this.names[oldest], this.values[oldest]);
+      this.names[oldest] = null;
+      this.values[oldest] = null;
+      this.count--;
+    }
+  }
+
+  private int slot(int index) {
+    final int dynamicIndex = index - STATIC_LENGTH - 1;
+    if (index < 1 || dynamicIndex >= this.count) throw new HpackException("Header index " + index + " is out of the table");
+    return this.slotOf(dynamicIndex);
+  }
+
+  private int slotOf(int dynamicIndex) {
+    return (this.head + dynamicIndex) % this.names.length;
+  }
+
+  private void grow() {
+    final var names = new String[this.names.length * 2];
+    final var values = new String[this.values.length * 2];
+
+    for (int i = 0; i < this.count; i++) {
+      names[i] = this.names[this.slotOf(i)];
+      values[i] = this.values[this.slotOf(i)];
+    }
+
+    this.names = names;
+    this.values = values;
+    this.head = 0;
+  }
+}
@@ -0,0 +1,119 @@
+package com.akmal.comperio.http.hpack;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.BiConsumer;
+import net.jcip.annotations.NotThreadSafe;
+
+/**
+ * Decoder of the HPACK header blocks (RFC 7541) of a single connection. The dynamic table is shared by all the blocks
+ * the peer sends, so every block has to be decoded in the order of arrival, including the blocks of the streams that are refused.
+ * Both the plain and the Huffman encoded strings are supported. The names and the values are ISO-8859-1.
+ */
+@NotThreadSafe
+public final class HpackDecoder {
+  public static final int DEFAULT_TABLE_SIZE = 4096;
+
+  private final HeaderTable table;
+  private final int maxTableSize;
+
+  public HpackDecoder() {
+    this(DEFAULT_TABLE_SIZE);
+  }
+
+  /**
+   * @param maxTableSize limit of the dynamic table advertised to the peer by SETTINGS_HEADER_TABLE_SIZE.
+   */
+  public HpackDecoder(int maxTableSize) {
+    this.table = new HeaderTable(maxTableSize);
+    this.maxTableSize = maxTableSize;
+  }
+
+  /**
+   * Decodes the complete header block and passes the fields to the consumer in the order of the block.
+   *
+   * @param block the remaining bytes of the buffer are the block, the buffer is advanced to its limit.
+   * @throws HpackException when the block is malformed.
+   */
+  public void decode(ByteBuffer block, BiConsumer<String, String> fields) {
+    boolean fieldSeen = false;
+
+    while (block.hasRemaining()) {
+      final int b = block.get(block.position()) & 0xff;
+
+      if ((b & 0x80) != 0) { // indexed field
+        final int index = readInteger(block, 7);
+        if (index == 0) throw new HpackException("Header index 0 is not allowed");
+        fields.accept(this.table.name(index), this.table.value(index));
+        fieldSeen = true;
+      } else if ((b & 0x40) != 0) { // literal with incremental indexing
+        final String name = this.readName(block, 6);
+        final String value = readString(block);
+        this.table.add(name, value);
+        fields.accept(name, value);
+        fieldSeen = true;
+      } else if ((b & 0x20) != 0) { // dynamic table size update, only at the start of the block
+        if (fieldSeen) throw new HpackException("Dynamic table size update after a header field");
+
+        final int size = readInteger(block, 5);
+        if (size > this.maxTableSize) throw new HpackException("Dynamic table size " + size + " exceeds the limit " + this.maxTableSize);
+        this.table.setMaxSize(size);
+      } else { // literal without indexing (0000) or never indexed (0001)
+        final String name = this.readName(block, 4);
+        fields.accept(name, readString(block));
+        fieldSeen = true;
+      }
+    }
+  }
+
+  int tableSize() {
+    return this.table.size();
+  }
+
+  private String readName(ByteBuffer block, int prefixBits) {
+    final int index = readInteger(block, prefixBits);
+    return index == 0 ? readString(block) : this.table.name(index);
+  }
+
+  private static String readString(ByteBuffer block) {
+    if (!block.hasRemaining()) throw new HpackException("Truncated header block");
+
+    final boolean huffman = (block.get(block.position()) & 0x80) != 0;
+    final int length = readInteger(block, 7);
+    if (length > block.remaining()) throw new HpackException("String exceeds the header block");
+
+    if (huffman) return Huffman.decode(block, length);
+
+    final String value;
+    if (block.hasArray()) {
+      value = new String(block.array(), block.arrayOffset() + block.position(), length, StandardCharsets.ISO_8859_1);
+      block.position(block.position() + length);
+    } else {
+      final var bytes = new byte[length];
+      block.get(bytes);
+      value = new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    return value;
+  }
+
+  /**
+   * Reads the integer with the N-bit prefix (RFC 7541 5.1), the bits above the prefix are ignored.
+   */
+  static int readInteger(ByteBuffer block, int prefixBits) {
+    if (!block.hasRemaining()) throw new HpackException("Truncated header block");
+
+    final int mask = (1 << prefixBits) - 1;
+    int value = block.get() & mask;
+    if (value < mask) return value;
+
+    for (int shift = 0; ; shift += 7) {
+      if (!block.hasRemaining()) throw new HpackException("Truncated integer");
+      if (shift > 21) throw new HpackException("Integer exceeds the supported range");
+
+      final int b = block.get() & 0xff;
+      value += (b & 0x7f) << shift;
+      if ((b & 0x80) == 0) return value;
+    }
+  }
+}
@@ -0,0 +1,103 @@
+package com.akmal.comperio.http.hpack;
+
+import com.akmal.comperio.http.buffer.ByteBufferOutputStream;
+import net.jcip.annotations.NotThreadSafe;
+
+/**
+ * Encoder of the HPACK header blocks (RFC 7541) of a single connection. The fields found in the static or the dynamic table
+ * are sent as the index only, the others are sent literally with the name indexed where possible and are added to the dynamic table,
+ * so that the repeated response headers (content type, server) shrink to a single byte on the following responses.
+ * The fields that change with every message are not worth the room in the table, the caller sends them without indexing.
+ * The strings are not Huffman encoded. The blocks have to be written to the connection in the order they are encoded.
+ */
+@NotThreadSafe
+public final class HpackEncoder {
+  private final HeaderTable table;
+  private int pendingTableSize = -1;
+
+  public HpackEncoder() {
+    this(HpackDecoder.DEFAULT_TABLE_SIZE);
+  }
+
+  public HpackEncoder(int maxTableSize) {
+    this.table = new HeaderTable(maxTableSize);
+  }
+
+  /**
+   * Applies the limit of the dynamic table received in SETTINGS_HEADER_TABLE_SIZE of the peer, the change is signalled
+   * at the start of the next block.
+   */
+  public void setMaxTableSize(int maxTableSize) {
+    if (maxTableSize == this.table.maxSize() && this.pendingTableSize < 0) return;
+
+    this.table.setMaxSize(maxTableSize);
+    this.pendingTableSize = maxTableSize;
+  }
+
+  /**
+   * Starts the new header block, emits the pending dynamic table size update.
+   */
+  public void beginBlock(ByteBufferOutputStream out) {
+    if (this.pendingTableSize < 0) return;
+
+    writeInteger(out, 0x20, 5, this.pendingTableSize);
+    this.pendingTableSize = -1;
+  }
+
+  /**
+   * Encodes the field, the name has to be lower case.
+   *
+   * @param indexed whether the field may be added to the dynamic table.
+   */
+  public void encode(ByteBufferOutputStream out, String name, String value, boolean indexed) {
+    final int index = this.table.indexOf(name, value);
+
+    if (index > 0) {
+      writeInteger(out, 0x80, 7, index);
+      return;
+    }
+
+    final int nameIndex = this.table.indexOfName(name);
+
+    if (indexed && HeaderTable.entrySize(name, value) <= this.table.maxSize()) {
+      writeInteger(out, 0x40, 6, nameIndex);
+      this.table.add(name, value);
+    } else {
+      writeInteger(out, 0x00, 4, nameIndex);
+    }
+
+    if (nameIndex == 0) writeString(out, name);
+    writeString(out, value);
+  }
+
+  int tableSize() {
+    return this.table.size();
+  }
+
+  private static void writeString(ByteBufferOutputStream out, String value) {
+    writeInteger(out, 0x00, 7, value.length());
+    out.writeAscii(value); // ISO-8859-1, one byte per character
+  }
+
+  /**
+   * Writes the integer with the N-bit prefix (RFC 7541 5.1), the flags occupy the bits above the prefix of the first byte.
+   */
+  static void writeInteger(ByteBufferOutputStream out, int flags, int prefixBits, int value) {
+    final int mask = (1 << prefixBits) - 1;
+
+    if (value < mask) {
+      out.write(flags | value);
+      return;
+    }
+
+    out.write(flags | mask);
+    value -= mask;
+
+    while (value >= 0x80) {
+      out.write((value & 0x7f) | 0x80);
+      value >>>= 7;
+    }
+
+    out.write(value);
+  }
+}
@@ -0,0 +1,12 @@
+package com.akmal.comperio.http.hpack;
+
+/**
+ * Thrown when the header block cannot be decoded. The state of the dynamic table is undefined afterwards, therefore,
+ * it is a connection error of the type COMPRESSION_ERROR (RFC 9113 4.3).
+ */
+public class HpackException extends RuntimeException {
+
+  public HpackException(String message) {
+    super(message);
+  }
+}
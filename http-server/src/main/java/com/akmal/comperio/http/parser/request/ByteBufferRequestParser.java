@@ -0,0 +1,43 @@
+package com.akmal.comperio.http.parser.request;
+
+import com.akmal.comperio.http.HttpStatus;
+import com.akmal.comperio.http.exception.http.MalformedRequestException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * {@link HttpRequestParser} backed by the {@link HttpRequestHeadParser} state machine.
+ * When parsing from the stream, the bytes are read one by one, so that nothing beyond the head is consumed and the stream is left
+ * positioned at the body, therefore, the stream should be buffered. Every invocation uses its own state, the instance can be shared.
+ */
+public class ByteBufferRequestParser implements HttpRequestParser {
+
+  @Override
+  public ParsedHttpRequestDetails parse(InputStream in) throws IOException {
+    final var parser = new HttpRequestHeadParser();
+    final ByteBuffer buffer = ByteBuffer.allocate(HttpRequestHeadParser.DEFAULT_MAX_HEAD_BYTES);
+    int b;
+
+    while ((b = in.read()) != -1) {
+      buffer.put((byte) b);
+      if (parser.parse(buffer)) return parser.toRequestDetails();
+    }
+
+    throw new MalformedRequestException(HttpStatus.BAD_REQUEST, "Malformed HTTP request");
+  }
+
+  @Override
+  public ParsedHttpRequestDetails parse(byte[] head, int offset, int length) {
+    return this.parse(ByteBuffer.wrap(head, offset, length));
+  }
+
+  @Override
+  public ParsedHttpRequestDetails parse(ByteBuffer head) {
+    final var parser = new HttpRequestHeadParser();
+    final ByteBuffer buffer = head.slice().position(head.remaining()); // the parser scans from the index 0 up to the position
+
+    if (!parser.parse(buffer)) throw new MalformedRequestException(HttpStatus.BAD_REQUEST, "Malformed HTTP request");
+    return parser.toRequestDetails();
+  }
+}
@@ -0,0 +1,396 @@
+package com.akmal.comperio.http.parser.request;
+
+import com.akmal.comperio.http.HttpHeaders;
+import com.akmal.comperio.http.HttpProtocol;
+import com.akmal.comperio.http.HttpStatus;
+import com.akmal.comperio.http.QueryParameters;
+import com.akmal.comperio.http.exception.http.MalformedRequestException;
+import com.akmal.comperio.http.exception.http.UnsupportedMethodException;
+import com.akmal.comperio.http.router.HttpMethod;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import net.jcip.annotations.NotThreadSafe;
+
+/**
+ * Incremental state machine parser of the HTTP/1.x request head that works directly on the bytes of a {@link ByteBuffer}.
+ * The caller keeps appending the received bytes to the same buffer and invokes {@link #parse(ByteBuffer)} after every read,
+ * the parser resumes from the byte where it stopped and scans up to the position of the buffer (the buffer stays in the write mode).
+ * Instead of building Strings, the parser records the offsets of the tokens (method, target, version, header names and values)
+ * relative to the start of the buffer, the method and the protocol are resolved by comparing the bytes in place.
+ * The Strings are materialised only by {@link #toRequestDetails()} once the head is complete.
+ * The size of the head, the length of the request line and the number of headers are limited, the violations are reported
+ * by the {@link MalformedRequestException} carrying the matching status. Bare line feeds are tolerated as the line terminators.
+ * The parser is meant to be confined to a connection and reused for its requests through {@link #reset()}.
+ */
+@NotThreadSafe
+public final class HttpRequestHeadParser {
+  public static final int DEFAULT_MAX_HEAD_BYTES = 10240;
+  public static final int DEFAULT_MAX_REQUEST_LINE_BYTES = 4096;
+  public static final int DEFAULT_MAX_HEADERS = 100;
+
+  private static final byte CR = '\r';
+  private static final byte LF = '\n';
+  private static final byte SP = ' ';
+  private static final byte HT = '\t';
+
+  private static final HttpMethod[] METHODS = HttpMethod.values();
+  private static final byte[][] METHOD_NAMES = Arrays.stream(METHODS).map(method -> method.name().getBytes(StandardCharsets.US_ASCII))
+                                                   .toArray(byte[][]::new);
+  private static final byte[] HTTP_1_1 = "HTTP/1.1".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] HTTP_1_0 = "HTTP/1.0".getBytes(StandardCharsets.US_ASCII);
+
+  /**
+   * Characters allowed in the method and the header names (tchar of RFC 9110 5.6.2).
+   */
+  private static final boolean[] TOKEN = new boolean[128];
+
+  static {
+    for (char c = '0'; c <= '9'; c++) TOKEN[c] = true;
+    for (char c = 'a'; c <= 'z'; c++) TOKEN[c] = true;
+    for (char c = 'A'; c <= 'Z'; c++) TOKEN[c] = true;
+    for (char c: "!#$%&'*+-.^_`|~".toCharArray()) TOKEN[c] = true;
+  }
+
+  private enum State {
+    LEADING_LINES, METHOD, TARGET, VERSION, REQUEST_LINE_END, LINE_START, HEADER_NAME, HEADER_VALUE_START, HEADER_VALUE,
+    HEADER_LINE_END, HEAD_END, DONE
+  }
+
+  private final int maxHeadBytes;
+  private final int maxRequestLineBytes;
+  private final int maxHeaders;
+
+  private ByteBuffer buffer;
+  private State state = State.LEADING_LINES;
+  private int position;
+  private int tokenStart;
+  private int requestLineStart;
+  private int targetStart;
+  private int targetEnd;
+  private int headEnd;
+  private HttpMethod method;
+  private HttpProtocol protocol;
+
+  // four offsets per header: name start, name end, value start, value end
+  private int[] headerOffsets = new int[16 * 4];
+  private int headerCount;
+
+  public HttpRequestHeadParser() {
+    this(DEFAULT_MAX_HEAD_BYTES, DEFAULT_MAX_REQUEST_LINE_BYTES, DEFAULT_MAX_HEADERS);
+  }
+
+  public HttpRequestHeadParser(int maxHeadBytes, int maxRequestLineBytes, int maxHeaders) {
+    this.maxHeadBytes = maxHeadBytes;
+    this.maxRequestLineBytes = maxRequestLineBytes;
+    this.maxHeaders = maxHeaders;
+  }
+
+  /**
+   * Scans the bytes of the buffer received since the previous invocation.
+   *
+   * @param buffer that accumulates the bytes of the head starting at the index 0, its position marks the end of the received bytes.
+   * @return whether the head is complete, see {@link #headEnd()}.
+   * @throws MalformedRequestException when the head is malformed or exceeds the limits.
+   * @throws UnsupportedMethodException when the method is not known.
+   */
+  public boolean parse(ByteBuffer buffer) {
+    if (this.state == State.DONE) return true;
+    this.buffer = buffer;
+    final int limit = buffer.position();
+
+    while (this.position < limit) {
+      final byte b = buffer.get(this.position);
+
+      switch (this.state) {
+        case LEADING_LINES -> {
+          if (b == CR || b == LF) { // RFC 9112 2.2 allows to ignore the empty lines received prior to the request line
+            this.position++;
+            continue;
+          }
+          this.requestLineStart = this.position;
+          this.tokenStart = this.position;
+          this.state = State.METHOD;
+        }
+        case METHOD -> {
+          if (b == SP) {
+            this.method = resolveMethod(buffer, this.tokenStart, this.position);
+            this.targetStart = this.position + 1;
+            this.state = State.TARGET;
+          } else if (!isToken(b)) {
+            throw malformed("Malformed HTTP request method");
+          }
+          this.position++;
+        }
+        case TARGET -> {
+          if (b == SP) {
+            if (this.position == this.targetStart) throw malformed("Malformed HTTP request. Empty request target");
+            this.targetEnd = this.position;
+            this.tokenStart = this.position + 1;
+            this.state = State.VERSION;
+          } else if (isControl(b)) {
+            throw malformed("Malformed HTTP request target");
+          }
+          this.position++;
+        }
+        case VERSION -> {
+          if (b == CR || b == LF) {
+            this.protocol = resolveProtocol(buffer, this.tokenStart, this.position);
+            this.state = b == CR ? State.REQUEST_LINE_END : State.LINE_START;
+          }
+          this.position++;
+        }
+        case REQUEST_LINE_END, HEADER_LINE_END -> {
+          if (b != LF) throw malformed("Malformed HTTP request. Expected line feed");
+          this.state = State.LINE_START;
+          this.position++;
+        }
+        case LINE_START -> {
+          if (b == CR) {
+            this.state = State.HEAD_END;
+            this.position++;
+          } else if (b == LF) {
+            return this.complete();
+          } else if (b == SP || b == HT) {
+            throw malformed("Malformed HTTP request. Obsolete line folding is not supported");
+          } else {
+            if (this.headerCount == this.maxHeaders) {
+              throw new MalformedRequestException(HttpStatus.REQUEST_HEADER_FIELDS_TOO_LARGE, "Too many request headers");
+            }
+            this.tokenStart = this.position;
+            this.state = State.HEADER_NAME;
+          }
+        }
+        case HEADER_NAME -> {
+          if (b == ':') {
+            if (this.position == this.tokenStart) throw malformed("Malformed HTTP request. Empty header name");
+            this.ensureHeaderCapacity();
+            this.headerOffsets[this.headerCount * 4] = this.tokenStart;
+            this.headerOffsets[this.headerCount * 4 + 1] = this.position;
+            this.state = State.HEADER_VALUE_START;
+          } else if (!isToken(b)) {
+            throw malformed("Malformed HTTP request header name");
+          }
+          this.position++;
+        }
+        case HEADER_VALUE_START -> {
+          if (b == SP || b == HT) {
+            this.position++;
+          } else {
+            this.tokenStart = this.position;
+            this.state = State.HEADER_VALUE;
+          }
+        }
+        case HEADER_VALUE -> {
+          if (b == CR || b == LF) {
+            int valueEnd = this.position;
+            while (valueEnd > this.tokenStart && isWhitespace(buffer.get(valueEnd - 1))) valueEnd--;
+
+            this.headerOffsets[this.headerCount * 4 + 2] = this.tokenStart;
+            this.headerOffsets[this.headerCount * 4 + 3] = valueEnd;
+            this.headerCount++;
+            this.state = b == CR ? State.HEADER_LINE_END : State.LINE_START;
+          } else if (isControl(b) && b != HT) {
+            throw malformed("Malformed HTTP request header value");
+          }
+          this.position++;
+        }
+        case HEAD_END -> {
+          if (b != LF) throw malformed("Malformed HTTP request. Expected line feed");
+          return this.complete();
+        }
+        default -> throw new IllegalStateException("Unexpected parser state " + this.state);
+      }
+
+      if (this.isInRequestLine() && this.position - this.requestLineStart > this.maxRequestLineBytes) {
+        throw new MalformedRequestException(HttpStatus.URI_TOO_LONG, "Request line is too long");
+      }
+    }
+
+    if (limit >= this.maxHeadBytes) {
+      throw new MalformedRequestException(HttpStatus.REQUEST_HEADER_FIELDS_TOO_LARGE, "Request head is too large");
+    }
+
+    return false;
+  }
+
+  /**
+   * Prepares the parser for the next request, the buffer is expected to start with the next request again.
+   */
+  public void reset() {
+    this.buffer = null;
+    this.state = State.LEADING_LINES;
+    this.position = 0;
+    this.headerCount = 0;
+    this.method = null;
+    this.protocol = null;
+  }
+
+  public boolean isComplete() {
+    return this.state == State.DONE;
+  }
+
+  /**
+   * Returns the offset of the first byte after the head, i.e. the first byte of the body or of the next pipelined request.
+   */
+  public int headEnd() {
+    this.ensureComplete();
+    return this.headEnd;
+  }
+
+  public HttpMethod method() {
+    this.ensureComplete();
+    return this.method;
+  }
+
+  public HttpProtocol protocol() {
+    this.ensureComplete();
+    return this.protocol;
+  }
+
+  public int targetStart() {
+    return this.targetStart;
+  }
+
+  public int targetEnd() {
+    return this.targetEnd;
+  }
+
+  public int headerCount() {
+    return this.headerCount;
+  }
+
+  public int headerNameStart(int index) {
+    return this.headerOffsets[this.checkHeader(index) * 4];
+  }
+
+  public int headerNameEnd(int index) {
+    return this.headerOffsets[this.checkHeader(index) * 4 + 1];
+  }
+
+  public int headerValueStart(int index) {
+    return this.headerOffsets[this.checkHeader(index) * 4 + 2];
+  }
+
+  public int headerValueEnd(int index) {
+    return this.headerOffsets[this.checkHeader(index) * 4 + 3];
+  }
+
+  /**
+   * Materialises the parsed head. The header section and the query string are copied out of the buffer once, as the buffer is reused
+   * for the next request, the fields and the parameters are decoded from the copies only when the handler looks them up.
+   */
+  public ParsedHttpRequestDetails toRequestDetails() {
+    this.ensureComplete();
+
+    int pathEnd = this.targetEnd;
+    for (int i = this.targetStart; i < this.targetEnd; i++) {
+      if (this.buffer.get(i) == '?') {
+        pathEnd = i;
+        break;
+      }
+    }
+
+    final String path = this.string(this.targetStart, pathEnd);
+
+    return new ParsedHttpRequestDetails(this.method, this.protocol, path, this.headers(), this.queryParams(pathEnd));
+  }
+
+  private QueryParameters queryParams(int pathEnd) {
+    if (pathEnd >= this.targetEnd - 1) return QueryParameters.empty();
+
+    final var query = new byte[this.targetEnd - pathEnd - 1];
+    this.buffer.get(pathEnd + 1, query);
+    return QueryParameters.lazy(query);
+  }
+
+  private HttpHeaders headers() {
+    if (this.headerCount == 0) return new HttpHeaders();
+
+    final int blockStart = this.headerNameStart(0);
+    final var block = new byte[this.headerValueEnd(this.headerCount - 1) - blockStart];
+    this.buffer.get(blockStart, block);
+
+    final int[] offsets = Arrays.copyOf(this.headerOffsets, this.headerCount * 4);
+    for (int i = 0; i < offsets.length; i++) offsets[i] -= blockStart;
+
+    return HttpHeaders.wrap(block, offsets, this.headerCount);
+  }
+
+  private String string(int start, int end) {
+    if (this.buffer.hasArray()) {
+      return new String(this.buffer.array(), this.buffer.arrayOffset() + start, end - start, StandardCharsets.UTF_8);
+    }
+
+    final var bytes = new byte[end - start];
+    this.buffer.get(start, bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private boolean complete() {
+    this.position++;
+    this.headEnd = this.position;
+    this.state = State.DONE;
+    return true;
+  }
+
+  private boolean isInRequestLine() {
+    return this.state == State.METHOD || this.state == State.TARGET || this.state == State.VERSION;
+  }
+
+  private void ensureHeaderCapacity() {
+    if (this.headerOffsets.length < (this.headerCount + 1) * 4) {
+      this.headerOffsets = Arrays.copyOf(this.headerOffsets, this.headerOffsets.length * 2);
+    }
+  }
+
+  private void ensureComplete() {
+    if (this.state != State.DONE) throw new IllegalStateException("Request head is not complete");
+  }
+
+  private int checkHeader(int index) {
+    if (index < 0 || index >= this.headerCount) throw new IndexOutOfBoundsException("No header at index " + index);
+    return index;
+  }
+
+  private static HttpMethod resolveMethod(ByteBuffer buffer, int start, int end) {
+    for (int i = 0; i < METHOD_NAMES.length; i++) {
+      if (regionEquals(buffer, start, end, METHOD_NAMES[i])) return METHODS[i];
+    }
+
+    throw new UnsupportedMethodException(HttpStatus.NOT_IMPLEMENTED, "Unsupported HTTP method");
+  }
+
+  private static HttpProtocol resolveProtocol(ByteBuffer buffer, int start, int end) {
+    if (regionEquals(buffer, start, end, HTTP_1_1)) return HttpProtocol.HTTP_V1_1;
+    if (regionEquals(buffer, start, end, HTTP_1_0)) return HttpProtocol.HTTP_V1;
+
+    throw malformed("Malformed HTTP request. Unknown HTTP protocol");
+  }
+
+  private static boolean regionEquals(ByteBuffer buffer, int start, int end, byte[] expected) {
+    if (end - start != expected.length) return false;
+
+    for (int i = 0; i < expected.length; i++) {
+      if (buffer.get(start + i) != expected[i]) return false;
+    }
+
+    return true;
+  }
+
+  private static boolean isToken(byte b) {
+    return b >= 0 && TOKEN[b];
+  }
+
+  private static boolean isControl(byte b) {
+    return (b >= 0 && b < 0x20) || b == 0x7f;
+  }
+
+  private static boolean isWhitespace(byte b) {
+    return b == SP || b == HT;
+  }
+
+  private static MalformedRequestException malformed(String message) {
+    return new MalformedRequestException(HttpStatus.BAD_REQUEST, message);
+  }
+}
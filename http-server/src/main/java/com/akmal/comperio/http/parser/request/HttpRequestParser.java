@@ -1,9 +1,35 @@
 package com.akmal.comperio.http.parser.request;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 public interface HttpRequestParser {
 
   ParsedHttpRequestDetails parse(InputStream in) throws IOException;
+
+  /**
+   * Parses the head that has already been read off the connection.
+   *
+   * @param head bytes of the request head including the terminating blank line.
+   * @param offset of the first byte of the head.
+   * @param length of the head.
+   */
+  default ParsedHttpRequestDetails parse(byte[] head, int offset, int length) throws IOException {
+    return this.parse(new ByteArrayInputStream(head, offset, length));
+  }
+
+  /**
+   * Parses the head that has already been read off the connection into the buffer.
+   *
+   * @param head buffer in the read mode, the remaining bytes are the request head including the terminating blank line.
+   */
+  default ParsedHttpRequestDetails parse(ByteBuffer head) throws IOException {
+    if (head.hasArray()) return this.parse(head.array(), head.arrayOffset() + head.position(), head.remaining());
+
+    final var bytes = new byte[head.remaining()];
+    head.get(head.position(), bytes);
+    return this.parse(bytes, 0, bytes.length);
+  }
 }
@@ -13,10 +13,7 @@ import java.io.Reader;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.regex.Pattern;
 
 public class HttpV1RequestParser implements HttpRequestParser {
@@ -31,7 +28,6 @@ public class HttpV1RequestParser implements HttpRequestParser {
     if (headerLines.isEmpty()) {
       throw new MalformedRequestException(HttpStatus.BAD_REQUEST, "Malformed HTTP request");
     }
-    System.out.println("AVVV " + in.available());
     String[] requestLine = headerLines.get(0).split("\s");
 
     if (requestLine.length != 3) {
@@ -47,37 +43,21 @@ public class HttpV1RequestParser implements HttpRequestParser {
     }
 
     final var headers = this.parseHeaders(headerLines.subList(1, headerLines.size()));
-    Map<String, String> queryParams = Collections.emptyMap();
+    QueryParameters queryParams = QueryParameters.empty();
 
-    // now we need to remove the query string from the path;
+    // now we need to remove the query string from the path, the parameters are parsed on the first access;
     final var querySeparatorIndex = path.indexOf('?');
     if (querySeparatorIndex != -1 && querySeparatorIndex != path.length() - 1) {
-      final var queryString = path.substring(querySeparatorIndex + 1);
-      queryParams = parseQueryParams(queryString);
+      queryParams = QueryParameters.lazy(path.substring(querySeparatorIndex + 1));
       path = path.substring(0, querySeparatorIndex);
     }
 
-
-    return new ParsedHttpRequestDetails(method, protocol, path, new HttpHeaders(headers), new QueryParameters(queryParams));
+    return new ParsedHttpRequestDetails(method, protocol, path, headers, queryParams);
   }
 
 
-  private Map<String, String> parseQueryParams(String queryString) {
-    final var parts = queryString.split("&");
-    final var map = new HashMap<String, String>();
-
-    for (String queryParam: parts) {
-      final var queryParamParts = queryParam.split("=");
-      if (queryParamParts.length == 0 || queryParamParts[0].isBlank()) throw new MalformedRequestException(HttpStatus.BAD_REQUEST, "Malformed HTTP request. Corrupted query param " + queryParamParts);
-
-      map.put(queryParamParts[0], queryParamParts.length > 1 ? queryParamParts[1] : "");
-    }
-
-    return map;
-  }
-
-  private Map<String, String> parseHeaders(List<String> lines) {
-    final var headers = new HashMap<String, String>();
+  private HttpHeaders parseHeaders(List<String> lines) {
+    final var headers = new HttpHeaders();
 
     for (String line : lines) {
       String[] parts = HEADER_SEPARATOR.split(line);
@@ -85,24 +65,12 @@ public class HttpV1RequestParser implements HttpRequestParser {
         throw new MalformedRequestException(HttpStatus.BAD_REQUEST, "Malformed HTTP request. Corrupted header " + line);
       }
 
-      headers.put(normalizeHeaderName(parts[0]), parts[1]);
+      headers.add(parts[0], parts[1]);
     }
 
     return headers;
   }
 
-  private String normalizeHeaderName(String header) {
-    if (header.length() <= 1) return header.toUpperCase();
-
-    String[] parts = header.split("-");
-
-    for (int i = 0; i < parts.length; i++) {
-      parts[i] = parts[i].substring(0, 1).toUpperCase() + parts[i].substring(1);
-    }
-
-    return String.join("-", parts);
-  }
-
   /**
    * Reads HTTP header up until the body (i.e. blank line)
    *
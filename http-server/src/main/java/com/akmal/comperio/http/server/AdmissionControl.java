@@ -0,0 +1,75 @@
+package com.akmal.comperio.http.server;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Limits of the open connections and of the requests being handled at the same time, shared by all the acceptors and the connections
+ * of the server. The counters are lock-free, the permit is taken by the compare-and-set loop that never lets the counter exceed
+ * the limit, so that the limit holds exactly even when many threads race for the last permit.
+ * The work that is over the limit is rejected right away rather than queued, so that the memory and the latency stay bounded under overload.
+ */
+@ThreadSafe
+final class AdmissionControl {
+  private final int maxConnections;
+  private final int maxInFlightRequests;
+  private final AtomicInteger connections = new AtomicInteger();
+  private final AtomicInteger inFlightRequests = new AtomicInteger();
+
+  AdmissionControl(int maxConnections, int maxInFlightRequests) {
+    if (maxConnections < 1) throw new IllegalArgumentException("At least one connection has to be allowed");
+    if (maxInFlightRequests < 1) throw new IllegalArgumentException("At least one request has to be allowed");
+
+    this.maxConnections = maxConnections;
+    this.maxInFlightRequests = maxInFlightRequests;
+  }
+
+  static AdmissionControl unlimited() {
+    return new AdmissionControl(Integer.MAX_VALUE, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Takes the permit for the new connection, it has to be returned by {@link #releaseConnection()} once the connection is closed.
+   *
+   * @return false when the limit of the connections is reached.
+   */
+  boolean tryAcquireConnection() {
+    return tryAcquire(this.connections, this.maxConnections);
+  }
+
+  void releaseConnection() {
+    this.connections.decrementAndGet();
+  }
+
+  /**
+   * Takes the permit for handling the request, it has to be returned by {@link #releaseRequest()} once the handler returns.
+   *
+   * @return false when the limit of the requests in flight is reached.
+   */
+  boolean tryAcquireRequest() {
+    return tryAcquire(this.inFlightRequests, this.maxInFlightRequests);
+  }
+
+  void releaseRequest() {
+    this.inFlightRequests.decrementAndGet();
+  }
+
+  int connections() {
+    return this.connections.get();
+  }
+
+  int inFlightRequests() {
+    return this.inFlightRequests.get();
+  }
+
+  private static boolean tryAcquire(AtomicInteger counter, int limit) {
+    int current;
+
+    do {
+      current = counter.get();
+      if (current >= limit) return false;
+    } while (!counter.compareAndSet(current, current + 1));
+
+    return true;
+  }
+}
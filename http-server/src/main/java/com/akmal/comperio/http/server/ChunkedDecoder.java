@@ -0,0 +1,169 @@
+package com.akmal.comperio.http.server;
+
+import com.akmal.comperio.http.HttpStatus;
+import com.akmal.comperio.http.buffer.ByteBufferOutputStream;
+import com.akmal.comperio.http.exception.http.MalformedRequestException;
+import java.nio.ByteBuffer;
+import net.jcip.annotations.NotThreadSafe;
+
+/**
+ * Incremental decoder of the chunked transfer coding (RFC 9112 7.1). The framing (chunk sizes, extensions, line terminators
+ * and the trailer section) is fed byte by byte through {@link #update(byte)}, while the chunk data is consumed in bulk by the caller,
+ * guided by {@link #dataRemaining()}, so that the decoder never reads past the end of the body.
+ * Chunk extensions and trailer fields are skipped. The total size of the decoded body is limited, as is the size of the framing lines.
+ */
+@NotThreadSafe
+final class ChunkedDecoder {
+  private static final int MAX_LINE_BYTES = 4096;
+  private static final int MAX_SIZE_DIGITS = 8;
+
+  private enum State {
+    SIZE, SIZE_REST, EXTENSION, SIZE_LF, DATA, DATA_CR, DATA_LF, TRAILER_START, TRAILER, TRAILER_LF, FINAL_LF, DONE
+  }
+
+  private final long maxBodyBytes;
+  private State state = State.SIZE;
+  private long chunkSize;
+  private int sizeDigits;
+  private long dataRemaining;
+  private long decoded;
+  private int lineLength;
+  private int trailerBytes;
+
+  ChunkedDecoder(long maxBodyBytes) {
+    this.maxBodyBytes = maxBodyBytes;
+  }
+
+  /**
+   * Consumes the next byte of the framing, must not be called while {@link #dataRemaining()} is positive.
+   *
+   * @return whether the body is complete.
+   * @throws MalformedRequestException when the framing is malformed or the body exceeds the limit.
+   */
+  boolean update(byte b) {
+    switch (this.state) {
+      case SIZE -> {
+        this.state = State.SIZE_REST;
+        this.appendSizeDigit(b);
+      }
+      case SIZE_REST -> {
+        if (b == '\r') this.state = State.SIZE_LF;
+        else if (b == '\n') this.endSizeLine();
+        else if (b == ';' || b == ' ' || b == '\t') this.state = State.EXTENSION;
+        else this.appendSizeDigit(b);
+      }
+      case EXTENSION -> {
+        if (b == '\r') this.state = State.SIZE_LF;
+        else if (b == '\n') this.endSizeLine();
+        else if (++this.lineLength > MAX_LINE_BYTES) throw malformed("Chunk extension is too long");
+      }
+      case SIZE_LF -> {
+        if (b != '\n') throw malformed("Malformed chunk size line");
+        this.endSizeLine();
+      }
+      case DATA_CR -> {
+        if (b == '\r') this.state = State.DATA_LF;
+        else if (b == '\n') this.state = State.SIZE;
+        else throw malformed("Chunk data is longer than declared");
+      }
+      case DATA_LF -> {
+        if (b != '\n') throw malformed("Malformed chunk data terminator");
+        this.state = State.SIZE;
+      }
+      case TRAILER_START -> {
+        if (b == '\r') this.state = State.FINAL_LF;
+        else if (b == '\n') this.state = State.DONE;
+        else this.trailer(State.TRAILER);
+      }
+      case TRAILER -> {
+        if (b == '\r') this.trailer(State.TRAILER_LF);
+        else if (b == '\n') this.trailer(State.TRAILER_START);
+        else this.trailer(State.TRAILER);
+      }
+      case TRAILER_LF -> {
+        if (b != '\n') throw malformed("Malformed trailer field");
+        this.trailer(State.TRAILER_START);
+      }
+      case FINAL_LF -> {
+        if (b != '\n') throw malformed("Malformed end of the chunked body");
+        this.state = State.DONE;
+      }
+      case DATA -> throw new IllegalStateException("Chunk data has to be consumed first");
+      case DONE -> throw new IllegalStateException("Chunked body is already complete");
+    }
+
+    return this.state == State.DONE;
+  }
+
+  /**
+   * Returns the number of data bytes of the current chunk that can be consumed before the framing continues.
+   */
+  long dataRemaining() {
+    return this.dataRemaining;
+  }
+
+  /**
+   * Marks the given number of data bytes as consumed by the caller.
+   */
+  void dataConsumed(long length) {
+    if (length > this.dataRemaining) throw new IllegalArgumentException("Consumed more than the chunk holds");
+
+    this.dataRemaining -= length;
+    if (this.dataRemaining == 0) this.state = State.DATA_CR;
+  }
+
+  boolean isDone() {
+    return this.state == State.DONE;
+  }
+
+  /**
+   * Decodes the available bytes of the source into the destination, the source is left positioned at the first byte past the body.
+   *
+   * @return whether the body is complete.
+   */
+  boolean decode(ByteBuffer src, ByteBufferOutputStream dst) {
+    while (src.hasRemaining() && this.state != State.DONE) {
+      if (this.dataRemaining > 0) {
+        final int length = (int) Math.min(src.remaining(), this.dataRemaining);
+        dst.write(src.slice(src.position(), length));
+        src.position(src.position() + length);
+        this.dataConsumed(length);
+      } else {
+        this.update(src.get());
+      }
+    }
+
+    return this.state == State.DONE;
+  }
+
+  private void appendSizeDigit(byte b) {
+    final int digit = Character.digit(b, 16);
+
+    if (digit == -1) throw malformed("Malformed chunk size");
+    if (++this.sizeDigits > MAX_SIZE_DIGITS) throw malformed("Chunk size is too large");
+
+    this.chunkSize = this.chunkSize * 16 + digit;
+  }
+
+  private void endSizeLine() {
+    if (this.decoded + this.chunkSize > this.maxBodyBytes) {
+      throw new MalformedRequestException(HttpStatus.PAYLOAD_TOO_LARGE, "Request body is too large");
+    }
+
+    this.decoded += this.chunkSize;
+    this.dataRemaining = this.chunkSize;
+    this.state = this.chunkSize == 0 ? State.TRAILER_START : State.DATA;
+    this.chunkSize = 0;
+    this.sizeDigits = 0;
+    this.lineLength = 0;
+  }
+
+  private void trailer(State next) {
+    if (++this.trailerBytes > HttpFraming.MAX_HEAD_BYTES) throw malformed("Trailer section is too large");
+    this.state = next;
+  }
+
+  private static MalformedRequestException malformed(String message) {
+    return new MalformedRequestException(HttpStatus.BAD_REQUEST, message);
+  }
+}
@@ -0,0 +1,99 @@
+package com.akmal.comperio.http.server;
+
+import com.akmal.comperio.http.HttpStatus;
+import com.akmal.comperio.http.exception.http.MalformedRequestException;
+import java.io.IOException;
+import java.io.InputStream;
+import net.jcip.annotations.NotThreadSafe;
+
+/**
+ * Body of a request sent with the chunked transfer coding, decoded on the fly while the handler reads it, so that the body of any size
+ * is streamed through the bounded buffer of the connection. The framing is read byte by byte, the chunk data is read in bulk,
+ * therefore, the underlying stream has to be buffered. Reading beyond the limit of the body size fails with 413.
+ */
+@NotThreadSafe
+final class ChunkedInputStream extends RequestBodyInputStream {
+  private final InputStream in;
+  private final ChunkedDecoder decoder;
+
+  ChunkedInputStream(InputStream in, long maxBodyBytes) {
+    this.in = in;
+    this.decoder = new ChunkedDecoder(maxBodyBytes);
+  }
+
+  @Override
+  public int read() throws IOException {
+    if (!this.advanceToData()) return -1;
+
+    final int b = this.in.read();
+    if (b == -1) throw prematureEnd();
+
+    this.decoder.dataConsumed(1);
+    return b;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (len == 0) return 0;
+    if (!this.advanceToData()) return -1;
+
+    final int read = this.in.read(b, off, (int) Math.min(len, this.decoder.dataRemaining()));
+    if (read == -1) throw prematureEnd();
+
+    this.decoder.dataConsumed(read);
+    return read;
+  }
+
+  @Override
+  public int available() throws IOException {
+    return (int) Math.min(this.in.available(), this.decoder.dataRemaining());
+  }
+
+  @Override
+  boolean isComplete() {
+    return this.decoder.isDone();
+  }
+
+  @Override
+  boolean drain() throws IOException {
+    try {
+      while (this.advanceToData()) {
+        final long skipped = this.in.skip(this.decoder.dataRemaining());
+
+        if (skipped > 0) {
+          this.decoder.dataConsumed(skipped);
+        } else if (this.in.read() == -1) {
+          return false;
+        } else {
+          this.decoder.dataConsumed(1);
+        }
+      }
+    } catch (MalformedRequestException e) {
+      return false;
+    }
+
+    return true;
+  }
+
+  /**
+   * Consumes the framing up to the next chunk data.
+   *
+   * @return false at the end of the body.
+   */
+  private boolean advanceToData() throws IOException {
+    while (this.decoder.dataRemaining() == 0) {
+      if (this.decoder.isDone()) return false;
+
+      final int b = this.in.read();
+      if (b == -1) throw prematureEnd();
+
+      if (this.decoder.update((byte) b)) this.completed();
+    }
+
+    return true;
+  }
+
+  private static MalformedRequestException prematureEnd() {
+    return new MalformedRequestException(HttpStatus.BAD_REQUEST, "Connection closed in the middle of the chunked body");
+  }
+}
@@ -0,0 +1,126 @@
+package com.akmal.comperio.http.server;
+
+import com.akmal.comperio.http.buffer.BufferPool;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import net.jcip.annotations.NotThreadSafe;
+
+/**
+ * Stream of a response body that is sent while it is being written. The data is collected in a buffer leased from the pool and
+ * every time the buffer fills up (or the stream is flushed) its content is sent to the connection as a single chunk, therefore,
+ * the memory used by the response is bounded by the chunk size. The room for the chunk size line is reserved in front of the data,
+ * so that the line and the data are passed on together without copying. Closing the stream sends the last chunk and returns the buffer.
+ * When the client does not support the chunked coding (HTTP/1.0), the data is passed on as is and the end of the body is marked
+ * by closing the connection.
+ */
+@NotThreadSafe
+final class ChunkedOutputStream extends OutputStream {
+  static final int DEFAULT_CHUNK_SIZE = 8192;
+
+  private static final int SIZE_LINE_BYTES = Integer.BYTES * 2 + 2; // up to 8 hex digits and CRLF
+  private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+  private final ResponseSink sink;
+  private final BufferPool pool;
+  private final boolean chunked;
+  private final int dataStart;
+  private final int dataEnd;
+  private ByteBuffer buffer;
+
+  ChunkedOutputStream(ResponseSink sink, BufferPool pool, int chunkSize, boolean chunked) {
+    this.sink = sink;
+    this.pool = pool;
+    this.chunked = chunked;
+    this.dataStart = chunked ? SIZE_LINE_BYTES : 0;
+    this.dataEnd = this.dataStart + chunkSize;
+    this.buffer = pool.acquire(this.dataEnd + 2); // data and its CRLF
+    this.buffer.limit(this.dataEnd).position(this.dataStart);
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    this.ensureOpen();
+    if (!this.buffer.hasRemaining()) this.sendChunk();
+    this.buffer.put((byte) b);
+  }
+
+  @Override
+  public void write(byte[] bytes, int offset, int length) throws IOException {
+    this.ensureOpen();
+
+    while (length > 0) {
+      if (!this.buffer.hasRemaining()) this.sendChunk();
+
+      final int written = Math.min(length, this.buffer.remaining());
+      this.buffer.put(bytes, offset, written);
+      offset += written;
+      length -= written;
+    }
+  }
+
+  /**
+   * Sends the data collected so far as a chunk.
+   */
+  @Override
+  public void flush() throws IOException {
+    this.ensureOpen();
+    this.sendChunk();
+  }
+
+  /**
+   * Sends the remaining data and the last chunk, the trailer section is always empty. Subsequent invocations have no effect.
+   */
+  @Override
+  public void close() throws IOException {
+    if (this.buffer == null) return;
+
+    try {
+      this.sendChunk();
+
+      if (this.chunked) {
+        this.buffer.clear();
+        this.buffer.put(LAST_CHUNK).flip();
+        this.sink.write(this.buffer);
+      }
+    } finally {
+      this.pool.release(this.buffer);
+      this.buffer = null;
+    }
+  }
+
+  /**
+   * Returns the buffer to the pool without sending anything, the response is abandoned.
+   */
+  void discard() {
+    if (this.buffer == null) return;
+
+    this.pool.release(this.buffer);
+    this.buffer = null;
+  }
+
+  private void sendChunk() throws IOException {
+    final int length = this.buffer.position() - this.dataStart;
+    if (length == 0) return;
+
+    int start = this.dataStart;
+
+    if (this.chunked) {
+      this.buffer.limit(this.dataEnd + 2).put(ResponseHead.CRLF);
+      this.buffer.put(--start, (byte) '\n');
+      this.buffer.put(--start, (byte) '\r');
+      for (int rest = length; rest > 0; rest >>>= 4) this.buffer.put(--start, HEX[rest & 0xf]);
+    }
+
+    this.buffer.limit(this.buffer.position()).position(start);
+    this.sink.write(this.buffer);
+
+    this.buffer.limit(this.dataEnd).position(this.dataStart);
+  }
+
+  private void ensureOpen() throws IOException {
+    if (this.buffer == null) throw new IOException("Response body is already complete");
+  }
+}
@@ -0,0 +1,23 @@
+package com.akmal.comperio.http.server;
+
+/**
+ * Deadlines of the phases of a connection, shared by both engines.
+ *
+ * @param headerMillis time to receive the head, from the accept for the first request and from its first byte for the following ones.
+ * @param bodyMillis time to receive the body once the head is complete.
+ * @param idleMillis time a persistent connection may wait for the next request, in the NIO engine also the time a slow client
+ *                   may take without accepting any bytes of the response.
+ */
+record ConnectionTimeouts(int headerMillis, int bodyMillis, int idleMillis) {
+  static final int DEFAULT_HEADER_MILLIS = 3000;
+  static final int DEFAULT_BODY_MILLIS = 30_000;
+  static final int DEFAULT_IDLE_MILLIS = 30_000;
+
+  ConnectionTimeouts {
+    if (headerMillis < 1 || bodyMillis < 1 || idleMillis < 1) throw new IllegalArgumentException("Timeouts must be positive");
+  }
+
+  static ConnectionTimeouts defaults() {
+    return new ConnectionTimeouts(DEFAULT_HEADER_MILLIS, DEFAULT_BODY_MILLIS, DEFAULT_IDLE_MILLIS);
+  }
+}
@@ -0,0 +1,123 @@
+package com.akmal.comperio.http.server;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import net.jcip.annotations.ThreadSafe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Deadlines of the connections of the blocking engine tracked centrally in a {@link TimingWheel} driven by a single timer thread,
+ * instead of a socket timeout per connection. Every connection owns one {@link Deadline} that is re-armed as the connection
+ * moves between the phases of the exchange. Arming only records the requested deadline and queues the deadline for the timer thread
+ * at most once, so that the connection threads never contend on the wheel and the repeated re-arming within a tick is coalesced.
+ * The expiration callbacks run on the timer thread and have to be short, typically they close the socket, which unblocks
+ * the thread of the connection.
+ */
+@ThreadSafe
+final class DeadlineTimer implements AutoCloseable {
+  private static final Logger log = LoggerFactory.getLogger(DeadlineTimer.class);
+  private static final long DISARMED = Long.MIN_VALUE;
+
+  private final TimingWheel wheel;
+  private final Queue<Deadline> changes = new ConcurrentLinkedQueue<>();
+  private final Thread thread;
+  private volatile boolean running = true;
+
+  DeadlineTimer(String name) {
+    this.wheel = new TimingWheel(System.nanoTime());
+    this.thread = Thread.ofPlatform().name(name).daemon().start(this::run);
+  }
+
+  /**
+   * Returns the timer shared by the connections that are not served by the {@link HttpServer}, it runs for the lifetime of the JVM.
+   */
+  static DeadlineTimer common() {
+    return CommonHolder.TIMER;
+  }
+
+  /**
+   * Creates the disarmed deadline, it has to be disarmed once the connection is closed, so that it leaves the wheel.
+   */
+  Deadline newDeadline(Runnable onExpiry) {
+    return new Deadline(onExpiry);
+  }
+
+  @Override
+  public void close() {
+    this.running = false;
+    LockSupport.unpark(this.thread);
+  }
+
+  private void run() {
+    while (this.running) {
+      LockSupport.parkNanos(this.wheel.nanosUntilNextTick(System.nanoTime()));
+
+      Deadline deadline;
+      while ((deadline = this.changes.poll()) != null) {
+        deadline.queued.set(false); // cleared before reading the request, so that any later change is queued again
+
+        final long requested = deadline.requestedNanos;
+        if (requested == DISARMED) this.wheel.cancel(deadline.timeout);
+        else this.wheel.schedule(deadline.timeout, requested);
+      }
+
+      try {
+        this.wheel.advance(System.nanoTime());
+      } catch (RuntimeException e) {
+        log.error("Deadline expiration failed", e);
+      }
+    }
+  }
+
+  /**
+   * Deadline of a single connection.
+   */
+  @ThreadSafe
+  final class Deadline {
+    private final Runnable onExpiry;
+    private final TimingWheel.Timeout timeout;
+    private final AtomicBoolean queued = new AtomicBoolean();
+    private volatile long requestedNanos = DISARMED;
+
+    private Deadline(Runnable onExpiry) {
+      this.onExpiry = onExpiry;
+      this.timeout = new TimingWheel.Timeout(this::expire);
+    }
+
+    /**
+     * Moves the deadline to the given time from now.
+     */
+    void arm(long timeoutMillis) {
+      this.requestedNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+      this.enqueue();
+    }
+
+    void disarm() {
+      if (this.requestedNanos == DISARMED) return;
+
+      this.requestedNanos = DISARMED;
+      this.enqueue();
+    }
+
+    private void enqueue() {
+      if (this.queued.compareAndSet(false, true)) DeadlineTimer.this.changes.add(this);
+    }
+
+    /**
+     * The wheel may hold the deadline that has been re-armed in the meantime and waits in the queue, it expires only when
+     * the currently requested deadline has passed.
+     */
+    private void expire() {
+      final long requested = this.requestedNanos;
+      if (requested != DISARMED && System.nanoTime() - requested >= 0) this.onExpiry.run();
+    }
+  }
+
+  private static final class CommonHolder {
+    private static final DeadlineTimer TIMER = new DeadlineTimer("http-deadline-timer");
+  }
+}
@@ -0,0 +1,82 @@
+package com.akmal.comperio.http.server;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides which threads run the handlers of the {@link HttpServer}. The {@link ServerEngine#BLOCKING} engine runs every connection
+ * on its own task of the executor, while the {@link ServerEngine#NIO} engine runs every request on its own task.
+ * When the executor rejects the task, the connection or the request is answered with 503 Service Unavailable.
+ */
+public interface ExecutionStrategy {
+
+  /**
+   * System property that sets the number of the carrier threads of the virtual threads, read once by the JDK when the first virtual
+   * thread is started. The carriers are shared by all the virtual threads of the JVM, hence the number is set on the command line,
+   * e.g. -Djdk.virtualThreadScheduler.parallelism=4, rather than by the server.
+   */
+  String CARRIER_PARALLELISM_PROPERTY = "jdk.virtualThreadScheduler.parallelism";
+
+  /**
+   * Creates the executor of the handlers, called once when the server is built. The server shuts the executor down together
+   * with itself.
+   */
+  ExecutorService newExecutor();
+
+  /**
+   * Returns whether the handlers run right on the thread that read the request, i.e. on the event loop of the NIO engine.
+   */
+  default boolean isInline() {
+    return false;
+  }
+
+  /**
+   * Every task runs on a new virtual thread, the default. Blocking handlers are cheap, since the blocked virtual thread releases
+   * its carrier thread. The number of the carriers is set by {@link #CARRIER_PARALLELISM_PROPERTY}.
+   */
+  static ExecutionStrategy virtualThreads() {
+    return Executors::newVirtualThreadPerTaskExecutor;
+  }
+
+  /**
+   * The tasks run on a fixed pool of the platform threads and wait for a free thread in the bounded queue, the tasks that do not
+   * fit the queue are rejected. It caps the memory and the concurrency of the handlers, at the cost of the requests waiting
+   * behind the blocked handlers.
+   */
+  static ExecutionStrategy platformThreadPool(int threads, int queueCapacity) {
+    if (threads < 1) throw new IllegalArgumentException("At least one thread is required");
+    if (queueCapacity < 1) throw new IllegalArgumentException("Queue capacity must be positive");
+
+    return () -> new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity),
+        Thread.ofPlatform().name("http-worker-", 0).daemon().factory(), new ThreadPoolExecutor.AbortPolicy());
+  }
+
+  /**
+   * The handlers run on the event loop that read the request, without any handoff to another thread. Meant for the handlers that
+   * never block and finish quickly, a blocking handler stalls all the connections of its event loop. The streamed responses
+   * cannot be written from the event loop and fail. Supported by the {@link ServerEngine#NIO} engine only.
+   */
+  static ExecutionStrategy inline() {
+    return new ExecutionStrategy() {
+      @Override
+      public ExecutorService newExecutor() {
+        return new InlineExecutorService();
+      }
+
+      @Override
+      public boolean isInline() {
+        return true;
+      }
+    };
+  }
+
+  /**
+   * Runs the tasks on the given executor.
+   */
+  static ExecutionStrategy of(ExecutorService executorService) {
+    return () -> executorService;
+  }
+}
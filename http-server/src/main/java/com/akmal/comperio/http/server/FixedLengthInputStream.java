@@ -0,0 +1,66 @@
+package com.akmal.comperio.http.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import net.jcip.annotations.NotThreadSafe;
+
+/**
+ * Body of a request framed by the Content-Length header, the end of the stream is reported once the declared number of bytes has been read.
+ */
+@NotThreadSafe
+final class FixedLengthInputStream extends RequestBodyInputStream {
+  private final InputStream in;
+  private long remaining;
+
+  FixedLengthInputStream(InputStream in, long length) {
+    this.in = in;
+    this.remaining = length;
+  }
+
+  @Override
+  public int read() throws IOException {
+    if (this.remaining == 0) return -1;
+
+    final int b = this.in.read();
+    if (b != -1 && --this.remaining == 0) this.completed();
+    return b;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (len == 0) return 0;
+    if (this.remaining == 0) return -1;
+
+    final int read = this.in.read(b, off, (int) Math.min(len, this.remaining));
+    if (read > 0 && (this.remaining -= read) == 0) this.completed();
+    return read;
+  }
+
+  @Override
+  public int available() throws IOException {
+    return (int) Math.min(this.in.available(), this.remaining);
+  }
+
+  @Override
+  boolean isComplete() {
+    return this.remaining == 0;
+  }
+
+  @Override
+  boolean drain() throws IOException {
+    while (this.remaining > 0) {
+      final long skipped = this.in.skip(this.remaining);
+
+      if (skipped > 0) {
+        this.remaining -= skipped;
+      } else if (this.in.read() == -1) {
+        return false;
+      } else {
+        this.remaining--;
+      }
+    }
+
+    this.completed();
+    return true;
+  }
+}
@@ -0,0 +1,721 @@
+package com.akmal.comperio.http.server;
+
+import static com.akmal.comperio.http.server.Http2Framing.CONTINUATION;
+import static com.akmal.comperio.http.server.Http2Framing.DATA;
+import static com.akmal.comperio.http.server.Http2Framing.DEFAULT_MAX_FRAME_SIZE;
+import static com.akmal.comperio.http.server.Http2Framing.DEFAULT_WINDOW_SIZE;
+import static com.akmal.comperio.http.server.Http2Framing.FLAG_ACK;
+import static com.akmal.comperio.http.server.Http2Framing.FLAG_END_HEADERS;
+import static com.akmal.comperio.http.server.Http2Framing.FLAG_END_STREAM;
+import static com.akmal.comperio.http.server.Http2Framing.FLAG_PADDED;
+import static com.akmal.comperio.http.server.Http2Framing.FLAG_PRIORITY;
+import static com.akmal.comperio.http.server.Http2Framing.FLOW_CONTROL_ERROR;
+import static com.akmal.comperio.http.server.Http2Framing.FRAME_HEADER_BYTES;
+import static com.akmal.comperio.http.server.Http2Framing.FRAME_SIZE_ERROR;
+import static com.akmal.comperio.http.server.Http2Framing.GOAWAY;
+import static com.akmal.comperio.http.server.Http2Framing.HEADERS;
+import static com.akmal.comperio.http.server.Http2Framing.MAX_WINDOW_SIZE;
+import static com.akmal.comperio.http.server.Http2Framing.PING;
+import static com.akmal.comperio.http.server.Http2Framing.PRIORITY;
+import static com.akmal.comperio.http.server.Http2Framing.PROTOCOL_ERROR;
+import static com.akmal.comperio.http.server.Http2Framing.PUSH_PROMISE;
+import static com.akmal.comperio.http.server.Http2Framing.REFUSED_STREAM;
+import static com.akmal.comperio.http.server.Http2Framing.RST_STREAM;
+import static com.akmal.comperio.http.server.Http2Framing.SETTINGS;
+import static com.akmal.comperio.http.server.Http2Framing.WINDOW_UPDATE;
+
+import com.akmal.comperio.http.HttpProtocol;
+import com.akmal.comperio.http.buffer.BufferPool;
+import com.akmal.comperio.http.buffer.ByteBufferOutputStream;
+import com.akmal.comperio.http.hpack.HpackDecoder;
+import com.akmal.comperio.http.hpack.HpackEncoder;
+import com.akmal.comperio.http.hpack.HpackException;
+import com.akmal.comperio.http.parser.request.ParsedHttpRequestDetails;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import net.jcip.annotations.ThreadSafe;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * HTTP/2 connection over cleartext TCP (h2c) of the {@link ServerEngine#BLOCKING} engine, taken over from the {@link HttpSocketHandler}
+ * once the protocol is negotiated. The thread of the connection reads the frames, every request becomes a {@link Http2Stream}
+ * dispatched on its own task of the executor through the same {@link RequestDispatcher} as HTTP/1.1, so that the requests of
+ * the connection are served concurrently and a slow handler does not hold up the others.
+ * The frames are written by the handler threads under the write lock, which also guards the HPACK encoder, since the header blocks
+ * have to reach the peer in the order they are encoded. The DATA frames respect the flow control windows of the connection
+ * and of the stream announced by the peer, the writer waits for the WINDOW_UPDATE up to the idle timeout. The receiving windows
+ * stay at the default 65 535 bytes: the connection window is reopened as the DATA frames arrive, the window of the stream as
+ * the handler consumes the body, which bounds the memory of the request bodies by the window per stream.
+ * The server does not push, ignores the priorities and limits the concurrent streams, the streams over the limit of the connection
+ * or over the limit of the requests in flight are refused with REFUSED_STREAM, which tells the client the request is safe to retry.
+ * The connection deadline is the idle timeout while there are no streams and is off while there are some, the reads of the request
+ * body and the writes of the response time out on their own.
+ */
+@ThreadSafe
+final class Http2Connection {
+  static final int MAX_CONCURRENT_STREAMS = 100;
+
+  private static final Logger log = LoggerFactory.getLogger(Http2Connection.class);
+
+  private final InputStream in;
+  private final OutputStream out;
+  private final InetAddress remoteAddress;
+  private final RequestDispatcher dispatcher;
+  private final Executor executor;
+  private final BufferPool bufferPool;
+  private final long maxBodyBytes;
+  private final ConnectionTimeouts timeouts;
+  private final DeadlineTimer.Deadline deadline;
+  private final AdmissionControl admission;
+
+  private final Map<Integer, Http2Stream> streams = new ConcurrentHashMap<>();
+  private final ReentrantLock deadlineLock = new ReentrantLock();
+
+  // confined to the thread of the connection
+  private final HpackDecoder decoder = new HpackDecoder();
+  private final byte[] frameHeader = new byte[FRAME_HEADER_BYTES];
+  private int lastStreamId;
+  private int receiveWindow = DEFAULT_WINDOW_SIZE;
+  private boolean goingAway;
+  private ByteBufferOutputStream headerBlock;
+  private int headerBlockStream;
+  private boolean headerBlockEndStream;
+
+  // guarded by the write lock
+  private final ReentrantLock writeLock = new ReentrantLock();
+  private final Condition windowOpened = this.writeLock.newCondition();
+  private final HpackEncoder encoder = new HpackEncoder();
+  private final byte[] outputHeader = new byte[FRAME_HEADER_BYTES];
+  private byte[] copyBuffer;
+  private int sendWindow = DEFAULT_WINDOW_SIZE;
+  private int peerInitialWindow = DEFAULT_WINDOW_SIZE;
+  private int peerMaxFrameSize = DEFAULT_MAX_FRAME_SIZE;
+  private boolean closed;
+
+  /**
+   * @param in buffered stream of the connection positioned after the preface of the prior knowledge or after the upgrade request.
+   * @param out buffered stream of the connection.
+   * @param deadline of the connection, the caller arms the header deadline before the preface.
+   */
+  Http2Connection(InputStream in, OutputStream out, InetAddress remoteAddress, RequestDispatcher dispatcher, Executor executor,
+      BufferPool bufferPool, long maxBodyBytes, ConnectionTimeouts timeouts, DeadlineTimer.Deadline deadline, AdmissionControl admission) {
+    this.in = in;
+    this.out = out;
+    this.remoteAddress = remoteAddress;
+    this.dispatcher = dispatcher;
+    this.executor = executor;
+    this.bufferPool = bufferPool;
+    this.maxBodyBytes = maxBodyBytes;
+    this.timeouts = timeouts;
+    this.deadline = deadline;
+    this.admission = admission;
+  }
+
+  /**
+   * Serves the connection until the peer closes it or violates the protocol, which is answered with GOAWAY.
+   *
+   * @param upgradeRequest request that asked for the upgrade, it becomes the stream 1 (RFC 7540 3.2), or null for the prior knowledge.
+   */
+  void serve(@Nullable ParsedHttpRequestDetails upgradeRequest) throws IOException {
+    final ByteBuffer frame = this.bufferPool.acquire(DEFAULT_MAX_FRAME_SIZE);
+
+    try {
+      this.writeSettings();
+
+      if (upgradeRequest != null) {
+        this.applySettings(Http2Framing.upgradeSettings(upgradeRequest)); // acknowledged by the 101 response
+        if (!Http2Framing.readPreface(this.in)) throw Http2Exception.connectionError(PROTOCOL_ERROR, "Missing connection preface");
+
+        this.lastStreamId = 1;
+        this.openStream(1, new ParsedHttpRequestDetails(upgradeRequest.method(), HttpProtocol.HTTP_V2, upgradeRequest.path(),
+            upgradeRequest.headers(), upgradeRequest.queryParams()), null, true);
+      }
+
+      this.readFrames(frame);
+    } catch (Http2Exception ex) {
+      log.debug("Closing HTTP/2 connection with error {}: {}", ex.errorCode(), ex.getMessage());
+      this.writeGoAway(ex.errorCode(), ex.getMessage());
+    } finally {
+      this.close();
+      if (this.headerBlock != null) this.headerBlock.release();
+      this.bufferPool.release(frame);
+    }
+  }
+
+  private void readFrames(ByteBuffer frame) throws IOException {
+    boolean settingsReceived = false;
+
+    while (true) {
+      if (settingsReceived) this.updateDeadline();
+
+      final int first = this.in.read();
+      if (first == -1) return;
+
+      this.frameHeader[0] = (byte) first;
+      if (this.in.readNBytes(this.frameHeader, 1, FRAME_HEADER_BYTES - 1) < FRAME_HEADER_BYTES - 1) return;
+
+      final int length = (this.frameHeader[0] & 0xff) << 16 | (this.frameHeader[1] & 0xff) << 8 | this.frameHeader[2] & 0xff;
+      final int type = this.frameHeader[3] & 0xff;
+      final int flags = this.frameHeader[4] & 0xff;
+      final int streamId = ((this.frameHeader[5] & 0x7f) << 24 | (this.frameHeader[6] & 0xff) << 16
+                                | (this.frameHeader[7] & 0xff) << 8 | this.frameHeader[8] & 0xff);
+
+      if (length > DEFAULT_MAX_FRAME_SIZE) throw Http2Exception.connectionError(FRAME_SIZE_ERROR, "Frame exceeds the maximum size");
+
+      frame.clear();
+      Http2Framing.readFully(this.in, frame, length);
+      frame.flip();
+
+      if (!settingsReceived && type != SETTINGS) throw Http2Exception.connectionError(PROTOCOL_ERROR, "Preface must be followed by SETTINGS");
+      if (this.headerBlockStream != 0 && (type != CONTINUATION || streamId != this.headerBlockStream)) {
+        throw Http2Exception.connectionError(PROTOCOL_ERROR, "Header block interrupted");
+      }
+
+      try {
+        switch (type) {
+          case DATA -> this.onData(streamId, flags, frame);
+          case HEADERS -> this.onHeaders(streamId, flags, frame);
+          case PRIORITY -> this.onPriority(streamId, frame);
+          case RST_STREAM -> this.onRstStream(streamId, frame);
+          case SETTINGS -> {
+            this.onSettings(streamId, flags, frame);
+            settingsReceived = true;
+          }
+          case PUSH_PROMISE -> throw Http2Exception.connectionError(PROTOCOL_ERROR, "Client cannot push");
+          case PING -> this.onPing(streamId, flags, frame);
+          case GOAWAY -> this.onGoAway(streamId);
+          case WINDOW_UPDATE -> this.onWindowUpdate(streamId, frame);
+          case CONTINUATION -> this.onContinuation(streamId, flags, frame);
+          default -> {
+            // unknown frame types are ignored (RFC 9113 4.1)
+          }
+        }
+      } catch (Http2Exception ex) {
+        if (ex.streamId() == 0) throw ex;
+
+        log.debug("Resetting HTTP/2 stream {} with error {}: {}", ex.streamId(), ex.errorCode(), ex.getMessage());
+        this.resetStream(ex.streamId(), ex.errorCode());
+      }
+    }
+  }
+
+  private void onData(int streamId, int flags, ByteBuffer payload) throws IOException {
+    if (streamId == 0) throw Http2Exception.connectionError(PROTOCOL_ERROR, "DATA on the stream 0");
+
+    final int length = payload.remaining(); // the padding counts against the window as well
+    this.receiveWindow -= length;
+    if (this.receiveWindow < 0) throw Http2Exception.connectionError(FLOW_CONTROL_ERROR, "Connection window exceeded");
+
+    if (this.receiveWindow <= DEFAULT_WINDOW_SIZE / 2) {
+      this.writeWindowUpdate(0, DEFAULT_WINDOW_SIZE - this.receiveWindow);
+      this.receiveWindow = DEFAULT_WINDOW_SIZE;
+    }
+
+    unpad(flags, payload);
+    final Http2Stream stream = this.streams.get(streamId);
+
+    if (stream == null) {
+      if (streamId > this.lastStreamId) throw Http2Exception.connectionError(PROTOCOL_ERROR, "DATA on the idle stream");
+      return; // the stream is already reset or complete, the rest of its body is dropped
+    }
+
+    stream.receive(payload, (flags & FLAG_END_STREAM) != 0);
+  }
+
+  private void onHeaders(int streamId, int flags, ByteBuffer payload) throws IOException {
+    if (streamId == 0) throw Http2Exception.connectionError(PROTOCOL_ERROR, "HEADERS on the stream 0");
+
+    unpad(flags, payload);
+
+    if ((flags & FLAG_PRIORITY) != 0) {
+      if (payload.remaining() < 5) throw Http2Exception.connectionError(FRAME_SIZE_ERROR, "Truncated priority");
+      payload.position(payload.position() + 5);
+    }
+
+    this.headerBlock = new ByteBufferOutputStream(this.bufferPool, Math.max(payload.remaining(), 256));
+    this.headerBlockStream = streamId;
+    this.headerBlockEndStream = (flags & FLAG_END_STREAM) != 0;
+    this.appendHeaderBlock(flags, payload);
+  }
+
+  private void onContinuation(int streamId, int flags, ByteBuffer payload) throws IOException {
+    if (this.headerBlockStream == 0) throw Http2Exception.connectionError(PROTOCOL_ERROR, "CONTINUATION without HEADERS");
+    this.appendHeaderBlock(flags, payload);
+  }
+
+  private void appendHeaderBlock(int flags, ByteBuffer fragment) throws IOException {
+    if (this.headerBlock.size() + fragment.remaining() > HttpFraming.MAX_HEAD_BYTES) {
+      throw Http2Exception.connectionError(Http2Framing.ENHANCE_YOUR_CALM, "Header block is too large");
+    }
+
+    this.headerBlock.write(fragment);
+    if ((flags & FLAG_END_HEADERS) != 0) this.completeHeaderBlock();
+  }
+
+  /**
+   * Decodes the complete header block, every block has to be decoded to keep the dynamic table in sync, even when the stream
+   * is refused afterwards. The block of the open stream is the trailer section, which ends the request body.
+   */
+  private void completeHeaderBlock() throws IOException {
+    final int streamId = this.headerBlockStream;
+    final boolean endStream = this.headerBlockEndStream;
+    final var head = new Http2RequestHead(streamId);
+
+    try {
+      this.decoder.decode(this.headerBlock.content(), head);
+    } catch (HpackException ex) {
+      throw Http2Exception.connectionError(Http2Framing.COMPRESSION_ERROR, ex.getMessage());
+    } finally {
+      this.headerBlock.release();
+      this.headerBlock = null;
+      this.headerBlockStream = 0;
+    }
+
+    final Http2Stream stream = this.streams.get(streamId);
+
+    if (stream != null) {
+      if (!endStream) throw Http2Exception.streamError(streamId, PROTOCOL_ERROR, "Trailers without END_STREAM");
+      stream.endRequest();
+      return;
+    }
+
+    if (streamId % 2 == 0) throw Http2Exception.connectionError(PROTOCOL_ERROR, "Client stream with the even identifier");
+    if (streamId <= this.lastStreamId) return; // trailers of the stream that is already complete
+
+    this.lastStreamId = streamId;
+    if (this.goingAway || this.streams.size() >= MAX_CONCURRENT_STREAMS) {
+      throw Http2Exception.streamError(streamId, REFUSED_STREAM, "Too many concurrent streams");
+    }
+
+    ParsedHttpRequestDetails requestDetails = null;
+    RuntimeException failure = null;
+
+    try {
+      requestDetails = head.toRequestDetails();
+    } catch (RuntimeException ex) {
+      failure = ex; // the well-formed request the server cannot serve, e.g. the unknown method, is answered by the exception handler
+    }
+
+    this.openStream(streamId, requestDetails, failure, endStream);
+  }
+
+  private void openStream(int streamId, @Nullable ParsedHttpRequestDetails requestDetails, @Nullable RuntimeException failure,
+      boolean endStream) throws Http2Exception {
+    if (!this.admission.tryAcquireRequest()) throw Http2Exception.streamError(streamId, REFUSED_STREAM, "Too many requests in flight");
+
+    final Http2Stream stream;
+    this.writeLock.lock();
+    try {
+      // the initial window is read and the stream is registered atomically with respect to SETTINGS, which adjust the windows
+      stream = new Http2Stream(streamId, this, this.peerInitialWindow, this.bufferPool, this.maxBodyBytes,
+          this.timeouts.bodyMillis(), endStream);
+      this.streams.put(streamId, stream);
+    } finally {
+      this.writeLock.unlock();
+    }
+
+    try {
+      this.executor.execute(() -> this.exchange(stream, requestDetails, failure));
+    } catch (RejectedExecutionException e) {
+      this.streams.remove(streamId);
+      this.admission.releaseRequest();
+      stream.release();
+      throw Http2Exception.streamError(streamId, REFUSED_STREAM, "Request rejected by the executor");
+    }
+  }
+
+  /**
+   * Runs on the executor, the stream is closed once the handler is done: the incomplete response is reset and the client is told
+   * to stop sending the request body that is no longer needed.
+   */
+  private void exchange(Http2Stream stream, @Nullable ParsedHttpRequestDetails requestDetails, @Nullable RuntimeException failure) {
+    try {
+      if (failure == null) {
+        try {
+          HttpFraming.contentLength(requestDetails, this.maxBodyBytes);
+        } catch (RuntimeException ex) {
+          failure = ex;
+        }
+      }
+
+      if (failure != null) this.dispatcher.handleFailure(failure, stream);
+      else this.dispatcher.dispatch(requestDetails, this.remoteAddress, stream.body(), stream, true);
+    } catch (IOException e) {
+      if (!stream.isReset()) log.debug("Failed to complete the response of HTTP/2 stream {}", stream.id(), e);
+    } catch (RuntimeException e) {
+      log.error("Failed to render the failure of HTTP/2 stream {}", stream.id(), e);
+    } finally {
+      this.streams.remove(stream.id());
+      this.admission.releaseRequest();
+
+      try {
+        if (!stream.isReset() && !stream.isResponseComplete()) this.resetStream(stream.id(), Http2Framing.INTERNAL_ERROR);
+        else if (!stream.isReset() && !stream.isRequestComplete()) this.resetStream(stream.id(), Http2Framing.NO_ERROR);
+      } catch (IOException consumed) {
+        // the connection is gone
+      }
+
+      stream.release();
+      this.updateDeadline();
+    }
+  }
+
+  private void onPriority(int streamId, ByteBuffer payload) throws Http2Exception {
+    if (streamId == 0) throw Http2Exception.connectionError(PROTOCOL_ERROR, "PRIORITY on the stream 0");
+    if (payload.remaining() != 5) throw Http2Exception.streamError(streamId, FRAME_SIZE_ERROR, "Malformed PRIORITY");
+  }
+
+  private void onRstStream(int streamId, ByteBuffer payload) throws IOException {
+    if (streamId == 0) throw Http2Exception.connectionError(PROTOCOL_ERROR, "RST_STREAM on the stream 0");
+    if (payload.remaining() != 4) throw Http2Exception.connectionError(FRAME_SIZE_ERROR, "Malformed RST_STREAM");
+    if (streamId > this.lastStreamId) throw Http2Exception.connectionError(PROTOCOL_ERROR, "RST_STREAM on the idle stream");
+
+    final Http2Stream stream = this.streams.get(streamId);
+    if (stream == null) return;
+
+    stream.reset("Stream reset by the peer with error " + payload.getInt());
+    this.signalWindow(); // wakes up the writer of the stream
+  }
+
+  private void onSettings(int streamId, int flags, ByteBuffer payload) throws IOException {
+    if (streamId != 0) throw Http2Exception.connectionError(PROTOCOL_ERROR, "SETTINGS on the stream " + streamId);
+
+    if ((flags & FLAG_ACK) != 0) {
+      if (payload.hasRemaining()) throw Http2Exception.connectionError(FRAME_SIZE_ERROR, "SETTINGS acknowledgement with payload");
+      return;
+    }
+
+    if (payload.remaining() % 6 != 0) throw Http2Exception.connectionError(FRAME_SIZE_ERROR, "Malformed SETTINGS");
+
+    this.applySettings(payload);
+    this.writeFrame(SETTINGS, FLAG_ACK, 0, null);
+  }
+
+  private void applySettings(ByteBuffer payload) throws Http2Exception {
+    this.writeLock.lock();
+    try {
+      while (payload.remaining() >= 6) {
+        final int id = payload.getShort() & 0xffff;
+        final long value = payload.getInt() & 0xffffffffL;
+
+        switch (id) {
+          case Http2Framing.SETTINGS_HEADER_TABLE_SIZE -> this.encoder.setMaxTableSize((int) Math.min(value, HpackDecoder.DEFAULT_TABLE_SIZE));
+          case Http2Framing.SETTINGS_ENABLE_PUSH -> {
+            if (value > 1) throw Http2Exception.connectionError(PROTOCOL_ERROR, "Invalid SETTINGS_ENABLE_PUSH");
+          }
+          case Http2Framing.SETTINGS_INITIAL_WINDOW_SIZE -> {
+            if (value > MAX_WINDOW_SIZE) throw Http2Exception.connectionError(FLOW_CONTROL_ERROR, "Invalid SETTINGS_INITIAL_WINDOW_SIZE");
+
+            final int delta = (int) value - this.peerInitialWindow;
+            this.peerInitialWindow = (int) value;
+
+            for (Http2Stream stream: this.streams.values()) {
+              if ((long) stream.sendWindow + delta > MAX_WINDOW_SIZE) {
+                throw Http2Exception.connectionError(FLOW_CONTROL_ERROR, "Stream window overflow");
+              }
+              stream.sendWindow += delta;
+            }
+            this.windowOpened.signalAll();
+          }
+          case Http2Framing.SETTINGS_MAX_FRAME_SIZE -> {
+            if (value < DEFAULT_MAX_FRAME_SIZE || value > Http2Framing.MAX_FRAME_SIZE_LIMIT) {
+              throw Http2Exception.connectionError(PROTOCOL_ERROR, "Invalid SETTINGS_MAX_FRAME_SIZE");
+            }
+            this.peerMaxFrameSize = (int) value;
+          }
+          default -> {
+            // the limit of the concurrent streams applies to the pushed streams only, the header list size is advisory
+          }
+        }
+      }
+    } finally {
+      this.writeLock.unlock();
+    }
+  }
+
+  private void onPing(int streamId, int flags, ByteBuffer payload) throws IOException {
+    if (streamId != 0) throw Http2Exception.connectionError(PROTOCOL_ERROR, "PING on the stream " + streamId);
+    if (payload.remaining() != 8) throw Http2Exception.connectionError(FRAME_SIZE_ERROR, "Malformed PING");
+
+    if ((flags & FLAG_ACK) == 0) this.writeFrame(PING, FLAG_ACK, 0, payload);
+  }
+
+  /**
+   * The peer is not going to open new streams, the streams in flight are completed.
+   */
+  private void onGoAway(int streamId) throws Http2Exception {
+    if (streamId != 0) throw Http2Exception.connectionError(PROTOCOL_ERROR, "GOAWAY on the stream " + streamId);
+    this.goingAway = true;
+  }
+
+  private void onWindowUpdate(int streamId, ByteBuffer payload) throws Http2Exception {
+    if (payload.remaining() != 4) throw Http2Exception.connectionError(FRAME_SIZE_ERROR, "Malformed WINDOW_UPDATE");
+
+    final int increment = payload.getInt() & 0x7fffffff;
+    if (increment == 0) {
+      if (streamId == 0) throw Http2Exception.connectionError(PROTOCOL_ERROR, "Window increment 0");
+      throw Http2Exception.streamError(streamId, PROTOCOL_ERROR, "Window increment 0");
+    }
+
+    this.writeLock.lock();
+    try {
+      if (streamId == 0) {
+        if ((long) this.sendWindow + increment > MAX_WINDOW_SIZE) {
+          throw Http2Exception.connectionError(FLOW_CONTROL_ERROR, "Connection window overflow");
+        }
+        this.sendWindow += increment;
+      } else {
+        final Http2Stream stream = this.streams.get(streamId);
+        if (stream == null) return;
+
+        if ((long) stream.sendWindow + increment > MAX_WINDOW_SIZE) {
+          throw Http2Exception.streamError(streamId, FLOW_CONTROL_ERROR, "Stream window overflow");
+        }
+        stream.sendWindow += increment;
+      }
+
+      this.windowOpened.signalAll();
+    } finally {
+      this.writeLock.unlock();
+    }
+  }
+
+  /**
+   * Removes the padding of the PADDED frame, the payload is left positioned at the data.
+   */
+  private static void unpad(int flags, ByteBuffer payload) throws Http2Exception {
+    if ((flags & FLAG_PADDED) == 0) return;
+
+    if (!payload.hasRemaining()) throw Http2Exception.connectionError(PROTOCOL_ERROR, "Missing pad length");
+    final int padding = payload.get() & 0xff;
+
+    if (padding > payload.remaining()) throw Http2Exception.connectionError(PROTOCOL_ERROR, "Padding exceeds the payload");
+    payload.limit(payload.limit() - padding);
+  }
+
+  /**
+   * Arms the idle deadline while there are no streams and disarms it while there are some. Called by the thread of the connection
+   * before every frame and by the handlers once they are done with the stream, the lock makes the last caller's view win.
+   */
+  private void updateDeadline() {
+    this.deadlineLock.lock();
+    try {
+      if (this.streams.isEmpty()) this.deadline.arm(this.timeouts.idleMillis());
+      else this.deadline.disarm();
+    } finally {
+      this.deadlineLock.unlock();
+    }
+  }
+
+  /**
+   * Fails the streams in flight and the writers waiting for the window.
+   */
+  private void close() {
+    this.writeLock.lock();
+    try {
+      this.closed = true;
+      this.windowOpened.signalAll();
+    } finally {
+      this.writeLock.unlock();
+    }
+
+    for (Http2Stream stream: this.streams.values()) stream.reset("Connection closed");
+  }
+
+  // writing
+
+  /**
+   * Encodes the header fields and writes them as HEADERS followed by as many CONTINUATION frames as the maximum frame size
+   * of the peer requires, all under the lock, so that no other frame gets in between.
+   *
+   * @param fields names and values one after another, the names are lower case.
+   */
+  void writeHeaders(Http2Stream stream, List<String> fields, boolean endStream, boolean flush) throws IOException {
+    final var block = new ByteBufferOutputStream(this.bufferPool, 256);
+
+    this.writeLock.lock();
+    try {
+      this.ensureWritable(stream);
+      this.encoder.beginBlock(block);
+
+      for (int i = 0; i < fields.size(); i += 2) {
+        final String name = fields.get(i);
+        // the values that change with every response would only churn the dynamic table
+        this.encoder.encode(block, name, fields.get(i + 1), !name.equals("date") && !name.equals("content-length"));
+      }
+
+      final ByteBuffer content = block.content();
+      int type = HEADERS;
+      int flags = endStream ? FLAG_END_STREAM : 0;
+
+      do {
+        final int length = Math.min(content.remaining(), this.peerMaxFrameSize);
+        if (length == content.remaining()) flags |= FLAG_END_HEADERS;
+
+        this.writeFrameHeader(length, type, flags, stream.id());
+        this.writePayload(content, length);
+        type = CONTINUATION;
+        flags = 0;
+      } while (content.hasRemaining());
+
+      if (flush) this.out.flush();
+    } finally {
+      this.writeLock.unlock();
+      block.release();
+    }
+  }
+
+  /**
+   * Writes the data as the DATA frames as large as the windows and the maximum frame size of the peer allow, waits for the windows
+   * to open up to the idle timeout.
+   */
+  void writeData(Http2Stream stream, ByteBuffer data, boolean endStream) throws IOException {
+    if (!data.hasRemaining() && !endStream) return;
+
+    final long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(this.timeouts.idleMillis());
+
+    this.writeLock.lock();
+    try {
+      long remainingNanos = timeoutNanos;
+
+      do {
+        this.ensureWritable(stream);
+
+        final int window = Math.max(Math.min(stream.sendWindow, this.sendWindow), 0);
+        final int length = Math.min(data.remaining(), Math.min(window, this.peerMaxFrameSize));
+
+        if (length == 0 && data.hasRemaining()) {
+          this.out.flush(); // the peer opens the window once it sees what has been sent
+          if (remainingNanos <= 0) throw new IOException("Flow control window of the stream " + stream.id() + " was not opened in time");
+          remainingNanos = this.windowOpened.awaitNanos(remainingNanos);
+          continue;
+        }
+
+        final boolean last = length == data.remaining();
+        this.writeFrameHeader(length, DATA, endStream && last ? FLAG_END_STREAM : 0, stream.id());
+        this.writePayload(data, length);
+
+        stream.sendWindow -= length;
+        this.sendWindow -= length;
+        remainingNanos = timeoutNanos;
+      } while (data.hasRemaining());
+
+      this.out.flush();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for the flow control window");
+    } finally {
+      this.writeLock.unlock();
+    }
+  }
+
+  void writeWindowUpdate(int streamId, int increment) throws IOException {
+    this.writeFrame(WINDOW_UPDATE, 0, streamId, ByteBuffer.allocate(4).putInt(0, increment));
+  }
+
+  private void resetStream(int streamId, int errorCode) throws IOException {
+    final Http2Stream stream = this.streams.get(streamId);
+    if (stream != null) stream.reset("Stream reset with error " + errorCode);
+
+    this.writeFrame(RST_STREAM, 0, streamId, ByteBuffer.allocate(4).putInt(0, errorCode));
+  }
+
+  private void writeSettings() throws IOException {
+    final ByteBuffer settings = ByteBuffer.allocate(12)
+                                    .putShort((short) Http2Framing.SETTINGS_MAX_CONCURRENT_STREAMS).putInt(MAX_CONCURRENT_STREAMS)
+                                    .putShort((short) Http2Framing.SETTINGS_MAX_HEADER_LIST_SIZE).putInt(HttpFraming.MAX_HEAD_BYTES)
+                                    .flip();
+    this.writeFrame(SETTINGS, 0, 0, settings);
+  }
+
+  private void writeGoAway(int errorCode, String message) {
+    final byte[] debugData = message == null ? new byte[0] : message.getBytes(StandardCharsets.UTF_8);
+    final ByteBuffer payload = ByteBuffer.allocate(8 + debugData.length).putInt(this.lastStreamId).putInt(errorCode).put(debugData).flip();
+
+    try {
+      this.writeFrame(GOAWAY, 0, 0, payload);
+    } catch (IOException consumed) {
+      // the connection is closed right after anyway
+    }
+  }
+
+  /**
+   * Writes and flushes the control frame.
+   */
+  private void writeFrame(int type, int flags, int streamId, @Nullable ByteBuffer payload) throws IOException {
+    this.writeLock.lock();
+    try {
+      if (this.closed) throw new IOException("Connection is closed");
+
+      final int length = payload == null ? 0 : payload.remaining();
+      this.writeFrameHeader(length, type, flags, streamId);
+      if (payload != null) this.writePayload(payload, length);
+      this.out.flush();
+    } finally {
+      this.writeLock.unlock();
+    }
+  }
+
+  private void ensureWritable(Http2Stream stream) throws IOException {
+    if (this.closed) throw new IOException("Connection is closed");
+    if (stream.isReset()) throw new IOException("Stream " + stream.id() + " was reset");
+  }
+
+  private void writeFrameHeader(int length, int type, int flags, int streamId) throws IOException {
+    final byte[] header = this.outputHeader;
+    header[0] = (byte) (length >>> 16);
+    header[1] = (byte) (length >>> 8);
+    header[2] = (byte) length;
+    header[3] = (byte) type;
+    header[4] = (byte) flags;
+    header[5] = (byte) (streamId >>> 24 & 0x7f);
+    header[6] = (byte) (streamId >>> 16);
+    header[7] = (byte) (streamId >>> 8);
+    header[8] = (byte) streamId;
+    this.out.write(header);
+  }
+
+  /**
+   * Copies the bytes of the buffer to the stream, directly from the backing array when it is accessible.
+   */
+  private void writePayload(ByteBuffer source, int length) throws IOException {
+    if (source.hasArray()) {
+      this.out.write(source.array(), source.arrayOffset() + source.position(), length);
+      source.position(source.position() + length);
+      return;
+    }
+
+    if (this.copyBuffer == null) this.copyBuffer = new byte[DEFAULT_MAX_FRAME_SIZE];
+
+    while (length > 0) {
+      final int chunk = Math.min(length, this.copyBuffer.length);
+      source.get(this.copyBuffer, 0, chunk);
+      this.out.write(this.copyBuffer, 0, chunk);
+      length -= chunk;
+    }
+  }
+
+  private void signalWindow() {
+    this.writeLock.lock();
+    try {
+      this.windowOpened.signalAll();
+    } finally {
+      this.writeLock.unlock();
+    }
+  }
+}
@@ -0,0 +1,37 @@
+package com.akmal.comperio.http.server;
+
+import java.io.IOException;
+
+/**
+ * Violation of HTTP/2 by the peer (RFC 9113 5.4). The connection error is answered with GOAWAY and closes the connection,
+ * the stream error is answered with RST_STREAM and affects the stream only.
+ */
+final class Http2Exception extends IOException {
+  private final int streamId;
+  private final int errorCode;
+
+  private Http2Exception(int streamId, int errorCode, String message) {
+    super(message);
+    this.streamId = streamId;
+    this.errorCode = errorCode;
+  }
+
+  static Http2Exception connectionError(int errorCode, String message) {
+    return new Http2Exception(0, errorCode, message);
+  }
+
+  static Http2Exception streamError(int streamId, int errorCode, String message) {
+    return new Http2Exception(streamId, errorCode, message);
+  }
+
+  /**
+   * Returns the stream the error is limited to, 0 for the connection error.
+   */
+  int streamId() {
+    return this.streamId;
+  }
+
+  int errorCode() {
+    return this.errorCode;
+  }
+}
@@ -0,0 +1,142 @@
+package com.akmal.comperio.http.server;
+
+import com.akmal.comperio.http.HttpHeaders;
+import com.akmal.comperio.http.parser.request.ParsedHttpRequestDetails;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Locale;
+
+/**
+ * Framing rules of HTTP/2 over cleartext TCP (h2c): the frame layout and its constants (RFC 9113 4, 6, 7), the connection preface
+ * of the client and the negotiation of the protocol either by the prior knowledge or by the HTTP/1.1 Upgrade (RFC 7540 3.2).
+ */
+final class Http2Framing {
+  static final int FRAME_HEADER_BYTES = 9;
+  static final int DEFAULT_MAX_FRAME_SIZE = 16_384;
+  static final int MAX_FRAME_SIZE_LIMIT = 16_777_215;
+  static final int DEFAULT_WINDOW_SIZE = 65_535;
+  static final int MAX_WINDOW_SIZE = Integer.MAX_VALUE;
+
+  static final int DATA = 0x0;
+  static final int HEADERS = 0x1;
+  static final int PRIORITY = 0x2;
+  static final int RST_STREAM = 0x3;
+  static final int SETTINGS = 0x4;
+  static final int PUSH_PROMISE = 0x5;
+  static final int PING = 0x6;
+  static final int GOAWAY = 0x7;
+  static final int WINDOW_UPDATE = 0x8;
+  static final int CONTINUATION = 0x9;
+
+  static final int FLAG_END_STREAM = 0x1;
+  static final int FLAG_ACK = 0x1;
+  static final int FLAG_END_HEADERS = 0x4;
+  static final int FLAG_PADDED = 0x8;
+  static final int FLAG_PRIORITY = 0x20;
+
+  static final int SETTINGS_HEADER_TABLE_SIZE = 0x1;
+  static final int SETTINGS_ENABLE_PUSH = 0x2;
+  static final int SETTINGS_MAX_CONCURRENT_STREAMS = 0x3;
+  static final int SETTINGS_INITIAL_WINDOW_SIZE = 0x4;
+  static final int SETTINGS_MAX_FRAME_SIZE = 0x5;
+  static final int SETTINGS_MAX_HEADER_LIST_SIZE = 0x6;
+
+  static final int NO_ERROR = 0x0;
+  static final int PROTOCOL_ERROR = 0x1;
+  static final int INTERNAL_ERROR = 0x2;
+  static final int FLOW_CONTROL_ERROR = 0x3;
+  static final int STREAM_CLOSED = 0x5;
+  static final int FRAME_SIZE_ERROR = 0x6;
+  static final int REFUSED_STREAM = 0x7;
+  static final int CANCEL = 0x8;
+  static final int COMPRESSION_ERROR = 0x9;
+  static final int ENHANCE_YOUR_CALM = 0xb;
+
+  static final byte[] SWITCHING_PROTOCOLS = ascii("HTTP/1.1 101 Switching Protocols\r\nConnection: Upgrade\r\nUpgrade: h2c\r\n\r\n");
+
+  private static final byte[] PREFACE = ascii("PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n");
+
+  private Http2Framing() {}
+
+  /**
+   * Consumes the connection preface of the client when the connection starts with it, otherwise the stream is left untouched.
+   * The bytes are compared one by one, so that a short HTTP/1.1 request does not block the check.
+   *
+   * @param in stream of the connection that supports the mark.
+   * @return whether the preface was consumed.
+   */
+  static boolean readPreface(InputStream in) throws IOException {
+    in.mark(PREFACE.length);
+
+    for (byte expected: PREFACE) {
+      if (in.read() != expected) {
+        in.reset();
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Returns whether the client asks to switch to h2c (RFC 7540 3.2). The upgrade is accepted only for the requests without a body,
+   * the body would have to be read in full before the switch, the others are served over HTTP/1.1, which the client has to accept.
+   */
+  static boolean isUpgrade(ParsedHttpRequestDetails requestDetails) {
+    final String upgrade = requestDetails.headers().get(HttpHeaders.UPGRADE);
+    final String connection = requestDetails.headers().get(HttpHeaders.CONNECTION);
+
+    return upgrade != null && upgrade.trim().equalsIgnoreCase("h2c")
+               && connection != null && connection.toLowerCase(Locale.ROOT).contains("http2-settings")
+               && requestDetails.headers().get(HttpHeaders.HTTP2_SETTINGS) != null
+               && !requestDetails.headers().contains(HttpHeaders.CONTENT_LENGTH)
+               && !requestDetails.headers().contains(HttpHeaders.TRANSFER_ENCODING);
+  }
+
+  /**
+   * Decodes the payload of the SETTINGS frame sent in the HTTP2-Settings header of the upgrade request.
+   *
+   * @throws Http2Exception when the header is not the valid base64url encoded payload.
+   */
+  static ByteBuffer upgradeSettings(ParsedHttpRequestDetails requestDetails) throws Http2Exception {
+    try {
+      final ByteBuffer payload = ByteBuffer.wrap(Base64.getUrlDecoder().decode(requestDetails.headers().get(HttpHeaders.HTTP2_SETTINGS).trim()));
+      if (payload.remaining() % 6 != 0) throw Http2Exception.connectionError(FRAME_SIZE_ERROR, "Malformed HTTP2-Settings header");
+
+      return payload;
+    } catch (IllegalArgumentException e) {
+      throw Http2Exception.connectionError(PROTOCOL_ERROR, "Malformed HTTP2-Settings header");
+    }
+  }
+
+  /**
+   * Reads exactly the given number of bytes into the buffer starting at its position.
+   *
+   * @throws EOFException when the stream ends first.
+   */
+  static void readFully(InputStream in, ByteBuffer buffer, int length) throws IOException {
+    if (buffer.hasArray()) {
+      final int read = in.readNBytes(buffer.array(), buffer.arrayOffset() + buffer.position(), length);
+      if (read < length) throw new EOFException("Connection closed in the middle of the frame");
+      buffer.position(buffer.position() + length);
+      return;
+    }
+
+    final var chunk = new byte[Math.min(length, 1024)];
+
+    while (length > 0) {
+      final int read = in.read(chunk, 0, Math.min(length, chunk.length));
+      if (read == -1) throw new EOFException("Connection closed in the middle of the frame");
+      buffer.put(chunk, 0, read);
+      length -= read;
+    }
+  }
+
+  private static byte[] ascii(String value) {
+    return value.getBytes(StandardCharsets.US_ASCII);
+  }
+}
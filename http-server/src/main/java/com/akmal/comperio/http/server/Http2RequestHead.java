@@ -0,0 +1,110 @@
+package com.akmal.comperio.http.server;
+
+import com.akmal.comperio.http.HttpHeaders;
+import com.akmal.comperio.http.HttpProtocol;
+import com.akmal.comperio.http.HttpStatus;
+import com.akmal.comperio.http.QueryParameters;
+import com.akmal.comperio.http.exception.http.MalformedRequestException;
+import com.akmal.comperio.http.exception.http.UnsupportedMethodException;
+import com.akmal.comperio.http.parser.request.ParsedHttpRequestDetails;
+import com.akmal.comperio.http.router.HttpMethod;
+import java.util.function.BiConsumer;
+import net.jcip.annotations.NotThreadSafe;
+
+/**
+ * Collects the decoded header fields of the HTTP/2 request and turns them into the same {@link ParsedHttpRequestDetails}
+ * the HTTP/1.x parsers produce, so that the router and the handlers do not see the difference. The pseudo-header fields
+ * carry the request line and :authority becomes the Host header, the lower case names are matched by the case-insensitive lookups.
+ * The violations of the message rules of RFC 9113 8.2 and 8.3 make the request malformed, which is the stream error.
+ */
+@NotThreadSafe
+final class Http2RequestHead implements BiConsumer<String, String> {
+  private final int streamId;
+  private final HttpHeaders headers = new HttpHeaders();
+  private String method;
+  private String scheme;
+  private String path;
+  private String authority;
+  private boolean regularSeen;
+  private String malformation;
+
+  Http2RequestHead(int streamId) {
+    this.streamId = streamId;
+  }
+
+  @Override
+  public void accept(String name, String value) {
+    if (name.startsWith(":")) {
+      if (this.regularSeen) this.malformed("Pseudo-header field after the regular ones");
+
+      switch (name) {
+        case ":method" -> this.method = this.unique(this.method, value);
+        case ":scheme" -> this.scheme = this.unique(this.scheme, value);
+        case ":path" -> this.path = this.unique(this.path, value);
+        case ":authority" -> this.authority = this.unique(this.authority, value);
+        default -> this.malformed("Unknown pseudo-header field " + name);
+      }
+      return;
+    }
+
+    this.regularSeen = true;
+
+    for (int i = 0; i < name.length(); i++) {
+      final char c = name.charAt(i);
+      if (c >= 'A' && c <= 'Z') this.malformed("Upper case header field name");
+    }
+
+    switch (name) {
+      case "connection", "keep-alive", "proxy-connection", "transfer-encoding", "upgrade" ->
+          this.malformed("Connection-specific header field " + name);
+      case "te" -> {
+        if (!value.equals("trailers")) this.malformed("TE header field other than trailers");
+      }
+      default -> {
+      }
+    }
+
+    final String previous = name.equals("cookie") ? this.headers.get(HttpHeaders.COOKIE) : null;
+    // the cookie may be split into several fields for the better compression (RFC 9113 8.2.3)
+    if (previous != null) this.headers.set(HttpHeaders.COOKIE, previous + "; " + value);
+    else this.headers.add(name, value);
+  }
+
+  /**
+   * Returns the request described by the fields.
+   *
+   * @throws Http2Exception when the fields violate the message rules.
+   * @throws UnsupportedMethodException when the method is not known, it is the valid request the server cannot serve.
+   */
+  ParsedHttpRequestDetails toRequestDetails() throws Http2Exception {
+    if (this.malformation != null) throw Http2Exception.streamError(this.streamId, Http2Framing.PROTOCOL_ERROR, this.malformation);
+    if (this.method == null || this.scheme == null || this.path == null || this.path.isEmpty()) {
+      throw Http2Exception.streamError(this.streamId, Http2Framing.PROTOCOL_ERROR, "Missing mandatory pseudo-header field");
+    }
+
+    final HttpMethod httpMethod = HttpMethod.fromString(this.method);
+    if (httpMethod == null) throw new UnsupportedMethodException(HttpStatus.NOT_IMPLEMENTED, "Unsupported HTTP method");
+
+    if (this.authority != null && !this.headers.contains(HttpHeaders.HOST)) this.headers.add(HttpHeaders.HOST, this.authority);
+
+    final int query = this.path.indexOf('?');
+    final String path = query == -1 ? this.path : this.path.substring(0, query);
+    final QueryParameters queryParams = query != -1 && query < this.path.length() - 1
+                                            ? QueryParameters.lazy(this.path.substring(query + 1))
+                                            : QueryParameters.empty();
+
+    return new ParsedHttpRequestDetails(httpMethod, HttpProtocol.HTTP_V2, path, this.headers, queryParams);
+  }
+
+  private String unique(String current, String value) {
+    if (current != null) this.malformed("Duplicate pseudo-header field");
+    return value;
+  }
+
+  /**
+   * Remembers the first violation, the block still has to be decoded in full to keep the dynamic table in sync.
+   */
+  private void malformed(String message) {
+    if (this.malformation == null) this.malformation = message;
+  }
+}
@@ -0,0 +1,379 @@
+package com.akmal.comperio.http.server;
+
+import com.akmal.comperio.http.HttpStatus;
+import com.akmal.comperio.http.buffer.BufferPool;
+import com.akmal.comperio.http.buffer.ByteBufferOutputStream;
+import com.akmal.comperio.http.exception.http.MalformedRequestException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import net.jcip.annotations.ThreadSafe;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Single request and response exchange multiplexed over the {@link Http2Connection}. The request body is received by the thread
+ * of the connection and read by the handler through {@link #body()}, the response is rendered by {@link HttpResponse} as usual and
+ * the stream as its {@link ResponseSink} translates the rendered head into the header fields and the body into DATA frames.
+ * The connection-specific headers of HTTP/1.1 (Connection, Transfer-Encoding) are dropped, HTTP/2 frames the messages itself.
+ */
+@ThreadSafe
+final class Http2Stream implements ResponseSink {
+  private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+  private final int id;
+  private final Http2Connection connection;
+  private final Body body;
+
+  /**
+   * Window of the peer for the DATA frames of this stream, guarded by the write lock of the connection.
+   */
+  int sendWindow;
+  private boolean headersSent;
+  private volatile boolean responseComplete;
+  private volatile boolean reset;
+
+  Http2Stream(int id, Http2Connection connection, int sendWindow, BufferPool bufferPool, long maxBodyBytes, int bodyTimeoutMillis,
+      boolean endStream) {
+    this.id = id;
+    this.connection = connection;
+    this.sendWindow = sendWindow;
+    this.body = new Body(bufferPool, maxBodyBytes, bodyTimeoutMillis, endStream);
+  }
+
+  int id() {
+    return this.id;
+  }
+
+  RequestBodyInputStream body() {
+    return this.body;
+  }
+
+  /**
+   * Returns whether the response has been sent completely, i.e. with END_STREAM.
+   */
+  boolean isResponseComplete() {
+    return this.responseComplete;
+  }
+
+  /**
+   * Returns whether the request has been received completely, i.e. with END_STREAM.
+   */
+  boolean isRequestComplete() {
+    return this.body.isEnded();
+  }
+
+  boolean isReset() {
+    return this.reset;
+  }
+
+  @Override
+  public void send(ByteBufferOutputStream head, @Nullable ByteBufferOutputStream body) throws IOException {
+    try {
+      final boolean empty = body == null || body.size() == 0;
+
+      this.sendHeaders(head.content(), empty, empty);
+      if (!empty) this.sendData(body.content(), true);
+    } finally {
+      head.release();
+      if (body != null) body.release();
+    }
+  }
+
+  /**
+   * The first write of the streamed response is its head, see {@link HttpResponse#getStreamingOutputStream()}.
+   */
+  @Override
+  public void write(ByteBuffer data) throws IOException {
+    if (!this.headersSent) {
+      this.sendHeaders(data, false, true);
+      data.position(data.limit());
+    } else {
+      this.sendData(data, false);
+    }
+  }
+
+  @Override
+  public void endStream() throws IOException {
+    this.sendData(EMPTY.duplicate(), true);
+  }
+
+  // connection side
+
+  /**
+   * Passes the payload of the DATA frame on to the request body.
+   *
+   * @throws Http2Exception when the peer exceeds the window of the stream.
+   */
+  void receive(ByteBuffer payload, boolean endStream) throws Http2Exception {
+    this.body.receive(payload);
+    if (endStream) this.body.end();
+  }
+
+  /**
+   * Marks the end of the request body, e.g. by the trailers.
+   */
+  void endRequest() {
+    this.body.end();
+  }
+
+  /**
+   * Stops the exchange, the pending reads of the body and the writes of the response fail.
+   */
+  void reset(String reason) {
+    this.reset = true;
+    this.body.fail(new IOException(reason));
+  }
+
+  /**
+   * Returns the buffer of the body to the pool once the handler is done with the stream.
+   */
+  void release() {
+    this.body.release();
+  }
+
+  /**
+   * @param flush whether the head is flushed right away, not when the DATA follow.
+   */
+  private void sendHeaders(ByteBuffer head, boolean endStream, boolean flush) throws IOException {
+    this.headersSent = true;
+    this.connection.writeHeaders(this, responseFields(head), endStream, flush);
+    if (endStream) this.responseComplete = true;
+  }
+
+  private void sendData(ByteBuffer data, boolean endStream) throws IOException {
+    this.connection.writeData(this, data, endStream);
+    if (endStream) this.responseComplete = true;
+  }
+
+  /**
+   * Translates the rendered HTTP/1.1 head into the header fields, the status line becomes :status and the names are lower cased.
+   *
+   * @return the names and the values one after another.
+   */
+  static List<String> responseFields(ByteBuffer head) {
+    final var fields = new ArrayList<String>();
+    final var line = new StringBuilder();
+    boolean statusLine = true;
+
+    for (int i = head.position(); i < head.limit(); i++) {
+      final char c = (char) (head.get(i) & 0xff);
+      if (c == '\r') continue;
+
+      if (c != '\n') {
+        line.append(c);
+        continue;
+      }
+
+      if (line.isEmpty()) break; // end of the head
+
+      if (statusLine) {
+        final int start = line.indexOf(" ") + 1;
+        fields.add(":status");
+        fields.add(line.substring(start, start + 3));
+        statusLine = false;
+      } else {
+        final int separator = line.indexOf(":");
+        final String name = line.substring(0, separator).trim().toLowerCase(Locale.ROOT);
+
+        if (!isConnectionSpecific(name)) {
+          fields.add(name);
+          fields.add(line.substring(separator + 1).trim());
+        }
+      }
+
+      line.setLength(0);
+    }
+
+    return fields;
+  }
+
+  private static boolean isConnectionSpecific(String name) {
+    return switch (name) {
+      case "connection", "keep-alive", "proxy-connection", "transfer-encoding", "upgrade" -> true;
+      default -> false;
+    };
+  }
+
+  /**
+   * Body of the request received by the connection. The DATA frames are copied into the buffer as large as the window
+   * of the stream, leased from the pool on the first frame, so that the peer that respects the flow control cannot overflow it.
+   * The window is reopened as the handler consumes the body, once the half of it is consumed.
+   */
+  private final class Body extends RequestBodyInputStream {
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition readable = this.lock.newCondition();
+    private final BufferPool bufferPool;
+    private final long maxBodyBytes;
+    private final long timeoutNanos;
+
+    private ByteBuffer buffer; // write mode, the data starts at the index 0
+    private long received;
+    private int unacknowledged;
+    private boolean ended;
+    private Exception failure;
+
+    Body(BufferPool bufferPool, long maxBodyBytes, int timeoutMillis, boolean ended) {
+      this.bufferPool = bufferPool;
+      this.maxBodyBytes = maxBodyBytes;
+      this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+      this.ended = ended;
+    }
+
+    void receive(ByteBuffer payload) throws Http2Exception {
+      final int length = payload.remaining();
+      if (length == 0) return;
+
+      this.lock.lock();
+      try {
+        if (this.ended) throw Http2Exception.streamError(Http2Stream.this.id, Http2Framing.STREAM_CLOSED, "DATA after the end of the stream");
+        if (this.failure != null) return; // the body is abandoned
+
+        this.received += length;
+
+        if (this.received > this.maxBodyBytes) {
+          this.failure = new MalformedRequestException(HttpStatus.PAYLOAD_TOO_LARGE, "Request body is too large");
+          this.releaseBuffer();
+        } else {
+          if (this.buffer == null) this.buffer = this.bufferPool.acquire(Http2Framing.DEFAULT_WINDOW_SIZE).clear();
+          if (this.buffer.position() + length > Http2Framing.DEFAULT_WINDOW_SIZE) {
+            throw Http2Exception.streamError(Http2Stream.this.id, Http2Framing.FLOW_CONTROL_ERROR, "Stream window exceeded");
+          }
+
+          this.buffer.put(payload);
+        }
+
+        this.readable.signalAll();
+      } finally {
+        this.lock.unlock();
+      }
+    }
+
+    void end() {
+      this.lock.lock();
+      try {
+        this.ended = true;
+        this.readable.signalAll();
+      } finally {
+        this.lock.unlock();
+      }
+    }
+
+    void fail(IOException cause) {
+      this.lock.lock();
+      try {
+        if (this.failure == null) this.failure = cause;
+        this.releaseBuffer();
+        this.readable.signalAll();
+      } finally {
+        this.lock.unlock();
+      }
+    }
+
+    void release() {
+      this.lock.lock();
+      try {
+        this.releaseBuffer();
+      } finally {
+        this.lock.unlock();
+      }
+    }
+
+    boolean isEnded() {
+      this.lock.lock();
+      try {
+        return this.ended;
+      } finally {
+        this.lock.unlock();
+      }
+    }
+
+    @Override
+    public int read() throws IOException {
+      final var single = new byte[1];
+      return this.read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+      if (length == 0) return 0;
+
+      final int read;
+      int windowUpdate = 0;
+
+      this.lock.lock();
+      try {
+        long remainingNanos = this.timeoutNanos;
+
+        while (this.failure == null && this.buffered() == 0 && !this.ended) {
+          if (remainingNanos <= 0) throw new IOException("Request body was not received in time");
+          remainingNanos = this.readable.awaitNanos(remainingNanos);
+        }
+
+        if (this.failure instanceof IOException ioEx) throw ioEx;
+        if (this.failure instanceof RuntimeException runtimeEx) throw runtimeEx;
+
+        if (this.buffered() == 0) {
+          read = -1;
+        } else {
+          read = Math.min(length, this.buffered());
+          this.buffer.flip().get(bytes, offset, read);
+          this.buffer.compact();
+
+          this.unacknowledged += read;
+          if (!this.ended && this.unacknowledged >= Http2Framing.DEFAULT_WINDOW_SIZE / 2) {
+            windowUpdate = this.unacknowledged;
+            this.unacknowledged = 0;
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while waiting for the request body");
+      } finally {
+        this.lock.unlock();
+      }
+
+      if (read == -1) {
+        this.completed();
+      } else if (windowUpdate > 0) {
+        Http2Stream.this.connection.writeWindowUpdate(Http2Stream.this.id, windowUpdate);
+      }
+
+      return read;
+    }
+
+    /**
+     * The streams are independent, there is nothing to skip, the rest of the body is dropped with the stream.
+     */
+    @Override
+    boolean drain() {
+      return this.isComplete();
+    }
+
+    @Override
+    boolean isComplete() {
+      this.lock.lock();
+      try {
+        return this.ended && this.buffered() == 0;
+      } finally {
+        this.lock.unlock();
+      }
+    }
+
+    private int buffered() {
+      return this.buffer == null ? 0 : this.buffer.position();
+    }
+
+    private void releaseBuffer() {
+      if (this.buffer == null) return;
+
+      this.bufferPool.release(this.buffer);
+      this.buffer = null;
+    }
+  }
+}
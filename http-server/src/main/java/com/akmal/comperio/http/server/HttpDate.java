@@ -0,0 +1,49 @@
+package com.akmal.comperio.http.server;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Source of the Date header value in the IMF-fixdate format of RFC 9110 5.6.7 (e.g. Sun, 06 Nov 1994 08:49:37 GMT).
+ * The header has the resolution of a second, therefore, the encoded value is cached and formatted again only by the first response
+ * of the next second. Responses of the same second share the same array, which must not be modified.
+ * Concurrent refreshes are benign, every thread publishes the same value.
+ */
+@ThreadSafe
+final class HttpDate {
+  private static final DateTimeFormatter IMF_FIXDATE = DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US)
+                                                           .withZone(ZoneOffset.UTC);
+
+  private static volatile CachedDate cached = new CachedDate(Long.MIN_VALUE, null);
+
+  private HttpDate() {}
+
+  /**
+   * Returns the encoded value of the current date.
+   */
+  static byte[] now() {
+    final long second = Math.floorDiv(System.currentTimeMillis(), 1000);
+    CachedDate date = cached;
+
+    if (date.second != second) {
+      date = new CachedDate(second, encode(Instant.ofEpochSecond(second)));
+      cached = date;
+    }
+
+    return date.value;
+  }
+
+  static byte[] encode(Instant instant) {
+    return format(instant).getBytes(StandardCharsets.US_ASCII);
+  }
+
+  static String format(Instant instant) {
+    return IMF_FIXDATE.format(instant);
+  }
+
+  private record CachedDate(long second, byte[] value) {}
+}
@@ -0,0 +1,136 @@
+package com.akmal.comperio.http.server;
+
+import com.akmal.comperio.http.HttpHeaders;
+import com.akmal.comperio.http.HttpProtocol;
+import com.akmal.comperio.http.HttpStatus;
+import com.akmal.comperio.http.exception.http.MalformedRequestException;
+import com.akmal.comperio.http.parser.request.ParsedHttpRequestDetails;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Framing rules of the HTTP/1.x messages shared by the engines: where the head ends, how long the body is and whether the
+ * connection stays open after the exchange.
+ */
+final class HttpFraming {
+  static final int MAX_HEAD_BYTES = 10240;
+  static final int DEFAULT_MAX_BODY_BYTES = 1024 * 1024;
+
+  private HttpFraming() {}
+
+  /**
+   * Reads the head of the request up to and including the blank line, the stream is left positioned at the first byte of the body.
+   * The stream is read byte by byte, therefore, it has to be buffered. Empty lines preceding the request line are skipped.
+   *
+   * @param in buffered stream of the connection.
+   * @param head buffer the head is appended to, its limit is the limit of the head size.
+   * @return false if the stream ended before the request started.
+   * @throws MalformedRequestException when the head exceeds the limit or the stream ends in the middle of the head.
+   */
+  static boolean readHead(InputStream in, ByteBuffer head) throws IOException {
+    int b;
+    while ((b = in.read()) == '\r' || b == '\n') {
+      // RFC 9112 2.2 allows to ignore the empty lines received prior to the request line
+    }
+    if (b == -1) return false;
+
+    do {
+      if (!head.hasRemaining()) throw new MalformedRequestException(HttpStatus.REQUEST_HEADER_FIELDS_TOO_LARGE, "Request head is too large");
+
+      head.put((byte) b);
+      if (b == '\n' && isHeadEnd(head, head.position() - 1)) return true;
+    } while ((b = in.read()) != -1);
+
+    throw new MalformedRequestException(HttpStatus.BAD_REQUEST, "Connection closed in the middle of the request head");
+  }
+
+  /**
+   * Returns whether the line feed at the given offset terminates the head, i.e. it follows an empty line.
+   * Bare line feeds are tolerated as the line terminators.
+   */
+  static boolean isHeadEnd(ByteBuffer bytes, int lineFeed) {
+    return lineFeed >= 1 && (bytes.get(lineFeed - 1) == '\n'
+                                 || (lineFeed >= 2 && bytes.get(lineFeed - 1) == '\r' && bytes.get(lineFeed - 2) == '\n'));
+  }
+
+  /**
+   * Returns the stream of the request body framed according to the head, the body is read lazily from the stream of the connection.
+   *
+   * @throws MalformedRequestException when the body cannot be framed, see {@link #isChunked} and {@link #contentLength}.
+   */
+  static RequestBodyInputStream requestBody(ParsedHttpRequestDetails requestDetails, InputStream in, long maxBodyBytes) {
+    if (isChunked(requestDetails)) return new ChunkedInputStream(in, maxBodyBytes);
+    return new FixedLengthInputStream(in, contentLength(requestDetails, maxBodyBytes));
+  }
+
+  /**
+   * Returns whether the body is sent with the chunked transfer coding. The chunked coding is the only transfer coding supported
+   * and it cannot be combined with the Content-Length, which is a common way to smuggle requests (RFC 9112 6.3).
+   *
+   * @throws MalformedRequestException when the transfer coding is not supported or the framing is ambiguous.
+   */
+  static boolean isChunked(ParsedHttpRequestDetails requestDetails) {
+    final String transferEncoding = requestDetails.headers().get(HttpHeaders.TRANSFER_ENCODING);
+    if (transferEncoding == null) return false;
+
+    if (!transferEncoding.trim().equalsIgnoreCase("chunked")) {
+      throw new MalformedRequestException(HttpStatus.NOT_IMPLEMENTED, "Only the chunked transfer coding is supported");
+    }
+
+    if (requestDetails.headers().contains(HttpHeaders.CONTENT_LENGTH)) {
+      throw new MalformedRequestException(HttpStatus.BAD_REQUEST, "Both Transfer-Encoding and Content-Length are present");
+    }
+
+    return true;
+  }
+
+  /**
+   * Returns the length of the body declared by the Content-Length header, absent header means that there is no body.
+   * The repeated header is accepted only when all the values are the same (RFC 9112 6.3).
+   *
+   * @throws MalformedRequestException when the length is invalid or exceeds the limit.
+   */
+  static int contentLength(ParsedHttpRequestDetails requestDetails, long maxBodyBytes) {
+    final List<String> contentLengths = requestDetails.headers().getAll(HttpHeaders.CONTENT_LENGTH);
+    if (contentLengths.isEmpty()) return 0;
+
+    final String contentLength = contentLengths.get(0);
+    for (int i = 1; i < contentLengths.size(); i++) {
+      if (!contentLengths.get(i).trim().equals(contentLength.trim())) {
+        throw new MalformedRequestException(HttpStatus.BAD_REQUEST, "Conflicting Content-Length headers");
+      }
+    }
+
+    final int length;
+    try {
+      length = Integer.parseInt(contentLength.trim());
+    } catch (NumberFormatException e) {
+      throw new MalformedRequestException(HttpStatus.BAD_REQUEST, "Malformed Content-Length header", e);
+    }
+
+    if (length < 0) throw new MalformedRequestException(HttpStatus.BAD_REQUEST, "Malformed Content-Length header");
+    if (length > maxBodyBytes) throw new MalformedRequestException(HttpStatus.PAYLOAD_TOO_LARGE, "Request body is too large");
+
+    return length;
+  }
+
+  /**
+   * HTTP/1.1 connections are persistent unless the client asks to close it, HTTP/1.0 connections have to ask to be kept alive.
+   */
+  static boolean isKeepAlive(ParsedHttpRequestDetails requestDetails) {
+    final String connection = requestDetails.headers().get(HttpHeaders.CONNECTION);
+
+    if (requestDetails.protocol() == HttpProtocol.HTTP_V1_1) return connection == null || !hasToken(connection, "close");
+    return connection != null && hasToken(connection, "keep-alive");
+  }
+
+  private static boolean hasToken(String header, String token) {
+    for (String part: header.split(",")) {
+      if (part.trim().equalsIgnoreCase(token)) return true;
+    }
+
+    return false;
+  }
+}
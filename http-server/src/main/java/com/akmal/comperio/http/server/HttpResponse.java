@@ -4,11 +4,12 @@ import com.akmal.comperio.http.HttpHeaders;
 import com.akmal.comperio.http.HttpProtocol;
 import com.akmal.comperio.http.HttpStatus;
 import com.akmal.comperio.http.MediaType;
+import com.akmal.comperio.http.buffer.BufferPool;
+import com.akmal.comperio.http.buffer.ByteBufferOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
-import java.io.PrintWriter;
+import java.nio.ByteBuffer;
 import java.time.Instant;
-import java.util.HashMap;
-import java.util.Map;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -19,48 +20,197 @@ import lombok.Setter;
 @Builder(access = AccessLevel.PACKAGE)
 @Getter
 public class HttpResponse {
-  private static final String SEPARATOR = "\r\n";
+  private static final int INITIAL_HEAD_SIZE = 512;
+  private static final int INITIAL_BODY_SIZE = 4096;
 
   private HttpProtocol httpProtocol = HttpProtocol.HTTP_V1;
   @Setter private HttpStatus status = HttpStatus.OK;
   private String server;
   @Setter private String contentType = MediaType.TEXT_PLAIN;
   private Instant timestamp = Instant.now();
-  private final OutputStream outputStream;
-  private final HttpHeaders headers = new HttpHeaders(new HashMap<>());
+  @Getter(AccessLevel.NONE) private final ResponseSink sink;
+  @Getter(AccessLevel.NONE) private final BufferPool bufferPool;
+  private final HttpHeaders headers = new HttpHeaders();
+  private boolean keepAlive;
+  @Getter(AccessLevel.NONE) private boolean chunkingSupported;
+  @Getter(AccessLevel.NONE) private final ResponseBody body = new ResponseBody();
 
   /**
-   * Prior to returning the output stream it tries to write the header.
-   * Therefore, make sure that you set the header properties prior to invoking this method!.
+   * Returns the stream of the response body. The body is buffered and sent together with the head once the handler returns,
+   * so that the head carries the Content-Length and the connection can be reused. Therefore, the header properties can be
+   * changed until the handler returns. The body is accumulated in a buffer leased from the pool of the server on the first write.
+   * Closing the stream has no effect.
    *
    * @return outputStream
    */
   public OutputStream getOutputStream() {
-    final var writer = new PrintWriter(this.outputStream);
-    writer.write(this.httpProtocol.getName() + " " + this.status.value() + " " + this.status.getReasonPhrase());
-    writer.write(SEPARATOR);
+    return this.body;
+  }
+
+  /**
+   * Appends the remaining bytes of the buffer to the body, the same as writing them to {@link #getOutputStream()} but without
+   * copying them into an array first, so that a read-only buffer shared by the responses is sent as is. The position of the buffer
+   * is not changed.
+   */
+  public void write(ByteBuffer bytes) throws IOException {
+    this.body.write(bytes);
+  }
+
+  /**
+   * Sends the head right away and returns the stream that sends the body while it is being written, meant for the large bodies
+   * that should not be held in memory. The body is sent with the chunked transfer coding, so that the connection can be reused,
+   * unless the client does not support it (HTTP/1.0), in which case the connection is closed after the body.
+   * Whatever has been written to {@link #getOutputStream()} is sent first. Changes to the status and the headers have no effect
+   * afterwards and the response cannot be replaced by the error response when the handler fails.
+   *
+   * @return stream of the body, closing it is optional.
+   */
+  public OutputStream getStreamingOutputStream() throws IOException {
+    if (this.body.stream != null) return this.body.stream;
+    if (!this.chunkingSupported) this.keepAlive = false;
 
-    if (this.server != null) {
-      writer.write("Server: " + this.server);
-      writer.write(SEPARATOR);
+    final var head = new ByteBufferOutputStream(this.bufferPool, INITIAL_HEAD_SIZE);
+    try {
+      this.writeHead(head, -1);
+      this.sink.write(head.content());
+    } finally {
+      head.release();
     }
 
-    if (this.contentType != null) {
-      writer.write("Content-Type: " + this.contentType);
-      writer.write(SEPARATOR);
+    this.body.stream = new ChunkedOutputStream(this.sink, this.bufferPool, ChunkedOutputStream.DEFAULT_CHUNK_SIZE, this.chunkingSupported);
+
+    if (this.body.content != null) {
+      this.body.content.writeTo(this.body.stream);
+      this.body.content.release();
+      this.body.content = null;
     }
 
-    if (this.timestamp== null) this.timestamp = Instant.now();
-    writer.write("Date: " + this.timestamp.toString());
-    writer.write(SEPARATOR);
+    return this.body.stream;
+  }
 
-    for (Map.Entry<String, String> header: this.headers.headers().entrySet()) {
-      writer.write(header.getKey() + ": " + header.getValue());
-      writer.write(SEPARATOR);
+  /**
+   * Renders the head and hands it over to the sink of the connection together with the buffered body.
+   * The head is assembled from the pre-encoded fragments (see {@link ResponseHead}), the Content-Length is the size of the buffered body.
+   */
+  void send() throws IOException {
+    if (this.body.stream != null) {
+      this.body.stream.close();
+      this.sink.endStream();
+      return;
     }
 
-    writer.write(SEPARATOR);
-    writer.flush();
-    return outputStream;
+    final var head = new ByteBufferOutputStream(this.bufferPool, INITIAL_HEAD_SIZE);
+
+    try {
+      this.writeHead(head, this.body.content == null ? 0 : this.body.content.size());
+    } catch (RuntimeException ex) {
+      head.release();
+      this.discard();
+      throw ex;
+    }
+
+    final ByteBufferOutputStream content = this.body.content;
+    this.body.content = null;
+    this.sink.send(head, content);
+  }
+
+  /**
+   * Returns the body buffers to the pool without sending the response.
+   */
+  void discard() {
+    if (this.body.content != null) {
+      this.body.content.release();
+      this.body.content = null;
+    }
+
+    if (this.body.stream != null) this.body.stream.discard();
+  }
+
+  /**
+   * Returns whether the head has already been sent.
+   */
+  boolean isCommitted() {
+    return this.body.stream != null;
+  }
+
+  /**
+   * @param contentLength length of the body or -1 when the body is streamed.
+   */
+  private void writeHead(ByteBufferOutputStream head, long contentLength) {
+    head.write(ResponseHead.statusLine(this.httpProtocol, this.status));
+
+    if (this.server != null) this.writeHeader(head, ResponseHead.SERVER, this.server);
+    if (this.contentType != null) this.writeHeader(head, ResponseHead.CONTENT_TYPE, this.contentType);
+
+    head.write(ResponseHead.DATE);
+    head.write(this.timestamp == null ? HttpDate.now() : HttpDate.encode(this.timestamp));
+    head.write(ResponseHead.CRLF);
+
+    if (contentLength >= 0) {
+      head.write(ResponseHead.CONTENT_LENGTH);
+      head.writeDecimal(contentLength);
+      head.write(ResponseHead.CRLF);
+    } else if (this.chunkingSupported) {
+      head.write(ResponseHead.TRANSFER_ENCODING_CHUNKED);
+    }
+    head.write(this.keepAlive ? ResponseHead.CONNECTION_KEEP_ALIVE : ResponseHead.CONNECTION_CLOSE);
+
+    for (int i = 0; i < this.headers.size(); i++) {
+      head.writeAscii(this.headers.name(i));
+      head.write(ResponseHead.HEADER_SEPARATOR);
+      head.writeAscii(this.headers.value(i));
+      head.write(ResponseHead.CRLF);
+    }
+
+    head.write(ResponseHead.CRLF);
+  }
+
+  private void writeHeader(ByteBufferOutputStream head, byte[] name, String value) {
+    head.write(name);
+    head.writeAscii(value); // header values are ISO-8859-1
+    head.write(ResponseHead.CRLF);
+  }
+
+  /**
+   * Leases the buffer on the first write, so that the responses without a body do not touch the pool.
+   * Once the response is streamed, the writes are passed on to the streaming body.
+   */
+  private final class ResponseBody extends OutputStream {
+    private ByteBufferOutputStream content;
+    private ChunkedOutputStream stream;
+
+    @Override
+    public void write(int b) throws IOException {
+      if (this.stream != null) this.stream.write(b);
+      else this.content().write(b);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+      if (this.stream != null) this.stream.write(bytes, offset, length);
+      else this.content().write(bytes, offset, length);
+    }
+
+    private void write(ByteBuffer bytes) throws IOException {
+      if (this.stream == null) {
+        this.content().write(bytes);
+      } else if (bytes.hasArray()) {
+        this.stream.write(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining());
+      } else {
+        final byte[] copy = new byte[bytes.remaining()];
+        bytes.duplicate().get(copy);
+        this.stream.write(copy);
+      }
+    }
+
+    @Override
+    public void close() {
+      // body is sent by the server once the handler returns
+    }
+
+    private ByteBufferOutputStream content() {
+      if (this.content == null) this.content = new ByteBufferOutputStream(HttpResponse.this.bufferPool, INITIAL_BODY_SIZE);
+      return this.content;
+    }
   }
 }
@@ -3,25 +3,35 @@ package com.akmal.comperio.http.server;
 import com.akmal.comperio.http.HttpHandler;
 import com.akmal.comperio.http.HttpStatus;
 import com.akmal.comperio.http.MediaType;
+import com.akmal.comperio.http.buffer.BufferPool;
 import com.akmal.comperio.http.exception.http.AbstractHttpRequestException;
 import com.akmal.comperio.http.exception.internal.HttpInitialisationFailure;
 import com.akmal.comperio.http.parser.request.HttpRequestParser;
-import com.akmal.comperio.http.parser.request.HttpV1RequestParser;
+import com.akmal.comperio.http.parser.request.ByteBufferRequestParser;
 import com.akmal.comperio.http.router.Route;
 import com.akmal.comperio.http.router.Router;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.UncheckedIOException;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketOption;
+import java.net.StandardSocketOptions;
 import java.net.UnknownHostException;
-import java.util.Arrays;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.SocketChannel;
 import java.util.Collection;
 import java.util.LinkedList;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntConsumer;
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,30 +39,39 @@ import org.slf4j.LoggerFactory;
 public class HttpServer implements Runnable, AutoCloseable {
 
   private static final Logger log = LoggerFactory.getLogger(HttpServer.class);
+  private static final int DEFAULT_MAX_CONNECTIONS = 10_000;
+  private static final long MIN_ACCEPT_BACKOFF_MILLIS = 10;
+  private static final long MAX_ACCEPT_BACKOFF_MILLIS = 1000;
 
   /**
-   * Default implementation of the exception handler that returns a simple HTML page with exception
-   * message, stacktrace and http status code.
+   * Default implementation of the exception handler that returns a simple HTML page with the http status code.
+   * The message is rendered only for the {@link AbstractHttpRequestException} that describes what is wrong with the request,
+   * other exceptions are logged and the client gets the generic page without the internals (and the cost) of the stack trace.
    */
   private static final ExceptionHandler DEFAULT_EXCEPTION_HANDLER = (ex, response) -> {
+    final String message;
+
     if (ex instanceof AbstractHttpRequestException httpEx) {
       response.setStatus(httpEx.getStatus());
+      message = httpEx.getMessage();
     } else {
+      log.error("Request failed", ex);
       response.setStatus(HttpStatus.INTERNAL_SERVER_ERROR);
+      message = null;
     }
 
     response.setContentType(MediaType.TEXT_HTML);
-    final var errorPage = getHtmlErrorResponse(response.getStatus(), String.join("<br/>",
-        Arrays.stream(ex.getStackTrace()).sequential().map(StackTraceElement::toString).toList()));
 
-    try (final var out = new PrintWriter(response.getOutputStream())) {
-      out.write(errorPage);
-      out.flush();
+    try {
+      response.getOutputStream().write(getHtmlErrorResponse(response.getStatus(), message).getBytes(StandardCharsets.UTF_8));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
     }
   };
 
   private final ExecutorService executorService;
   private final Router<HttpHandler> router;
+  private final @Nullable HttpHandler defaultHandler;
   private final Collection<Route<HttpHandler>> routes;
   private final int port;
   private final InetAddress bindAddress;
@@ -61,16 +80,30 @@ public class HttpServer implements Runnable, AutoCloseable {
 
   private final ThreadFactory serverThreadFactory;
 
-  private ServerSocket serverSocket;
+  private final ServerEngine engine;
+  private final int eventLoopCount;
+  private final ConnectionTimeouts timeouts;
+  private final AdmissionControl admission;
+  private final BufferPool bufferPool;
+  private final long maxRequestBodyBytes;
+  private final int acceptorCount;
+  private final boolean http2Enabled;
+
+  private volatile ServerSocket[] serverSockets;
+  private volatile ServerSocketChannel[] serverChannels;
+  private volatile int localPort = -1;
+  private NioEventLoop[] eventLoops;
+  private DeadlineTimer deadlineTimer;
 
   private boolean shutdownRequested;
 
-  private final HttpRequestParser httpRequestParser = new HttpV1RequestParser();
+  private final HttpRequestParser httpRequestParser = new ByteBufferRequestParser();
 
 
   HttpServer(Builder builder) {
-    this.executorService = builder.executorService;
+    this.executorService = builder.execution.newExecutor();
     this.router = builder.router;
+    this.defaultHandler = builder.defaultHandler;
     this.routes = builder.routes;
     this.port = builder.port;
     try {
@@ -81,6 +114,15 @@ public class HttpServer implements Runnable, AutoCloseable {
     }
     this.serverThread = new AtomicReference<>(null);
     this.serverThreadFactory = builder.serverThreadFactory;
+    this.engine = builder.engine;
+    this.eventLoopCount = builder.eventLoopCount;
+    this.timeouts = new ConnectionTimeouts(builder.headerTimeoutMillis, builder.bodyTimeoutMillis, builder.idleTimeoutMillis);
+    this.admission = new AdmissionControl(builder.maxConnections, builder.maxInFlightRequests);
+    this.maxRequestBodyBytes = builder.maxRequestBodyBytes;
+    this.acceptorCount = builder.acceptorCount;
+    this.http2Enabled = builder.http2Enabled;
+    if (builder.bufferPool != null) this.bufferPool = builder.bufferPool;
+    else this.bufferPool = this.engine == ServerEngine.NIO ? BufferPool.direct() : BufferPool.heap();
   }
 
   public void start() {
@@ -120,6 +162,15 @@ public class HttpServer implements Runnable, AutoCloseable {
   }
 
 
+  /**
+   * Returns the port the server listens on, which tells the port picked by the system when the server is bound to port 0.
+   *
+   * @return the port or -1 until all the listeners are bound.
+   */
+  public int getLocalPort() {
+    return this.localPort;
+  }
+
   public boolean isShutdown() {
     return this.executorService.isShutdown();
   }
@@ -133,10 +184,31 @@ public class HttpServer implements Runnable, AutoCloseable {
   ;
 
   private void closeSocket() {
-    if (this.serverSocket != null) {
-      try {
-        serverSocket.close();
-      } catch (IOException consumed) {
+    final ServerSocket[] sockets = this.serverSockets;
+    if (sockets != null) {
+      for (ServerSocket socket: sockets) {
+        try {
+          if (socket != null) socket.close();
+        } catch (IOException consumed) {
+        }
+      }
+    }
+
+    final ServerSocketChannel[] channels = this.serverChannels;
+    if (channels != null) {
+      for (ServerSocketChannel channel: channels) {
+        try {
+          if (channel != null) channel.close();
+        } catch (IOException consumed) {
+        }
+      }
+    }
+
+    if (this.deadlineTimer != null) this.deadlineTimer.close();
+
+    if (this.eventLoops != null) {
+      for (NioEventLoop eventLoop: this.eventLoops) {
+        if (eventLoop != null) eventLoop.shutdown();
       }
     }
   }
@@ -150,24 +222,233 @@ public class HttpServer implements Runnable, AutoCloseable {
 
   @Override
   public void run() {
-    log.info("Starting HTTP server at port {}. Registered routes: {}", port, this.routes.size());
-
-    try (final var socket = (this.serverSocket = new ServerSocket(this.port, Integer.MAX_VALUE,
-        this.bindAddress))) {
-      while (!Thread.currentThread().isInterrupted()) {
-        final var clientSocket = socket.accept();
-        this.executorService.execute(
-            new HttpSocketHandler(clientSocket, this.router, this.httpRequestParser,
-                DEFAULT_EXCEPTION_HANDLER));
+    log.info("Starting HTTP server at port {} with {} engine. Registered routes: {}", port, this.engine, this.routes.size());
+
+    if (this.engine == ServerEngine.NIO) {
+      this.runEventLoops();
+      return;
+    }
+
+    final var dispatcher = new RequestDispatcher(this.router, DEFAULT_EXCEPTION_HANDLER, this.bufferPool, this.defaultHandler);
+    this.deadlineTimer = new DeadlineTimer("http-deadline-timer");
+
+    try {
+      final var sockets = (this.serverSockets = new ServerSocket[this.acceptorCount]);
+      sockets[0] = openServerSocket(this.port, false);
+
+      final int acceptors = this.supportedAcceptors(sockets[0].supportedOptions());
+      for (int i = 1; i < acceptors; i++) sockets[i] = openServerSocket(sockets[0].getLocalPort(), true);
+      this.localPort = sockets[0].getLocalPort();
+
+      this.runAcceptors(acceptors, i -> this.acceptSockets(sockets[i], dispatcher));
+    } catch (IOException e) {
+      log.error("Failed to listen on port {}", this.port, e);
+    } finally {
+      this.closeSocket();
+    }
+  }
+
+  /**
+   * Serves every admitted connection on its own thread of the executor, the connections over the limit are rejected
+   * on the accepting thread.
+   */
+  private void acceptSockets(ServerSocket serverSocket, RequestDispatcher dispatcher) {
+    long backoffMillis = 0;
+
+    while (!Thread.currentThread().isInterrupted()) {
+      final Socket clientSocket;
+
+      try {
+        clientSocket = serverSocket.accept();
+        backoffMillis = 0;
+      } catch (IOException e) {
+        if (serverSocket.isClosed()) return; // shutdown
+        backoffMillis = backOffAfterAcceptFailure(e, backoffMillis);
+        continue;
+      }
+
+      if (!this.admission.tryAcquireConnection()) {
+        rejectOverloaded(clientSocket);
+        continue;
+      }
+
+      final var handler = new HttpSocketHandler(clientSocket, dispatcher, this.httpRequestParser, this.bufferPool,
+          this.maxRequestBodyBytes, this.timeouts, this.deadlineTimer, this.admission,
+          this.http2Enabled ? this.executorService : null);
+
+      try {
+        this.executorService.execute(() -> {
+          try {
+            handler.run();
+          } finally {
+            this.admission.releaseConnection();
+          }
+        });
+      } catch (RejectedExecutionException e) {
+        this.admission.releaseConnection();
+        rejectOverloaded(clientSocket);
       }
+    }
+  }
+
+  /**
+   * Accepts the connections and distributes them over the event loops in the round-robin fashion.
+   * The accepting threads block, so that the event loops are busy only with the reads and writes of the established connections.
+   */
+  private void runEventLoops() {
+    final var dispatcher = new RequestDispatcher(this.router, DEFAULT_EXCEPTION_HANDLER, this.bufferPool, this.defaultHandler);
+
+    try {
+      final var channels = (this.serverChannels = new ServerSocketChannel[this.acceptorCount]);
+      channels[0] = openServerChannel(this.port, false);
+
+      final int acceptors = this.supportedAcceptors(channels[0].supportedOptions());
+      final int boundPort = ((InetSocketAddress) channels[0].getLocalAddress()).getPort();
+      for (int i = 1; i < acceptors; i++) channels[i] = openServerChannel(boundPort, true);
+      this.localPort = boundPort;
+
+      this.eventLoops = new NioEventLoop[this.eventLoopCount];
+      for (int i = 0; i < this.eventLoops.length; i++) {
+        this.eventLoops[i] = new NioEventLoop(dispatcher, this.executorService, this.bufferPool, this.maxRequestBodyBytes,
+            this.timeouts, this.admission);
+        Thread.ofPlatform().name("http-event-loop-" + i).daemon().start(this.eventLoops[i]);
+      }
+
+      this.runAcceptors(acceptors, i -> this.acceptChannels(channels[i], i));
     } catch (IOException e) {
+      log.error("Failed to listen on port {}", this.port, e);
+    } finally {
+      this.closeSocket(); // stops the event loops as well
+    }
+  }
+
+  /**
+   * Every acceptor starts with its own event loop, so that the acceptors do not hand their connections to the same loop in lockstep.
+   */
+  private void acceptChannels(ServerSocketChannel channel, int acceptor) {
+    int next = acceptor % this.eventLoops.length;
+    long backoffMillis = 0;
+
+    while (!Thread.currentThread().isInterrupted()) {
+      final SocketChannel clientChannel;
+
+      try {
+        clientChannel = channel.accept();
+        backoffMillis = 0;
+      } catch (IOException e) {
+        if (!channel.isOpen()) return; // shutdown
+        backoffMillis = backOffAfterAcceptFailure(e, backoffMillis);
+        continue;
+      }
+
+      if (!this.admission.tryAcquireConnection()) {
+        rejectOverloaded(clientChannel.socket());
+        continue;
+      }
+
+      this.eventLoops[next].register(clientChannel);
+      next = next == this.eventLoops.length - 1 ? 0 : next + 1;
+    }
+  }
+
+  /**
+   * Waits before the next accept after the listener failed while it is still open, typically because the process ran out
+   * of file descriptors (EMFILE). Retrying right away would spin on the same error, giving up would leave the port unserved
+   * for good, therefore, the wait doubles with every consecutive failure up to a second and the closed connections free
+   * the descriptors meanwhile.
+   *
+   * @param backoffMillis previous wait or zero after the successful accept.
+   * @return the wait just done, the interrupted wait returns with the interrupt flag set.
+   */
+  private static long backOffAfterAcceptFailure(IOException ex, long backoffMillis) {
+    final long nextBackoffMillis = Math.min(Math.max(MIN_ACCEPT_BACKOFF_MILLIS, backoffMillis * 2), MAX_ACCEPT_BACKOFF_MILLIS);
+    log.warn("Failed to accept the connection, retrying in {} ms", nextBackoffMillis, ex);
+
+    try {
+      Thread.sleep(nextBackoffMillis);
+    } catch (InterruptedException e) {
       Thread.currentThread().interrupt();
     }
+
+    return nextBackoffMillis;
+  }
+
+  /**
+   * Answers the connection over the limit with 503 and closes it. The response of a few bytes fits the empty send buffer
+   * of the fresh connection, therefore, the write does not block the acceptor.
+   */
+  private static void rejectOverloaded(Socket socket) {
+    try (socket) {
+      final ByteBuffer response = ResponseHead.serviceUnavailable();
+      socket.getOutputStream().write(response.array(), response.arrayOffset(), response.remaining());
+    } catch (IOException consumed) {
+    }
+  }
+
+  /**
+   * Runs the accept loop of the first listener on the server thread and the loops of the others on their own threads.
+   * Closing the listeners terminates the loops, once the loop of the server thread returns the others are stopped as well.
+   */
+  private void runAcceptors(int acceptors, IntConsumer acceptLoop) {
+    for (int i = 1; i < acceptors; i++) {
+      final int acceptor = i;
+      Thread.ofPlatform().name("http-acceptor-" + i).daemon().start(() -> acceptLoop.accept(acceptor));
+    }
+
+    acceptLoop.accept(0);
+  }
+
+  /**
+   * Returns how many listeners can share the port. Multiple listeners require SO_REUSEPORT, without it the server falls back
+   * to the single listener.
+   *
+   * @param supportedOptions options supported by the first listener.
+   */
+  int supportedAcceptors(Set<SocketOption<?>> supportedOptions) {
+    if (this.acceptorCount == 1 || supportedOptions.contains(StandardSocketOptions.SO_REUSEPORT)) return this.acceptorCount;
+
+    log.warn("SO_REUSEPORT is not supported on this platform, accepting the connections with a single listener instead of {}",
+        this.acceptorCount);
+    return 1;
+  }
+
+  /**
+   * Opens the listener of the blocking engine. The first listener of the multi-acceptor mode binds the port as well, hence,
+   * it has SO_REUSEPORT set when the platform supports it.
+   */
+  private ServerSocket openServerSocket(int port, boolean sharedPort) throws IOException {
+    final var socket = new ServerSocket();
+
+    try {
+      if (this.acceptorCount > 1 && (sharedPort || socket.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT))) {
+        socket.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+      }
+      socket.bind(new InetSocketAddress(this.bindAddress, port), Integer.MAX_VALUE);
+      return socket;
+    } catch (IOException | RuntimeException e) {
+      socket.close();
+      throw e;
+    }
+  }
+
+  private ServerSocketChannel openServerChannel(int port, boolean sharedPort) throws IOException {
+    final var channel = ServerSocketChannel.open();
+
+    try {
+      if (this.acceptorCount > 1 && (sharedPort || channel.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT))) {
+        channel.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+      }
+      channel.bind(new InetSocketAddress(this.bindAddress, port), Integer.MAX_VALUE);
+      return channel;
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
   }
 
   @Override
   public void close() throws Exception {
-    serverSocket.close();
+    this.closeSocket();
     this.serverThread.get().interrupt();
     this.executorService.shutdown();
     log.info("Graceful shutdown was requested. Shutting down");
@@ -179,20 +460,42 @@ public class HttpServer implements Runnable, AutoCloseable {
 
   public static class Builder {
 
-    private ExecutorService executorService;
+    private ExecutionStrategy execution;
     private Router<HttpHandler> router;
+    private HttpHandler defaultHandler;
     private Collection<Route<HttpHandler>> routes;
     private final int port;
     private String bindAddress;
     private final ThreadFactory serverThreadFactory = runnable -> Thread.ofVirtual()
                                                                       .unstarted(runnable);
+    private ServerEngine engine;
+    private int eventLoopCount;
+    private int idleTimeoutMillis;
+    private int headerTimeoutMillis;
+    private int bodyTimeoutMillis;
+    private int maxConnections;
+    private int maxInFlightRequests;
+    private BufferPool bufferPool;
+    private long maxRequestBodyBytes;
+    private int acceptorCount;
+    private boolean http2Enabled;
 
     private Builder(int port) {
       this.port = port;
-      this.executorService = Executors.newVirtualThreadPerTaskExecutor();
+      this.execution = ExecutionStrategy.virtualThreads();
       this.router = Router.defaultRouter();
       this.routes = new LinkedList<>();
       this.bindAddress = "0.0.0.0";
+      this.engine = ServerEngine.BLOCKING;
+      this.eventLoopCount = Runtime.getRuntime().availableProcessors();
+      this.idleTimeoutMillis = ConnectionTimeouts.DEFAULT_IDLE_MILLIS;
+      this.headerTimeoutMillis = ConnectionTimeouts.DEFAULT_HEADER_MILLIS;
+      this.bodyTimeoutMillis = ConnectionTimeouts.DEFAULT_BODY_MILLIS;
+      this.maxConnections = DEFAULT_MAX_CONNECTIONS;
+      this.maxInFlightRequests = Integer.MAX_VALUE;
+      this.maxRequestBodyBytes = HttpFraming.DEFAULT_MAX_BODY_BYTES;
+      this.acceptorCount = 1;
+      this.http2Enabled = true;
     }
 
     public Builder addRoute(Route<HttpHandler> route) {
@@ -206,7 +509,15 @@ public class HttpServer implements Runnable, AutoCloseable {
     }
 
     public Builder withExecutor(ExecutorService executorService) {
-      this.executorService = executorService;
+      this.execution = ExecutionStrategy.of(executorService);
+      return this;
+    }
+
+    /**
+     * Selects the threads the handlers run on, see {@link ExecutionStrategy}. Defaults to {@link ExecutionStrategy#virtualThreads()}.
+     */
+    public Builder withExecution(ExecutionStrategy execution) {
+      this.execution = execution;
       return this;
     }
 
@@ -215,12 +526,134 @@ public class HttpServer implements Runnable, AutoCloseable {
       return this;
     }
 
+    /**
+     * Selects how the connections are accepted and read, see {@link ServerEngine}. Defaults to {@link ServerEngine#BLOCKING}.
+     */
+    public Builder withEngine(ServerEngine engine) {
+      this.engine = engine;
+      return this;
+    }
+
+    /**
+     * Sets the number of selector loops of the {@link ServerEngine#NIO} engine. Defaults to the number of available processors.
+     */
+    public Builder withEventLoops(int eventLoopCount) {
+      if (eventLoopCount < 1) throw new IllegalArgumentException("At least one event loop is required");
+      this.eventLoopCount = eventLoopCount;
+      return this;
+    }
+
+    /**
+     * Sets how long a persistent connection may stay idle between the requests and how long a client may take without accepting
+     * any bytes of the response ({@link ServerEngine#NIO} engine only). Defaults to 30 seconds.
+     */
+    public Builder withIdleTimeout(int idleTimeoutMillis) {
+      if (idleTimeoutMillis < 1) throw new IllegalArgumentException("Idle timeout must be positive");
+      this.idleTimeoutMillis = idleTimeoutMillis;
+      return this;
+    }
+
+    /**
+     * Sets how long the client may take to send the request head, counted from the accept for the first request of the connection
+     * and from the first byte for the following ones. Defaults to 3 seconds.
+     */
+    public Builder withHeaderTimeout(int headerTimeoutMillis) {
+      if (headerTimeoutMillis < 1) throw new IllegalArgumentException("Header timeout must be positive");
+      this.headerTimeoutMillis = headerTimeoutMillis;
+      return this;
+    }
+
+    /**
+     * Sets how long the client may take to send the request body once the head is complete. In the {@link ServerEngine#BLOCKING} engine
+     * the body is read by the handler, so the body has to be consumed within the timeout as well. Defaults to 30 seconds.
+     */
+    public Builder withBodyTimeout(int bodyTimeoutMillis) {
+      if (bodyTimeoutMillis < 1) throw new IllegalArgumentException("Body timeout must be positive");
+      this.bodyTimeoutMillis = bodyTimeoutMillis;
+      return this;
+    }
+
+    /**
+     * Sets the limit of the open connections, the connections over the limit are answered with 503 Service Unavailable and closed
+     * right after the accept. Defaults to 10 000.
+     */
+    public Builder withMaxConnections(int maxConnections) {
+      if (maxConnections < 1) throw new IllegalArgumentException("At least one connection has to be allowed");
+      this.maxConnections = maxConnections;
+      return this;
+    }
+
+    /**
+     * Sets the limit of the requests handled at the same time, the requests over the limit are answered with 503 Service Unavailable
+     * without invoking the handler and their connections are closed. Unlimited by default, i.e. bounded by the connection limit.
+     */
+    public Builder withMaxInFlightRequests(int maxInFlightRequests) {
+      if (maxInFlightRequests < 1) throw new IllegalArgumentException("At least one request has to be allowed");
+      this.maxInFlightRequests = maxInFlightRequests;
+      return this;
+    }
+
+    /**
+     * Sets the pool the buffers of the requests and the responses are leased from. Defaults to the pool of direct buffers
+     * for the {@link ServerEngine#NIO} engine and to the pool of heap buffers for the {@link ServerEngine#BLOCKING} one.
+     */
+    public Builder withBufferPool(BufferPool bufferPool) {
+      this.bufferPool = bufferPool;
+      return this;
+    }
+
+    /**
+     * Sets the number of listeners accepting the connections, each with its own accept loop. The listeners are bound to the same port
+     * with SO_REUSEPORT, so that the kernel balances the incoming connections across them (Linux 3.9+), which removes the single
+     * accepting thread as the bottleneck under the high connection rate. Where SO_REUSEPORT is not supported, the single listener
+     * is used. Applies to both engines. Defaults to 1.
+     */
+    public Builder withAcceptors(int acceptorCount) {
+      if (acceptorCount < 1) throw new IllegalArgumentException("At least one acceptor is required");
+      this.acceptorCount = acceptorCount;
+      return this;
+    }
+
+    /**
+     * Sets the largest accepted request body, both the declared Content-Length and the decoded chunked body are limited.
+     * The larger bodies are rejected with 413 Payload Too Large. Defaults to 1 MiB.
+     */
+    public Builder withMaxRequestBodySize(long maxRequestBodyBytes) {
+      if (maxRequestBodyBytes < 0) throw new IllegalArgumentException("Maximum request body size must not be negative");
+      this.maxRequestBodyBytes = maxRequestBodyBytes;
+      return this;
+    }
+
+    /**
+     * Enables HTTP/2 over cleartext TCP (h2c) negotiated either by the prior knowledge, i.e. the connection starts with the HTTP/2
+     * preface, or by the HTTP/1.1 Upgrade of a request without a body. The requests of the HTTP/2 connection are multiplexed onto
+     * the same routes, every request runs on its own task of the executor. Supported by the {@link ServerEngine#BLOCKING} engine
+     * only, the {@link ServerEngine#NIO} engine serves HTTP/1.x. Enabled by default.
+     */
+    public Builder withHttp2(boolean http2Enabled) {
+      this.http2Enabled = http2Enabled;
+      return this;
+    }
+
     public Builder withRouter(Router<HttpHandler> router) {
       this.router = router;
       return this;
     }
 
+    /**
+     * Sets the handler of the requests none of the routes matched, such as the front handler of an application that routes
+     * the requests on its own. By default, such requests are answered with 404.
+     */
+    public Builder withDefaultHandler(HttpHandler defaultHandler) {
+      this.defaultHandler = defaultHandler;
+      return this;
+    }
+
     public HttpServer build() {
+      if (this.execution.isInline() && this.engine != ServerEngine.NIO) {
+        throw new IllegalStateException("Inline execution requires the NIO engine");
+      }
+
       for (Route<HttpHandler> route : this.routes) {
         this.router.register(route);
       }
@@ -246,6 +679,27 @@ public class HttpServer implements Runnable, AutoCloseable {
               <p>%s</p>
             </body>
           </html>
-        """, "Error " + status.value(), status.getReasonPhrase(), status.value(), message);
+        """, "Error " + status.value(), status.getReasonPhrase(), status.value(), message == null ? "" : escapeHtml(message));
+  }
+
+  /**
+   * The messages of the request exceptions may quote the request itself.
+   */
+  private static String escapeHtml(String text) {
+    final var escaped = new StringBuilder(text.length());
+
+    for (int i = 0; i < text.length(); i++) {
+      final char c = text.charAt(i);
+
+      switch (c) {
+        case '<' -> escaped.append("&lt;");
+        case '>' -> escaped.append("&gt;");
+        case '&' -> escaped.append("&amp;");
+        case '"' -> escaped.append("&quot;");
+        default -> escaped.append(c);
+      }
+    }
+
+    return escaped.toString();
   }
 }
@@ -1,81 +1,190 @@
 package com.akmal.comperio.http.server;
 
 import com.akmal.comperio.http.HttpHandler;
-import com.akmal.comperio.http.HttpProtocol;
-import com.akmal.comperio.http.HttpStatus;
-import com.akmal.comperio.http.exception.http.PathNotFoundException;
+import com.akmal.comperio.http.buffer.BufferPool;
 import com.akmal.comperio.http.parser.request.HttpRequestParser;
 import com.akmal.comperio.http.parser.request.ParsedHttpRequestDetails;
-import com.akmal.comperio.http.router.RouteMatch;
 import com.akmal.comperio.http.router.Router;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.Socket;
-import java.util.Optional;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executor;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class HttpSocketHandler implements SocketHandler {
 
   private static final Logger log = LoggerFactory.getLogger(HttpSocketHandler.class);
-  private static final int PARSING_TIMEOUT = 3000;
+  private static final int BUFFER_SIZE = 8192;
   private final Socket socket;
-  private final Router<HttpHandler> router;
 
   private final HttpRequestParser requestParser;
-  private final ExceptionHandler exceptionHandler;
+  private final RequestDispatcher dispatcher;
+  private final BufferPool bufferPool;
+  private final long maxBodyBytes;
+  private final ConnectionTimeouts timeouts;
+  private final DeadlineTimer timer;
+  private final AdmissionControl admission;
+  private final @Nullable Executor http2Executor;
+  private volatile boolean timedOut;
 
   public HttpSocketHandler(Socket socket, Router<HttpHandler> router, HttpRequestParser requestParser,
       ExceptionHandler exceptionHandler) {
+    this(socket, router, requestParser, exceptionHandler, ConnectionTimeouts.DEFAULT_IDLE_MILLIS);
+  }
+
+  public HttpSocketHandler(Socket socket, Router<HttpHandler> router, HttpRequestParser requestParser,
+      ExceptionHandler exceptionHandler, int idleTimeoutMillis) {
+    this(socket, router, requestParser, exceptionHandler, idleTimeoutMillis, BufferPool.heap());
+  }
+
+  public HttpSocketHandler(Socket socket, Router<HttpHandler> router, HttpRequestParser requestParser,
+      ExceptionHandler exceptionHandler, int idleTimeoutMillis, BufferPool bufferPool) {
+    this(socket, router, requestParser, exceptionHandler, idleTimeoutMillis, bufferPool, HttpFraming.DEFAULT_MAX_BODY_BYTES);
+  }
+
+  public HttpSocketHandler(Socket socket, Router<HttpHandler> router, HttpRequestParser requestParser,
+      ExceptionHandler exceptionHandler, int idleTimeoutMillis, BufferPool bufferPool, long maxBodyBytes) {
+    this(socket, new RequestDispatcher(router, exceptionHandler, bufferPool), requestParser, bufferPool, maxBodyBytes,
+        new ConnectionTimeouts(ConnectionTimeouts.DEFAULT_HEADER_MILLIS, ConnectionTimeouts.DEFAULT_BODY_MILLIS, idleTimeoutMillis),
+        DeadlineTimer.common(), AdmissionControl.unlimited(), null);
+  }
+
+  /**
+   * @param http2Executor runs the streams of the connections switched to h2c, null to serve HTTP/1.x only.
+   */
+  HttpSocketHandler(Socket socket, RequestDispatcher dispatcher, HttpRequestParser requestParser, BufferPool bufferPool,
+      long maxBodyBytes, ConnectionTimeouts timeouts, DeadlineTimer timer, AdmissionControl admission,
+      @Nullable Executor http2Executor) {
     this.socket = socket;
-    this.router = router;
     this.requestParser = requestParser;
-    this.exceptionHandler = exceptionHandler;
+    this.dispatcher = dispatcher;
+    this.bufferPool = bufferPool;
+    this.maxBodyBytes = maxBodyBytes;
+    this.timeouts = timeouts;
+    this.timer = timer;
+    this.admission = admission;
+    this.http2Executor = http2Executor;
   }
 
   /**
-   * Handles lifecycle of a single client connection by parsing the http request details, validating them and matching the route.
-   * Uses a second try catch block specifically to catch validation exceptions which have to be written back to client.
-   * If you remove it and combine with a global try-with-resources, the socket by the time exception reaches catch will be closed.
+   * Handles lifecycle of a persistent client connection. Requests are read one after another from the buffered stream of the
+   * socket and are answered in the order of arrival, therefore, the pipelined requests are served as well.
+   * The body of each request is framed by the Content-Length or the chunked transfer coding, whatever the handler did not read
+   * is skipped, so that the next request starts at the right byte. The connection is closed when the client asks for it,
+   * when the request cannot be framed or when the client misses one of the deadlines, see {@link ConnectionTimeouts}.
+   * The deadline of the connection is tracked by the {@link DeadlineTimer}, which closes the socket when it expires and
+   * so unblocks the pending read. When the limit of the requests in flight is reached, the request is rejected with 503.
+   * Failures to parse the request are written back to the client before the connection is closed.
+   * The head of every request is read into the same buffer leased from the pool for the lifetime of the connection.
+   * When HTTP/2 is enabled, the connection that starts with the HTTP/2 preface (prior knowledge) or whose request asks
+   * for the upgrade to h2c is handed over to the {@link Http2Connection} for the rest of its lifetime.
    */
   @Override
   public void run() {
+    final ByteBuffer head = this.bufferPool.acquire(HttpFraming.MAX_HEAD_BYTES);
+    final DeadlineTimer.Deadline deadline = this.timer.newDeadline(this::expire);
 
-    try (socket;
-          final var in = socket.getInputStream()) {
-      socket.setSoTimeout(
-          PARSING_TIMEOUT); // set timeout for reading the header, if it exceeds, someone might be just opening TCP connection without any input.
+    try (socket) {
+      final var in = new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE);
+      final var out = new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE);
+      final ResponseSink sink = ResponseSink.of(out);
+      boolean keepAlive = true;
+      boolean firstRequest = true;
 
-      try {
-        ParsedHttpRequestDetails requestDetails = requestParser.parse(in);
-        socket.setSoTimeout(0);
+      while (keepAlive) {
+        // the fresh connection has to send the request right away, someone might be just opening connections without any input
+        deadline.arm(firstRequest ? this.timeouts.headerMillis() : this.timeouts.idleMillis());
+        if (!awaitRequest(in)) break;
+        if (!firstRequest) deadline.arm(this.timeouts.headerMillis());
 
-        final Optional<RouteMatch<HttpHandler>> routeMatchOpt = this.router.match(requestDetails.method(), requestDetails.path());
+        if (firstRequest && this.http2Executor != null && Http2Framing.readPreface(in)) {
+          this.http2(in, out, deadline).serve(null);
+          break;
+        }
+        firstRequest = false;
+
+        final ParsedHttpRequestDetails requestDetails;
+        final RequestBodyInputStream body;
+
+        try {
+          head.clear().limit(HttpFraming.MAX_HEAD_BYTES);
+          if (!HttpFraming.readHead(in, head)) break;
+
+          requestDetails = requestParser.parse(head.flip());
+          body = HttpFraming.requestBody(requestDetails, in, this.maxBodyBytes);
+        } catch (RuntimeException ex) {
+          deadline.disarm();
+          this.dispatcher.handleFailure(ex, sink); // the request cannot be framed, so the connection cannot be reused
+          break;
+        }
 
-        if (routeMatchOpt.isEmpty()) {
-          throw new PathNotFoundException(HttpStatus.NOT_FOUND, "Requested path is not found");
+        if (this.http2Executor != null && Http2Framing.isUpgrade(requestDetails)) {
+          out.write(Http2Framing.SWITCHING_PROTOCOLS);
+          out.flush();
+          this.http2(in, out, deadline).serve(requestDetails); // the client preface follows, see serve
+          break;
         }
 
-        final var routeMatch = routeMatchOpt.get();
-
-        final var request = new HttpRequest(requestDetails.method(), requestDetails.protocol(), requestDetails.path(),
-            socket.getInetAddress(), requestDetails.headers(), requestDetails.queryParams(), socket.getInputStream(), routeMatch.variables());
-        System.out.println("AV " + socket.getInputStream().available());
-        routeMatch.route().getHandler().handle(request, HttpResponse.builder()
-                                                            .httpProtocol(HttpProtocol.HTTP_V1_1)
-                                                            .outputStream(socket.getOutputStream())
-                                                            .status(HttpStatus.OK)
-                                                            .build());
-      } catch (RuntimeException ex) {
-        this.exceptionHandler.handle(ex, HttpResponse.builder()
-                                             .httpProtocol(HttpProtocol.HTTP_V1_1)
-                                             .outputStream(socket.getOutputStream())
-                                             .status(HttpStatus.INTERNAL_SERVER_ERROR)
-                                             .build());
+        deadline.arm(this.timeouts.bodyMillis());
+        body.onCompletion(deadline::disarm);
+
+        if (!this.admission.tryAcquireRequest()) {
+          sink.write(ResponseHead.serviceUnavailable());
+          break;
+        }
+
+        try {
+          keepAlive = this.dispatcher.dispatch(requestDetails, socket.getInetAddress(), body, sink,
+              HttpFraming.isKeepAlive(requestDetails));
+        } finally {
+          this.admission.releaseRequest();
+        }
+
+        if (keepAlive) keepAlive = body.drain();
       }
 
+    } catch (IOException e) {
+      if (this.timedOut) log.debug("Closing connection that timed out");
+      else log.error("Socket exception occurred when processing request", e);
     } catch (Exception e) {
       log.error("Socket exception occurred when processing request", e);
     } finally {
-      Thread.currentThread().interrupt();
+      deadline.disarm();
+      this.bufferPool.release(head);
     }
   }
+
+  private Http2Connection http2(InputStream in, BufferedOutputStream out, DeadlineTimer.Deadline deadline) {
+    return new Http2Connection(in, out, this.socket.getInetAddress(), this.dispatcher, this.http2Executor, this.bufferPool,
+        this.maxBodyBytes, this.timeouts, deadline, this.admission);
+  }
+
+  /**
+   * Runs on the timer thread, closing the socket fails the read or the write the connection is blocked in.
+   */
+  private void expire() {
+    this.timedOut = true;
+
+    try {
+      this.socket.close();
+    } catch (IOException consumed) {
+    }
+  }
+
+  /**
+   * Blocks until the first byte of the next request arrives.
+   *
+   * @return false if the client closed the connection.
+   */
+  private static boolean awaitRequest(InputStream in) throws IOException {
+    in.mark(1);
+    final int b = in.read();
+    in.reset();
+    return b != -1;
+  }
 }
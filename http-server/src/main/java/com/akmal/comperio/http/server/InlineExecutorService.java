@@ -0,0 +1,48 @@
+package com.akmal.comperio.http.server;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Executor that runs the task on the calling thread, see {@link ExecutionStrategy#inline()}. It keeps the lifecycle of the executor,
+ * so that the server shuts it down like any other: once shut down the tasks are rejected, the tasks still running are not tracked.
+ */
+@ThreadSafe
+final class InlineExecutorService extends AbstractExecutorService {
+  private volatile boolean shutdown;
+
+  @Override
+  public void execute(Runnable command) {
+    if (this.shutdown) throw new RejectedExecutionException("Executor is shut down");
+    command.run();
+  }
+
+  @Override
+  public void shutdown() {
+    this.shutdown = true;
+  }
+
+  @Override
+  public List<Runnable> shutdownNow() {
+    this.shutdown = true;
+    return List.of();
+  }
+
+  @Override
+  public boolean isShutdown() {
+    return this.shutdown;
+  }
+
+  @Override
+  public boolean isTerminated() {
+    return this.shutdown;
+  }
+
+  @Override
+  public boolean awaitTermination(long timeout, TimeUnit unit) {
+    return this.shutdown;
+  }
+}
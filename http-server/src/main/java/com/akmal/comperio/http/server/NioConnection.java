@@ -0,0 +1,480 @@
+package com.akmal.comperio.http.server;
+
+import com.akmal.comperio.http.buffer.BufferPool;
+import com.akmal.comperio.http.buffer.ByteBufferInputStream;
+import com.akmal.comperio.http.buffer.ByteBufferOutputStream;
+import com.akmal.comperio.http.parser.request.HttpRequestHeadParser;
+import com.akmal.comperio.http.parser.request.ParsedHttpRequestDetails;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import net.jcip.annotations.NotThreadSafe;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * State of a single client connection served by the {@link NioEventLoop}.
+ * The head of the request is read into the per-connection buffer and parsed incrementally by the {@link HttpRequestHeadParser},
+ * every read scans only the newly arrived bytes. Once the head is complete, the body is framed by the Content-Length header and read
+ * without blocking into its own buffer, or it is decoded from the chunked transfer coding into a growing buffer as the chunks arrive.
+ * The complete request is dispatched to the executor, so that the handlers are free to block, while the connection does not take part
+ * in the selection until the response is handed back to the event loop for the non-blocking write.
+ * A streamed response is handed back piece by piece, the handler thread waits until the loop has written each piece, so that
+ * the slow client holds back the handler instead of the response piling up in memory.
+ * All the methods, except for the handler invocation and the {@link ResponseSink} of the handler, are called from the event loop thread only.
+ * The connection has a single deadline in the {@link TimingWheel} of the loop, moved as the exchange progresses: the head and the body
+ * have to arrive in time, the handler is not limited and the client has to keep accepting the bytes of the response,
+ * see {@link ConnectionTimeouts}. The request is rejected with 503 right away when the limit of the requests in flight is reached.
+ * The connection is persistent unless the client or the response asks to close it (see {@link HttpFraming#isKeepAlive}): once
+ * the response is written out and the handler has returned, the exchange is reset and the connection waits for the next request
+ * within the idle timeout, the pipelined bytes that arrived with the previous request are parsed right away.
+ * The buffers are leased from the pool: the head buffer for the lifetime of the connection, the body buffer until the handler returns
+ * and the response buffer until it is written out. The buffer that is handed over to the executor is owned by the handler thread until
+ * it is handed back, so that it is returned to the pool exactly once.
+ */
+@NotThreadSafe
+final class NioConnection {
+  private static final Logger log = LoggerFactory.getLogger(NioConnection.class);
+  private static final int INITIAL_CHUNKED_BODY_SIZE = 4096;
+
+  private enum State { READING_HEAD, READING_BODY, READING_CHUNKED_BODY, PROCESSING, STREAMING, WRITING }
+
+  private final NioEventLoop eventLoop;
+  private final SocketChannel channel;
+  private final SelectionKey key;
+  private final HttpRequestHeadParser headParser = new HttpRequestHeadParser();
+  private final RequestDispatcher dispatcher;
+  private final Executor executor;
+  private final BufferPool bufferPool;
+  private final long maxBodyBytes;
+  private final ConnectionTimeouts timeouts;
+  private final AdmissionControl admission;
+  private final TimingWheel.Timeout deadline = new TimingWheel.Timeout(this::close);
+  private final ResponseSink sink = new HandlerSink();
+
+  private ByteBuffer head;
+  private State state = State.READING_HEAD;
+  private ParsedHttpRequestDetails requestDetails;
+  private ByteBuffer body;
+  private ChunkedDecoder chunkedDecoder;
+  private ByteBufferOutputStream chunkedBody;
+  private ByteBufferOutputStream responseHead;
+  private ByteBufferOutputStream responseBody;
+  private ByteBuffer[] responseContent;
+  private CompletableFuture<Void> streamedWrite;
+  private boolean responseWritten;
+  private boolean exchangeComplete; // the handler has returned, keepAlive holds its verdict
+  private boolean keepAlive;
+  private boolean awaitingNextRequest;
+  private boolean closed;
+
+  NioConnection(NioEventLoop eventLoop, SocketChannel channel, SelectionKey key, RequestDispatcher dispatcher,
+      Executor executor, BufferPool bufferPool, long maxBodyBytes, ConnectionTimeouts timeouts, AdmissionControl admission) {
+    this.eventLoop = eventLoop;
+    this.channel = channel;
+    this.key = key;
+    this.dispatcher = dispatcher;
+    this.executor = executor;
+    this.bufferPool = bufferPool;
+    this.maxBodyBytes = maxBodyBytes;
+    this.timeouts = timeouts;
+    this.admission = admission;
+    this.head = bufferPool.acquire(HttpFraming.MAX_HEAD_BYTES);
+    this.scheduleDeadline(timeouts.headerMillis()); // someone might be just opening connections without any input
+  }
+
+  void onReadable() throws IOException {
+    if (this.state == State.READING_HEAD) this.readHead();
+    else if (this.state == State.READING_BODY) this.readBody();
+    else if (this.state == State.READING_CHUNKED_BODY) this.readChunkedBody();
+  }
+
+  /**
+   * Writes the head and the body with a single gathering write, as much as the socket accepts. The client that does not accept
+   * any bytes within the idle timeout is disconnected.
+   */
+  void onWritable() throws IOException {
+    final long written = this.channel.write(this.responseContent);
+
+    if (this.responseContent[this.responseContent.length - 1].hasRemaining()) {
+      if (written > 0 || !this.deadline.isScheduled()) this.scheduleDeadline(this.timeouts.idleMillis());
+      return;
+    }
+
+    this.eventLoop.wheel().cancel(this.deadline);
+
+    this.key.interestOps(0); // until the handler hands over the next piece or returns
+
+    if (this.state == State.STREAMING) {
+      this.completeStreamedWrite(null);
+    } else {
+      this.responseWritten = true;
+      this.finishExchange();
+    }
+  }
+
+  void close() {
+    if (this.closed) return;
+
+    this.closed = true;
+    this.eventLoop.wheel().cancel(this.deadline);
+    this.admission.releaseConnection();
+    this.key.cancel();
+
+    try {
+      this.channel.close();
+    } catch (IOException consumed) {
+    }
+
+    if (this.head != null) {
+      this.bufferPool.release(this.head);
+      this.head = null;
+    }
+
+    if (this.state == State.STREAMING) {
+      this.completeStreamedWrite(new ClosedChannelException()); // wakes up the handler, that hands the buffers back by aborting
+    } else if (this.state != State.PROCESSING) {
+      this.releaseExchange(); // otherwise the buffers are owned by the handler thread
+    }
+  }
+
+  private void readHead() throws IOException {
+    if (this.channel.read(this.head) == -1) {
+      this.close();
+      return;
+    }
+
+    if (this.awaitingNextRequest && this.head.position() > 0) { // the header timeout of the next request runs from its first byte
+      this.awaitingNextRequest = false;
+      this.scheduleDeadline(this.timeouts.headerMillis());
+    }
+
+    this.parseHead();
+  }
+
+  private void parseHead() throws IOException {
+    final int headEnd;
+    final boolean chunked;
+
+    try {
+      if (!this.headParser.parse(this.head)) return;
+
+      headEnd = this.headParser.headEnd();
+      this.requestDetails = this.headParser.toRequestDetails();
+      chunked = HttpFraming.isChunked(this.requestDetails);
+
+      if (chunked) {
+        this.chunkedDecoder = new ChunkedDecoder(this.maxBodyBytes);
+        this.chunkedBody = new ByteBufferOutputStream(this.bufferPool, INITIAL_CHUNKED_BODY_SIZE);
+      } else {
+        this.body = this.bufferPool.acquire(HttpFraming.contentLength(this.requestDetails, this.maxBodyBytes));
+      }
+    } catch (RuntimeException ex) {
+      this.respondWithFailure(ex);
+      return;
+    }
+
+    // the bytes that arrived together with the head belong to the body
+    this.head.flip().position(headEnd);
+    this.scheduleDeadline(this.timeouts.bodyMillis());
+
+    if (chunked) {
+      this.state = State.READING_CHUNKED_BODY;
+      this.decodeChunks();
+      return;
+    }
+
+    final int received = this.head.limit();
+    if (this.head.remaining() > this.body.remaining()) this.head.limit(headEnd + this.body.remaining());
+    this.body.put(this.head);
+    this.head.limit(received); // the rest belongs to the next pipelined request
+
+    this.state = State.READING_BODY;
+    if (!this.body.hasRemaining()) this.process(this.body.flip());
+  }
+
+  private void readBody() throws IOException {
+    if (this.channel.read(this.body) == -1) {
+      this.close();
+      return;
+    }
+
+    if (!this.body.hasRemaining()) this.process(this.body.flip());
+  }
+
+  /**
+   * The head buffer is no longer needed once the head is parsed, it is reused for the raw bytes of the chunked body.
+   */
+  private void readChunkedBody() throws IOException {
+    this.head.clear();
+
+    if (this.channel.read(this.head) == -1) {
+      this.close();
+      return;
+    }
+
+    this.head.flip();
+    this.decodeChunks();
+  }
+
+  private void decodeChunks() throws IOException {
+    final boolean complete;
+
+    try {
+      complete = this.chunkedDecoder.decode(this.head, this.chunkedBody);
+    } catch (RuntimeException ex) {
+      this.respondWithFailure(ex);
+      return;
+    }
+
+    if (complete) this.process(this.chunkedBody.content());
+  }
+
+  /**
+   * Hands the complete request over to the executor, the connection is not selected until the response is ready.
+   */
+  private void process(ByteBuffer requestBody) throws IOException {
+    this.eventLoop.wheel().cancel(this.deadline);
+
+    if (!this.admission.tryAcquireRequest()) {
+      this.rejectOverloaded();
+      return;
+    }
+
+    this.state = State.PROCESSING;
+    this.key.interestOps(0);
+
+    final InetAddress remoteAddress = ((InetSocketAddress) this.channel.getRemoteAddress()).getAddress();
+    final ParsedHttpRequestDetails requestDetails = this.requestDetails;
+
+    try {
+      this.executor.execute(() -> {
+        final boolean keepAlive;
+
+        try {
+          keepAlive = this.dispatcher.dispatch(requestDetails, remoteAddress, new ByteBufferInputStream(requestBody), this.sink,
+              HttpFraming.isKeepAlive(requestDetails));
+        } catch (IOException | RuntimeException ex) {
+          log.error("Handler failed to render the response", ex);
+          this.eventLoop.execute(this::abort);
+          return;
+        } finally {
+          this.admission.releaseRequest();
+        }
+
+        this.eventLoop.execute(() -> this.completeExchange(keepAlive)); // queued after the response
+      });
+    } catch (RejectedExecutionException e) {
+      this.admission.releaseRequest();
+      this.rejectOverloaded();
+    }
+  }
+
+  /**
+   * Answers with 503 when the request cannot be handled now, the handler never saw the request, so the buffers stay with the loop.
+   */
+  private void rejectOverloaded() {
+    this.state = State.WRITING;
+    this.completeExchange(false);
+    this.writeContent(new ByteBuffer[] {ResponseHead.serviceUnavailable()});
+  }
+
+  private void respondWithFailure(RuntimeException ex) {
+    this.eventLoop.wheel().cancel(this.deadline);
+    this.state = State.PROCESSING;
+    this.key.interestOps(0);
+    this.completeExchange(false); // the request cannot be framed, so the connection cannot be reused
+
+    try {
+      this.dispatcher.handleFailure(ex, this.sink);
+    } catch (IOException impossible) {
+      throw new IllegalStateException(impossible);
+    }
+  }
+
+  /**
+   * Takes over the rendered response, from now on the buffers are owned by the event loop again.
+   */
+  private void write(ByteBufferOutputStream head, @Nullable ByteBufferOutputStream body) {
+    this.state = State.WRITING;
+    this.responseHead = head;
+    this.responseBody = body;
+
+    if (!this.key.isValid()) {
+      this.close();
+      return;
+    }
+
+    this.writeContent(body == null ? new ByteBuffer[] {head.content()} : new ByteBuffer[] {head.content(), body.content()});
+  }
+
+  /**
+   * Writes the part of the streamed response, the buffer stays owned by the handler thread that waits for the completion.
+   */
+  private void writeStreamed(ByteBuffer data, CompletableFuture<Void> completion) {
+    if (!this.key.isValid()) {
+      completion.completeExceptionally(new ClosedChannelException());
+      return;
+    }
+
+    this.state = State.STREAMING;
+    this.streamedWrite = completion;
+    this.writeContent(new ByteBuffer[] {data});
+  }
+
+  private void writeContent(ByteBuffer[] content) {
+    this.responseContent = content;
+
+    try {
+      this.onWritable();
+      if (this.key.isValid() && content[content.length - 1].hasRemaining()) {
+        this.key.interestOps(SelectionKey.OP_WRITE);
+      }
+    } catch (IOException e) {
+      this.close();
+    }
+  }
+
+  private void scheduleDeadline(long timeoutMillis) {
+    this.eventLoop.wheel().schedule(this.deadline, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis));
+  }
+
+  private void completeStreamedWrite(@Nullable Throwable failure) {
+    final CompletableFuture<Void> completion = this.streamedWrite;
+    this.streamedWrite = null;
+    this.responseContent = null;
+    this.state = State.PROCESSING;
+
+    if (failure == null) completion.complete(null);
+    else completion.completeExceptionally(failure);
+  }
+
+  private void completeExchange(boolean keepAlive) {
+    this.exchangeComplete = true;
+    this.keepAlive = keepAlive;
+    this.finishExchange();
+  }
+
+  /**
+   * Once the response is written out and the handler has returned, either closes the connection or prepares it for the next request.
+   */
+  private void finishExchange() {
+    if (this.closed || !this.responseWritten || !this.exchangeComplete) return;
+
+    if (!this.keepAlive) {
+      this.close();
+      return;
+    }
+
+    this.releaseExchange();
+    this.requestDetails = null;
+    this.chunkedDecoder = null;
+    this.responseWritten = false;
+    this.exchangeComplete = false;
+    this.headParser.reset();
+    this.head.compact(); // the pipelined bytes move to the start, where the parser expects the next head
+    this.state = State.READING_HEAD;
+    this.key.interestOps(SelectionKey.OP_READ);
+
+    if (this.head.position() == 0) {
+      this.awaitingNextRequest = true;
+      this.scheduleDeadline(this.timeouts.idleMillis());
+      return;
+    }
+
+    this.scheduleDeadline(this.timeouts.headerMillis());
+
+    try {
+      this.parseHead();
+    } catch (IOException e) {
+      this.close();
+    }
+  }
+
+  /**
+   * Marks the streamed response written out, the handler has handed the last piece over.
+   */
+  private void endStream() {
+    this.state = State.WRITING;
+    this.responseWritten = true;
+    this.finishExchange();
+  }
+
+  /**
+   * Closes the connection that will not get a (complete) response, the buffers are owned by the event loop again.
+   */
+  private void abort() {
+    this.state = State.WRITING;
+    this.close();
+  }
+
+  private void releaseExchange() {
+    if (this.body != null) {
+      this.bufferPool.release(this.body);
+      this.body = null;
+    }
+
+    if (this.chunkedBody != null) {
+      this.chunkedBody.release();
+      this.chunkedBody = null;
+    }
+
+    if (this.responseHead != null) {
+      this.responseHead.release();
+      this.responseHead = null;
+    }
+
+    if (this.responseBody != null) {
+      this.responseBody.release();
+      this.responseBody = null;
+    }
+
+    this.responseContent = null;
+  }
+
+  /**
+   * Sink used by the handler thread (and by the event loop for the failures of the framing), everything is passed to the event loop.
+   */
+  private final class HandlerSink implements ResponseSink {
+
+    @Override
+    public void send(ByteBufferOutputStream head, @Nullable ByteBufferOutputStream body) {
+      NioConnection.this.eventLoop.execute(() -> NioConnection.this.write(head, body));
+    }
+
+    @Override
+    public void write(ByteBuffer data) throws IOException {
+      if (NioConnection.this.eventLoop.inEventLoop()) {
+        throw new IOException("Streamed response cannot be written by the handler running on the event loop");
+      }
+
+      final var completion = new CompletableFuture<Void>();
+      NioConnection.this.eventLoop.execute(() -> NioConnection.this.writeStreamed(data, completion));
+
+      try {
+        completion.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while writing the response");
+      } catch (ExecutionException e) {
+        throw new IOException("Failed to write the response", e.getCause());
+      }
+    }
+
+    @Override
+    public void endStream() {
+      NioConnection.this.eventLoop.execute(NioConnection.this::endStream);
+    }
+  }
+}
@@ -0,0 +1,192 @@
+package com.akmal.comperio.http.server;
+
+import com.akmal.comperio.http.buffer.BufferPool;
+import java.io.IOException;
+import java.net.StandardSocketOptions;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import net.jcip.annotations.ThreadSafe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Single threaded selector loop that owns a subset of the connections of the non-blocking engine (see {@link ServerEngine#NIO}).
+ * Other threads interact with the loop only by submitting tasks through {@link #execute(Runnable)} that are run by the loop
+ * thread between the selections, therefore, the state of the connections is never shared.
+ * The deadlines of the connections are kept in the {@link TimingWheel} of the loop, the selection waits at most until the next tick
+ * of the wheel, so that the expired connections are closed on time without scanning all of them.
+ */
+@ThreadSafe
+final class NioEventLoop implements Runnable, Executor {
+  private static final Logger log = LoggerFactory.getLogger(NioEventLoop.class);
+
+  private final Selector selector;
+  private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+  private final RequestDispatcher dispatcher;
+  private final Executor handlerExecutor;
+  private final BufferPool bufferPool;
+  private final long maxBodyBytes;
+  private final ConnectionTimeouts timeouts;
+  private final AdmissionControl admission;
+  private final TimingWheel wheel = new TimingWheel(System.nanoTime());
+  private volatile boolean running = true;
+  private volatile boolean terminated;
+  private volatile Thread thread;
+
+  NioEventLoop(RequestDispatcher dispatcher, Executor handlerExecutor, BufferPool bufferPool, long maxBodyBytes,
+      ConnectionTimeouts timeouts, AdmissionControl admission) throws IOException {
+    this.selector = Selector.open();
+    this.dispatcher = dispatcher;
+    this.handlerExecutor = handlerExecutor;
+    this.bufferPool = bufferPool;
+    this.maxBodyBytes = maxBodyBytes;
+    this.timeouts = timeouts;
+    this.admission = admission;
+  }
+
+  /**
+   * Hands the accepted connection over to the loop, the connection holds the permit of the {@link AdmissionControl} that is returned
+   * once it is closed. The connection handed over to the stopped loop is closed right away, the one that is still queued when
+   * the loop stops is closed by the loop on its way out or, if the loop has already drained its tasks, by the caller.
+   */
+  void register(SocketChannel channel) {
+    if (!this.running) {
+      this.reject(channel);
+      return;
+    }
+
+    final Runnable registration = () -> {
+      if (!this.running) {
+        this.reject(channel);
+        return;
+      }
+
+      try {
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+
+        final SelectionKey key = channel.register(this.selector, SelectionKey.OP_READ);
+        key.attach(new NioConnection(this, channel, key, this.dispatcher, this.handlerExecutor, this.bufferPool,
+            this.maxBodyBytes, this.timeouts, this.admission));
+      } catch (IOException e) {
+        log.warn("Failed to register the connection", e);
+        this.reject(channel);
+      }
+    };
+
+    this.execute(registration);
+    if (this.terminated && this.tasks.remove(registration)) this.reject(channel); // missed the last drain of the loop
+  }
+
+  private void reject(SocketChannel channel) {
+    this.admission.releaseConnection();
+    try {
+      channel.close();
+    } catch (IOException consumed) {
+    }
+  }
+
+  /**
+   * Runs the task on the loop thread.
+   */
+  @Override
+  public void execute(Runnable task) {
+    this.tasks.add(task);
+    this.selector.wakeup();
+  }
+
+  /**
+   * Returns the wheel tracking the deadlines of the connections of the loop, it can be used from the loop thread only.
+   */
+  TimingWheel wheel() {
+    return this.wheel;
+  }
+
+  /**
+   * Returns whether the caller runs on the loop thread.
+   */
+  boolean inEventLoop() {
+    return Thread.currentThread() == this.thread;
+  }
+
+  void shutdown() {
+    this.running = false;
+    this.selector.wakeup();
+  }
+
+  @Override
+  public void run() {
+    this.thread = Thread.currentThread();
+
+    try {
+      while (this.running) {
+        this.selector.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(this.wheel.nanosUntilNextTick(System.nanoTime()))));
+        this.runTasks();
+        this.processSelectedKeys();
+        this.expireDeadlines();
+      }
+    } catch (IOException e) {
+      log.error("Event loop failed", e);
+    } finally {
+      this.running = false;
+      this.terminated = true;
+      this.runTasks(); // the queued connections are rejected, the rest runs before the connections are closed
+      this.closeAll();
+    }
+  }
+
+  private void runTasks() {
+    Runnable task;
+
+    while ((task = this.tasks.poll()) != null) {
+      try {
+        task.run();
+      } catch (RuntimeException e) {
+        log.error("Event loop task failed", e);
+      }
+    }
+  }
+
+  private void processSelectedKeys() {
+    final Iterator<SelectionKey> iterator = this.selector.selectedKeys().iterator();
+
+    while (iterator.hasNext()) {
+      final SelectionKey key = iterator.next();
+      iterator.remove();
+      final var connection = (NioConnection) key.attachment();
+
+      try {
+        if (key.isReadable()) connection.onReadable();
+        else if (key.isWritable()) connection.onWritable();
+      } catch (IOException | CancelledKeyException e) {
+        connection.close();
+      }
+    }
+  }
+
+  private void expireDeadlines() {
+    try {
+      this.wheel.advance(System.nanoTime());
+    } catch (RuntimeException e) {
+      log.error("Deadline expiration failed", e);
+    }
+  }
+
+  private void closeAll() {
+    for (SelectionKey key: this.selector.keys()) {
+      if (key.attachment() instanceof NioConnection connection) connection.close();
+    }
+
+    try {
+      this.selector.close();
+    } catch (IOException consumed) {
+    }
+  }
+}
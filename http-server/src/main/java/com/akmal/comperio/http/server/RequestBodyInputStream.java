@@ -0,0 +1,51 @@
+package com.akmal.comperio.http.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * View over the body of a request on a persistent connection. It reports the end of the stream at the end of the body,
+ * so that the handler cannot consume the next request, and closing it does not close the connection.
+ */
+abstract class RequestBodyInputStream extends InputStream {
+  private @Nullable Runnable completionListener;
+
+  /**
+   * Skips the part of the body the handler did not read, so that the connection is positioned at the next request.
+   *
+   * @return whether the whole body was consumed, false if the stream ended prematurely or the body turned out to be malformed.
+   */
+  abstract boolean drain() throws IOException;
+
+  /**
+   * Returns whether the end of the body has been reached.
+   */
+  abstract boolean isComplete();
+
+  /**
+   * Registers the listener that is notified once, when the end of the body is reached, right away if it is reached already.
+   * It lets the connection stop the body deadline as soon as the body is consumed, whether by the handler or by {@link #drain()}.
+   */
+  void onCompletion(Runnable listener) {
+    if (this.isComplete()) {
+      listener.run();
+    } else {
+      this.completionListener = listener;
+    }
+  }
+
+  /**
+   * Notifies the listener, called by the implementations when they reach the end of the body.
+   */
+  protected final void completed() {
+    final Runnable listener = this.completionListener;
+    this.completionListener = null;
+    if (listener != null) listener.run();
+  }
+
+  @Override
+  public void close() {
+    // the connection outlives the request
+  }
+}
@@ -0,0 +1,123 @@
+package com.akmal.comperio.http.server;
+
+import com.akmal.comperio.http.HttpHandler;
+import com.akmal.comperio.http.HttpProtocol;
+import com.akmal.comperio.http.HttpStatus;
+import com.akmal.comperio.http.MediaType;
+import com.akmal.comperio.http.buffer.BufferPool;
+import com.akmal.comperio.http.exception.http.PathNotFoundException;
+import com.akmal.comperio.http.parser.request.ParsedHttpRequestDetails;
+import com.akmal.comperio.http.router.RouteMatch;
+import com.akmal.comperio.http.router.Router;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.util.Map;
+import java.util.Optional;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Matches the parsed request against the router and invokes the handler of the route, independently of how the request was read.
+ * Shared by the blocking {@link HttpSocketHandler} and the selector based {@link NioEventLoop}.
+ */
+final class RequestDispatcher {
+  private final Router<HttpHandler> router;
+  private final ExceptionHandler exceptionHandler;
+  private final BufferPool bufferPool;
+  private final @Nullable HttpHandler defaultHandler;
+
+  RequestDispatcher(Router<HttpHandler> router, ExceptionHandler exceptionHandler, BufferPool bufferPool) {
+    this(router, exceptionHandler, bufferPool, null);
+  }
+
+  /**
+   * @param defaultHandler handles the requests none of the routes matched, null responds with 404.
+   */
+  RequestDispatcher(Router<HttpHandler> router, ExceptionHandler exceptionHandler, BufferPool bufferPool,
+      @Nullable HttpHandler defaultHandler) {
+    this.router = router;
+    this.exceptionHandler = exceptionHandler;
+    this.bufferPool = bufferPool;
+    this.defaultHandler = defaultHandler;
+  }
+
+  /**
+   * Invokes the handler of the matched route and sends the response, runtime exceptions (including the missing route) are
+   * rendered by the exception handler instead. When the handler fails after the streamed response has been committed,
+   * the response cannot be completed and the connection has to be closed.
+   *
+   * @param requestDetails parsed head of the request.
+   * @param remoteAddress address of the client.
+   * @param body stream of the request body.
+   * @param sink of the connection the response is sent to.
+   * @param keepAlive whether the client asked the connection to stay open after the response.
+   * @return whether the connection may stay open after the response.
+   * @throws IOException when the response could not be sent or completed.
+   */
+  boolean dispatch(ParsedHttpRequestDetails requestDetails, InetAddress remoteAddress, InputStream body, ResponseSink sink,
+      boolean keepAlive) throws IOException {
+    final boolean chunkingSupported = requestDetails.protocol() == HttpProtocol.HTTP_V1_1;
+    HttpResponse response = this.newResponse(sink, keepAlive, chunkingSupported);
+
+    try {
+      final Optional<RouteMatch<HttpHandler>> routeMatchOpt = this.router.match(requestDetails.method(), requestDetails.path());
+
+      if (routeMatchOpt.isEmpty()) {
+        if (this.defaultHandler == null) throw new PathNotFoundException(HttpStatus.NOT_FOUND, "Requested path is not found");
+
+        this.defaultHandler.handle(this.newRequest(requestDetails, remoteAddress, body, Map.of()), response);
+      } else {
+        final var routeMatch = routeMatchOpt.get();
+        routeMatch.route().getHandler().handle(this.newRequest(requestDetails, remoteAddress, body, routeMatch.variables()), response);
+      }
+    } catch (RuntimeException ex) {
+      response.discard(); // discard whatever the handler managed to write
+      if (response.isCommitted()) throw new IOException("Handler failed after the response was committed", ex);
+
+      response = this.newResponse(sink, keepAlive, chunkingSupported);
+      response.setStatus(HttpStatus.INTERNAL_SERVER_ERROR);
+      this.renderException(ex, response);
+    }
+
+    response.send();
+    return response.isKeepAlive();
+  }
+
+  /**
+   * Renders the failure that happened before the request could be dispatched, the connection is closed after the response.
+   */
+  void handleFailure(RuntimeException ex, ResponseSink sink) throws IOException {
+    final HttpResponse response = this.newResponse(sink, false, false);
+    response.setStatus(HttpStatus.INTERNAL_SERVER_ERROR);
+
+    this.renderException(ex, response);
+    response.send();
+  }
+
+  private void renderException(RuntimeException ex, HttpResponse response) {
+    try {
+      this.exceptionHandler.handle(ex, response);
+    } catch (RuntimeException handlerEx) {
+      response.discard(); // the response is never sent, its buffer would leak otherwise
+      throw handlerEx;
+    }
+  }
+
+  private HttpRequest newRequest(ParsedHttpRequestDetails requestDetails, InetAddress remoteAddress, InputStream body,
+      Map<String, String> variables) {
+    return new HttpRequest(requestDetails.method(), requestDetails.protocol(), requestDetails.path(), remoteAddress,
+        requestDetails.headers(), requestDetails.queryParams(), body, variables);
+  }
+
+  private HttpResponse newResponse(ResponseSink sink, boolean keepAlive, boolean chunkingSupported) {
+    return HttpResponse.builder()
+               .httpProtocol(HttpProtocol.HTTP_V1_1)
+               .sink(sink)
+               .status(HttpStatus.OK)
+               .contentType(MediaType.TEXT_PLAIN)
+               .keepAlive(keepAlive)
+               .chunkingSupported(chunkingSupported)
+               .bufferPool(this.bufferPool)
+               .build();
+  }
+}
@@ -0,0 +1,67 @@
+package com.akmal.comperio.http.server;
+
+import com.akmal.comperio.http.HttpProtocol;
+import com.akmal.comperio.http.HttpStatus;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import net.jcip.annotations.Immutable;
+
+/**
+ * Pre-encoded fragments of the response head. Every combination of the protocol and the status has its status line encoded
+ * once, together with the line terminator, and the names of the headers the server sets itself are encoded with the separator,
+ * so that rendering the head is mostly copying of the constant arrays. The arrays are shared and must not be modified.
+ */
+@Immutable
+final class ResponseHead {
+  static final byte[] CRLF = ascii("\r\n");
+  static final byte[] SERVER = ascii("Server: ");
+  static final byte[] CONTENT_TYPE = ascii("Content-Type: ");
+  static final byte[] CONTENT_LENGTH = ascii("Content-Length: ");
+  static final byte[] DATE = ascii("Date: ");
+  static final byte[] HEADER_SEPARATOR = ascii(": ");
+  static final byte[] CONNECTION_KEEP_ALIVE = ascii("Connection: keep-alive\r\n");
+  static final byte[] CONNECTION_CLOSE = ascii("Connection: close\r\n");
+  static final byte[] TRANSFER_ENCODING_CHUNKED = ascii("Transfer-Encoding: chunked\r\n");
+
+  private static final byte[] OVERLOADED_STATUS_LINE = ascii("HTTP/1.1 503 Service Unavailable\r\nDate: ");
+  private static final byte[] OVERLOADED_HEADERS = ascii("\r\nContent-Length: 0\r\nRetry-After: 1\r\nConnection: close\r\n\r\n");
+
+  private static final HttpStatus[] STATUSES = HttpStatus.values();
+  private static final byte[][][] STATUS_LINES = new byte[HttpProtocol.values().length][STATUSES.length][];
+
+  static {
+    for (HttpProtocol protocol: HttpProtocol.values()) {
+      for (HttpStatus status: STATUSES) {
+        STATUS_LINES[protocol.ordinal()][status.ordinal()] = ascii(
+            protocol.getName() + " " + status.value() + " " + status.getReasonPhrase() + "\r\n");
+      }
+    }
+  }
+
+  private ResponseHead() {}
+
+  /**
+   * Returns the encoded status line including the line terminator, e.g. HTTP/1.1 200 OK.
+   */
+  static byte[] statusLine(HttpProtocol protocol, HttpStatus status) {
+    return STATUS_LINES[protocol.ordinal()][status.ordinal()];
+  }
+
+  /**
+   * Returns the complete response rejecting the connection or the request when the server is overloaded. It bypasses the router and
+   * the exception handler, so that the rejection is as cheap as possible, and it closes the connection.
+   */
+  static ByteBuffer serviceUnavailable() {
+    final byte[] date = HttpDate.now();
+
+    return ByteBuffer.allocate(OVERLOADED_STATUS_LINE.length + date.length + OVERLOADED_HEADERS.length)
+               .put(OVERLOADED_STATUS_LINE)
+               .put(date)
+               .put(OVERLOADED_HEADERS)
+               .flip();
+  }
+
+  private static byte[] ascii(String value) {
+    return value.getBytes(StandardCharsets.US_ASCII);
+  }
+}
@@ -0,0 +1,78 @@
+package com.akmal.comperio.http.server;
+
+import com.akmal.comperio.http.buffer.ByteBufferOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Destination of the rendered responses of a connection. A buffered response is passed on at once by {@link #send}, while a streamed
+ * response is passed on piece by piece by {@link #write(ByteBuffer)} and completed by {@link #endStream()}.
+ */
+interface ResponseSink {
+
+  /**
+   * Sends the buffered response. The sink takes over the buffers of the head and the body, it writes them out and returns them
+   * to the pool even when the write fails.
+   *
+   * @param head rendered status line and headers including the terminating blank line.
+   * @param body content of the body or null when the body is empty.
+   */
+  void send(ByteBufferOutputStream head, @Nullable ByteBufferOutputStream body) throws IOException;
+
+  /**
+   * Writes the part of the streamed response, blocks until the remaining bytes of the buffer are consumed,
+   * the buffer can be reused by the caller afterwards.
+   */
+  void write(ByteBuffer data) throws IOException;
+
+  /**
+   * Marks the end of the streamed response.
+   */
+  void endStream() throws IOException;
+
+  /**
+   * Returns the sink that copies the response into the stream of the connection. The buffered response is flushed once,
+   * so that the buffered stream passes the head and the body to the socket together, every part of the streamed response is flushed
+   * right away.
+   */
+  static ResponseSink of(OutputStream out) {
+    return new ResponseSink() {
+      @Override
+      public void send(ByteBufferOutputStream head, @Nullable ByteBufferOutputStream body) throws IOException {
+        try {
+          head.writeTo(out);
+          if (body != null) body.writeTo(out);
+          out.flush();
+        } finally {
+          head.release();
+          if (body != null) body.release();
+        }
+      }
+
+      @Override
+      public void write(ByteBuffer data) throws IOException {
+        if (data.hasArray()) {
+          out.write(data.array(), data.arrayOffset() + data.position(), data.remaining());
+          data.position(data.limit());
+        } else {
+          final var chunk = new byte[Math.min(data.remaining(), 8192)];
+
+          while (data.hasRemaining()) {
+            final int length = Math.min(chunk.length, data.remaining());
+            data.get(chunk, 0, length);
+            out.write(chunk, 0, length);
+          }
+        }
+
+        out.flush();
+      }
+
+      @Override
+      public void endStream() throws IOException {
+        out.flush();
+      }
+    };
+  }
+}
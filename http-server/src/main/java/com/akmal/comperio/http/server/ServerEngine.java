@@ -0,0 +1,17 @@
+package com.akmal.comperio.http.server;
+
+/**
+ * Defines how the {@link HttpServer} accepts and reads the connections.
+ */
+public enum ServerEngine {
+  /**
+   * Every connection is served by a task of the executor that reads and writes the socket with blocking streams.
+   */
+  BLOCKING,
+
+  /**
+   * Connections are multiplexed by a fixed number of selector event loops that read the requests without blocking,
+   * only the handlers are run by the executor.
+   */
+  NIO
+}
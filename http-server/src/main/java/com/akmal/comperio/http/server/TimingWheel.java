@@ -0,0 +1,173 @@
+package com.akmal.comperio.http.server;
+
+import java.util.concurrent.TimeUnit;
+import net.jcip.annotations.NotThreadSafe;
+
+/**
+ * Hashed timing wheel (Varghese and Lauck) tracking the deadlines of the connections. The time is divided into ticks and every tick
+ * maps to one of the buckets of the wheel, the timeout is linked into the bucket of its deadline, so that scheduling and cancelling
+ * are constant time operations without any allocation, no matter how many connections are tracked. Advancing the wheel visits only
+ * the buckets of the elapsed ticks, the timeouts further than one revolution away stay in their bucket until their tick comes.
+ * The deadlines are rounded up to the tick, i.e. a timeout fires at most one tick late and never early.
+ * The wheel is driven by a single thread, the owner of the timeouts, see {@link DeadlineTimer} for the thread-safe variant.
+ */
+@NotThreadSafe
+final class TimingWheel {
+  static final long DEFAULT_TICK_MILLIS = 100;
+  static final int DEFAULT_TICKS_PER_WHEEL = 512;
+
+  private static final int UNSCHEDULED = -1;
+  private static final int EXPIRING = -2;
+
+  private final long tickNanos;
+  private final long startNanos;
+  private final Timeout[] buckets;
+  private final int mask;
+  private long currentTick;
+  private int size;
+
+  TimingWheel(long nowNanos) {
+    this(TimeUnit.MILLISECONDS.toNanos(DEFAULT_TICK_MILLIS), DEFAULT_TICKS_PER_WHEEL, nowNanos);
+  }
+
+  /**
+   * @param ticksPerWheel number of the buckets, it is rounded up to the power of two.
+   */
+  TimingWheel(long tickNanos, int ticksPerWheel, long nowNanos) {
+    if (tickNanos <= 0) throw new IllegalArgumentException("Tick duration must be positive");
+    if (ticksPerWheel < 1 || ticksPerWheel > 1 << 30) throw new IllegalArgumentException("Invalid number of ticks per wheel");
+
+    int bucketCount = 1;
+    while (bucketCount < ticksPerWheel) bucketCount <<= 1;
+
+    this.tickNanos = tickNanos;
+    this.startNanos = nowNanos;
+    this.buckets = new Timeout[bucketCount];
+    this.mask = this.buckets.length - 1;
+  }
+
+  /**
+   * Schedules the timeout to fire at the deadline, the timeout that is already scheduled is moved to the new deadline.
+   */
+  void schedule(Timeout timeout, long deadlineNanos) {
+    this.cancel(timeout);
+
+    final long tick = Math.max(this.tickOf(deadlineNanos), this.currentTick);
+    final int bucket = (int) (tick & this.mask);
+
+    timeout.deadlineTick = tick;
+    timeout.bucket = bucket;
+    timeout.prev = null;
+    timeout.next = this.buckets[bucket];
+    if (timeout.next != null) timeout.next.prev = timeout;
+    this.buckets[bucket] = timeout;
+    this.size++;
+  }
+
+  /**
+   * Cancels the timeout, cancelling the timeout that is not scheduled has no effect.
+   */
+  void cancel(Timeout timeout) {
+    if (timeout.bucket == EXPIRING) {
+      timeout.bucket = UNSCHEDULED; // picked for the expiration by the running advance, it is skipped now
+      return;
+    }
+    if (timeout.bucket == UNSCHEDULED) return;
+
+    if (timeout.prev != null) timeout.prev.next = timeout.next;
+    else this.buckets[timeout.bucket] = timeout.next;
+    if (timeout.next != null) timeout.next.prev = timeout.prev;
+
+    timeout.prev = timeout.next = null;
+    timeout.bucket = UNSCHEDULED;
+    this.size--;
+  }
+
+  /**
+   * Fires the timeouts whose tick has elapsed. The tasks may schedule and cancel the timeouts, including the expiring ones.
+   *
+   * @return the number of fired timeouts.
+   */
+  int advance(long nowNanos) {
+    final long lastTick = this.tickOf(nowNanos) - 1; // the tick is elapsed once its end has passed
+    if (lastTick < this.currentTick) return 0;
+
+    // after a stall longer than one revolution every bucket is visited only once
+    final long firstTick = Math.max(this.currentTick, lastTick - this.mask);
+    Timeout expired = null;
+
+    for (long tick = firstTick; tick <= lastTick; tick++) {
+      Timeout timeout = this.buckets[(int) (tick & this.mask)];
+
+      while (timeout != null) {
+        final Timeout next = timeout.next;
+
+        if (timeout.deadlineTick <= lastTick) {
+          this.cancel(timeout);
+          timeout.bucket = EXPIRING;
+          timeout.nextExpired = expired;
+          expired = timeout;
+        }
+
+        timeout = next;
+      }
+    }
+
+    this.currentTick = lastTick + 1;
+
+    int fired = 0;
+    while (expired != null) {
+      final Timeout timeout = expired;
+      expired = timeout.nextExpired;
+      timeout.nextExpired = null;
+
+      if (timeout.bucket == EXPIRING) {
+        timeout.bucket = UNSCHEDULED;
+        fired++;
+        timeout.task.run();
+      }
+    }
+
+    return fired;
+  }
+
+  /**
+   * Returns the time until the end of the current tick, i.e. how long the driving thread can wait before advancing the wheel again.
+   */
+  long nanosUntilNextTick(long nowNanos) {
+    return Math.max(1, this.startNanos + this.tickOf(nowNanos) * this.tickNanos - nowNanos);
+  }
+
+  int size() {
+    return this.size;
+  }
+
+  /**
+   * Returns the tick the instant falls into, rounded up, so that the timeout never fires before its deadline.
+   */
+  private long tickOf(long nanos) {
+    final long elapsed = nanos - this.startNanos;
+    return elapsed <= 0 ? 0 : (elapsed + this.tickNanos - 1) / this.tickNanos;
+  }
+
+  /**
+   * Entry of the wheel, owned by a single connection and rescheduled for its whole lifetime.
+   */
+  @NotThreadSafe
+  static final class Timeout {
+    private final Runnable task;
+    private long deadlineTick;
+    private int bucket = UNSCHEDULED;
+    private Timeout prev;
+    private Timeout next;
+    private Timeout nextExpired;
+
+    Timeout(Runnable task) {
+      this.task = task;
+    }
+
+    boolean isScheduled() {
+      return this.bucket >= 0;
+    }
+  }
+}
@@ -0,0 +1,52 @@
+package com.akmal.comperio.http;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class HttpHeadersTest {
+
+  @Test
+  @DisplayName("Should resolve the received names to the constants and decode the values on lookup")
+  void shouldWrapReceivedBlock() {
+    final byte[] block = "content-length: 5\r\nX-Trace: abc\r\nACCEPT: a\r\naccept: b".getBytes(StandardCharsets.US_ASCII);
+    final int[] offsets = {0, 14, 16, 17, 19, 26, 28, 31, 33, 39, 41, 42, 44, 50, 52, 53};
+
+    final HttpHeaders headers = HttpHeaders.wrap(block, offsets, 4);
+
+    assertThat(headers.name(0)).isSameAs(HttpHeaders.CONTENT_LENGTH);
+    assertThat(headers.name(2)).isSameAs(HttpHeaders.ACCEPT);
+    assertThat(headers.name(1)).isEqualTo("X-Trace");
+    assertThat(headers.get(HttpHeaders.CONTENT_LENGTH)).isEqualTo("5");
+    assertThat(headers.get("x-trace")).isEqualTo("abc");
+    assertThat(headers.getAll("Accept")).containsExactly("a", "b");
+    assertThat(headers.get("X-Trace-Id")).isNull();
+    assertThat(headers.getAll("X-Missing")).isEmpty();
+  }
+
+  @Test
+  @DisplayName("Should replace and remove all the fields with the name regardless of the case")
+  void shouldSetAndRemove() {
+    final var headers = new HttpHeaders();
+    headers.add("Vary", "Accept");
+    headers.add("X-Custom", "1");
+    headers.add("vary", "Accept-Encoding");
+    headers.add("cookie", "a=1");
+
+    assertThat(headers.name(3)).isSameAs(HttpHeaders.COOKIE);
+    assertThat(headers.name(2)).isSameAs(HttpHeaders.VARY);
+
+    headers.set("VARY", "*");
+    assertThat(headers.getAll("Vary")).containsExactly("*");
+    assertThat(headers.size()).isEqualTo(3);
+
+    assertThat(headers.remove("x-custom")).isTrue();
+    assertThat(headers.remove("x-custom")).isFalse();
+    assertThat(headers.toString()).isEqualTo("HttpHeaders[Vary=*, Cookie=a=1]");
+
+    for (int i = 0; i < 20; i++) headers.add("X-" + i, String.valueOf(i));
+    assertThat(headers.get("x-19")).isEqualTo("19");
+  }
+}
@@ -0,0 +1,36 @@
+package com.akmal.comperio.http;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.akmal.comperio.http.exception.http.MalformedRequestException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class QueryParametersTest {
+
+  @Test
+  @DisplayName("Should percent-decode the names and the values")
+  void shouldDecodeParameters() {
+    final QueryParameters params = QueryParameters.lazy("name=J%C3%BCrgen+M&eq=a%3Db=c&flag&&empty=&z%20one=eu&zone=us&zone=eu");
+
+    assertThat(params.get("name")).isEqualTo("Jürgen M");
+    assertThat(params.get("eq")).isEqualTo("a=b=c");
+    assertThat(params.get("flag")).isEmpty();
+    assertThat(params.get("empty")).isEmpty();
+    assertThat(params.get("z one")).isEqualTo("eu");
+    assertThat(params.get("zone")).isEqualTo("eu");
+    assertThat(params.params()).hasSize(6);
+  }
+
+  @Test
+  @DisplayName("Should report the malformed query on the first access only")
+  void shouldFailOnAccess() {
+    final QueryParameters truncated = QueryParameters.lazy("a=%2");
+    final QueryParameters blankKey = QueryParameters.lazy("=value");
+
+    assertThatThrownBy(() -> truncated.get("a")).isInstanceOf(MalformedRequestException.class);
+    assertThatThrownBy(() -> blankKey.get("a")).isInstanceOf(MalformedRequestException.class);
+    assertThat(QueryParameters.lazy("").get("a")).isNull();
+  }
+}
@@ -0,0 +1,99 @@
+package com.akmal.comperio.http.buffer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class BufferPoolTest {
+
+  @Test
+  @DisplayName("Should round the size up to the size class and reuse released buffers")
+  void shouldReuseReleasedBuffers() {
+    final var pool = new StripedBufferPool(true, 4);
+    final ByteBuffer first = pool.acquire(1000);
+
+    assertThat(first.isDirect()).isTrue();
+    assertThat(first.capacity()).isEqualTo(1024);
+    assertThat(first.position()).isZero();
+    assertThat(first.limit()).isEqualTo(1000);
+
+    first.put((byte) 1);
+    pool.release(first);
+
+    final ByteBuffer second = pool.acquire(600);
+    assertThat(second).isSameAs(first);
+    assertThat(second.position()).isZero();
+    assertThat(second.limit()).isEqualTo(600);
+  }
+
+  @Test
+  @DisplayName("Should serve buffers released by another thread")
+  void shouldReuseBuffersAcrossThreads() throws InterruptedException {
+    final var pool = new StripedBufferPool(false, 8);
+    final ByteBuffer buffer = pool.acquire(StripedBufferPool.MAX_CLASS_SIZE);
+
+    final Thread releasing = Thread.ofPlatform().start(() -> pool.release(buffer));
+    releasing.join();
+
+    assertThat(pool.acquire(StripedBufferPool.MAX_CLASS_SIZE)).isSameAs(buffer);
+  }
+
+  @Test
+  @DisplayName("Should not pool the buffers above the largest size class or of the different kind")
+  void shouldNotPoolForeignBuffers() {
+    final var pool = new StripedBufferPool(false, 1);
+    final ByteBuffer oversized = pool.acquire(StripedBufferPool.MAX_CLASS_SIZE + 1);
+
+    assertThat(oversized.capacity()).isEqualTo(StripedBufferPool.MAX_CLASS_SIZE + 1);
+
+    pool.release(oversized);
+    pool.release(ByteBuffer.allocateDirect(1024));
+    pool.release(ByteBuffer.allocate(1000));
+
+    assertThat(pool.pooled()).isZero();
+  }
+
+  @Test
+  @DisplayName("Should report the leaked and the twice released buffers")
+  void shouldDetectLeaks() {
+    final LeakDetectingBufferPool pool = BufferPool.leakDetecting(new StripedBufferPool(false, 1));
+    final ByteBuffer leaked = pool.acquire(100);
+    final ByteBuffer released = pool.acquire(100);
+    pool.release(released);
+
+    assertThat(pool.outstanding()).isOne();
+    assertThatThrownBy(pool::assertNoLeaks).isInstanceOf(IllegalStateException.class).hasCauseInstanceOf(Throwable.class);
+    assertThatThrownBy(() -> pool.release(released)).isInstanceOf(IllegalStateException.class);
+
+    pool.release(leaked);
+    pool.assertNoLeaks();
+  }
+
+  @Test
+  @DisplayName("Should grow the output stream through the pool and return every buffer")
+  void shouldGrowOutputStream() throws Exception {
+    final LeakDetectingBufferPool pool = BufferPool.leakDetecting(new StripedBufferPool(true, 1));
+    final var out = new ByteBufferOutputStream(pool, 16);
+    final String text = "x".repeat(3000);
+
+    out.writeAscii("Content-Length: ");
+    out.writeDecimal(1234567890L);
+    out.write(' ');
+    out.write(text.getBytes(StandardCharsets.US_ASCII));
+
+    final var copy = new ByteArrayOutputStream();
+    out.writeTo(copy);
+
+    assertThat(copy.toString(StandardCharsets.US_ASCII)).isEqualTo("Content-Length: 1234567890 " + text);
+    assertThat(out.size()).isEqualTo(copy.size());
+    assertThat(pool.outstanding()).isOne();
+
+    out.release();
+    pool.assertNoLeaks();
+  }
+}
@@ -0,0 +1,89 @@
+package com.akmal.comperio.http.hpack;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.akmal.comperio.http.buffer.BufferPool;
+import com.akmal.comperio.http.buffer.ByteBufferOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class HpackDecoderTest {
+
+  @Test
+  @DisplayName("Should decode the Huffman encoded requests sharing the dynamic table (RFC 7541 C.4)")
+  void shouldDecodeHuffmanRequests() {
+    final var decoder = new HpackDecoder();
+
+    assertThat(decode(decoder, "828684418cf1e3c2e5f23a6ba0ab90f4ff"))
+        .containsExactly(":method", "GET", ":scheme", "http", ":path", "/", ":authority", "www.example.com");
+    assertThat(decoder.tableSize()).isEqualTo(57);
+
+    assertThat(decode(decoder, "828684be5886a8eb10649cbf"))
+        .containsExactly(":method", "GET", ":scheme", "http", ":path", "/", ":authority", "www.example.com",
+            "cache-control", "no-cache");
+    assertThat(decoder.tableSize()).isEqualTo(110);
+
+    assertThat(decode(decoder, "828785bf408825a849e95ba97d7f8925a849e95bb8e8b4bf"))
+        .containsExactly(":method", "GET", ":scheme", "https", ":path", "/index.html", ":authority", "www.example.com",
+            "custom-key", "custom-value");
+    assertThat(decoder.tableSize()).isEqualTo(164);
+  }
+
+  @Test
+  @DisplayName("Should read back what the encoder wrote, indexing the repeated fields")
+  void shouldRoundTripEncodedBlocks() {
+    final var encoder = new HpackEncoder();
+    final var decoder = new HpackDecoder();
+    final var out = new ByteBufferOutputStream(BufferPool.heap(), 64);
+
+    for (int i = 0; i < 2; i++) {
+      out.reset();
+      encoder.beginBlock(out);
+      encoder.encode(out, ":status", "200", true);
+      encoder.encode(out, "content-type", "text/plain", true);
+      encoder.encode(out, "date", "Mon, 0" + i + " Jan 2024 00:00:00 GMT", false);
+
+      assertThat(decode(decoder, out.content()))
+          .containsExactly(":status", "200", "content-type", "text/plain", "date", "Mon, 0" + i + " Jan 2024 00:00:00 GMT");
+    }
+
+    // :status and content-type are single bytes the second time, date is the indexed name and the literal value
+    assertThat(out.size()).isEqualTo(1 + 1 + 2 + 1 + 29);
+    assertThat(decoder.tableSize()).isEqualTo(encoder.tableSize());
+
+    out.reset();
+    encoder.setMaxTableSize(0);
+    encoder.beginBlock(out);
+    encoder.encode(out, "content-type", "text/plain", true);
+
+    assertThat(decode(decoder, out.content())).containsExactly("content-type", "text/plain");
+    assertThat(decoder.tableSize()).isZero();
+  }
+
+  @Test
+  @DisplayName("Should reject the malformed blocks")
+  void shouldRejectMalformedBlocks() {
+    assertThatThrownBy(() -> decode(new HpackDecoder(), "80")).isInstanceOf(HpackException.class); // index 0
+    assertThatThrownBy(() -> decode(new HpackDecoder(), "be")).isInstanceOf(HpackException.class); // empty dynamic table
+    assertThatThrownBy(() -> decode(new HpackDecoder(), "3fe21f")).isInstanceOf(HpackException.class); // table size over the limit
+    assertThatThrownBy(() -> decode(new HpackDecoder(), "0081ff")).isInstanceOf(HpackException.class); // padding too long
+  }
+
+  private static List<String> decode(HpackDecoder decoder, String hex) {
+    return decode(decoder, ByteBuffer.wrap(HexFormat.of().parseHex(hex)));
+  }
+
+  private static List<String> decode(HpackDecoder decoder, ByteBuffer block) {
+    final var fields = new ArrayList<String>();
+    decoder.decode(block, (name, value) -> {
+      fields.add(name);
+      fields.add(value);
+    });
+    return fields;
+  }
+}
@@ -0,0 +1,114 @@
+package com.akmal.comperio.http.parser.request;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.akmal.comperio.http.HttpProtocol;
+import com.akmal.comperio.http.HttpStatus;
+import com.akmal.comperio.http.exception.http.AbstractHttpRequestException;
+import com.akmal.comperio.http.router.HttpMethod;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class HttpRequestHeadParserTest {
+
+  static final String REQUEST = """
+      POST /v1/applications/app?force=true&zone=eu HTTP/1.1\r
+      Host: localhost\r
+      content-length:   5  \r
+      X-Empty:\r
+      \r
+      12345""";
+
+  @Test
+  @DisplayName("Should parse complete request head")
+  void shouldParseCompleteHead() {
+    final var parser = new HttpRequestHeadParser();
+    final ByteBuffer buffer = received(REQUEST);
+
+    assertThat(parser.parse(buffer)).isTrue();
+
+    final ParsedHttpRequestDetails details = parser.toRequestDetails();
+    assertThat(details.method()).isEqualTo(HttpMethod.POST);
+    assertThat(details.protocol()).isEqualTo(HttpProtocol.HTTP_V1_1);
+    assertThat(details.path()).isEqualTo("/v1/applications/app");
+    assertThat(details.headers().get("Host")).isEqualTo("localhost");
+    assertThat(details.headers().get("Content-Length")).isEqualTo("5");
+    assertThat(details.headers().get("X-Empty")).isEmpty();
+    assertThat(details.queryParams().get("force")).isEqualTo("true");
+    assertThat(details.queryParams().get("zone")).isEqualTo("eu");
+    assertThat(parser.headEnd()).isEqualTo(REQUEST.length() - 5);
+  }
+
+  @Test
+  @DisplayName("Should resume parsing when the head arrives in pieces")
+  void shouldParseHeadSplitAtEveryByte() {
+    final byte[] bytes = REQUEST.getBytes(StandardCharsets.US_ASCII);
+
+    for (int split = 1; split < bytes.length; split++) {
+      final var parser = new HttpRequestHeadParser();
+      final ByteBuffer buffer = ByteBuffer.allocate(bytes.length);
+      buffer.put(bytes, 0, split);
+
+      final boolean completeEarly = parser.parse(buffer);
+      buffer.put(bytes, split, bytes.length - split);
+
+      assertThat(completeEarly || parser.parse(buffer)).isTrue();
+      assertThat(parser.headEnd()).isEqualTo(bytes.length - 5);
+      assertThat(parser.toRequestDetails().headers().get("Content-Length")).isEqualTo("5");
+    }
+  }
+
+  @Test
+  @DisplayName("Should accept bare line feeds and skip leading empty lines")
+  void shouldAcceptBareLineFeeds() {
+    final var parser = new HttpRequestHeadParser();
+
+    assertThat(parser.parse(received("\r\n\nGET / HTTP/1.0\nHost: localhost\n\n"))).isTrue();
+    assertThat(parser.protocol()).isEqualTo(HttpProtocol.HTTP_V1);
+    assertThat(parser.toRequestDetails().headers().get("Host")).isEqualTo("localhost");
+  }
+
+  @Test
+  @DisplayName("Should parse the next request after reset")
+  void shouldParseNextRequestAfterReset() {
+    final var parser = new HttpRequestHeadParser();
+    parser.parse(received("GET /first HTTP/1.1\r\n\r\n"));
+    parser.reset();
+
+    assertThat(parser.parse(received("DELETE /second HTTP/1.1\r\n\r\n"))).isTrue();
+    assertThat(parser.method()).isEqualTo(HttpMethod.DELETE);
+    assertThat(parser.toRequestDetails().path()).isEqualTo("/second");
+  }
+
+  @Test
+  @DisplayName("Should reject the head that exceeds the limits")
+  void shouldRejectHeadExceedingLimits() {
+    assertStatus(new HttpRequestHeadParser(64, 4096, 100), "GET / HTTP/1.1\r\nX-Long: " + "a".repeat(64),
+        HttpStatus.REQUEST_HEADER_FIELDS_TOO_LARGE);
+    assertStatus(new HttpRequestHeadParser(10240, 32, 100), "GET /" + "a".repeat(64) + " HTTP/1.1\r\n\r\n", HttpStatus.URI_TOO_LONG);
+    assertStatus(new HttpRequestHeadParser(10240, 4096, 1), "GET / HTTP/1.1\r\nHost: a\r\nAccept: b\r\n\r\n",
+        HttpStatus.REQUEST_HEADER_FIELDS_TOO_LARGE);
+  }
+
+  @Test
+  @DisplayName("Should reject malformed request heads")
+  void shouldRejectMalformedHead() {
+    assertStatus(new HttpRequestHeadParser(), "BREW /pot HTTP/1.1\r\n\r\n", HttpStatus.NOT_IMPLEMENTED);
+    assertStatus(new HttpRequestHeadParser(), "GET / HTTP/2.0\r\n\r\n", HttpStatus.BAD_REQUEST);
+    assertStatus(new HttpRequestHeadParser(), "GET / HTTP/1.1\r\nNoColon\r\n\r\n", HttpStatus.BAD_REQUEST);
+    assertStatus(new HttpRequestHeadParser(), "GET / HTTP/1.1\r\nHost: a\r\n folded\r\n\r\n", HttpStatus.BAD_REQUEST);
+  }
+
+  static void assertStatus(HttpRequestHeadParser parser, String head, HttpStatus status) {
+    assertThatThrownBy(() -> parser.parse(received(head)))
+        .isInstanceOfSatisfying(AbstractHttpRequestException.class, ex -> assertThat(ex.getStatus()).isEqualTo(status));
+  }
+
+  static ByteBuffer received(String data) {
+    final byte[] bytes = data.getBytes(StandardCharsets.US_ASCII);
+    return ByteBuffer.allocate(Math.max(bytes.length, 1024)).put(bytes);
+  }
+}
@@ -0,0 +1,52 @@
+package com.akmal.comperio.http.server;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class AdmissionControlTest {
+
+  @Test
+  @DisplayName("Should never hand out more permits than the limit when the threads race for them")
+  void shouldHoldLimitUnderContention() throws Exception {
+    final var admission = new AdmissionControl(100, 10);
+    final var granted = new AtomicInteger();
+    final var start = new CountDownLatch(1);
+
+    try (final var executor = Executors.newFixedThreadPool(8)) {
+      for (int i = 0; i < 1000; i++) {
+        executor.execute(() -> {
+          try {
+            start.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          if (admission.tryAcquireConnection()) granted.incrementAndGet();
+        });
+      }
+
+      start.countDown();
+    }
+
+    assertThat(granted.get()).isEqualTo(100);
+    assertThat(admission.connections()).isEqualTo(100);
+  }
+
+  @Test
+  @DisplayName("Should admit again once the permits are released")
+  void shouldReleasePermits() {
+    final var admission = new AdmissionControl(1, 1);
+
+    assertThat(admission.tryAcquireRequest()).isTrue();
+    assertThat(admission.tryAcquireRequest()).isFalse();
+
+    admission.releaseRequest();
+
+    assertThat(admission.tryAcquireRequest()).isTrue();
+    assertThat(admission.inFlightRequests()).isEqualTo(1);
+  }
+}
@@ -0,0 +1,91 @@
+package com.akmal.comperio.http.server;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.akmal.comperio.http.HttpStatus;
+import com.akmal.comperio.http.buffer.BufferPool;
+import com.akmal.comperio.http.buffer.ByteBufferOutputStream;
+import com.akmal.comperio.http.buffer.LeakDetectingBufferPool;
+import com.akmal.comperio.http.exception.http.MalformedRequestException;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class ChunkedInputStreamTest {
+
+  @Test
+  @DisplayName("Should decode the chunks with extensions and trailers and stop at the end of the body")
+  void shouldDecodeChunkedBody() throws Exception {
+    final InputStream in = stream("4;name=value\r\nWiki\r\n5\r\npedia\r\nE\r\n in\r\n\r\nchunks.\r\n0\r\nExpires: never\r\n\r\nGET");
+    final var body = new ChunkedInputStream(in, 1024);
+
+    assertThat(new String(body.readAllBytes(), StandardCharsets.US_ASCII)).isEqualTo("Wikipedia in\r\n\r\nchunks.");
+    assertThat(new String(in.readAllBytes(), StandardCharsets.US_ASCII)).isEqualTo("GET");
+  }
+
+  @Test
+  @DisplayName("Should skip the unread chunked body up to the next request")
+  void shouldDrainChunkedBody() throws Exception {
+    final InputStream in = stream("3\r\nabc\r\n10\r\n0123456789abcdef\r\n0\r\n\r\nnext");
+
+    assertThat(new ChunkedInputStream(in, 1024).drain()).isTrue();
+    assertThat(new String(in.readAllBytes(), StandardCharsets.US_ASCII)).isEqualTo("next");
+  }
+
+  @Test
+  @DisplayName("Should reject the malformed, truncated and too large chunked bodies")
+  void shouldRejectMalformedBody() {
+    assertThatThrownBy(() -> new ChunkedInputStream(stream("x\r\n"), 1024).readAllBytes())
+        .isInstanceOf(MalformedRequestException.class);
+    assertThatThrownBy(() -> new ChunkedInputStream(stream("3\r\nabcd\r\n0\r\n\r\n"), 1024).readAllBytes())
+        .isInstanceOf(MalformedRequestException.class);
+    assertThatThrownBy(() -> new ChunkedInputStream(stream("5\r\nab"), 1024).readAllBytes())
+        .isInstanceOf(MalformedRequestException.class);
+    assertThatThrownBy(() -> new ChunkedInputStream(stream("400\r\n"), 1000).readAllBytes())
+        .isInstanceOfSatisfying(MalformedRequestException.class, ex -> assertThat(ex.getStatus()).isEqualTo(HttpStatus.PAYLOAD_TOO_LARGE));
+  }
+
+  @Test
+  @DisplayName("Should decode the chunked body arriving in arbitrary pieces")
+  void shouldDecodeIncrementally() {
+    final LeakDetectingBufferPool pool = BufferPool.leakDetecting(BufferPool.heap());
+    final var decoder = new ChunkedDecoder(1024);
+    final var body = new ByteBufferOutputStream(pool, 16);
+    final byte[] encoded = "6\r\nchunke\r\n1\r\nd\r\n0\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    boolean complete = false;
+    for (int i = 0; i < encoded.length; i += 3) {
+      assertThat(complete).isFalse();
+      complete = decoder.decode(ByteBuffer.wrap(encoded, i, Math.min(3, encoded.length - i)), body);
+    }
+
+    assertThat(complete).isTrue();
+    assertThat(StandardCharsets.US_ASCII.decode(body.content()).toString()).isEqualTo("chunked");
+    body.release();
+    pool.assertNoLeaks();
+  }
+
+  @Test
+  @DisplayName("Should encode the response body as size prefixed chunks followed by the last chunk")
+  void shouldEncodeChunks() throws Exception {
+    final LeakDetectingBufferPool pool = BufferPool.leakDetecting(BufferPool.heap());
+    final var out = new ByteArrayOutputStream();
+    final var chunked = new ChunkedOutputStream(ResponseSink.of(out), pool, 4, true);
+
+    chunked.write("Wikipedia".getBytes(StandardCharsets.US_ASCII));
+    chunked.close();
+
+    assertThat(out.toString(StandardCharsets.US_ASCII)).isEqualTo("4\r\nWiki\r\n4\r\npedi\r\n1\r\na\r\n0\r\n\r\n");
+    pool.assertNoLeaks();
+  }
+
+  private static InputStream stream(String content) {
+    return new BufferedInputStream(new ByteArrayInputStream(content.getBytes(StandardCharsets.US_ASCII)));
+  }
+}
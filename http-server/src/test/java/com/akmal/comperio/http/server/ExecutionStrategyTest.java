@@ -0,0 +1,52 @@
+package com.akmal.comperio.http.server;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class ExecutionStrategyTest {
+
+  @Test
+  @DisplayName("Should reject the tasks that do not fit the queue of the bounded pool")
+  void shouldRejectOverflowingTasks() throws Exception {
+    final ExecutorService executor = ExecutionStrategy.platformThreadPool(1, 1).newExecutor();
+    final var release = new CountDownLatch(1);
+
+    try {
+      executor.execute(() -> {
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      });
+      executor.execute(() -> {});
+
+      assertThatThrownBy(() -> executor.execute(() -> {})).isInstanceOf(RejectedExecutionException.class);
+    } finally {
+      release.countDown();
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  @DisplayName("Should run the inline tasks on the calling thread and allow them with the NIO engine only")
+  void shouldRunInline() {
+    final ExecutorService executor = ExecutionStrategy.inline().newExecutor();
+    final Thread[] runner = new Thread[1];
+
+    executor.execute(() -> runner[0] = Thread.currentThread());
+    executor.shutdown();
+
+    assertThat(runner[0]).isSameAs(Thread.currentThread());
+    assertThat(executor.isTerminated()).isTrue();
+    assertThatThrownBy(() -> executor.execute(() -> {})).isInstanceOf(RejectedExecutionException.class);
+    assertThatThrownBy(() -> HttpServer.bindToPort(0).withExecution(ExecutionStrategy.inline()).build())
+        .isInstanceOf(IllegalStateException.class);
+  }
+}
@@ -0,0 +1,235 @@
+package com.akmal.comperio.http.server;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.akmal.comperio.http.HttpHandler;
+import com.akmal.comperio.http.buffer.BufferPool;
+import com.akmal.comperio.http.buffer.ByteBufferOutputStream;
+import com.akmal.comperio.http.buffer.LeakDetectingBufferPool;
+import com.akmal.comperio.http.hpack.HpackDecoder;
+import com.akmal.comperio.http.hpack.HpackEncoder;
+import com.akmal.comperio.http.parser.request.HttpV1RequestParser;
+import com.akmal.comperio.http.router.HttpMethod;
+import com.akmal.comperio.http.router.Route;
+import com.akmal.comperio.http.router.Router;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class Http2ConnectionTest {
+
+  ServerSocket serverSocket;
+  Router<HttpHandler> router;
+  LeakDetectingBufferPool bufferPool;
+  ExecutorService executor;
+  Queue<Socket> accepted;
+  Queue<Thread> handlers;
+
+  @BeforeEach
+  void setup() throws IOException {
+    this.serverSocket = new ServerSocket(0);
+    this.bufferPool = BufferPool.leakDetecting(BufferPool.heap());
+    this.router = Router.defaultRouter();
+    this.executor = Executors.newVirtualThreadPerTaskExecutor();
+    this.accepted = new ConcurrentLinkedQueue<>();
+    this.handlers = new ConcurrentLinkedQueue<>();
+
+    this.router.register(Route.of(HttpMethod.GET, "/echo/{value}", (request, response) -> write(response, request.variables().get("value"))));
+    this.router.register(Route.of(HttpMethod.POST, "/length", (request, response) -> {
+      try {
+        write(response, String.valueOf(request.inputStream().readAllBytes().length));
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }));
+    this.router.register(Route.of(HttpMethod.GET, "/stream/{count}", (request, response) -> {
+      try {
+        final var out = response.getStreamingOutputStream();
+        for (int i = 0; i < Integer.parseInt(request.variables().get("count")); i++) {
+          out.write("part".getBytes(StandardCharsets.US_ASCII));
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }));
+
+    final var dispatcher = new RequestDispatcher(this.router, (ex, response) -> {}, this.bufferPool);
+
+    Thread.ofVirtual().start(() -> {
+      try {
+        while (true) {
+          final Socket socket = this.serverSocket.accept();
+          this.accepted.add(socket);
+          this.handlers.add(Thread.ofVirtual().start(new HttpSocketHandler(socket, dispatcher, new HttpV1RequestParser(),
+              this.bufferPool, HttpFraming.DEFAULT_MAX_BODY_BYTES, new ConnectionTimeouts(2000, 2000, 2000), DeadlineTimer.common(),
+              AdmissionControl.unlimited(), this.executor)));
+        }
+      } catch (IOException closed) {
+        // the test is over
+      }
+    });
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    this.serverSocket.close();
+    for (Socket socket: this.accepted) socket.close();
+    for (Thread handler: this.handlers) handler.join(5000);
+
+    this.executor.shutdown();
+    assertThat(this.executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+    this.bufferPool.assertNoLeaks();
+  }
+
+  @Test
+  @DisplayName("Should upgrade the connection of the JDK client to h2c and multiplex its requests onto the routes")
+  void shouldUpgradeAndMultiplex() throws Exception {
+    final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_2).build();
+    final String base = "http://localhost:" + this.serverSocket.getLocalPort();
+
+    final var upgraded = client.send(java.net.http.HttpRequest.newBuilder(URI.create(base + "/echo/first")).build(),
+        BodyHandlers.ofString());
+
+    assertThat(upgraded.version()).isEqualTo(HttpClient.Version.HTTP_2);
+    assertThat(upgraded.statusCode()).isEqualTo(200);
+    assertThat(upgraded.body()).isEqualTo("first");
+
+    final var body = new byte[200_000]; // larger than the window of the stream
+    final List<CompletableFuture<java.net.http.HttpResponse<String>>> responses = new ArrayList<>();
+
+    for (int i = 0; i < 10; i++) {
+      responses.add(client.sendAsync(java.net.http.HttpRequest.newBuilder(URI.create(base + "/echo/" + i)).build(),
+          BodyHandlers.ofString()));
+      responses.add(client.sendAsync(java.net.http.HttpRequest.newBuilder(URI.create(base + "/length"))
+                                         .POST(BodyPublishers.ofByteArray(body)).build(), BodyHandlers.ofString()));
+    }
+    final var streamed = client.send(java.net.http.HttpRequest.newBuilder(URI.create(base + "/stream/30000")).build(),
+        BodyHandlers.ofString());
+
+    for (int i = 0; i < responses.size(); i++) {
+      final var response = responses.get(i).get(10, TimeUnit.SECONDS);
+
+      assertThat(response.version()).isEqualTo(HttpClient.Version.HTTP_2);
+      assertThat(response.body()).isEqualTo(i % 2 == 0 ? String.valueOf(i / 2) : "200000");
+    }
+    assertThat(streamed.body()).hasSize(120_000);
+    assertThat(this.accepted).hasSize(1);
+  }
+
+  @Test
+  @DisplayName("Should serve the prior knowledge connection and respect the window of the stream")
+  void shouldServePriorKnowledgeWithFlowControl() throws Exception {
+    try (final var client = new Socket("localhost", this.serverSocket.getLocalPort())) {
+      final OutputStream out = client.getOutputStream();
+      final var in = new DataInputStream(client.getInputStream());
+      final var encoder = new HpackEncoder();
+
+      out.write("PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+      writeFrame(out, Http2Framing.SETTINGS, 0, 0, ByteBuffer.allocate(6)
+                                                       .putShort((short) Http2Framing.SETTINGS_INITIAL_WINDOW_SIZE).putInt(16)
+                                                       .array());
+      writeFrame(out, Http2Framing.HEADERS, Http2Framing.FLAG_END_STREAM | Http2Framing.FLAG_END_HEADERS, 1,
+          requestBlock(encoder, "/stream/10", "host"));
+      writeFrame(out, Http2Framing.HEADERS, Http2Framing.FLAG_END_STREAM | Http2Framing.FLAG_END_HEADERS, 3,
+          requestBlock(encoder, "/echo/raw", "Upper-Case"));
+
+      final var decoder = new HpackDecoder();
+      final var data = new ByteArrayOutputStream();
+      final List<String> fields = new ArrayList<>();
+      int resetError = -1;
+
+      while (data.size() < 16 || resetError == -1) {
+        final Frame frame = readFrame(in);
+
+        switch (frame.type()) {
+          case Http2Framing.HEADERS -> decoder.decode(ByteBuffer.wrap(frame.payload()), (name, value) -> fields.add(name + "=" + value));
+          case Http2Framing.DATA -> data.write(frame.payload());
+          case Http2Framing.RST_STREAM -> {
+            assertThat(frame.streamId()).isEqualTo(3); // the request with the upper case header name is malformed
+            resetError = ByteBuffer.wrap(frame.payload()).getInt();
+          }
+          default -> {
+          }
+        }
+      }
+
+      assertThat(fields).contains(":status=200").noneMatch(field -> field.startsWith("transfer-encoding"));
+      assertThat(data.toString(StandardCharsets.US_ASCII)).isEqualTo("partpartpartpart"); // the window is exhausted
+      assertThat(resetError).isEqualTo(Http2Framing.PROTOCOL_ERROR);
+
+      writeFrame(out, Http2Framing.WINDOW_UPDATE, 0, 1, ByteBuffer.allocate(4).putInt(100).array());
+      Frame frame;
+      do {
+        frame = readFrame(in);
+        if (frame.type() == Http2Framing.DATA) data.write(frame.payload());
+      } while ((frame.flags() & Http2Framing.FLAG_END_STREAM) == 0);
+
+      assertThat(data.toString(StandardCharsets.US_ASCII)).isEqualTo("part".repeat(10));
+    }
+  }
+
+  private byte[] requestBlock(HpackEncoder encoder, String path, String headerName) {
+    final var block = new ByteBufferOutputStream(BufferPool.heap(), 64);
+    encoder.beginBlock(block);
+    encoder.encode(block, ":method", "GET", true);
+    encoder.encode(block, ":scheme", "http", true);
+    encoder.encode(block, ":path", path, true);
+    encoder.encode(block, headerName, "localhost", true);
+
+    final ByteBuffer content = block.content();
+    final var bytes = new byte[content.remaining()];
+    content.get(bytes);
+    return bytes;
+  }
+
+  private static void writeFrame(OutputStream out, int type, int flags, int streamId, byte[] payload) throws IOException {
+    out.write(ByteBuffer.allocate(Http2Framing.FRAME_HEADER_BYTES + payload.length)
+                  .put((byte) (payload.length >>> 16)).putShort((short) payload.length)
+                  .put((byte) type).put((byte) flags).putInt(streamId).put(payload)
+                  .array());
+    out.flush();
+  }
+
+  private static Frame readFrame(DataInputStream in) throws IOException {
+    final int length = in.readUnsignedByte() << 16 | in.readUnsignedShort();
+    final int type = in.readUnsignedByte();
+    final int flags = in.readUnsignedByte();
+    final int streamId = in.readInt() & 0x7fffffff;
+    final var payload = new byte[length];
+    in.readFully(payload);
+
+    return new Frame(type, flags, streamId, payload);
+  }
+
+  private static void write(HttpResponse response, String body) {
+    try {
+      response.getOutputStream().write(body.getBytes(StandardCharsets.US_ASCII));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private record Frame(int type, int flags, int streamId, byte[] payload) {}
+}
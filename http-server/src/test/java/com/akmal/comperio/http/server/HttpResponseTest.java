@@ -0,0 +1,85 @@
+package com.akmal.comperio.http.server;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.akmal.comperio.http.HttpHeaders;
+import com.akmal.comperio.http.HttpProtocol;
+import com.akmal.comperio.http.HttpStatus;
+import com.akmal.comperio.http.MediaType;
+import com.akmal.comperio.http.buffer.BufferPool;
+import com.akmal.comperio.http.buffer.LeakDetectingBufferPool;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class HttpResponseTest {
+
+  @Test
+  @DisplayName("Should render the head with the Date, Content-Length and Connection headers")
+  void shouldRenderHead() throws Exception {
+    final LeakDetectingBufferPool pool = BufferPool.leakDetecting(BufferPool.heap());
+    final var out = new ByteArrayOutputStream();
+    final HttpResponse response = HttpResponse.builder()
+                                      .httpProtocol(HttpProtocol.HTTP_V1_1)
+                                      .status(HttpStatus.CREATED)
+                                      .contentType(MediaType.APPLICATION_JSON)
+                                      .timestamp(Instant.parse("1994-11-06T08:49:37Z"))
+                                      .keepAlive(true)
+                                      .bufferPool(pool)
+                                      .sink(ResponseSink.of(out))
+                                      .build();
+
+    response.getHeaders().set(HttpHeaders.ETAG, "\"1\"");
+    response.getOutputStream().write("{}".getBytes(StandardCharsets.US_ASCII));
+    response.send();
+
+    assertThat(out.toString(StandardCharsets.US_ASCII)).isEqualTo("""
+        HTTP/1.1 201 Created\r
+        Content-Type: application/json\r
+        Date: Sun, 06 Nov 1994 08:49:37 GMT\r
+        Content-Length: 2\r
+        Connection: keep-alive\r
+        ETag: "1"\r
+        \r
+        {}""");
+    pool.assertNoLeaks();
+  }
+
+  @Test
+  @DisplayName("Should append the read-only buffer to the body without moving its position")
+  void shouldWriteByteBuffer() throws Exception {
+    final LeakDetectingBufferPool pool = BufferPool.leakDetecting(BufferPool.heap());
+    final var out = new ByteArrayOutputStream();
+    final HttpResponse response = HttpResponse.builder()
+                                      .httpProtocol(HttpProtocol.HTTP_V1_1)
+                                      .status(HttpStatus.OK)
+                                      .keepAlive(true)
+                                      .bufferPool(pool)
+                                      .sink(ResponseSink.of(out))
+                                      .build();
+    final ByteBuffer shared = ByteBuffer.wrap("[{}]".getBytes(StandardCharsets.US_ASCII)).asReadOnlyBuffer();
+
+    response.getOutputStream().write('>');
+    response.write(shared);
+    response.send();
+
+    assertThat(shared.position()).isZero();
+    assertThat(out.toString(StandardCharsets.US_ASCII)).contains("Content-Length: 5\r\n").endsWith("\r\n\r\n>[{}]");
+    pool.assertNoLeaks();
+  }
+
+  @Test
+  @DisplayName("Should share the encoded current date within the second")
+  void shouldCacheCurrentDate() {
+    final byte[] date = HttpDate.now();
+
+    assertThat(new String(date, StandardCharsets.US_ASCII)).matches("[A-Z][a-z]{2}, \\d{2} [A-Z][a-z]{2} \\d{4} \\d{2}:\\d{2}:\\d{2} GMT");
+    assertThat(HttpDate.now()).satisfiesAnyOf(
+        current -> assertThat(current).isSameAs(date),
+        current -> assertThat(current).isNotEqualTo(date) // the second has just changed
+    );
+  }
+}
@@ -0,0 +1,118 @@
+package com.akmal.comperio.http.server;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import com.akmal.comperio.http.HttpHandler;
+import com.akmal.comperio.http.router.HttpMethod;
+import com.akmal.comperio.http.router.Route;
+import com.akmal.comperio.http.router.Router;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.Socket;
+import java.net.SocketOption;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+class HttpServerTest {
+  private static final int REQUESTS = 20;
+
+  HttpServer server;
+
+  @AfterEach
+  void tearDown() {
+    if (this.server != null) this.server.shutdownNow();
+  }
+
+  @ParameterizedTest
+  @EnumSource(ServerEngine.class)
+  @DisplayName("Should serve the requests through two acceptors sharing the port picked by the system")
+  void shouldServeThroughMultipleAcceptors(ServerEngine engine) throws Exception {
+    try (final var channel = ServerSocketChannel.open()) {
+      assumeTrue(channel.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT), "SO_REUSEPORT is not supported");
+    }
+
+    final var acceptors = new AtomicInteger();
+    this.server = new HttpServer(builder(engine)) {
+      @Override
+      int supportedAcceptors(Set<SocketOption<?>> supportedOptions) {
+        acceptors.set(super.supportedAcceptors(supportedOptions));
+        return acceptors.get();
+      }
+    };
+
+    this.server.start();
+
+    assertServes(awaitLocalPort(this.server));
+    assertThat(acceptors).hasValue(2);
+  }
+
+  @ParameterizedTest
+  @EnumSource(ServerEngine.class)
+  @DisplayName("Should fall back to a single acceptor when SO_REUSEPORT is not supported")
+  void shouldFallBackToSingleAcceptor(ServerEngine engine) throws Exception {
+    final var acceptors = new AtomicInteger();
+    this.server = new HttpServer(builder(engine)) {
+      @Override
+      int supportedAcceptors(Set<SocketOption<?>> supportedOptions) {
+        acceptors.set(super.supportedAcceptors(Set.of())); // as if the platform did not know the option
+        return acceptors.get();
+      }
+    };
+
+    this.server.start();
+
+    assertServes(awaitLocalPort(this.server));
+    assertThat(acceptors).hasValue(1);
+  }
+
+  /**
+   * The route is registered right away, since the server is constructed without {@link HttpServer.Builder#build()}.
+   */
+  private static HttpServer.Builder builder(ServerEngine engine) {
+    final Router<HttpHandler> router = Router.defaultRouter();
+    router.register(Route.of(HttpMethod.GET, "/ping", (request, response) -> {
+      try {
+        response.getOutputStream().write("pong".getBytes(StandardCharsets.US_ASCII));
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }));
+
+    return HttpServer.bindToPort(0)
+               .bindTo("127.0.0.1")
+               .withEngine(engine)
+               .withAcceptors(2)
+               .withRouter(router);
+  }
+
+  /**
+   * Opens a new connection for every request, so that the kernel spreads them over the listeners.
+   */
+  private static void assertServes(int port) throws IOException {
+    final byte[] request = "GET /ping HTTP/1.1\r\nConnection: close\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    for (int i = 0; i < REQUESTS; i++) {
+      try (final var client = new Socket("127.0.0.1", port)) {
+        client.getOutputStream().write(request);
+        final String response = new String(client.getInputStream().readAllBytes(), StandardCharsets.US_ASCII);
+
+        assertThat(response).startsWith("HTTP/1.1 200 OK").endsWith("pong");
+      }
+    }
+  }
+
+  private static int awaitLocalPort(HttpServer server) throws InterruptedException {
+    for (int attempt = 0; attempt < 500 && server.getLocalPort() == -1; attempt++) Thread.sleep(10);
+
+    assertThat(server.getLocalPort()).isPositive();
+    return server.getLocalPort();
+  }
+}
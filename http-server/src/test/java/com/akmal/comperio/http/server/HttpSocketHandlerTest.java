@@ -0,0 +1,245 @@
+package com.akmal.comperio.http.server;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.akmal.comperio.http.HttpHandler;
+import com.akmal.comperio.http.buffer.BufferPool;
+import com.akmal.comperio.http.buffer.LeakDetectingBufferPool;
+import com.akmal.comperio.http.parser.request.HttpV1RequestParser;
+import com.akmal.comperio.http.router.HttpMethod;
+import com.akmal.comperio.http.router.Route;
+import com.akmal.comperio.http.router.Router;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class HttpSocketHandlerTest {
+
+  ServerSocket serverSocket;
+  Router<HttpHandler> router;
+  LeakDetectingBufferPool bufferPool;
+
+  @BeforeEach
+  void setup() throws IOException {
+    this.serverSocket = new ServerSocket(0);
+    this.bufferPool = BufferPool.leakDetecting(BufferPool.heap());
+    this.router = Router.defaultRouter();
+
+    this.router.register(Route.of(HttpMethod.GET, "/echo/{value}", (request, response) -> write(response, request.variables().get("value"))));
+    this.router.register(Route.of(HttpMethod.POST, "/ignore", (request, response) -> write(response, "ignored")));
+    this.router.register(Route.of(HttpMethod.POST, "/length", (request, response) -> {
+      try {
+        write(response, String.valueOf(request.inputStream().readAllBytes().length));
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }));
+    this.router.register(Route.of(HttpMethod.GET, "/stream/{count}", (request, response) -> {
+      try {
+        final var out = response.getStreamingOutputStream();
+        for (int i = 0; i < Integer.parseInt(request.variables().get("count")); i++) {
+          out.write("part".getBytes(StandardCharsets.US_ASCII));
+          out.flush();
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }));
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    this.serverSocket.close();
+    this.bufferPool.assertNoLeaks();
+  }
+
+  @Test
+  @DisplayName("Should answer pipelined requests in order on the same connection")
+  void shouldServePipelinedRequestsInOrder() throws Exception {
+    final String responses = exchange("""
+        GET /echo/first HTTP/1.1\r
+        Host: localhost\r
+        \r
+        POST /length HTTP/1.1\r
+        Content-Length: 5\r
+        \r
+        12345GET /echo/last HTTP/1.1\r
+        Connection: close\r
+        \r
+        """);
+
+    assertThat(responses.split("HTTP/1.1 200 OK", -1)).hasSize(4);
+    assertThat(responses.indexOf("first")).isLessThan(responses.indexOf("\r\n\r\n5")).isPositive();
+    assertThat(responses.indexOf("\r\n\r\n5")).isLessThan(responses.indexOf("last"));
+    assertThat(responses).contains("Content-Length: 5\r\n").contains("Connection: keep-alive\r\n").endsWith("Connection: close\r\n\r\nlast");
+  }
+
+  @Test
+  @DisplayName("Should skip the body the handler did not read")
+  void shouldSkipUnreadBody() throws Exception {
+    final String responses = exchange("""
+        POST /ignore HTTP/1.1\r
+        Content-Length: 11\r
+        \r
+        GET /echo/xGET /echo/after HTTP/1.1\r
+        Connection: close\r
+        \r
+        """);
+
+    assertThat(responses).contains("ignored").endsWith("after");
+    assertThat(responses.split("HTTP/1.1 200 OK", -1)).hasSize(3);
+  }
+
+  @Test
+  @DisplayName("Should close HTTP/1.0 connection unless keep-alive is requested")
+  void shouldCloseHttp10Connection() throws Exception {
+    final String responses = exchange("""
+        GET /echo/only HTTP/1.0\r
+        \r
+        GET /echo/never HTTP/1.1\r
+        \r
+        """);
+
+    assertThat(responses).contains("Connection: close").endsWith("only").doesNotContain("never");
+  }
+
+  @Test
+  @DisplayName("Should decode the chunked request body and continue with the pipelined request")
+  void shouldReadChunkedBody() throws Exception {
+    final String responses = exchange("""
+        POST /length HTTP/1.1\r
+        Transfer-Encoding: chunked\r
+        \r
+        3\r
+        abc\r
+        a;ext=1\r
+        0123456789\r
+        0\r
+        \r
+        GET /echo/after HTTP/1.1\r
+        Connection: close\r
+        \r
+        """);
+
+    assertThat(responses).contains("\r\n\r\n13HTTP/1.1 200 OK").endsWith("after");
+  }
+
+  @Test
+  @DisplayName("Should reject the request with both Transfer-Encoding and Content-Length")
+  void shouldRejectAmbiguousFraming() throws Exception {
+    final String responses = exchange("""
+        POST /length HTTP/1.1\r
+        Transfer-Encoding: chunked\r
+        Content-Length: 3\r
+        \r
+        0\r
+        \r
+        """);
+
+    // the exception handler of the test renders nothing, the status is left at 500
+    assertThat(responses).doesNotContain("200 OK").contains("Connection: close").endsWith("\r\n\r\n");
+  }
+
+  @Test
+  @DisplayName("Should stream the response body in chunks and keep the connection open")
+  void shouldStreamChunkedResponse() throws Exception {
+    final String responses = exchange("""
+        GET /stream/2 HTTP/1.1\r
+        \r
+        GET /echo/after HTTP/1.1\r
+        Connection: close\r
+        \r
+        """);
+
+    assertThat(responses).contains("Transfer-Encoding: chunked\r\n").doesNotContain("Content-Length: 0")
+        .contains("\r\n\r\n4\r\npart\r\n4\r\npart\r\n0\r\n\r\nHTTP/1.1 200 OK").endsWith("after");
+  }
+
+  @Test
+  @DisplayName("Should stream the response body of HTTP/1.0 as is and close the connection")
+  void shouldStreamHttp10ResponseUntilClose() throws Exception {
+    final String responses = exchange("""
+        GET /stream/3 HTTP/1.0\r
+        Connection: keep-alive\r
+        \r
+        """);
+
+    assertThat(responses).doesNotContain("Transfer-Encoding").contains("Connection: close").endsWith("\r\n\r\npartpartpart");
+  }
+
+  @Test
+  @DisplayName("Should close the connection that does not send the complete head in time")
+  void shouldCloseSlowHeadConnection() throws Exception {
+    final long start = System.nanoTime();
+    final String responses = exchange("GET /echo/slow HTTP/1.1\r\nHost: local", new ConnectionTimeouts(200, 200, 2000),
+        AdmissionControl.unlimited());
+
+    assertThat(responses).isEmpty();
+    assertThat(Duration.ofNanos(System.nanoTime() - start)).isBetween(Duration.ofMillis(200), Duration.ofMillis(1500));
+  }
+
+  @Test
+  @DisplayName("Should close the connection that does not send the complete body in time")
+  void shouldCloseSlowBodyConnection() throws Exception {
+    final String responses = exchange("""
+        POST /length HTTP/1.1\r
+        Content-Length: 10\r
+        \r
+        12345""", new ConnectionTimeouts(2000, 200, 2000), AdmissionControl.unlimited());
+
+    assertThat(responses).doesNotContain("200 OK");
+  }
+
+  @Test
+  @DisplayName("Should reject the request over the limit of the requests in flight with 503")
+  void shouldRejectRequestOverInFlightLimit() throws Exception {
+    final var admission = new AdmissionControl(10, 1);
+    assertThat(admission.tryAcquireRequest()).isTrue(); // the only permit is held by another request
+
+    final String responses = exchange("""
+        GET /echo/rejected HTTP/1.1\r
+        \r
+        """, ConnectionTimeouts.defaults(), admission);
+
+    assertThat(responses).startsWith("HTTP/1.1 503 Service Unavailable\r\n").contains("Connection: close\r\n")
+        .doesNotContain("rejected");
+    assertThat(admission.inFlightRequests()).isEqualTo(1);
+  }
+
+  private String exchange(String requests) throws Exception {
+    return exchange(requests, new ConnectionTimeouts(2000, 2000, 2000), AdmissionControl.unlimited());
+  }
+
+  /**
+   * Writes the requests at once and reads everything until the server closes the connection.
+   */
+  private String exchange(String requests, ConnectionTimeouts timeouts, AdmissionControl admission) throws Exception {
+    try (final var client = new Socket("localhost", this.serverSocket.getLocalPort())) {
+      final Socket accepted = this.serverSocket.accept();
+      final var handler = new HttpSocketHandler(accepted, new RequestDispatcher(this.router, (ex, response) -> {}, this.bufferPool),
+          new HttpV1RequestParser(), this.bufferPool, HttpFraming.DEFAULT_MAX_BODY_BYTES, timeouts, DeadlineTimer.common(), admission, null);
+      final Thread thread = Thread.ofVirtual().start(handler);
+
+      client.getOutputStream().write(requests.getBytes(StandardCharsets.US_ASCII));
+      final String responses = new String(client.getInputStream().readAllBytes(), StandardCharsets.US_ASCII);
+      thread.join();
+
+      return responses;
+    }
+  }
+
+  private static void write(HttpResponse response, String body) {
+    try {
+      response.getOutputStream().write(body.getBytes(StandardCharsets.US_ASCII));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
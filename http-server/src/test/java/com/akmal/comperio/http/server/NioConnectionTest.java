@@ -0,0 +1,264 @@
+package com.akmal.comperio.http.server;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.akmal.comperio.http.HttpHandler;
+import com.akmal.comperio.http.buffer.BufferPool;
+import com.akmal.comperio.http.buffer.LeakDetectingBufferPool;
+import com.akmal.comperio.http.router.HttpMethod;
+import com.akmal.comperio.http.router.Route;
+import com.akmal.comperio.http.router.Router;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class NioConnectionTest {
+
+  ServerSocketChannel serverChannel;
+  Router<HttpHandler> router;
+  LeakDetectingBufferPool bufferPool;
+  NioEventLoop eventLoop;
+  Thread eventLoopThread;
+
+  @BeforeEach
+  void setup() throws IOException {
+    this.serverChannel = ServerSocketChannel.open().bind(new InetSocketAddress("localhost", 0));
+    this.bufferPool = BufferPool.leakDetecting(BufferPool.direct());
+    this.router = Router.defaultRouter();
+
+    this.router.register(Route.of(HttpMethod.GET, "/echo/{value}", (request, response) -> write(response, request.variables().get("value"))));
+    this.router.register(Route.of(HttpMethod.POST, "/length", (request, response) -> {
+      try {
+        write(response, String.valueOf(request.inputStream().readAllBytes().length));
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }));
+    this.router.register(Route.of(HttpMethod.GET, "/stream/{count}", (request, response) -> {
+      try {
+        final var out = response.getStreamingOutputStream();
+        for (int i = 0; i < Integer.parseInt(request.variables().get("count")); i++) {
+          out.write("part".getBytes(StandardCharsets.US_ASCII));
+          out.flush();
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }));
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    if (this.eventLoop != null) {
+      this.eventLoop.shutdown();
+      this.eventLoopThread.join();
+    }
+
+    this.serverChannel.close();
+    this.bufferPool.assertNoLeaks();
+  }
+
+  @Test
+  @DisplayName("Should answer pipelined requests in order on the same connection")
+  void shouldServePipelinedRequestsInOrder() throws Exception {
+    final String responses = exchange("""
+        GET /echo/first HTTP/1.1\r
+        Host: localhost\r
+        \r
+        POST /length HTTP/1.1\r
+        Content-Length: 5\r
+        \r
+        12345GET /echo/last HTTP/1.1\r
+        Connection: close\r
+        \r
+        """);
+
+    assertThat(responses.split("HTTP/1.1 200 OK", -1)).hasSize(4);
+    assertThat(responses.indexOf("first")).isLessThan(responses.indexOf("\r\n\r\n5")).isPositive();
+    assertThat(responses.indexOf("\r\n\r\n5")).isLessThan(responses.indexOf("last"));
+    assertThat(responses).contains("Connection: keep-alive\r\n").endsWith("Connection: close\r\n\r\nlast");
+  }
+
+  @Test
+  @DisplayName("Should wait for the next request on the kept alive connection")
+  void shouldServeSequentialRequests() throws Exception {
+    start(new ConnectionTimeouts(2000, 2000, 2000), AdmissionControl.unlimited());
+
+    try (final var client = new Socket("localhost", this.serverChannel.socket().getLocalPort())) {
+      client.getOutputStream().write("GET /echo/first HTTP/1.1\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+      assertThat(readUntil(client.getInputStream(), "first")).startsWith("HTTP/1.1 200 OK").contains("Connection: keep-alive");
+
+      client.getOutputStream().write("GET /echo/second HTTP/1.1\r\nConnection: close\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+      final String responses = new String(client.getInputStream().readAllBytes(), StandardCharsets.US_ASCII);
+
+      assertThat(responses).startsWith("HTTP/1.1 200 OK").endsWith("Connection: close\r\n\r\nsecond");
+    }
+  }
+
+  @Test
+  @DisplayName("Should decode the chunked request body and continue with the pipelined request")
+  void shouldReadChunkedBody() throws Exception {
+    final String responses = exchange("""
+        POST /length HTTP/1.1\r
+        Transfer-Encoding: chunked\r
+        \r
+        3\r
+        abc\r
+        a;ext=1\r
+        0123456789\r
+        0\r
+        \r
+        GET /echo/after HTTP/1.1\r
+        Connection: close\r
+        \r
+        """);
+
+    assertThat(responses).contains("\r\n\r\n13HTTP/1.1 200 OK").endsWith("after");
+  }
+
+  @Test
+  @DisplayName("Should close HTTP/1.0 connection unless keep-alive is requested")
+  void shouldCloseHttp10Connection() throws Exception {
+    final String responses = exchange("""
+        GET /echo/only HTTP/1.0\r
+        \r
+        GET /echo/never HTTP/1.1\r
+        \r
+        """);
+
+    assertThat(responses).contains("Connection: close").endsWith("only").doesNotContain("never");
+  }
+
+  @Test
+  @DisplayName("Should stream the response body in chunks and keep the connection open")
+  void shouldStreamChunkedResponse() throws Exception {
+    final String responses = exchange("""
+        GET /stream/2 HTTP/1.1\r
+        \r
+        GET /echo/after HTTP/1.1\r
+        Connection: close\r
+        \r
+        """);
+
+    assertThat(responses).contains("Transfer-Encoding: chunked\r\n")
+        .contains("\r\n\r\n4\r\npart\r\n4\r\npart\r\n0\r\n\r\nHTTP/1.1 200 OK").endsWith("after");
+  }
+
+  @Test
+  @DisplayName("Should close the kept alive connection that does not send the next request in time")
+  void shouldCloseIdleConnection() throws Exception {
+    final long start = System.nanoTime();
+    final String responses = exchange("""
+        GET /echo/only HTTP/1.1\r
+        \r
+        """, new ConnectionTimeouts(2000, 2000, 200), AdmissionControl.unlimited());
+
+    assertThat(responses).contains("Connection: keep-alive").endsWith("only");
+    assertThat(Duration.ofNanos(System.nanoTime() - start)).isBetween(Duration.ofMillis(200), Duration.ofMillis(1500));
+  }
+
+  @Test
+  @DisplayName("Should reject the request over the limit of the requests in flight with 503 and close the connection")
+  void shouldRejectRequestOverInFlightLimit() throws Exception {
+    final var admission = new AdmissionControl(10, 1);
+    assertThat(admission.tryAcquireRequest()).isTrue(); // the only permit is held by another request
+
+    final String responses = exchange("""
+        GET /echo/rejected HTTP/1.1\r
+        \r
+        GET /echo/never HTTP/1.1\r
+        \r
+        """, ConnectionTimeouts.defaults(), admission);
+
+    assertThat(responses).startsWith("HTTP/1.1 503 Service Unavailable\r\n").contains("Connection: close\r\n")
+        .doesNotContain("rejected").doesNotContain("never");
+    assertThat(admission.inFlightRequests()).isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("Should close the connection handed over to the stopped loop and return its permit")
+  void shouldRejectConnectionAfterShutdown() throws Exception {
+    final var admission = new AdmissionControl(10, 10);
+    startLoop(ConnectionTimeouts.defaults(), admission);
+    this.eventLoop.shutdown();
+    this.eventLoopThread.join();
+
+    try (final var client = new Socket("localhost", this.serverChannel.socket().getLocalPort())) {
+      assertThat(admission.tryAcquireConnection()).isTrue();
+      this.eventLoop.register(this.serverChannel.accept());
+
+      assertThat(client.getInputStream().read()).isEqualTo(-1);
+    }
+
+    assertThat(admission.connections()).isZero();
+  }
+
+  private String exchange(String requests) throws Exception {
+    return exchange(requests, new ConnectionTimeouts(2000, 2000, 2000), AdmissionControl.unlimited());
+  }
+
+  /**
+   * Writes the requests at once and reads everything until the server closes the connection.
+   */
+  private String exchange(String requests, ConnectionTimeouts timeouts, AdmissionControl admission) throws Exception {
+    start(timeouts, admission);
+
+    try (final var client = new Socket("localhost", this.serverChannel.socket().getLocalPort())) {
+      client.getOutputStream().write(requests.getBytes(StandardCharsets.US_ASCII));
+      return new String(client.getInputStream().readAllBytes(), StandardCharsets.US_ASCII);
+    }
+  }
+
+  /**
+   * Starts the loop and hands it the first accepted connection.
+   */
+  private void start(ConnectionTimeouts timeouts, AdmissionControl admission) throws IOException {
+    startLoop(timeouts, admission);
+
+    Thread.ofVirtual().start(() -> {
+      try {
+        assertThat(admission.tryAcquireConnection()).isTrue();
+        this.eventLoop.register(this.serverChannel.accept());
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    });
+  }
+
+  private void startLoop(ConnectionTimeouts timeouts, AdmissionControl admission) throws IOException {
+    final Executor handlers = task -> Thread.ofVirtual().start(task);
+    this.eventLoop = new NioEventLoop(new RequestDispatcher(this.router, (ex, response) -> {}, this.bufferPool), handlers,
+        this.bufferPool, HttpFraming.DEFAULT_MAX_BODY_BYTES, timeouts, admission);
+    this.eventLoopThread = Thread.ofPlatform().start(this.eventLoop);
+  }
+
+  private static String readUntil(InputStream in, String suffix) throws IOException {
+    final var received = new StringBuilder();
+
+    while (!received.toString().endsWith(suffix)) {
+      final int b = in.read();
+      if (b == -1) break;
+      received.append((char) b);
+    }
+
+    return received.toString();
+  }
+
+  private static void write(HttpResponse response, String body) {
+    try {
+      response.getOutputStream().write(body.getBytes(StandardCharsets.US_ASCII));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -0,0 +1,92 @@
+package com.akmal.comperio.http.server;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class TimingWheelTest {
+  static final long TICK = 100;
+
+  @Test
+  @DisplayName("Should fire the timeout once its tick has elapsed, never before the deadline")
+  void shouldFireAfterDeadline() {
+    final var wheel = new TimingWheel(TICK, 8, 0);
+    final List<String> fired = new ArrayList<>();
+
+    wheel.schedule(new TimingWheel.Timeout(() -> fired.add("a")), 250);
+    wheel.schedule(new TimingWheel.Timeout(() -> fired.add("b")), 300);
+
+    assertThat(wheel.advance(249)).isZero();
+    assertThat(wheel.advance(300)).isZero();
+    assertThat(wheel.advance(301)).isEqualTo(2);
+    assertThat(fired).containsExactlyInAnyOrder("a", "b");
+    assertThat(wheel.size()).isZero();
+  }
+
+  @Test
+  @DisplayName("Should keep the timeouts further than one revolution until their tick comes")
+  void shouldFireAfterSeveralRevolutions() {
+    final var wheel = new TimingWheel(TICK, 8, 0);
+    final List<String> fired = new ArrayList<>();
+
+    wheel.schedule(new TimingWheel.Timeout(() -> fired.add("far")), 2_050); // 2.5 revolutions away
+    wheel.schedule(new TimingWheel.Timeout(() -> fired.add("near")), 150);
+
+    for (long now = 0; now <= 2_000; now += 50) wheel.advance(now);
+    assertThat(fired).containsExactly("near");
+
+    wheel.advance(2_101);
+    assertThat(fired).containsExactly("near", "far");
+  }
+
+  @Test
+  @DisplayName("Should move the rescheduled timeout and skip the cancelled one")
+  void shouldRescheduleAndCancel() {
+    final var wheel = new TimingWheel(TICK, 8, 0);
+    final List<String> fired = new ArrayList<>();
+    final var moved = new TimingWheel.Timeout(() -> fired.add("moved"));
+    final var cancelled = new TimingWheel.Timeout(() -> fired.add("cancelled"));
+
+    wheel.schedule(moved, 100);
+    wheel.schedule(cancelled, 100);
+    wheel.schedule(moved, 500);
+    wheel.cancel(cancelled);
+
+    wheel.advance(201);
+    assertThat(fired).isEmpty();
+    assertThat(moved.isScheduled()).isTrue();
+    assertThat(cancelled.isScheduled()).isFalse();
+
+    wheel.advance(501);
+    assertThat(fired).containsExactly("moved");
+  }
+
+  @Test
+  @DisplayName("Should let the expiring task cancel and reschedule the other expiring timeouts")
+  void shouldAllowChangesFromTasks() {
+    final var wheel = new TimingWheel(TICK, 8, 0);
+    final List<String> fired = new ArrayList<>();
+    final var first = new TimingWheel.Timeout(() -> fired.add("first"));
+    final var second = new TimingWheel.Timeout(() -> fired.add("second"));
+    final var canceller = new TimingWheel.Timeout(() -> {
+      wheel.cancel(first);
+      wheel.schedule(second, 1_000);
+    });
+
+    // the bucket is a stack, the timeout scheduled first expires first
+    wheel.schedule(canceller, 100);
+    wheel.schedule(first, 100);
+    wheel.schedule(second, 100);
+
+    wheel.advance(101);
+    assertThat(fired).isEmpty();
+    assertThat(second.isScheduled()).isTrue();
+
+    wheel.advance(1_001);
+    assertThat(fired).containsExactly("second");
+    assertThat(wheel.size()).isZero();
+  }
+}
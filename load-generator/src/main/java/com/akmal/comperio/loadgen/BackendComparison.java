@@ -0,0 +1,137 @@
+package com.akmal.comperio.loadgen;
+
+import com.akmal.comperio.http.ObjectMapperHolder;
+import com.akmal.comperio.http.registry.ServerBackend;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Head-to-head of the {@link ServerBackend}s on the registry workload. Every backend is started in its own child JVM with the same
+ * heap limit and driven by the same run, afterwards the resident memory of the child is read, so that the backend with the lower
+ * latency and the lower footprint can be picked per deployment. The memory is read from /proc, hence it is reported on Linux only.
+ * <p>
+ * Usage: {@code java --enable-preview -cp load-generator.jar com.akmal.comperio.loadgen.BackendComparison [--name=value...]}
+ * accepts the options of {@link LoadGenerator} except the target, plus
+ * <ul>
+ *   <li>{@code --backends=undertow,http-server,http-server-nio} backends to compare (all)</li>
+ *   <li>{@code --server-heap=512m} maximum heap of the server JVM</li>
+ * </ul>
+ * The report (backend-comparison.json by default) lists the report of every backend together with its memory.
+ */
+public class BackendComparison {
+
+  private BackendComparison() {}
+
+  public static void main(String[] args) throws Exception {
+    List<ServerBackend> backends = List.of(ServerBackend.values());
+    String serverHeap = "512m";
+    String reportPath = "backend-comparison.json";
+    final var loadArgs = new ArrayList<String>();
+
+    for (String arg: args) {
+      if (arg.startsWith("--backends=")) {
+        backends = Arrays.stream(arg.substring("--backends=".length()).split(",")).map(ServerBackend::fromLabel).toList();
+      } else if (arg.startsWith("--server-heap=")) {
+        serverHeap = arg.substring("--server-heap=".length());
+      } else if (arg.startsWith("--report=")) {
+        reportPath = arg.substring("--report=".length());
+      } else {
+        loadArgs.add(arg);
+      }
+    }
+
+    final var results = new ArrayList<BackendResult>();
+
+    for (ServerBackend backend: backends) {
+      final int port = InProcessRegistry.freePort();
+      final var options = new ArrayList<>(loadArgs);
+      options.add("--target=127.0.0.1:" + port);
+
+      final Process server = startServer(backend, port, serverHeap);
+      try {
+        final Report report = LoadGenerator.run(LoadOptions.parse(options.toArray(String[]::new)), backend.label(),
+            new InetSocketAddress("127.0.0.1", port));
+
+        results.add(new BackendResult(backend.label(), memoryKb(server, "VmRSS"), memoryKb(server, "VmHWM"), report));
+        LoadGenerator.print(report);
+      } finally {
+        server.destroy();
+        server.waitFor(10, TimeUnit.SECONDS);
+      }
+    }
+
+    ObjectMapperHolder.getInstance().writerWithDefaultPrettyPrinter().writeValue(Path.of(reportPath).toFile(), new Comparison(results));
+    print(results);
+    System.out.println("Report written to " + Path.of(reportPath).toAbsolutePath());
+  }
+
+  private static Process startServer(ServerBackend backend, int port, String heap) throws IOException {
+    final String java = ProcessHandle.current().info().command().orElse("java");
+    final Process process = new ProcessBuilder(java, "--enable-preview", "-Xmx" + heap, "-cp", System.getProperty("java.class.path"),
+        InProcessRegistry.class.getName(), backend.label(), String.valueOf(port))
+                                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                                .start();
+
+    final var reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+    for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+      if (line.equals(InProcessRegistry.READY)) {
+        Thread.ofPlatform().daemon().start(() -> drain(reader)); // the server logs must not block on the full pipe
+        return process;
+      }
+    }
+
+    throw new IllegalStateException("Server " + backend.label() + " exited with " + process.exitValue() + " before it started");
+  }
+
+  private static void drain(BufferedReader reader) {
+    try {
+      while (reader.readLine() != null) {
+        // discarded
+      }
+    } catch (IOException ignored) {
+      // the process has been destroyed
+    }
+  }
+
+  /**
+   * Reads the memory of the process from /proc/[pid]/status, VmRSS is the current resident size and VmHWM the peak.
+   *
+   * @return size in kilobytes or -1 when it could not be read.
+   */
+  private static long memoryKb(Process process, String field) {
+    try {
+      for (String line: Files.readAllLines(Path.of("/proc", String.valueOf(process.pid()), "status"))) {
+        if (line.startsWith(field + ":")) return Long.parseLong(line.substring(field.length() + 1).trim().split("\\s+")[0]);
+      }
+    } catch (IOException | NumberFormatException e) {
+      // not Linux or the process is gone
+    }
+
+    return -1;
+  }
+
+  private static void print(List<BackendResult> results) {
+    System.out.printf("%n%-16s %10s %10s %10s %10s %10s %12s %12s%n", "backend", "req/s", "p50 us", "p99 us", "p99.9 us",
+        "max us", "rss MB", "peak rss MB");
+
+    for (BackendResult result: results) {
+      final Report.Latency latency = result.report().latency();
+      System.out.printf("%-16s %10.0f %10d %10d %10d %10d %12.1f %12.1f%n", result.backend(), result.report().throughput(),
+          latency.p50Micros(), latency.p99Micros(), latency.p999Micros(), latency.maxMicros(), result.rssKb() / 1024.0,
+          result.peakRssKb() / 1024.0);
+    }
+  }
+
+  record BackendResult(String backend, long rssKb, long peakRssKb, Report report) {}
+
+  record Comparison(List<BackendResult> backends) {}
+}
@@ -0,0 +1,161 @@
+package com.akmal.comperio.loadgen;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import net.jcip.annotations.NotThreadSafe;
+
+/**
+ * Persistent HTTP/1.1 connection of a single worker. The requests are pre-encoded, the response is read just enough to find
+ * its end (Content-Length or the chunked coding) and the body is skipped, so that the generator spends as little as possible
+ * per request and measures the server rather than itself. The connection is re-established lazily after the server closes it.
+ */
+@NotThreadSafe
+final class HttpConnection implements Closeable {
+  private static final int CONNECT_TIMEOUT_MILLIS = 5_000;
+  private static final int READ_TIMEOUT_MILLIS = 30_000;
+
+  private final InetSocketAddress address;
+  private final StringBuilder line = new StringBuilder(128);
+  private Socket socket;
+  private InputStream in;
+  private OutputStream out;
+
+  HttpConnection(InetSocketAddress address) {
+    this.address = address;
+  }
+
+  /**
+   * Sends the request and reads the response.
+   *
+   * @return status code of the response.
+   * @throws IOException when the exchange fails, the connection is closed and opened again by the next exchange.
+   */
+  int exchange(byte[] request) throws IOException {
+    try {
+      if (this.socket == null) this.connect();
+
+      this.out.write(request);
+      this.out.flush();
+      return this.readResponse();
+    } catch (IOException e) {
+      this.close();
+      throw e;
+    }
+  }
+
+  @Override
+  public void close() {
+    if (this.socket == null) return;
+
+    try {
+      this.socket.close();
+    } catch (IOException ignored) {
+      // nothing to do about it
+    }
+    this.socket = null;
+  }
+
+  private void connect() throws IOException {
+    final var socket = new Socket();
+    socket.setTcpNoDelay(true);
+    socket.setSoTimeout(READ_TIMEOUT_MILLIS);
+    socket.connect(this.address, CONNECT_TIMEOUT_MILLIS);
+
+    this.socket = socket;
+    this.in = new BufferedInputStream(socket.getInputStream(), 8192);
+    this.out = socket.getOutputStream();
+  }
+
+  private int readResponse() throws IOException {
+    final String statusLine = this.readLine();
+    if (statusLine.length() < 12) throw new IOException("Malformed status line " + statusLine);
+    final int status = Integer.parseInt(statusLine, 9, 12, 10);
+
+    long contentLength = -1;
+    boolean chunked = false;
+    boolean close = false;
+
+    for (String header = this.readLine(); !header.isEmpty(); header = this.readLine()) {
+      final int separator = header.indexOf(':');
+      if (separator == -1) continue;
+
+      final String name = header.substring(0, separator).trim();
+      final String value = header.substring(separator + 1).trim();
+
+      if (name.equalsIgnoreCase("Content-Length")) contentLength = Long.parseLong(value);
+      else if (name.equalsIgnoreCase("Transfer-Encoding")) chunked = value.equalsIgnoreCase("chunked");
+      else if (name.equalsIgnoreCase("Connection")) close = value.equalsIgnoreCase("close");
+    }
+
+    if (chunked) {
+      this.skipChunks();
+    } else if (contentLength > 0) {
+      this.skip(contentLength);
+    } else if (contentLength == -1 && status != 204 && status != 304) {
+      this.skipToEnd(); // the body is delimited by the end of the connection
+      close = true;
+    }
+
+    if (close) this.close();
+    return status;
+  }
+
+  private void skipChunks() throws IOException {
+    while (true) {
+      final String size = this.readLine();
+      final int extension = size.indexOf(';');
+      final long length = Long.parseLong(extension == -1 ? size.trim() : size.substring(0, extension).trim(), 16);
+
+      if (length == 0) {
+        while (!this.readLine().isEmpty()) {
+          // trailers
+        }
+        return;
+      }
+
+      this.skip(length);
+      this.readLine(); // CRLF after the data
+    }
+  }
+
+  private void skip(long length) throws IOException {
+    while (length > 0) {
+      final long skipped = this.in.skip(length);
+      if (skipped <= 0) {
+        if (this.in.read() == -1) throw new EOFException("Connection closed in the middle of the response body");
+        length--;
+      } else {
+        length -= skipped;
+      }
+    }
+  }
+
+  private void skipToEnd() throws IOException {
+    while (this.in.read() != -1) {
+      // until the server closes the connection
+    }
+  }
+
+  private String readLine() throws IOException {
+    this.line.setLength(0);
+
+    int b;
+    while ((b = this.in.read()) != '\n') {
+      if (b == -1) throw new EOFException("Connection closed in the middle of the response");
+      if (b != '\r') this.line.append((char) b);
+    }
+
+    return this.line.toString();
+  }
+
+  static byte[] ascii(String value) {
+    return value.getBytes(StandardCharsets.US_ASCII);
+  }
+}
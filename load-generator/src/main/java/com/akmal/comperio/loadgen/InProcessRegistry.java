@@ -0,0 +1,66 @@
+package com.akmal.comperio.loadgen;
+
+import com.akmal.comperio.http.registry.RegistryHttpServer;
+import com.akmal.comperio.http.registry.ServerBackend;
+import com.akmal.comperio.http.registry.dto.service.ClientRegistrationService;
+import com.akmal.comperio.registry.ClientRegistry;
+import com.akmal.comperio.shared.clock.SystemClock;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+/**
+ * Registry started by the generator, either inside its own JVM or, with {@link #main(String[])}, as the child process
+ * of {@link BackendComparison}, so that the memory of the server can be told apart from the memory of the generator.
+ */
+public final class InProcessRegistry {
+  static final String READY = "READY";
+  private static final long EXPIRY_MILLIS = 30_000;
+
+  private InProcessRegistry() {}
+
+  /**
+   * Usage: {@code InProcessRegistry <backend> <port>}, prints {@value #READY} once the server accepts the connections
+   * and runs until the process is destroyed.
+   */
+  public static void main(String[] args) throws Exception {
+    start(ServerBackend.fromLabel(args[0]), Integer.parseInt(args[1]));
+
+    System.out.println(READY);
+    Thread.currentThread().join(); // until destroyed
+  }
+
+  /**
+   * Starts the registry on the loopback interface and waits until it accepts the connections, the http-server backends
+   * bind the socket on their own thread.
+   */
+  static RegistryHttpServer start(ServerBackend backend, int port) throws InterruptedException {
+    final var clock = new SystemClock();
+    final var service = new ClientRegistrationService(ClientRegistry.withExpiry(EXPIRY_MILLIS, clock), clock);
+    final RegistryHttpServer server = RegistryHttpServer.bindTo("127.0.0.1", port, backend, service);
+
+    server.start();
+    awaitListening(new InetSocketAddress("127.0.0.1", port));
+    return server;
+  }
+
+  static int freePort() throws IOException {
+    try (final var socket = new ServerSocket(0)) {
+      return socket.getLocalPort();
+    }
+  }
+
+  static void awaitListening(InetSocketAddress address) throws InterruptedException {
+    for (int attempt = 0; attempt < 100; attempt++) {
+      try (final var socket = new Socket()) {
+        socket.connect(address, 1_000);
+        return;
+      } catch (IOException e) {
+        Thread.sleep(50);
+      }
+    }
+
+    throw new IllegalStateException("Server did not start listening on " + address);
+  }
+}
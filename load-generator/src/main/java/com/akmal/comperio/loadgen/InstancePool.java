@@ -0,0 +1,83 @@
+package com.akmal.comperio.loadgen;
+
+import java.util.random.RandomGenerator;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Tracks which of the simulated instances are registered, so that the heartbeats and the deregistrations go to the registered
+ * instances and the registrations to the absent ones, as they would in a real deployment. An instance is claimed by a single
+ * worker for the duration of the request, so that the concurrent workers do not race each other on the same instance.
+ */
+@ThreadSafe
+final class InstancePool {
+  private static final int ABSENT = 0;
+  private static final int REGISTERED = 1;
+  private static final int IN_FLIGHT = 2;
+  private static final int CLAIM_ATTEMPTS = 8;
+
+  private final int apps;
+  private final int instancesPerApp;
+  private final AtomicIntegerArray states;
+
+  InstancePool(int apps, int instancesPerApp) {
+    this.apps = apps;
+    this.instancesPerApp = instancesPerApp;
+    this.states = new AtomicIntegerArray(apps * instancesPerApp);
+  }
+
+  int size() {
+    return this.states.length();
+  }
+
+  String app(int instance) {
+    return appName(instance / this.instancesPerApp);
+  }
+
+  String instance(int instance) {
+    return "instance-" + instance % this.instancesPerApp;
+  }
+
+  String randomApp(RandomGenerator random) {
+    return appName(random.nextInt(this.apps));
+  }
+
+  /**
+   * Claims a random instance in the state the operation expects, the registrations take an absent instance, the rest
+   * a registered one. A few random probes are made, so that a pool that is almost entirely in the other state does not stall
+   * the worker.
+   *
+   * @return index of the claimed instance or -1 if none was found, in which case the worker queries the application instead.
+   */
+  int claim(Operation operation, RandomGenerator random) {
+    final int expected = operation == Operation.REGISTER ? ABSENT : REGISTERED;
+
+    for (int attempt = 0; attempt < CLAIM_ATTEMPTS; attempt++) {
+      final int instance = random.nextInt(this.states.length());
+      if (this.states.compareAndSet(instance, expected, IN_FLIGHT)) return instance;
+    }
+
+    return -1;
+  }
+
+  /**
+   * Releases the claimed instance in the state the response left it in.
+   */
+  void release(int instance, Operation operation, boolean succeeded) {
+    final boolean registered = switch (operation) {
+      case REGISTER -> succeeded;
+      case DEREGISTER -> !succeeded;
+      default -> succeeded; // the failed heartbeat means the registry no longer knows the instance
+    };
+
+    this.states.set(instance, registered ? REGISTERED : ABSENT);
+  }
+
+  void markRegistered(int instance) {
+    this.states.set(instance, REGISTERED);
+  }
+
+  private static String appName(int app) {
+    return "app-" + app;
+  }
+}
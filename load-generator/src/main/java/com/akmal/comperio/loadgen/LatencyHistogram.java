@@ -0,0 +1,136 @@
+package com.akmal.comperio.loadgen;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import net.jcip.annotations.NotThreadSafe;
+
+/**
+ * Log-linear histogram of the latencies in microseconds, in the spirit of HdrHistogram: the values below 128 are counted exactly,
+ * above that every power of two is split into 64 buckets, so that the recorded value is off by less than 1.6%, while the whole
+ * range from a microsecond to hours fits into a few thousand counters. Every worker records into its own histogram,
+ * they are merged once the run is over.
+ */
+@NotThreadSafe
+final class LatencyHistogram {
+  private static final int SUB_BUCKET_BITS = 7;
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  private static final int SUB_BUCKET_HALF = SUB_BUCKET_COUNT / 2;
+  private static final int MAX_MAGNITUDE = 40; // up to 2^47 microseconds
+  static final long MAX_VALUE = lowerBound((MAX_MAGNITUDE + 2) * SUB_BUCKET_HALF) - 1;
+
+  private final long[] counts = new long[(MAX_MAGNITUDE + 2) * SUB_BUCKET_HALF];
+  private long totalCount;
+  private long min = Long.MAX_VALUE;
+  private long max;
+  private double sum;
+
+  void record(long micros) {
+    final long value = Math.min(Math.max(micros, 0), MAX_VALUE);
+
+    this.counts[index(value)]++;
+    this.totalCount++;
+    this.sum += value;
+    this.min = Math.min(this.min, value);
+    this.max = Math.max(this.max, value);
+  }
+
+  /**
+   * Records the value together with the samples the stalled worker failed to take (coordinated omission): a worker that was meant
+   * to send a request every expected interval but waited for the response instead would have seen the latencies decreasing
+   * by the interval for every request it did not send.
+   *
+   * @param expectedIntervalMicros interval between the requests of the worker, 0 records the value only.
+   */
+  void recordCorrected(long micros, long expectedIntervalMicros) {
+    this.record(micros);
+    if (expectedIntervalMicros <= 0) return;
+
+    for (long missed = micros - expectedIntervalMicros; missed >= expectedIntervalMicros; missed -= expectedIntervalMicros) {
+      this.record(missed);
+    }
+  }
+
+  void add(LatencyHistogram other) {
+    for (int i = 0; i < this.counts.length; i++) this.counts[i] += other.counts[i];
+    this.totalCount += other.totalCount;
+    this.sum += other.sum;
+    this.min = Math.min(this.min, other.min);
+    this.max = Math.max(this.max, other.max);
+  }
+
+  void reset() {
+    Arrays.fill(this.counts, 0);
+    this.totalCount = 0;
+    this.sum = 0;
+    this.min = Long.MAX_VALUE;
+    this.max = 0;
+  }
+
+  long count() {
+    return this.totalCount;
+  }
+
+  long min() {
+    return this.totalCount == 0 ? 0 : this.min;
+  }
+
+  long max() {
+    return this.max;
+  }
+
+  double mean() {
+    return this.totalCount == 0 ? 0 : this.sum / this.totalCount;
+  }
+
+  /**
+   * Returns the value at the percentile, i.e. the value the given share of the samples does not exceed, within the precision
+   * of the buckets. The exact maximum is returned for the 100th percentile.
+   *
+   * @param percentile between 0 and 100.
+   */
+  long valueAt(double percentile) {
+    if (this.totalCount == 0) return 0;
+
+    final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * this.totalCount));
+    long seen = 0;
+
+    for (int i = 0; i < this.counts.length; i++) {
+      seen += this.counts[i];
+      if (seen >= rank) return Math.min(highestEquivalent(i), this.max);
+    }
+
+    return this.max;
+  }
+
+  /**
+   * Returns the non-empty buckets as the pairs of the highest value of the bucket and the count.
+   */
+  List<long[]> buckets() {
+    final var buckets = new ArrayList<long[]>();
+
+    for (int i = 0; i < this.counts.length; i++) {
+      if (this.counts[i] > 0) buckets.add(new long[] {highestEquivalent(i), this.counts[i]});
+    }
+
+    return buckets;
+  }
+
+  static int index(long value) {
+    if (value < SUB_BUCKET_COUNT) return (int) value;
+
+    final int magnitude = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+    return magnitude * SUB_BUCKET_HALF + (int) (value >>> magnitude);
+  }
+
+  static long lowerBound(int index) {
+    if (index < SUB_BUCKET_COUNT) return index;
+
+    final int magnitude = index / SUB_BUCKET_HALF - 1;
+    return (long) (index % SUB_BUCKET_HALF + SUB_BUCKET_HALF) << magnitude;
+  }
+
+  private static long highestEquivalent(int index) {
+    return lowerBound(index + 1) - 1;
+  }
+}
@@ -0,0 +1,88 @@
+package com.akmal.comperio.loadgen;
+
+import com.akmal.comperio.http.ObjectMapperHolder;
+import com.akmal.comperio.http.registry.RegistryHttpServer;
+import java.net.InetSocketAddress;
+import java.util.Map;
+
+/**
+ * Load generator of the registry REST API. Drives either an external server or the {@link RegistryHttpServer} it starts
+ * in-process on the chosen backend. The summary is printed and the full report, including the latency histogram, is written
+ * as JSON. See {@link BackendComparison} for the head-to-head of the backends.
+ * <p>
+ * Usage: {@code java --enable-preview -jar load-generator.jar [--name=value...]}
+ * <ul>
+ *   <li>{@code --target=host:port} server under test, or {@code --in-process=undertow|http-server|http-server-nio}</li>
+ *   <li>{@code --mode=open|closed} constant arrival rate (default) or the next request after the response</li>
+ *   <li>{@code --rate=N} requests per second, required by the open loop, paces the closed loop</li>
+ *   <li>{@code --connections=N} persistent connections, each driven by its own thread (16)</li>
+ *   <li>{@code --warmup=S} and {@code --duration=S} seconds excluded from the results and measured (5 and 30)</li>
+ *   <li>{@code --scenario=steady-state|churn|read-heavy|heartbeat} or the weights, e.g. {@code heartbeat=70,query=30}</li>
+ *   <li>{@code --apps=N} and {@code --instances=N} applications and instances per application (10 and 100)</li>
+ *   <li>{@code --report=path} JSON report (load-report.json)</li>
+ * </ul>
+ */
+public class LoadGenerator {
+
+  private LoadGenerator() {}
+
+  public static void main(String[] args) throws Exception {
+    final LoadOptions options;
+
+    try {
+      options = LoadOptions.parse(args);
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      System.exit(2);
+      return;
+    }
+
+    RegistryHttpServer server = null;
+    final InetSocketAddress address;
+    final String target;
+
+    if (options.inProcess() != null) {
+      final int port = InProcessRegistry.freePort();
+      server = InProcessRegistry.start(options.inProcess(), port);
+      address = new InetSocketAddress("127.0.0.1", port);
+      target = options.inProcess().label();
+    } else {
+      final int separator = options.target().lastIndexOf(':');
+      address = new InetSocketAddress(options.target().substring(0, separator), Integer.parseInt(options.target().substring(separator + 1)));
+      target = options.target();
+    }
+
+    try {
+      final Report report = run(options, target, address);
+      ObjectMapperHolder.getInstance().writerWithDefaultPrettyPrinter().writeValue(options.report().toFile(), report);
+      print(report);
+      System.out.println("Report written to " + options.report().toAbsolutePath());
+    } finally {
+      if (server != null) server.stop();
+    }
+  }
+
+  static Report run(LoadOptions options, String target, InetSocketAddress address) throws InterruptedException {
+    final var run = new LoadRun(options, address);
+    run.populate();
+
+    return Report.of(options, target, run.run());
+  }
+
+  static void print(Report report) {
+    System.out.printf("%s, %s loop, scenario %s, %d connections%n", report.target(), report.mode(), report.scenario(),
+        report.connections());
+    System.out.printf("%d requests in %.1f s, %.0f req/s, %d unsent, outcomes %s%n", report.requests(), report.measuredSeconds(),
+        report.throughput(), report.unsent(), report.outcomes());
+    System.out.printf("%-12s %10s %10s %10s %10s %10s %10s%n", "latency us", "count", "p50", "p90", "p99", "p99.9", "max");
+    row("corrected", report.latency());
+    row("uncorrected", report.uncorrectedLatency());
+
+    for (Map.Entry<String, Report.Latency> operation: report.operations().entrySet()) row(operation.getKey(), operation.getValue());
+  }
+
+  private static void row(String name, Report.Latency latency) {
+    System.out.printf("%-12s %10d %10d %10d %10d %10d %10d%n", name, latency.count(), latency.p50Micros(), latency.p90Micros(),
+        latency.p99Micros(), latency.p999Micros(), latency.maxMicros());
+  }
+}
@@ -0,0 +1,88 @@
+package com.akmal.comperio.loadgen;
+
+import com.akmal.comperio.http.registry.ServerBackend;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import net.jcip.annotations.Immutable;
+
+/**
+ * Options of the run given as {@code --name=value} arguments, see {@link LoadGenerator} for the list.
+ *
+ * @param target address of the server under test, ignored when the server runs in-process.
+ * @param inProcess backend of the registry started inside the generator or null to drive the external target.
+ * @param rate requests per second of all the workers together, required by the open loop, paces the closed loop when positive.
+ */
+@Immutable
+record LoadOptions(
+    String target,
+    ServerBackend inProcess,
+    Mode mode,
+    double rate,
+    int connections,
+    int warmupSeconds,
+    int durationSeconds,
+    Scenario scenario,
+    int apps,
+    int instances,
+    Path report
+) {
+  private static final Set<String> KNOWN = Set.of("target", "in-process", "mode", "rate", "connections", "warmup", "duration",
+      "scenario", "apps", "instances", "report");
+
+  enum Mode {
+    /**
+     * Requests are sent at the constant rate regardless of how fast the server responds, the latency is measured from the time
+     * the request was meant to be sent.
+     */
+    OPEN,
+    /**
+     * Every worker sends the next request once it received the response to the previous one.
+     */
+    CLOSED
+  }
+
+  LoadOptions {
+    if (mode == Mode.OPEN && rate <= 0) throw new IllegalArgumentException("Open loop requires --rate");
+    if (connections <= 0) throw new IllegalArgumentException("--connections must be positive");
+    if (durationSeconds <= 0) throw new IllegalArgumentException("--duration must be positive");
+    if (warmupSeconds < 0) throw new IllegalArgumentException("--warmup must not be negative");
+    if (apps <= 0 || instances <= 0) throw new IllegalArgumentException("--apps and --instances must be positive");
+    if (inProcess == null && target == null) throw new IllegalArgumentException("Either --target or --in-process is required");
+  }
+
+  static LoadOptions parse(String[] args) {
+    final var values = new HashMap<String, String>();
+
+    for (String arg: args) {
+      final int separator = arg.indexOf('=');
+      if (!arg.startsWith("--") || separator == -1) throw new IllegalArgumentException("Expected --name=value, got " + arg);
+
+      final String name = arg.substring(2, separator);
+      if (!KNOWN.contains(name)) throw new IllegalArgumentException("Unknown option --" + name);
+      values.put(name, arg.substring(separator + 1));
+    }
+
+    final String inProcess = values.get("in-process");
+
+    return new LoadOptions(
+        values.get("target"),
+        inProcess == null ? null : ServerBackend.fromLabel(inProcess),
+        Mode.valueOf(values.getOrDefault("mode", "open").toUpperCase()),
+        Double.parseDouble(values.getOrDefault("rate", "0")),
+        integer(values, "connections", 16),
+        integer(values, "warmup", 5),
+        integer(values, "duration", 30),
+        Scenario.parse(values.getOrDefault("scenario", "steady-state")),
+        integer(values, "apps", 10),
+        integer(values, "instances", 100),
+        Path.of(values.getOrDefault("report", "load-report.json"))
+    );
+  }
+
+  private static int integer(Map<String, String> values, String name, int defaultValue) {
+    final String value = values.get(name);
+    return value == null ? defaultValue : Integer.parseInt(value);
+  }
+}
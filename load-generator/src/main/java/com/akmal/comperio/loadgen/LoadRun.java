@@ -0,0 +1,301 @@
+package com.akmal.comperio.loadgen;
+
+import com.akmal.comperio.loadgen.LoadOptions.Mode;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Single run of the load against the server. Every connection is driven by its own platform thread, so that the scheduling
+ * of the generator does not depend on the virtual threads the server under test may be using.
+ * <p>
+ * In the open loop the requests are scheduled at the constant rate up front, the request i is meant to be sent at
+ * {@code start + i / rate} by whichever worker is free, and its latency is measured from that moment. A server that stalls
+ * therefore accumulates the queueing delay of every request scheduled during the stall, just as the real clients would see it,
+ * instead of silently slowing the generator down (coordinated omission). The closed loop cannot avoid the omission, since
+ * the next request waits for the previous response, hence its latencies are corrected by back-filling the samples the worker
+ * missed while it was waiting, at the pacing interval when paced or at the mean latency of the warm-up otherwise.
+ * The latency as seen from the moment the request was actually written is reported next to the corrected one.
+ */
+final class LoadRun {
+  private static final long GRACE_NANOS = TimeUnit.SECONDS.toNanos(10);
+  private static final int REGISTERED_SHARE = 10; // every 10th instance starts out absent
+
+  private final LoadOptions options;
+  private final InetSocketAddress address;
+  private final String host;
+  private final InstancePool pool;
+
+  LoadRun(LoadOptions options, InetSocketAddress address) {
+    this.options = options;
+    this.address = address;
+    this.host = address.getHostString() + ":" + address.getPort();
+    this.pool = new InstancePool(options.apps(), options.instances());
+  }
+
+  /**
+   * Registers nine out of ten instances before the measurement, so that the heartbeats and the deregistrations as well as
+   * the registrations find their instances from the start.
+   */
+  void populate() throws InterruptedException {
+    final var next = new AtomicInteger();
+    final var threads = new ArrayList<Thread>();
+
+    for (int i = 0; i < this.options.connections(); i++) {
+      threads.add(Thread.ofPlatform().name("populate-" + i).daemon().start(() -> {
+        try (final var connection = new HttpConnection(this.address)) {
+          for (int instance = next.getAndIncrement(); instance < this.pool.size(); instance = next.getAndIncrement()) {
+            if (instance % REGISTERED_SHARE == REGISTERED_SHARE - 1) continue;
+
+            final byte[] request = Operation.REGISTER.encode(this.host, this.pool.app(instance), this.pool.instance(instance));
+            try {
+              if (connection.exchange(request) / 100 == 2) this.pool.markRegistered(instance);
+            } catch (IOException e) {
+              // left absent, the scenario registers it later
+            }
+          }
+        }
+      }));
+    }
+
+    for (Thread thread: threads) thread.join();
+  }
+
+  Result run() throws InterruptedException {
+    final long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100); // lets every worker reach the loop
+    final long measureStart = start + TimeUnit.SECONDS.toNanos(this.options.warmupSeconds());
+    final long end = measureStart + TimeUnit.SECONDS.toNanos(this.options.durationSeconds());
+    final var sequence = new AtomicLong();
+    final var workers = new ArrayList<Worker>();
+    final var threads = new ArrayList<Thread>();
+
+    for (int i = 0; i < this.options.connections(); i++) {
+      final var worker = new Worker(start, measureStart, end, sequence);
+      workers.add(worker);
+      threads.add(Thread.ofPlatform().name("load-" + i).daemon().start(worker));
+    }
+
+    for (Thread thread: threads) thread.join();
+
+    final var result = new Result(this.correction(), measureStart, end);
+    for (Worker worker: workers) result.add(worker);
+
+    if (this.options.mode() == Mode.OPEN) {
+      final long scheduled = (long) Math.ceil((end - start) / this.intervalNanos());
+      result.unsent = Math.max(0, scheduled - sequence.get());
+    }
+
+    return result;
+  }
+
+  private double intervalNanos() {
+    return TimeUnit.SECONDS.toNanos(1) / this.options.rate();
+  }
+
+  private String correction() {
+    if (this.options.mode() == Mode.OPEN) return "intended-start";
+    if (this.options.rate() > 0) return "pacing-interval";
+    return this.options.warmupSeconds() > 0 ? "warmup-mean" : "none";
+  }
+
+  private final class Worker implements Runnable {
+    private final long start;
+    private final long measureStart;
+    private final long end;
+    private final AtomicLong sequence;
+    private final HttpConnection connection = new HttpConnection(address);
+    private final SplittableRandom random = new SplittableRandom();
+    private Outcome outcome;
+
+    final LatencyHistogram latency = new LatencyHistogram();
+    final LatencyHistogram uncorrectedLatency = new LatencyHistogram();
+    final Map<Operation, LatencyHistogram> operations = new EnumMap<>(Operation.class);
+    final long[] outcomes = new long[Outcome.values().length];
+    long completed;
+    long lastCompletion;
+
+    private Worker(long start, long measureStart, long end, AtomicLong sequence) {
+      this.start = start;
+      this.measureStart = measureStart;
+      this.end = end;
+      this.sequence = sequence;
+      for (Operation operation: Operation.values()) this.operations.put(operation, new LatencyHistogram());
+    }
+
+    @Override
+    public void run() {
+      try (this.connection) {
+        if (options.mode() == Mode.OPEN) this.openLoop();
+        else this.closedLoop();
+      }
+    }
+
+    private void openLoop() {
+      final double interval = intervalNanos();
+
+      while (true) {
+        final long intended = this.start + (long) (this.sequence.getAndIncrement() * interval);
+        if (intended - this.end >= 0 || System.nanoTime() - this.end > GRACE_NANOS) return;
+
+        parkUntil(intended);
+        final long sent = System.nanoTime();
+        final Operation operation = this.exchange();
+        final long done = System.nanoTime();
+
+        if (intended - this.measureStart >= 0) {
+          this.record(operation, micros(done - intended), micros(done - sent), 0, done);
+        }
+      }
+    }
+
+    private void closedLoop() {
+      final long pacing = options.rate() > 0 ? (long) (intervalNanos() * options.connections()) : 0;
+      final var warmup = new LatencyHistogram();
+      long expectedInterval = micros(pacing);
+      long next = this.start;
+      parkUntil(this.start);
+
+      while (true) {
+        if (pacing > 0) {
+          parkUntil(next);
+          next = Math.max(next + pacing, System.nanoTime()); // no bursts to catch up, the stall is corrected for instead
+        }
+
+        final long sent = System.nanoTime();
+        if (sent - this.end >= 0) return;
+
+        final Operation operation = this.exchange();
+        final long done = System.nanoTime();
+        final long latency = micros(done - sent);
+
+        if (sent - this.measureStart < 0) {
+          warmup.record(latency);
+          continue;
+        }
+
+        if (pacing == 0 && expectedInterval == 0) expectedInterval = (long) warmup.mean();
+        this.record(operation, latency, latency, expectedInterval, done);
+      }
+    }
+
+    /**
+     * Sends the request of the next operation of the scenario and returns the operation, which is the application query
+     * when no instance in the state the drawn operation expects could be claimed. The outcome is left in {@link #outcome}.
+     */
+    private Operation exchange() {
+      Operation operation = options.scenario().next(this.random);
+      int instance = -1;
+
+      if (operation.targetsInstance()) {
+        instance = pool.claim(operation, this.random);
+        if (instance == -1) operation = Operation.QUERY_APPLICATION;
+      }
+
+      final byte[] request = instance == -1
+                                 ? operation.encode(host, pool.randomApp(this.random), "")
+                                 : operation.encode(host, pool.app(instance), pool.instance(instance));
+      Outcome outcome;
+
+      try {
+        outcome = Outcome.of(this.connection.exchange(request));
+      } catch (IOException e) {
+        outcome = Outcome.IO_ERROR;
+      }
+
+      if (instance != -1) pool.release(instance, operation, outcome == Outcome.SUCCESS);
+      this.outcome = outcome;
+      return operation;
+    }
+
+    private void record(Operation operation, long latency, long uncorrected, long expectedInterval, long done) {
+      this.latency.recordCorrected(latency, expectedInterval);
+      this.uncorrectedLatency.record(uncorrected);
+      this.operations.get(operation).recordCorrected(latency, expectedInterval);
+      this.outcomes[this.outcome.ordinal()]++;
+      this.completed++;
+      this.lastCompletion = done;
+    }
+  }
+
+  private static void parkUntil(long deadline) {
+    for (long remaining = deadline - System.nanoTime(); remaining > 0; remaining = deadline - System.nanoTime()) {
+      LockSupport.parkNanos(remaining);
+    }
+  }
+
+  private static long micros(long nanos) {
+    return TimeUnit.NANOSECONDS.toMicros(nanos);
+  }
+
+  enum Outcome {
+    SUCCESS, REDIRECTION, CLIENT_ERROR, SERVER_ERROR, IO_ERROR;
+
+    static Outcome of(int status) {
+      return switch (status / 100) {
+        case 2 -> SUCCESS;
+        case 3 -> REDIRECTION;
+        case 4 -> CLIENT_ERROR;
+        case 5 -> SERVER_ERROR;
+        default -> IO_ERROR;
+      };
+    }
+  }
+
+  /**
+   * Measurements of all the workers merged, the warm-up excluded.
+   */
+  static final class Result {
+    final String correction;
+    final LatencyHistogram latency = new LatencyHistogram();
+    final LatencyHistogram uncorrectedLatency = new LatencyHistogram();
+    final Map<Operation, LatencyHistogram> operations = new EnumMap<>(Operation.class);
+    final long[] outcomes = new long[Outcome.values().length];
+    final long measureStart;
+    final long end;
+    long requests;
+    long unsent;
+    long lastCompletion;
+
+    private Result(String correction, long measureStart, long end) {
+      this.correction = correction;
+      this.measureStart = measureStart;
+      this.end = end;
+      this.lastCompletion = measureStart;
+      for (Operation operation: Operation.values()) this.operations.put(operation, new LatencyHistogram());
+    }
+
+    private void add(Worker worker) {
+      this.latency.add(worker.latency);
+      this.uncorrectedLatency.add(worker.uncorrectedLatency);
+      worker.operations.forEach((operation, histogram) -> this.operations.get(operation).add(histogram));
+      for (int i = 0; i < this.outcomes.length; i++) this.outcomes[i] += worker.outcomes[i];
+      this.requests += worker.completed;
+      if (worker.completed > 0 && worker.lastCompletion - this.lastCompletion > 0) this.lastCompletion = worker.lastCompletion;
+    }
+
+    /**
+     * Returns the length of the measurement in seconds, which extends past the planned end when the open loop had to drain
+     * the backlog of the late requests.
+     */
+    double measuredSeconds() {
+      final long last = this.lastCompletion - this.end > 0 ? this.lastCompletion : this.end;
+      return (last - this.measureStart) / 1e9;
+    }
+
+    double throughput() {
+      return this.requests / this.measuredSeconds();
+    }
+
+    List<Operation> observedOperations() {
+      return this.operations.entrySet().stream().filter(entry -> entry.getValue().count() > 0).map(Map.Entry::getKey).toList();
+    }
+  }
+}
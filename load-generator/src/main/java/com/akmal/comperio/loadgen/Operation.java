@@ -0,0 +1,60 @@
+package com.akmal.comperio.loadgen;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Requests of the registry REST API the scenarios are composed of. The requests are encoded up front as HTTP/1.1 keep-alive
+ * requests, so that the hot loop of the worker only writes the bytes.
+ */
+enum Operation {
+  REGISTER("register"),
+  HEARTBEAT("heartbeat"),
+  QUERY_APPLICATION("query"),
+  DEREGISTER("deregister");
+
+  private final String label;
+
+  Operation(String label) {
+    this.label = label;
+  }
+
+  String label() {
+    return this.label;
+  }
+
+  /**
+   * Returns true when the operation acts on a single instance that has to be claimed from the {@link InstancePool} first.
+   */
+  boolean targetsInstance() {
+    return this != QUERY_APPLICATION;
+  }
+
+  static Operation fromLabel(String label) {
+    for (Operation operation: values()) {
+      if (operation.label.equals(label)) return operation;
+    }
+
+    throw new IllegalArgumentException("Unknown operation " + label + ", expected register, heartbeat, query or deregister");
+  }
+
+  /**
+   * Encodes the request of the operation, the instance is ignored by {@link #QUERY_APPLICATION}.
+   */
+  byte[] encode(String host, String app, String instance) {
+    final String instancePath = "/v1/applications/" + app + "/instances/" + instance;
+
+    return switch (this) {
+      case REGISTER -> {
+        final String body = "{\"host\":\"" + instance + ".local\",\"port\":8080,\"ipAddress\":\"127.0.0.1\"}";
+        yield request("POST", instancePath, host, "Content-Type: application/json\r\nContent-Length: " + body.length() + "\r\n", body);
+      }
+      case HEARTBEAT -> request("POST", instancePath + "/heartbeat", host, "Content-Length: 0\r\n", "");
+      case QUERY_APPLICATION -> request("GET", "/v1/applications/" + app + "/instances", host, "", "");
+      case DEREGISTER -> request("DELETE", instancePath, host, "", "");
+    };
+  }
+
+  private static byte[] request(String method, String path, String host, String headers, String body) {
+    return (method + " " + path + " HTTP/1.1\r\nHost: " + host + "\r\n" + headers + "\r\n" + body).getBytes(StandardCharsets.US_ASCII);
+  }
+}
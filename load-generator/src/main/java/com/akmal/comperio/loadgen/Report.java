@@ -0,0 +1,63 @@
+package com.akmal.comperio.loadgen;
+
+import com.akmal.comperio.loadgen.LoadRun.Outcome;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import net.jcip.annotations.Immutable;
+
+/**
+ * Machine-readable outcome of the run, written as JSON. The latencies are in microseconds, the histogram lists the non-empty
+ * buckets of the corrected latency as the pairs of the highest value of the bucket and the count, so that the percentiles
+ * can be recomputed or the runs merged offline.
+ */
+@Immutable
+record Report(
+    String target,
+    String mode,
+    String scenario,
+    Map<String, Integer> mix,
+    int connections,
+    double rate,
+    int warmupSeconds,
+    int durationSeconds,
+    double measuredSeconds,
+    long requests,
+    long unsent,
+    double throughput,
+    Map<String, Long> outcomes,
+    String correction,
+    Latency latency,
+    Latency uncorrectedLatency,
+    Map<String, Latency> operations,
+    List<long[]> histogram
+) {
+
+  static Report of(LoadOptions options, String target, LoadRun.Result result) {
+    final var mix = new LinkedHashMap<String, Integer>();
+    options.scenario().weights().forEach((operation, weight) -> mix.put(operation.label(), weight));
+
+    final var outcomes = new LinkedHashMap<String, Long>();
+    for (Outcome outcome: Outcome.values()) outcomes.put(outcome.name().toLowerCase(), result.outcomes[outcome.ordinal()]);
+
+    final var operations = new LinkedHashMap<String, Latency>();
+    for (Operation operation: result.observedOperations()) {
+      operations.put(operation.label(), Latency.of(result.operations.get(operation)));
+    }
+
+    return new Report(target, options.mode().name().toLowerCase(), options.scenario().name(), mix, options.connections(),
+        options.rate(), options.warmupSeconds(), options.durationSeconds(), result.measuredSeconds(), result.requests,
+        result.unsent, result.throughput(), outcomes, result.correction, Latency.of(result.latency),
+        Latency.of(result.uncorrectedLatency), operations, result.latency.buckets());
+  }
+
+  @Immutable
+  record Latency(long count, long minMicros, double meanMicros, long p50Micros, long p90Micros, long p99Micros, long p999Micros,
+                 long maxMicros) {
+
+    static Latency of(LatencyHistogram histogram) {
+      return new Latency(histogram.count(), histogram.min(), histogram.mean(), histogram.valueAt(50), histogram.valueAt(90),
+          histogram.valueAt(99), histogram.valueAt(99.9), histogram.max());
+    }
+  }
+}
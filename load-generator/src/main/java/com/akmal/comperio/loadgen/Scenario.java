@@ -0,0 +1,66 @@
+package com.akmal.comperio.loadgen;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.random.RandomGenerator;
+import net.jcip.annotations.Immutable;
+
+/**
+ * Weighted mix of the operations every request of the run is drawn from. The presets model the typical traffic of the registry:
+ * the steady state is dominated by the heartbeats of the registered instances, the churn by the instances coming and going
+ * (deployments, autoscaling) and the read-heavy mix by the clients refreshing their view of the applications.
+ * A custom mix is given as the comma separated weights, e.g. {@code heartbeat=70,query=25,register=5}.
+ */
+@Immutable
+record Scenario(String name, Map<Operation, Integer> weights) {
+  private static final Map<String, String> PRESETS = Map.of(
+      "steady-state", "heartbeat=90,query=8,register=1,deregister=1",
+      "churn", "register=30,deregister=30,heartbeat=30,query=10",
+      "read-heavy", "query=80,heartbeat=20",
+      "heartbeat", "heartbeat=100"
+  );
+
+  Scenario {
+    if (weights.isEmpty() || weights.values().stream().mapToInt(Integer::intValue).sum() <= 0) {
+      throw new IllegalArgumentException("Scenario " + name + " has no operations");
+    }
+    weights = Map.copyOf(weights);
+  }
+
+  /**
+   * Parses the name of the preset or the custom mix of the weights.
+   */
+  static Scenario parse(String value) {
+    final String mix = PRESETS.getOrDefault(value, value);
+    final var weights = new EnumMap<Operation, Integer>(Operation.class);
+
+    for (String entry: mix.split(",")) {
+      final int separator = entry.indexOf('=');
+      if (separator == -1) throw new IllegalArgumentException("Unknown scenario " + value + ", expected one of " + PRESETS.keySet()
+                                                                  + " or the weights, e.g. heartbeat=90,query=10");
+
+      final int weight = Integer.parseInt(entry.substring(separator + 1).trim());
+      if (weight < 0) throw new IllegalArgumentException("Negative weight in the scenario " + value);
+      if (weight > 0) weights.merge(Operation.fromLabel(entry.substring(0, separator).trim()), weight, Integer::sum);
+    }
+
+    return new Scenario(value, weights);
+  }
+
+  Operation next(RandomGenerator random) {
+    int point = random.nextInt(this.totalWeight());
+
+    for (Operation operation: Operation.values()) {
+      point -= this.weights.getOrDefault(operation, 0);
+      if (point < 0) return operation;
+    }
+
+    throw new IllegalStateException("Unreachable");
+  }
+
+  private int totalWeight() {
+    int total = 0;
+    for (int weight: this.weights.values()) total += weight;
+    return total;
+  }
+}
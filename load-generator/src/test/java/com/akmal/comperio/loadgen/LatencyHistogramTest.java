@@ -0,0 +1,81 @@
+package com.akmal.comperio.loadgen;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+
+  @Test
+  @DisplayName("Should keep every value within the precision of its bucket")
+  void shouldBucketWithinPrecision() {
+    for (long value = 0; value < 10_000_000; value = value * 3 / 2 + 1) {
+      final int index = LatencyHistogram.index(value);
+
+      assertThat(LatencyHistogram.lowerBound(index)).isLessThanOrEqualTo(value);
+      assertThat(LatencyHistogram.lowerBound(index + 1)).isGreaterThan(value);
+      assertThat(LatencyHistogram.lowerBound(index + 1) - LatencyHistogram.lowerBound(index))
+          .isLessThanOrEqualTo(Math.max(1, value / 64));
+    }
+
+    final var histogram = new LatencyHistogram();
+    histogram.record(Long.MAX_VALUE);
+    assertThat(histogram.max()).isEqualTo(LatencyHistogram.MAX_VALUE);
+  }
+
+  @Test
+  @DisplayName("Should return the percentiles of the recorded values")
+  void shouldComputePercentiles() {
+    final var histogram = new LatencyHistogram();
+    for (long value = 1; value <= 10_000; value++) histogram.record(value);
+
+    assertThat(histogram.count()).isEqualTo(10_000);
+    assertThat(histogram.min()).isEqualTo(1);
+    assertThat(histogram.max()).isEqualTo(10_000);
+    assertThat(histogram.mean()).isCloseTo(5000.5, within(0.001));
+    assertThat(histogram.valueAt(50)).isCloseTo(5000, within(5000 / 64L));
+    assertThat(histogram.valueAt(99)).isCloseTo(9900, within(9900 / 64L));
+    assertThat(histogram.valueAt(100)).isEqualTo(10_000);
+    assertThat(histogram.valueAt(0)).isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("Should back-fill the samples the stalled worker missed")
+  void shouldCorrectCoordinatedOmission() {
+    final var histogram = new LatencyHistogram();
+    for (int i = 0; i < 99; i++) histogram.recordCorrected(100, 1_000);
+    histogram.recordCorrected(10_000, 1_000); // a stall of ten intervals
+
+    assertThat(histogram.count()).isEqualTo(99 + 10);
+    assertThat(histogram.buckets()).last().satisfies(bucket -> assertThat(bucket[1]).isEqualTo(1));
+    assertThat(histogram.valueAt(95)).isGreaterThanOrEqualTo(5_000);
+
+    final var uncorrected = new LatencyHistogram();
+    for (int i = 0; i < 99; i++) uncorrected.record(100);
+    uncorrected.record(10_000);
+    assertThat(uncorrected.valueAt(95)).isEqualTo(100);
+  }
+
+  @Test
+  @DisplayName("Should merge the histograms of the workers")
+  void shouldMerge() {
+    final var first = new LatencyHistogram();
+    final var second = new LatencyHistogram();
+    first.record(10);
+    second.record(20);
+    second.record(1_000_000);
+
+    first.add(second);
+
+    assertThat(first.count()).isEqualTo(3);
+    assertThat(first.min()).isEqualTo(10);
+    assertThat(first.max()).isEqualTo(1_000_000);
+    assertThat(first.valueAt(50)).isEqualTo(20);
+
+    first.reset();
+    assertThat(first.count()).isZero();
+    assertThat(first.valueAt(99)).isZero();
+  }
+}
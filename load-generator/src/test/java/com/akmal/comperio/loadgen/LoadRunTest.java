@@ -0,0 +1,64 @@
+package com.akmal.comperio.loadgen;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.akmal.comperio.http.registry.RegistryHttpServer;
+import com.akmal.comperio.http.registry.ServerBackend;
+import com.akmal.comperio.loadgen.LoadRun.Outcome;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class LoadRunTest {
+  private InetSocketAddress address;
+  private RegistryHttpServer server;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    this.address = new InetSocketAddress("127.0.0.1", InProcessRegistry.freePort());
+    this.server = InProcessRegistry.start(ServerBackend.HTTP_SERVER, this.address.getPort());
+  }
+
+  @AfterEach
+  void tearDown() {
+    this.server.stop();
+  }
+
+  @Test
+  @DisplayName("Should send the scenario at the constant rate and measure every request")
+  void shouldRunOpenLoop() throws InterruptedException {
+    final var options = LoadOptions.parse(new String[] {"--target=127.0.0.1:" + this.address.getPort(), "--rate=200",
+        "--connections=4", "--warmup=0", "--duration=1", "--scenario=churn", "--apps=2", "--instances=20"});
+    final var run = new LoadRun(options, this.address);
+
+    run.populate();
+    final LoadRun.Result result = run.run();
+
+    assertThat(result.requests).isEqualTo(200);
+    assertThat(result.unsent).isZero();
+    assertThat(result.outcomes[Outcome.SUCCESS.ordinal()]).isEqualTo(200);
+    assertThat(result.latency.count()).isEqualTo(200);
+    assertThat(result.observedOperations()).contains(Operation.REGISTER, Operation.HEARTBEAT, Operation.DEREGISTER);
+  }
+
+  @Test
+  @DisplayName("Should reject the incomplete options")
+  void shouldRejectOptions() {
+    assertThatThrownBy(() -> LoadOptions.parse(new String[] {"--in-process=undertow"}))
+        .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("--rate");
+    assertThatThrownBy(() -> LoadOptions.parse(new String[] {"--mode=closed"}))
+        .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("--target");
+    assertThatThrownBy(() -> LoadOptions.parse(new String[] {"--in-process=undertow", "--scenario=reads"}))
+        .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("Unknown scenario");
+
+    final var options = LoadOptions.parse(new String[] {"--in-process=http-server-nio", "--mode=closed",
+        "--scenario=heartbeat=3,query=1", "--report=out.json"});
+    assertThat(options.inProcess()).isEqualTo(ServerBackend.HTTP_SERVER_NIO);
+    assertThat(options.scenario().weights()).containsEntry(Operation.HEARTBEAT, 3).containsEntry(Operation.QUERY_APPLICATION, 1);
+    assertThat(options.report()).isEqualTo(Path.of("out.json"));
+  }
+}